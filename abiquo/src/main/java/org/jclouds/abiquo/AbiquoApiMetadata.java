@@ -17,8 +17,21 @@
 package org.jclouds.abiquo;
 
 import static org.jclouds.Constants.PROPERTY_MAX_REDIRECTS;
+import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_BACKOFF;
 import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_DELAY;
+import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_MAX_DELAY;
+import static org.jclouds.abiquo.config.AbiquoProperties.COMPATIBLE_VIRTUAL_DATACENTERS_CACHE;
+import static org.jclouds.abiquo.config.AbiquoProperties.CONVERSION_MONITOR_BACKOFF;
+import static org.jclouds.abiquo.config.AbiquoProperties.CONVERSION_MONITOR_MAX_DELAY;
 import static org.jclouds.abiquo.config.AbiquoProperties.CREDENTIAL_TYPE;
+import static org.jclouds.abiquo.config.AbiquoProperties.LIST_CONCURRENCY;
+import static org.jclouds.abiquo.config.AbiquoProperties.LIST_TIMEOUT;
+import static org.jclouds.abiquo.config.AbiquoProperties.MONITOR_FAST_PROBES;
+import static org.jclouds.abiquo.config.AbiquoProperties.MONITOR_JITTER;
+import static org.jclouds.abiquo.config.AbiquoProperties.MONITOR_TICK;
+import static org.jclouds.abiquo.config.AbiquoProperties.PAGINATION_PREFETCH;
+import static org.jclouds.abiquo.config.AbiquoProperties.VIRTUAL_MACHINE_MONITOR_BACKOFF;
+import static org.jclouds.abiquo.config.AbiquoProperties.VIRTUAL_MACHINE_MONITOR_MAX_DELAY;
 
 import java.net.URI;
 import java.util.Properties;
@@ -57,6 +70,27 @@ public class AbiquoApiMetadata extends BaseHttpApiMetadata<AbiquoApi> {
       properties.setProperty(PROPERTY_MAX_REDIRECTS, "0");
       // The default polling delay between AsyncTask monitor requests
       properties.setProperty(ASYNC_TASK_MONITOR_DELAY, "5000");
+      // Monitored objects are polled with a short schedule first, and then
+      // with an exponential backoff
+      properties.setProperty(MONITOR_TICK, "500");
+      properties.setProperty(MONITOR_FAST_PROBES, "1000,2000");
+      properties.setProperty(MONITOR_JITTER, "0.1");
+      properties.setProperty(VIRTUAL_MACHINE_MONITOR_BACKOFF, "1.5");
+      properties.setProperty(VIRTUAL_MACHINE_MONITOR_MAX_DELAY, "30000");
+      properties.setProperty(CONVERSION_MONITOR_BACKOFF, "2");
+      properties.setProperty(CONVERSION_MONITOR_MAX_DELAY, "60000");
+      properties.setProperty(ASYNC_TASK_MONITOR_BACKOFF, "1.5");
+      properties.setProperty(ASYNC_TASK_MONITOR_MAX_DELAY, "30000");
+      // The template to compatible virtual datacenter matrix is expensive to
+      // compute, so it is cached for longer than the session interval
+      properties.setProperty(COMPATIBLE_VIRTUAL_DATACENTERS_CACHE, "300000");
+      // Fetch the next pages of large collections while the current one is
+      // consumed
+      properties.setProperty(PAGINATION_PREFETCH, "4");
+      // Resources of several parents are listed concurrently, with a bounded
+      // number of requests in flight
+      properties.setProperty(LIST_CONCURRENCY, "8");
+      properties.setProperty(LIST_TIMEOUT, "180000");
       // By default the provided credential is not a token
       properties.setProperty(CREDENTIAL_TYPE, "password");
       return properties;
@@ -18,16 +18,19 @@ package org.jclouds.abiquo.compute.strategy;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.concat;
-import static com.google.common.collect.Iterables.contains;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.find;
 import static com.google.common.collect.Iterables.get;
 import static com.google.common.collect.Iterables.isEmpty;
-import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Iterables.tryFind;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.abiquo.domain.DomainWrapper.wrap;
+import static org.jclouds.abiquo.domain.util.LinkUtils.getCollectionHref;
+import static org.jclouds.abiquo.domain.util.LinkUtils.getSelfLink;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
@@ -36,6 +39,7 @@ import javax.inject.Singleton;
 
 import org.jclouds.abiquo.AbiquoApi;
 import org.jclouds.abiquo.compute.options.AbiquoTemplateOptions;
+import org.jclouds.abiquo.compute.strategy.internal.ResourceIndex;
 import org.jclouds.abiquo.domain.cloud.VirtualDatacenter;
 import org.jclouds.abiquo.domain.cloud.VirtualMachine;
 import org.jclouds.abiquo.domain.cloud.VirtualMachineTemplate;
@@ -51,6 +55,7 @@ import org.jclouds.abiquo.features.services.CloudService;
 import org.jclouds.abiquo.features.services.MonitoringService;
 import org.jclouds.abiquo.monitor.VirtualMachineMonitor;
 import org.jclouds.abiquo.predicates.IpPredicates;
+import org.jclouds.abiquo.reference.rest.ParentLinkName;
 import org.jclouds.collect.Memoized;
 import org.jclouds.compute.ComputeServiceAdapter;
 import org.jclouds.compute.domain.Hardware;
@@ -62,12 +67,19 @@ import org.jclouds.compute.reference.ComputeServiceConstants.Timeouts;
 import org.jclouds.logging.Logger;
 import org.jclouds.rest.ApiContext;
 
+import com.abiquo.model.rest.RESTLink;
+import com.abiquo.server.core.appslibrary.VirtualMachineTemplateDto;
+import com.abiquo.server.core.cloud.VirtualApplianceDto;
 import com.abiquo.server.core.cloud.VirtualMachineState;
-import com.google.common.base.Function;
+import com.abiquo.server.core.cloud.VirtualMachineWithNodeExtendedDto;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.primitives.Ints;
 import com.google.inject.Inject;
 
@@ -94,17 +106,24 @@ public class AbiquoComputeServiceAdapter
 
    private final MonitoringService monitoringService;
 
-   private final FindCompatibleVirtualDatacenters compatibleVirtualDatacenters;
+   private final CompatibleVirtualDatacentersCache compatibleVirtualDatacenters;
 
    private final Supplier<Map<Integer, Datacenter>> regionMap;
 
    private final Timeouts timeouts;
 
+   /** Index of the virtual machine collection each virtual machine belongs to. */
+   private final ResourceIndex<String> virtualMachineIndex;
+
+   /** Index of the datacenter repository each template belongs to. */
+   private final ResourceIndex<Integer> templateIndex;
+
    @Inject
    public AbiquoComputeServiceAdapter(final ApiContext<AbiquoApi> context, final AdministrationService adminService,
          final CloudService cloudService, final MonitoringService monitoringService,
-         final FindCompatibleVirtualDatacenters compatibleVirtualDatacenters,
-         @Memoized final Supplier<Map<Integer, Datacenter>> regionMap, Timeouts timeouts) {
+         final CompatibleVirtualDatacentersCache compatibleVirtualDatacenters,
+         @Memoized final Supplier<Map<Integer, Datacenter>> regionMap, Timeouts timeouts,
+         @Named(PROPERTY_SESSION_INTERVAL) final long seconds) {
       this.context = checkNotNull(context, "context");
       this.adminService = checkNotNull(adminService, "adminService");
       this.cloudService = checkNotNull(cloudService, "cloudService");
@@ -112,6 +131,28 @@ public class AbiquoComputeServiceAdapter
       this.compatibleVirtualDatacenters = checkNotNull(compatibleVirtualDatacenters, "compatibleVirtualDatacenters");
       this.regionMap = checkNotNull(regionMap, "regionMap");
       this.timeouts = checkNotNull(timeouts, "timeouts");
+      this.virtualMachineIndex = new ResourceIndex<String>(new Supplier<Map<Integer, String>>() {
+         @Override
+         public Map<Integer, String> get() {
+            Map<Integer, String> index = Maps.newHashMap();
+            for (VirtualMachine vm : listNodes()) {
+               index.put(vm.getId(), getCollectionHref(getSelfLink(vm.unwrap())));
+            }
+            logger.debug(">> Indexed %s virtual machines", index.size());
+            return index;
+         }
+      }, seconds, TimeUnit.SECONDS);
+      this.templateIndex = new ResourceIndex<Integer>(new Supplier<Map<Integer, Integer>>() {
+         @Override
+         public Map<Integer, Integer> get() {
+            Map<Integer, Integer> index = Maps.newHashMap();
+            for (VirtualMachineTemplate template : listImages()) {
+               index.put(template.getId(), template.unwrap().getIdFromLink(ParentLinkName.DATACENTER_REPOSITORY));
+            }
+            logger.debug(">> Indexed %s templates", index.size());
+            return index;
+         }
+      }, seconds, TimeUnit.SECONDS);
    }
 
    @Override
@@ -145,6 +186,7 @@ public class AbiquoComputeServiceAdapter
             .build();
 
       vm.save();
+      virtualMachineIndex.put(vm.getId(), getCollectionHref(getSelfLink(vm.unwrap())));
 
       configureNetworking(vm, template, datacenter, options);
 
@@ -160,22 +202,7 @@ public class AbiquoComputeServiceAdapter
       // In Abiquo, images are scoped to a region (physical datacenter), and
       // hardware profiles are scoped to a zone (a virtual datacenter in the
       // region, with a concrete virtualization technology)
-
-      return concat(transform(listImages(),
-            new Function<VirtualMachineTemplate, Iterable<VirtualMachineTemplateInVirtualDatacenter>>() {
-               @Override
-               public Iterable<VirtualMachineTemplateInVirtualDatacenter> apply(final VirtualMachineTemplate template) {
-                  Iterable<VirtualDatacenter> compatibleZones = compatibleVirtualDatacenters.execute(template);
-
-                  return transform(compatibleZones,
-                        new Function<VirtualDatacenter, VirtualMachineTemplateInVirtualDatacenter>() {
-                           @Override
-                           public VirtualMachineTemplateInVirtualDatacenter apply(final VirtualDatacenter vdc) {
-                              return new VirtualMachineTemplateInVirtualDatacenter(template, vdc);
-                           }
-                        });
-               }
-            }));
+      return compatibleVirtualDatacenters.execute(listImages());
    }
 
    @Override
@@ -186,22 +213,44 @@ public class AbiquoComputeServiceAdapter
 
    @Override
    public VirtualMachineTemplate getImage(final String id) {
-      return find(listImages(), new Predicate<VirtualMachineTemplate>() {
-         @Override
-         public boolean apply(VirtualMachineTemplate input) {
-            return input.getId().equals(id);
-         }
-      }, null);
+      Integer templateId = Ints.tryParse(id);
+      Integer repositoryId = templateId == null ? null : templateIndex.get(templateId);
+      if (repositoryId == null) {
+         return null;
+      }
+
+      Enterprise enterprise = adminService.getCurrentEnterprise();
+      VirtualMachineTemplateDto template = context.getApi().getVirtualMachineTemplateApi()
+            .getVirtualMachineTemplate(enterprise.getId(), repositoryId, templateId);
+      if (template == null) {
+         templateIndex.invalidate(templateId);
+      }
+
+      return wrap(context, VirtualMachineTemplate.class, template);
    }
 
    @Override
    public Iterable<VirtualDatacenter> listLocations() {
-      return cloudService.listVirtualDatacenters();
+      List<VirtualDatacenter> vdcs = ImmutableList.copyOf(cloudService.listVirtualDatacenters());
+      compatibleVirtualDatacenters.invalidateIfChanged(vdcs);
+      return vdcs;
    }
 
    @Override
    public VirtualMachine getNode(final String id) {
-      return find(cloudService.listVirtualMachines(), vmId(id), null);
+      Integer vmId = Ints.tryParse(id);
+      String href = vmId == null ? null : virtualMachineIndex.get(vmId);
+      if (href == null) {
+         return null;
+      }
+
+      VirtualMachineWithNodeExtendedDto vm = context.getApi().getCloudApi()
+            .getVirtualMachine(virtualAppliance(href), vmId);
+      if (vm == null) {
+         virtualMachineIndex.invalidate(vmId);
+      }
+
+      return wrap(context, VirtualMachine.class, vm);
    }
 
    @Override
@@ -211,6 +260,7 @@ public class AbiquoComputeServiceAdapter
       vm.undeploy(true);
       monitor.awaitCompletionUndeploy(timeouts.nodeTerminated, TimeUnit.MILLISECONDS, vm);
       vm.delete();
+      virtualMachineIndex.invalidate(vm.getId());
    }
 
    @Override
@@ -244,13 +294,31 @@ public class AbiquoComputeServiceAdapter
 
    @Override
    public Iterable<VirtualMachine> listNodesByIds(final Iterable<String> ids) {
-      return filter(listNodes(), new Predicate<VirtualMachine>() {
-
-         @Override
-         public boolean apply(VirtualMachine machine) {
-            return contains(ids, Integer.toString(machine.getId()));
+      final Set<String> idSet = ImmutableSet.copyOf(ids);
+
+      // List each virtual machine collection only once, instead of crawling
+      // the whole inventory
+      ListMultimap<String, String> idsByCollection = ArrayListMultimap.create();
+      for (String id : idSet) {
+         Integer vmId = Ints.tryParse(id);
+         String href = vmId == null ? null : virtualMachineIndex.get(vmId);
+         if (href != null) {
+            idsByCollection.put(href, id);
          }
-      });
+      }
+
+      ImmutableList.Builder<VirtualMachineWithNodeExtendedDto> vms = ImmutableList.builder();
+      for (String href : idsByCollection.keySet()) {
+         vms.addAll(filter(context.getApi().getCloudApi().listVirtualMachines(virtualAppliance(href)).concat(),
+               new Predicate<VirtualMachineWithNodeExtendedDto>() {
+                  @Override
+                  public boolean apply(final VirtualMachineWithNodeExtendedDto vm) {
+                     return idSet.contains(Integer.toString(vm.getId()));
+                  }
+               }));
+      }
+
+      return wrap(context, VirtualMachine.class, vms.build());
    }
 
    /**
@@ -315,13 +383,15 @@ public class AbiquoComputeServiceAdapter
       }
    }
 
-   private static Predicate<VirtualMachine> vmId(final String id) {
-      return new Predicate<VirtualMachine>() {
-         @Override
-         public boolean apply(final VirtualMachine input) {
-            return Integer.valueOf(id).equals(input.getId());
-         }
-      };
+   /**
+    * Builds a transport object pointing to the given virtual machine collection,
+    * to avoid making an unnecessary call to the target API to load the virtual
+    * appliance.
+    */
+   private static VirtualApplianceDto virtualAppliance(final String virtualMachinesHref) {
+      VirtualApplianceDto vapp = new VirtualApplianceDto();
+      vapp.addLink(new RESTLink("virtualmachines", virtualMachinesHref));
+      return vapp;
    }
 
    private static int totalCores(final Hardware hardware) {
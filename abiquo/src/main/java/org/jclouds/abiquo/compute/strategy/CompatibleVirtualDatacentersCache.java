@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.compute.strategy;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.abiquo.config.AbiquoProperties;
+import org.jclouds.abiquo.domain.cloud.VirtualDatacenter;
+import org.jclouds.abiquo.domain.cloud.VirtualMachineTemplate;
+import org.jclouds.abiquo.domain.cloud.VirtualMachineTemplateInVirtualDatacenter;
+import org.jclouds.abiquo.features.services.CloudService;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Caches the virtual datacenters where each {@link VirtualMachineTemplate} can
+ * be deployed.
+ * <p>
+ * Finding the compatible virtual datacenters requires several requests per
+ * template, so the templates that are not cached are resolved in concurrent
+ * requests and kept for the configured amount of time. When a template has to
+ * be resolved, because it is new or its entry expired, the virtual datacenters
+ * are listed too, and the whole cache is invalidated if they changed.
+ * 
+ * @see AbiquoProperties#COMPATIBLE_VIRTUAL_DATACENTERS_CACHE
+ */
+@Singleton
+public class CompatibleVirtualDatacentersCache {
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final FindCompatibleVirtualDatacenters compatibleVirtualDatacenters;
+
+   private final CloudService cloudService;
+
+   private final ListeningExecutorService userExecutor;
+
+   private final Cache<Integer, List<VirtualDatacenter>> cache;
+
+   /** The ids of the last virtual datacenters seen. Guarded by this. */
+   private Set<Integer> virtualDatacenterIds;
+
+   @Inject
+   public CompatibleVirtualDatacentersCache(final FindCompatibleVirtualDatacenters compatibleVirtualDatacenters,
+         final CloudService cloudService,
+         @Named(Constants.PROPERTY_USER_THREADS) final ListeningExecutorService userExecutor,
+         @Named(AbiquoProperties.COMPATIBLE_VIRTUAL_DATACENTERS_CACHE) final Long expiration) {
+      this.compatibleVirtualDatacenters = checkNotNull(compatibleVirtualDatacenters, "compatibleVirtualDatacenters");
+      this.cloudService = checkNotNull(cloudService, "cloudService");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.cache = CacheBuilder.newBuilder().expireAfterWrite(checkNotNull(expiration, "expiration"),
+            TimeUnit.MILLISECONDS).build();
+   }
+
+   /**
+    * Get each template paired with each one of its compatible virtual
+    * datacenters.
+    * 
+    * @param templates
+    *           The templates to expand.
+    * @return The templates paired with their compatible virtual datacenters.
+    */
+   public List<VirtualMachineTemplateInVirtualDatacenter> execute(final Iterable<VirtualMachineTemplate> templates) {
+      List<VirtualMachineTemplate> templateList = ImmutableList.copyOf(templates);
+      for (VirtualMachineTemplate template : templateList) {
+         if (cache.getIfPresent(template.getId()) == null) {
+            // the cached entries are only checked against the virtual datacenters
+            // when one of them is missing, so cache hits cost no requests
+            invalidateIfChanged(cloudService.listVirtualDatacenters());
+            break;
+         }
+      }
+
+      Map<Integer, List<VirtualDatacenter>> compatible = Maps.newHashMap();
+      List<VirtualMachineTemplate> pending = Lists.newArrayList();
+
+      for (VirtualMachineTemplate template : templateList) {
+         List<VirtualDatacenter> vdcs = cache.getIfPresent(template.getId());
+         if (vdcs != null) {
+            compatible.put(template.getId(), vdcs);
+         } else {
+            pending.add(template);
+         }
+      }
+
+      if (!pending.isEmpty()) {
+         logger.debug(">> Finding compatible virtual datacenters for %s templates", pending.size());
+         List<List<VirtualDatacenter>> found = getUnchecked(listConcurrentVirtualDatacenters(pending));
+         for (int i = 0; i < pending.size(); i++) {
+            Integer id = pending.get(i).getId();
+            cache.put(id, found.get(i));
+            compatible.put(id, found.get(i));
+         }
+      }
+
+      ImmutableList.Builder<VirtualMachineTemplateInVirtualDatacenter> profiles = ImmutableList.builder();
+      for (VirtualMachineTemplate template : templateList) {
+         for (VirtualDatacenter vdc : compatible.get(template.getId())) {
+            profiles.add(new VirtualMachineTemplateInVirtualDatacenter(template, vdc));
+         }
+      }
+
+      return profiles.build();
+   }
+
+   /**
+    * Discards all the cached virtual datacenters. This should be called when
+    * virtual datacenters are created or deleted.
+    */
+   public void invalidateAll() {
+      cache.invalidateAll();
+   }
+
+   /**
+    * Discards all the cached virtual datacenters if the given ones are not the
+    * same that were seen the last time this method was called.
+    * 
+    * @param virtualDatacenters
+    *           The virtual datacenters currently available.
+    */
+   public synchronized void invalidateIfChanged(final Iterable<VirtualDatacenter> virtualDatacenters) {
+      ImmutableSet.Builder<Integer> ids = ImmutableSet.builder();
+      for (VirtualDatacenter vdc : checkNotNull(virtualDatacenters, "virtualDatacenters")) {
+         ids.add(vdc.getId());
+      }
+      Set<Integer> current = ids.build();
+      if (virtualDatacenterIds != null && !virtualDatacenterIds.equals(current)) {
+         logger.debug(">> Virtual datacenters changed, discarding the compatible virtual datacenters");
+         invalidateAll();
+      }
+      virtualDatacenterIds = current;
+   }
+
+   private ListenableFuture<List<List<VirtualDatacenter>>> listConcurrentVirtualDatacenters(
+         final List<VirtualMachineTemplate> templates) {
+      List<ListenableFuture<List<VirtualDatacenter>>> futures = Lists.newArrayListWithCapacity(templates.size());
+      for (final VirtualMachineTemplate template : templates) {
+         futures.add(userExecutor.submit(new Callable<List<VirtualDatacenter>>() {
+            @Override
+            public List<VirtualDatacenter> call() throws Exception {
+               return ImmutableList.copyOf(compatibleVirtualDatacenters.execute(template));
+            }
+         }));
+      }
+      return allAsList(futures);
+   }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.compute.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+
+/**
+ * Short-lived index that tells where each resource lives in the API, so
+ * resources can be fetched directly by id instead of crawling the whole
+ * inventory on every lookup.
+ * <p>
+ * The index is rebuilt from the given loader when a lookup misses and the
+ * index is older than the expiration time. Resources created or deleted
+ * through the index owner should be registered with {@link #put(Integer, Object)}
+ * and {@link #invalidate(Integer)} so they are visible right away. Changes
+ * registered while the index is being rebuilt are applied on top of the
+ * rebuilt index.
+ * 
+ * @param <V>
+ *           The location of the indexed resources.
+ */
+public class ResourceIndex<V> {
+   private final Supplier<Map<Integer, V>> loader;
+
+   private final long expirationNanos;
+
+   private final Ticker ticker;
+
+   private volatile ConcurrentMap<Integer, V> index = Maps.newConcurrentMap();
+
+   /** The time when the index was last rebuilt. Guarded by this. */
+   private long loadedAt;
+
+   /** Guarded by this. */
+   private boolean loaded = false;
+
+   /** Whether the index is being rebuilt. Guarded by changes. */
+   private boolean reloading = false;
+
+   /**
+    * The resources registered or invalidated while the index is being rebuilt.
+    * Guarded by changes.
+    */
+   private final Map<Integer, Optional<V>> changes = Maps.newHashMap();
+
+   public ResourceIndex(final Supplier<Map<Integer, V>> loader, final long expiration, final TimeUnit timeUnit) {
+      this(loader, expiration, timeUnit, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   ResourceIndex(final Supplier<Map<Integer, V>> loader, final long expiration, final TimeUnit timeUnit,
+         final Ticker ticker) {
+      checkArgument(expiration >= 0, "expiration must be greater than or equal to zero");
+      this.loader = checkNotNull(loader, "loader");
+      this.expirationNanos = checkNotNull(timeUnit, "timeUnit").toNanos(expiration);
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   /**
+    * Get the location of the resource with the given id.
+    * 
+    * @param id
+    *           The id of the resource.
+    * @return The location of the resource or <code>null</code> if it is not
+    *         found.
+    */
+   public V get(final Integer id) {
+      checkNotNull(id, "id");
+      V location = index.get(id);
+      if (location == null && reloadIfExpired()) {
+         location = index.get(id);
+      }
+      return location;
+   }
+
+   /**
+    * Registers the location of a resource.
+    */
+   public void put(final Integer id, final V location) {
+      checkNotNull(id, "id");
+      checkNotNull(location, "location");
+      synchronized (changes) {
+         index.put(id, location);
+         if (reloading) {
+            changes.put(id, Optional.of(location));
+         }
+      }
+   }
+
+   /**
+    * Removes the given resource from the index.
+    */
+   public void invalidate(final Integer id) {
+      checkNotNull(id, "id");
+      synchronized (changes) {
+         index.remove(id);
+         if (reloading) {
+            changes.put(id, Optional.<V> absent());
+         }
+      }
+   }
+
+   /**
+    * Rebuilds the index if it has expired.
+    * 
+    * @return Boolean indicating if the index has been rebuilt.
+    */
+   private synchronized boolean reloadIfExpired() {
+      long now = ticker.read();
+      if (loaded && now - loadedAt < expirationNanos) {
+         return false;
+      }
+
+      synchronized (changes) {
+         reloading = true;
+      }
+      ConcurrentMap<Integer, V> fresh = Maps.newConcurrentMap();
+      try {
+         fresh.putAll(loader.get());
+      } catch (RuntimeException e) {
+         synchronized (changes) {
+            reloading = false;
+            changes.clear();
+         }
+         throw e;
+      }
+
+      synchronized (changes) {
+         for (Map.Entry<Integer, Optional<V>> change : changes.entrySet()) {
+            if (change.getValue().isPresent()) {
+               fresh.put(change.getKey(), change.getValue().get());
+            } else {
+               fresh.remove(change.getKey());
+            }
+         }
+         changes.clear();
+         reloading = false;
+         index = fresh;
+      }
+      loadedAt = now;
+      loaded = true;
+      return true;
+   }
+}
@@ -36,6 +36,114 @@ public interface AbiquoProperties {
     */
    public static final String ASYNC_TASK_MONITOR_DELAY = "abiquo.monitor-delay";
 
+   /**
+    * The resolution (in ms) of the polling job shared by all monitors. Each
+    * monitored object is only refreshed when its own polling delay expires.
+    * <p>
+    * Default value: 500 ms
+    */
+   public static final String MONITOR_TICK = "abiquo.monitor-tick";
+
+   /**
+    * Comma separated list of the delays (in ms) used for the first polls of a
+    * monitored object, before starting the exponential backoff.
+    * <p>
+    * Default value: 1000,2000
+    */
+   public static final String MONITOR_FAST_PROBES = "abiquo.monitor-fast-probes";
+
+   /**
+    * The random factor (between 0 and 1) applied to the backoff delays, to
+    * spread the requests of objects that started to be monitored together.
+    * <p>
+    * Default value: 0.1
+    */
+   public static final String MONITOR_JITTER = "abiquo.monitor-jitter";
+
+   /**
+    * The multiplier applied to the polling delay after each request made by
+    * the <code>VirtualMachineMonitor</code>.
+    * <p>
+    * Default value: 1.5
+    */
+   public static final String VIRTUAL_MACHINE_MONITOR_BACKOFF = "abiquo.monitor-backoff.virtualmachine";
+
+   /**
+    * The maximum polling delay (in ms) used by the
+    * <code>VirtualMachineMonitor</code>.
+    * <p>
+    * Default value: 30000 ms
+    */
+   public static final String VIRTUAL_MACHINE_MONITOR_MAX_DELAY = "abiquo.monitor-max-delay.virtualmachine";
+
+   /**
+    * The multiplier applied to the polling delay after each request made by
+    * the <code>ConversionMonitor</code>.
+    * <p>
+    * Default value: 2
+    */
+   public static final String CONVERSION_MONITOR_BACKOFF = "abiquo.monitor-backoff.conversion";
+
+   /**
+    * The maximum polling delay (in ms) used by the
+    * <code>ConversionMonitor</code>.
+    * <p>
+    * Default value: 60000 ms
+    */
+   public static final String CONVERSION_MONITOR_MAX_DELAY = "abiquo.monitor-max-delay.conversion";
+
+   /**
+    * The multiplier applied to the polling delay after each request made by
+    * the <code>AsyncTaskMonitor</code>.
+    * <p>
+    * Default value: 1.5
+    */
+   public static final String ASYNC_TASK_MONITOR_BACKOFF = "abiquo.monitor-backoff.asynctask";
+
+   /**
+    * The maximum polling delay (in ms) used by the
+    * <code>AsyncTaskMonitor</code>.
+    * <p>
+    * Default value: 30000 ms
+    */
+   public static final String ASYNC_TASK_MONITOR_MAX_DELAY = "abiquo.monitor-max-delay.asynctask";
+
+   /**
+    * The time (in ms) the virtual datacenters compatible with each template
+    * are cached. This is used to build the hardware profiles, and can be set
+    * to zero to disable the cache.
+    * <p>
+    * Default value: 300000 ms
+    */
+   public static final String COMPATIBLE_VIRTUAL_DATACENTERS_CACHE = "abiquo.compatible-virtual-datacenters-cache";
+
+   /**
+    * The maximum number of pages of a paginated collection that are fetched in
+    * the background while the current page is being consumed. Set to zero to
+    * fetch each page only when the consumer reaches it.
+    * <p>
+    * Default value: 4
+    */
+   public static final String PAGINATION_PREFETCH = "abiquo.pagination-prefetch";
+
+   /**
+    * The maximum number of concurrent requests sent when listing resources of
+    * several parents, such as the virtual appliances of each virtual
+    * datacenter.
+    * <p>
+    * Default value: 8
+    */
+   public static final String LIST_CONCURRENCY = "abiquo.list-concurrency";
+
+   /**
+    * The time (in ms) each of the concurrent requests sent when listing
+    * resources of several parents is allowed to take. Set to zero to wait
+    * indefinitely.
+    * <p>
+    * Default value: 180000 ms
+    */
+   public static final String LIST_TIMEOUT = "abiquo.list-timeout";
+
    /**
     * The name of the Abiquo logger.
     */
@@ -33,6 +33,7 @@ import com.abiquo.model.rest.RESTLink;
 import com.abiquo.model.transport.WrapperDto;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * This class represents a collection that is paginated.
@@ -84,21 +85,48 @@ public class PaginatedCollection<T, W extends WrapperDto<T>> extends IterableWit
     * Subclasses may overwrite this one, to provide a concrete type for the
     * parser parameter, so this function can be injected in the different api
     * methods and be used as a transformer for the returned collection.
+    * <p>
+    * If an executor is provided, the next pages will be fetched in the
+    * background while the current one is being consumed, with at most the
+    * given number of pages in flight.
     * 
     */
    public static class ToPagedIterable<T, W extends WrapperDto<T>> implements
          Function<PaginatedCollection<T, W>, PagedIterable<T>> {
       protected final AbiquoApi api;
       protected final ParseXMLWithJAXB<W> parser;
+      protected final ListeningExecutorService executor;
+      protected final int maxPagesInFlight;
 
       public ToPagedIterable(AbiquoApi api, ParseXMLWithJAXB<W> parser) {
          this.api = checkNotNull(api, "api must not be null");
          this.parser = checkNotNull(parser, "parser must not be null");
+         this.executor = null;
+         this.maxPagesInFlight = 0;
+      }
+
+      public ToPagedIterable(AbiquoApi api, ParseXMLWithJAXB<W> parser, ListeningExecutorService executor,
+            int maxPagesInFlight) {
+         checkArgument(maxPagesInFlight >= 0, "maxPagesInFlight must be greater than or equal to zero");
+         this.api = checkNotNull(api, "api must not be null");
+         this.parser = checkNotNull(parser, "parser must not be null");
+         this.executor = checkNotNull(executor, "executor must not be null");
+         this.maxPagesInFlight = maxPagesInFlight;
       }
 
       @Override
       public PagedIterable<T> apply(final PaginatedCollection<T, W> input) {
-         return input.nextMarker().isPresent() ? advance(input, nextPage(input)) : onlyPage(input);
+         if (!input.nextMarker().isPresent()) {
+            return onlyPage(input);
+         }
+
+         Function<Object, IterableWithMarker<T>> nextPage = nextPage(input);
+         if (executor != null && maxPagesInFlight > 0) {
+            nextPage = new PrefetchingPageFetcher<T>(input, input.getTotalSize(), nextPage, executor,
+                  maxPagesInFlight);
+         }
+
+         return advance(input, nextPage);
       }
 
       protected Function<Object, IterableWithMarker<T>> nextPage(final PaginatedCollection<T, W> input) {
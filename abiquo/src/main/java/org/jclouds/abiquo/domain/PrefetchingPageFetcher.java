@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.domain;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.getFirst;
+import static org.jclouds.http.utils.Queries.encodeQueryLine;
+import static org.jclouds.http.utils.Queries.queryParser;
+
+import java.net.URI;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.jclouds.collect.IterableWithMarker;
+
+import com.abiquo.model.rest.RESTLink;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.TreeMultimap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Fetches the pages of a paginated collection ahead of the consumer.
+ * <p>
+ * If the first page provides the total size of the collection and the
+ * <code>next</code> link has the <code>startwith</code> and <code>limit</code>
+ * query parameters, the links to all the remaining pages are computed upfront
+ * and fetched concurrently. Otherwise, the next page is fetched in the
+ * background while the current one is consumed. In both cases, the number of
+ * pages fetched and not yet consumed is bounded.
+ * <p>
+ * Pages that have not been prefetched, or whose link does not match a
+ * prefetched one, are fetched on demand with the given function. When that
+ * happens, or when the last page is reached, the pages being prefetched will
+ * not be requested, so they are cancelled and discarded.
+ */
+class PrefetchingPageFetcher<T> implements Function<Object, IterableWithMarker<T>> {
+   private final Function<Object, IterableWithMarker<T>> fetcher;
+
+   private final ListeningExecutorService executor;
+
+   private final int maxPagesInFlight;
+
+   /** The pages being fetched, indexed by the normalized link. Guarded by this. */
+   private final Map<String, ListenableFuture<IterableWithMarker<T>>> inFlight = Maps.newHashMap();
+
+   /** The computed links to the pages that have not been requested yet. */
+   private final Deque<RESTLink> plannedPages;
+
+   /** Whether the remaining pages have been planned. Guarded by this. */
+   private boolean planned;
+
+   PrefetchingPageFetcher(final IterableWithMarker<T> firstPage, final Integer totalSize,
+         final Function<Object, IterableWithMarker<T>> fetcher, final ListeningExecutorService executor,
+         final int maxPagesInFlight) {
+      checkArgument(maxPagesInFlight > 0, "maxPagesInFlight must be greater than zero");
+      this.fetcher = checkNotNull(fetcher, "fetcher");
+      this.executor = checkNotNull(executor, "executor");
+      this.maxPagesInFlight = maxPagesInFlight;
+      this.plannedPages = planPages(firstPage.nextMarker(), totalSize);
+      this.planned = !plannedPages.isEmpty();
+
+      synchronized (this) {
+         if (!planned) {
+            prefetch(firstPage.nextMarker());
+         }
+         fill();
+      }
+   }
+
+   @Override
+   public synchronized IterableWithMarker<T> apply(final Object marker) {
+      checkArgument(marker instanceof RESTLink, "Marker must be a RESTLink");
+      ListenableFuture<IterableWithMarker<T>> future = inFlight.remove(key(RESTLink.class.cast(marker)));
+      if (future == null) {
+         // The collection does not follow the prefetched links
+         discardPrefetchedPages();
+      }
+      IterableWithMarker<T> page = future == null ? fetcher.apply(marker) : get(future);
+      if (!page.nextMarker().isPresent()) {
+         // This is the last page, so nothing else will be requested
+         discardPrefetchedPages();
+      }
+
+      if (!planned) {
+         prefetch(page.nextMarker());
+      }
+      fill();
+
+      return page;
+   }
+
+   @VisibleForTesting
+   synchronized int pagesInFlight() {
+      return inFlight.size();
+   }
+
+   private void discardPrefetchedPages() {
+      for (ListenableFuture<IterableWithMarker<T>> stale : inFlight.values()) {
+         stale.cancel(true);
+      }
+      inFlight.clear();
+      plannedPages.clear();
+      planned = false;
+   }
+
+   private void prefetch(final Optional<Object> marker) {
+      if (marker.isPresent() && inFlight.size() < maxPagesInFlight) {
+         submit(RESTLink.class.cast(marker.get()));
+      }
+   }
+
+   private void fill() {
+      while (!plannedPages.isEmpty() && inFlight.size() < maxPagesInFlight) {
+         submit(plannedPages.poll());
+      }
+   }
+
+   private void submit(final RESTLink link) {
+      String key = key(link);
+      if (!inFlight.containsKey(key)) {
+         inFlight.put(key, executor.submit(new Callable<IterableWithMarker<T>>() {
+            @Override
+            public IterableWithMarker<T> call() throws Exception {
+               return fetcher.apply(link);
+            }
+         }));
+      }
+   }
+
+   /**
+    * Computes the links to all the remaining pages, if the collection provides
+    * enough information to do it.
+    */
+   private static Deque<RESTLink> planPages(final Optional<Object> next, final Integer totalSize) {
+      Deque<RESTLink> pages = Lists.newLinkedList();
+      if (!next.isPresent() || totalSize == null) {
+         return pages;
+      }
+
+      RESTLink link = RESTLink.class.cast(next.get());
+      Multimap<String, String> params = queryParser().apply(URI.create(link.getHref()).getRawQuery());
+      String startwith = getFirst(params.get("startwith"), null);
+      String limit = getFirst(params.get("limit"), null);
+      if (startwith == null || limit == null || Integer.parseInt(limit) <= 0) {
+         return pages;
+      }
+
+      // Keep the rest of the query and only change the page offset
+      String path = link.getHref().substring(0, link.getHref().indexOf('?') + 1);
+      for (int offset = Integer.parseInt(startwith); offset < totalSize; offset += Integer.parseInt(limit)) {
+         params.replaceValues("startwith", ImmutableList.of(String.valueOf(offset)));
+         pages.add(new RESTLink(link.getRel(), path + encodeQueryLine(params)));
+      }
+
+      return pages;
+   }
+
+   /**
+    * Normalizes the link so the query parameter order does not matter.
+    */
+   private static String key(final RESTLink link) {
+      URI uri = URI.create(link.getHref());
+      TreeMultimap<String, String> params = TreeMultimap.create();
+      if (uri.getRawQuery() != null) {
+         params.putAll(queryParser().apply(uri.getRawQuery()));
+      }
+      return uri.getRawPath() + params;
+   }
+
+   private static <T> T get(final ListenableFuture<T> future) {
+      try {
+         return future.get();
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(ex);
+      } catch (ExecutionException ex) {
+         throw Throwables.propagate(ex.getCause());
+      }
+   }
+}
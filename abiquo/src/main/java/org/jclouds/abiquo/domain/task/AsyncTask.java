@@ -16,6 +16,7 @@
  */
 package org.jclouds.abiquo.domain.task;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import org.jclouds.abiquo.AbiquoApi;
@@ -71,6 +72,21 @@ public abstract class AsyncTask<T extends DomainWrapper<D>, D extends SingleReso
       target = context.getApi().getTaskApi().getTask(self);
    }
 
+   /**
+    * Refresh the state of the task with an already retrieved representation of
+    * it, such as the ones returned when listing all the tasks of its owner.
+    * 
+    * @param task
+    *           The current representation of the task.
+    */
+   public void refresh(final TaskDto task) {
+      checkNotNull(task, "task");
+      checkArgument(target.getTaskId().equals(task.getTaskId()), "task %s does not match %s", task.getTaskId(),
+            target.getTaskId());
+
+      target = task;
+   }
+
    public T getResult() {
       RESTLink link = target.searchLink(ParentLinkName.TASK_RESULT);
       if (link == null) {
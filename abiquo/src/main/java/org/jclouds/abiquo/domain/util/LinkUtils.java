@@ -16,6 +16,7 @@
  */
 package org.jclouds.abiquo.domain.util;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Iterables.filter;
 
 import java.util.List;
@@ -42,6 +43,22 @@ public class LinkUtils {
       return link == null ? dto.searchLink("self") : link;
    }
 
+   /**
+    * Get the URI of the collection that contains the resource pointed by the
+    * given link.
+    * 
+    * @param link
+    *           The link to the resource.
+    * @return The URI of the collection that contains the resource.
+    */
+   public static String getCollectionHref(final RESTLink link) {
+      String href = checkNotNull(link, "link").getHref();
+      if (href.endsWith("/")) {
+         href = href.substring(0, href.length() - 1);
+      }
+      return href.substring(0, href.lastIndexOf('/'));
+   }
+
    /**
     * Filter the given link list and return only the links that point to a NIC.
     * 
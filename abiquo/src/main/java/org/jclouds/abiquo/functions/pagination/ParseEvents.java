@@ -17,14 +17,18 @@
 package org.jclouds.abiquo.functions.pagination;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.jclouds.Constants;
 import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.config.AbiquoProperties;
 import org.jclouds.abiquo.domain.PaginatedCollection;
-import org.jclouds.http.functions.ParseXMLWithJAXB;
+import org.jclouds.xml.XMLParser;
 
 import com.abiquo.server.core.event.EventDto;
 import com.abiquo.server.core.event.EventsDto;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * Parses a paginated event list.
@@ -32,15 +36,28 @@ import com.abiquo.server.core.event.EventsDto;
 @Singleton
 public class ParseEvents extends BasePaginationParser<EventDto, EventsDto> {
    @Inject
-   public ParseEvents(AbiquoApi api, ParseXMLWithJAXB<EventsDto> parser) {
+   public ParseEvents(AbiquoApi api, StreamingParser parser) {
       super(api, parser);
    }
 
    @Singleton
    public static class ToPagedIterable extends PaginatedCollection.ToPagedIterable<EventDto, EventsDto> {
       @Inject
-      public ToPagedIterable(AbiquoApi api, ParseXMLWithJAXB<EventsDto> parser) {
-         super(api, parser);
+      public ToPagedIterable(AbiquoApi api, StreamingParser parser,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+            @Named(AbiquoProperties.PAGINATION_PREFETCH) int maxPagesInFlight) {
+         super(api, parser, userExecutor, maxPagesInFlight);
+      }
+   }
+
+   /**
+    * Reads the elements of each page incrementally from the response stream.
+    */
+   @Singleton
+   public static class StreamingParser extends StreamingParseXMLWithJAXB<EventDto, EventsDto> {
+      @Inject
+      public StreamingParser(XMLParser xml) {
+         super(xml, EventsDto.class, EventDto.class);
       }
    }
 
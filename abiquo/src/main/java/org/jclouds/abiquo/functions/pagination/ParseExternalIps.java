@@ -17,14 +17,18 @@
 package org.jclouds.abiquo.functions.pagination;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.jclouds.Constants;
 import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.config.AbiquoProperties;
 import org.jclouds.abiquo.domain.PaginatedCollection;
-import org.jclouds.http.functions.ParseXMLWithJAXB;
+import org.jclouds.xml.XMLParser;
 
 import com.abiquo.server.core.infrastructure.network.ExternalIpDto;
 import com.abiquo.server.core.infrastructure.network.ExternalIpsDto;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * Parses a paginated external ip list.
@@ -32,15 +36,28 @@ import com.abiquo.server.core.infrastructure.network.ExternalIpsDto;
 @Singleton
 public class ParseExternalIps extends BasePaginationParser<ExternalIpDto, ExternalIpsDto> {
    @Inject
-   public ParseExternalIps(AbiquoApi api, ParseXMLWithJAXB<ExternalIpsDto> parser) {
+   public ParseExternalIps(AbiquoApi api, StreamingParser parser) {
       super(api, parser);
    }
 
    @Singleton
    public static class ToPagedIterable extends PaginatedCollection.ToPagedIterable<ExternalIpDto, ExternalIpsDto> {
       @Inject
-      public ToPagedIterable(AbiquoApi api, ParseXMLWithJAXB<ExternalIpsDto> parser) {
-         super(api, parser);
+      public ToPagedIterable(AbiquoApi api, StreamingParser parser,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+            @Named(AbiquoProperties.PAGINATION_PREFETCH) int maxPagesInFlight) {
+         super(api, parser, userExecutor, maxPagesInFlight);
+      }
+   }
+
+   /**
+    * Reads the elements of each page incrementally from the response stream.
+    */
+   @Singleton
+   public static class StreamingParser extends StreamingParseXMLWithJAXB<ExternalIpDto, ExternalIpsDto> {
+      @Inject
+      public StreamingParser(XMLParser xml) {
+         super(xml, ExternalIpsDto.class, ExternalIpDto.class);
       }
    }
 
@@ -17,14 +17,18 @@
 package org.jclouds.abiquo.functions.pagination;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.jclouds.Constants;
 import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.config.AbiquoProperties;
 import org.jclouds.abiquo.domain.PaginatedCollection;
-import org.jclouds.http.functions.ParseXMLWithJAXB;
+import org.jclouds.xml.XMLParser;
 
 import com.abiquo.server.core.infrastructure.network.PrivateIpDto;
 import com.abiquo.server.core.infrastructure.network.PrivateIpsDto;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * Parses a paginated private ip list.
@@ -32,15 +36,28 @@ import com.abiquo.server.core.infrastructure.network.PrivateIpsDto;
 @Singleton
 public class ParsePrivateIps extends BasePaginationParser<PrivateIpDto, PrivateIpsDto> {
    @Inject
-   public ParsePrivateIps(AbiquoApi api, ParseXMLWithJAXB<PrivateIpsDto> parser) {
+   public ParsePrivateIps(AbiquoApi api, StreamingParser parser) {
       super(api, parser);
    }
 
    @Singleton
    public static class ToPagedIterable extends PaginatedCollection.ToPagedIterable<PrivateIpDto, PrivateIpsDto> {
       @Inject
-      public ToPagedIterable(AbiquoApi api, ParseXMLWithJAXB<PrivateIpsDto> parser) {
-         super(api, parser);
+      public ToPagedIterable(AbiquoApi api, StreamingParser parser,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+            @Named(AbiquoProperties.PAGINATION_PREFETCH) int maxPagesInFlight) {
+         super(api, parser, userExecutor, maxPagesInFlight);
+      }
+   }
+
+   /**
+    * Reads the elements of each page incrementally from the response stream.
+    */
+   @Singleton
+   public static class StreamingParser extends StreamingParseXMLWithJAXB<PrivateIpDto, PrivateIpsDto> {
+      @Inject
+      public StreamingParser(XMLParser xml) {
+         super(xml, PrivateIpsDto.class, PrivateIpDto.class);
       }
    }
 
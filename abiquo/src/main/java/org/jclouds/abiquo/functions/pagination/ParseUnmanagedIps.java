@@ -17,14 +17,18 @@
 package org.jclouds.abiquo.functions.pagination;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.jclouds.Constants;
 import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.config.AbiquoProperties;
 import org.jclouds.abiquo.domain.PaginatedCollection;
-import org.jclouds.http.functions.ParseXMLWithJAXB;
+import org.jclouds.xml.XMLParser;
 
 import com.abiquo.server.core.infrastructure.network.UnmanagedIpDto;
 import com.abiquo.server.core.infrastructure.network.UnmanagedIpsDto;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * Parses a paginated unmnaged ip list.
@@ -32,15 +36,28 @@ import com.abiquo.server.core.infrastructure.network.UnmanagedIpsDto;
 @Singleton
 public class ParseUnmanagedIps extends BasePaginationParser<UnmanagedIpDto, UnmanagedIpsDto> {
    @Inject
-   public ParseUnmanagedIps(AbiquoApi api, ParseXMLWithJAXB<UnmanagedIpsDto> parser) {
+   public ParseUnmanagedIps(AbiquoApi api, StreamingParser parser) {
       super(api, parser);
    }
 
    @Singleton
    public static class ToPagedIterable extends PaginatedCollection.ToPagedIterable<UnmanagedIpDto, UnmanagedIpsDto> {
       @Inject
-      public ToPagedIterable(AbiquoApi api, ParseXMLWithJAXB<UnmanagedIpsDto> parser) {
-         super(api, parser);
+      public ToPagedIterable(AbiquoApi api, StreamingParser parser,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+            @Named(AbiquoProperties.PAGINATION_PREFETCH) int maxPagesInFlight) {
+         super(api, parser, userExecutor, maxPagesInFlight);
+      }
+   }
+
+   /**
+    * Reads the elements of each page incrementally from the response stream.
+    */
+   @Singleton
+   public static class StreamingParser extends StreamingParseXMLWithJAXB<UnmanagedIpDto, UnmanagedIpsDto> {
+      @Inject
+      public StreamingParser(XMLParser xml) {
+         super(xml, UnmanagedIpsDto.class, UnmanagedIpDto.class);
       }
    }
 
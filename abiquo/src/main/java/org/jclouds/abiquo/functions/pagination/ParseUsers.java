@@ -24,9 +24,12 @@ import static org.jclouds.http.utils.Queries.queryParser;
 import java.net.URI;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.jclouds.Constants;
 import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.config.AbiquoProperties;
 import org.jclouds.abiquo.domain.PaginatedCollection;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
@@ -39,6 +42,7 @@ import com.abiquo.server.core.enterprise.UsersDto;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * Parses a paginated user list.
@@ -60,11 +64,17 @@ public class ParseUsers extends BasePaginationParser<UserDto, UsersDto> {
 
    @Singleton
    public static class ToPagedIterable extends PaginatedCollection.ToPagedIterable<UserDto, UsersDto> {
-      @Inject
       public ToPagedIterable(AbiquoApi api, ParseXMLWithJAXB<UsersDto> parser) {
          super(api, parser);
       }
 
+      @Inject
+      public ToPagedIterable(AbiquoApi api, ParseXMLWithJAXB<UsersDto> parser,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+            @Named(AbiquoProperties.PAGINATION_PREFETCH) int maxPagesInFlight) {
+         super(api, parser, userExecutor, maxPagesInFlight);
+      }
+
       // Overwrite to return a custom class and bypass
       // http://jira.abiquo.com/browse/ABICLOUDPREMIUM-5927
       // Remove once the fix has been deployed to production
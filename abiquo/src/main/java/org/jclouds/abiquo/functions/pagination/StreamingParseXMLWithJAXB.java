@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.functions.pagination;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.util.Closeables2.closeQuietly;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jclouds.abiquo.domain.PaginatedCollection;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.functions.ParseXMLWithJAXB;
+import org.jclouds.xml.XMLParser;
+
+import com.abiquo.model.rest.RESTLink;
+import com.abiquo.model.transport.WrapperDto;
+import com.google.common.base.Throwables;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Parses a collection wrapper reading the XML stream incrementally.
+ * <p>
+ * The default parser reads the whole response into memory before unmarshalling
+ * the entire wrapper. This parser reads the pagination links and the total size
+ * directly from the stream, and unmarshals each element of the collection one
+ * at a time, so the raw response is never fully buffered.
+ * <p>
+ * When used as a {@link ParseXMLWithJAXB} the elements are still collected in
+ * the returned wrapper, since the {@link PaginatedCollection} keeps the whole
+ * page. Callers that do not need the page in memory can pass an
+ * {@link ElementHandler} to receive each element as soon as it is read; the
+ * returned wrapper then only has the pagination links and the total size.
+ * 
+ * @see BasePaginationParser
+ */
+public class StreamingParseXMLWithJAXB<T, W extends WrapperDto<T>> extends ParseXMLWithJAXB<W> {
+   private static final String LINK = "link";
+
+   private static final String TOTAL_SIZE = "totalSize";
+
+   private final Class<W> wrapperType;
+
+   private final Class<T> elementType;
+
+   private final JAXBContext context;
+
+   private final XMLInputFactory factory;
+
+   public StreamingParseXMLWithJAXB(final XMLParser xml, final Class<W> wrapperType, final Class<T> elementType) {
+      super(xml, TypeLiteral.get(wrapperType));
+      this.wrapperType = checkNotNull(wrapperType, "wrapperType");
+      this.elementType = checkNotNull(elementType, "elementType");
+      try {
+         this.context = JAXBContext.newInstance(wrapperType);
+      } catch (JAXBException ex) {
+         throw Throwables.propagate(ex);
+      }
+      this.factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+   }
+
+   /**
+    * Receives the elements of the collection as they are read from the stream.
+    */
+   public interface ElementHandler<T> {
+      void handle(T element);
+   }
+
+   @Override
+   public W apply(final HttpResponse from) {
+      try {
+         return parse(from.getPayload().openStream());
+      } catch (IOException ex) {
+         throw Throwables.propagate(ex);
+      } finally {
+         closeQuietly(from.getPayload());
+      }
+   }
+
+   /**
+    * Parses the given response, handing each element of the collection to the
+    * given handler instead of collecting it in the wrapper.
+    * 
+    * @param from
+    *           The response to parse.
+    * @param handler
+    *           The handler that will receive the elements of the collection.
+    * @return The wrapper with the pagination links and the total size, and an
+    *         empty collection.
+    */
+   public W apply(final HttpResponse from, final ElementHandler<? super T> handler) {
+      try {
+         return parse(from.getPayload().openStream(), handler);
+      } catch (IOException ex) {
+         throw Throwables.propagate(ex);
+      } finally {
+         closeQuietly(from.getPayload());
+      }
+   }
+
+   /**
+    * Parses the given stream, unmarshalling the elements of the collection one
+    * by one.
+    * 
+    * @param stream
+    *           The stream to parse.
+    * @return The wrapper with the pagination links, the total size and the
+    *         elements of the collection.
+    */
+   public W parse(final InputStream stream) {
+      final W wrapper = newWrapper();
+      return parse(stream, wrapper, new ElementHandler<T>() {
+         @Override
+         public void handle(final T element) {
+            wrapper.getCollection().add(element);
+         }
+      });
+   }
+
+   /**
+    * Parses the given stream, handing each element of the collection to the
+    * given handler as soon as it has been unmarshalled.
+    * 
+    * @param stream
+    *           The stream to parse.
+    * @param handler
+    *           The handler that will receive the elements of the collection.
+    * @return The wrapper with the pagination links and the total size, and an
+    *         empty collection.
+    */
+   public W parse(final InputStream stream, final ElementHandler<? super T> handler) {
+      return parse(stream, newWrapper(), checkNotNull(handler, "handler"));
+   }
+
+   private W parse(final InputStream stream, final W wrapper, final ElementHandler<? super T> handler) {
+      XMLStreamReader reader = null;
+      try {
+         reader = factory.createXMLStreamReader(stream);
+         Unmarshaller unmarshaller = context.createUnmarshaller();
+
+         // Move to the first child of the root element
+         reader.nextTag();
+         reader.nextTag();
+
+         while (reader.isStartElement()) {
+            String name = reader.getLocalName();
+            if (LINK.equals(name)) {
+               wrapper.addLink(unmarshaller.unmarshal(reader, RESTLink.class).getValue());
+            } else if (TOTAL_SIZE.equals(name)) {
+               wrapper.setTotalSize(Integer.valueOf(reader.getElementText().trim()));
+               reader.next();
+            } else {
+               handler.handle(unmarshaller.unmarshal(reader, elementType).getValue());
+            }
+            skipToTag(reader);
+         }
+
+         return wrapper;
+      } catch (XMLStreamException ex) {
+         throw Throwables.propagate(ex);
+      } catch (JAXBException ex) {
+         throw Throwables.propagate(ex);
+      } finally {
+         closeReader(reader);
+         closeQuietly(stream);
+      }
+   }
+
+   private W newWrapper() {
+      try {
+         return wrapperType.newInstance();
+      } catch (InstantiationException ex) {
+         throw Throwables.propagate(ex);
+      } catch (IllegalAccessException ex) {
+         throw Throwables.propagate(ex);
+      }
+   }
+
+   /**
+    * Unmarshalling an element leaves the reader right after its end tag, so
+    * move to the next start or end tag without skipping it.
+    */
+   private static void skipToTag(final XMLStreamReader reader) throws XMLStreamException {
+      while (!reader.isStartElement() && !reader.isEndElement() && reader.hasNext()) {
+         reader.next();
+      }
+   }
+
+   private static void closeReader(final XMLStreamReader reader) {
+      if (reader != null) {
+         try {
+            reader.close();
+         } catch (XMLStreamException ex) {
+            // Ignore
+         }
+      }
+   }
+}
@@ -36,7 +36,7 @@ import org.jclouds.abiquo.features.services.CloudService;
 import org.jclouds.abiquo.reference.ValidationErrors;
 import org.jclouds.abiquo.strategy.cloud.ListVirtualAppliances;
 import org.jclouds.abiquo.strategy.cloud.ListVirtualDatacenters;
-import org.jclouds.collect.PagedIterable;
+import org.jclouds.abiquo.strategy.cloud.ListVirtualMachines;
 import org.jclouds.rest.ApiContext;
 
 import com.abiquo.server.core.cloud.VirtualDatacenterDto;
@@ -58,12 +58,16 @@ public class BaseCloudService implements CloudService {
    @VisibleForTesting
    protected final ListVirtualAppliances listVirtualAppliances;
 
+   @VisibleForTesting
+   protected final ListVirtualMachines listVirtualMachines;
+
    @Inject
    protected BaseCloudService(final ApiContext<AbiquoApi> context, final ListVirtualDatacenters listVirtualDatacenters,
-         final ListVirtualAppliances listVirtualAppliances) {
+         final ListVirtualAppliances listVirtualAppliances, final ListVirtualMachines listVirtualMachines) {
       this.context = checkNotNull(context, "context");
       this.listVirtualDatacenters = checkNotNull(listVirtualDatacenters, "listVirtualDatacenters");
       this.listVirtualAppliances = checkNotNull(listVirtualAppliances, "listVirtualAppliances");
+      this.listVirtualMachines = checkNotNull(listVirtualMachines, "listVirtualMachines");
    }
 
    /*********************** Virtual Datacenter ********************** */
@@ -105,8 +109,7 @@ public class BaseCloudService implements CloudService {
 
    @Override
    public Iterable<VirtualMachine> listVirtualMachines() {
-      PagedIterable<VirtualMachineWithNodeExtendedDto> vms = context.getApi().getCloudApi().listAllVirtualMachines();
-      return wrap(context, VirtualMachine.class, vms.concat());
+      return listVirtualMachines.execute();
    }
 
    @Override
@@ -17,15 +17,13 @@
 package org.jclouds.abiquo.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
-import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_DELAY;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
 
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
-import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.jclouds.abiquo.AbiquoApi;
@@ -33,19 +31,20 @@ import org.jclouds.abiquo.features.services.MonitoringService;
 import org.jclouds.abiquo.monitor.AsyncTaskMonitor;
 import org.jclouds.abiquo.monitor.ConversionMonitor;
 import org.jclouds.abiquo.monitor.MonitorStatus;
+import org.jclouds.abiquo.monitor.PollingPolicy;
 import org.jclouds.abiquo.monitor.VirtualApplianceMonitor;
 import org.jclouds.abiquo.monitor.VirtualMachineMonitor;
-import org.jclouds.abiquo.monitor.events.CompletedEvent;
-import org.jclouds.abiquo.monitor.events.FailedEvent;
-import org.jclouds.abiquo.monitor.events.TimeoutEvent;
+import org.jclouds.abiquo.monitor.events.MonitorEvent;
 import org.jclouds.abiquo.monitor.handlers.AbstractEventHandler;
-import org.jclouds.abiquo.monitor.handlers.BlockingEventHandler;
+import org.jclouds.abiquo.monitor.internal.PollingPolicies;
 import org.jclouds.logging.Logger;
 import org.jclouds.rest.ApiContext;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 
 /**
@@ -56,18 +55,19 @@ public class BaseMonitoringService implements MonitoringService {
    @VisibleForTesting
    protected ApiContext<AbiquoApi> context;
 
-   /** The scheduler used to perform monitoring tasks. */
+   /** The poller used to perform monitoring tasks. */
    @VisibleForTesting
-   protected ScheduledExecutorService scheduler;
+   protected MonitorPoller poller;
 
+   /** The policy that decides when to poll the monitored objects. */
    @VisibleForTesting
-   protected Long pollingDelay;
+   protected PollingPolicy pollingPolicy;
 
    /**
-    * The event bus used to dispatch monitoring events.
+    * The event bus where the registered handlers receive the monitoring events.
     * <p>
-    * A sync bus is used by default, to prevent deadlocks when using the
-    * {@link BlockingEventHandler}.
+    * Events are posted from the polling job. Waiting for completion relies on
+    * the futures returned by the poller, not on this bus.
     */
    @VisibleForTesting
    protected EventBus eventBus;
@@ -76,13 +76,17 @@ public class BaseMonitoringService implements MonitoringService {
    private Logger logger = Logger.NULL;
 
    @Inject
-   public BaseMonitoringService(final ApiContext<AbiquoApi> context,
-         @Named(PROPERTY_SCHEDULER_THREADS) final ScheduledExecutorService scheduler,
-         @Named(ASYNC_TASK_MONITOR_DELAY) final Long pollingDelay, final EventBus eventBus) {
+   public BaseMonitoringService(final ApiContext<AbiquoApi> context, final MonitorPoller poller,
+         final EventBus eventBus, final PollingPolicies pollingPolicies) {
+      this(context, poller, eventBus, pollingPolicies.getDefaultPolicy());
+   }
+
+   protected BaseMonitoringService(final ApiContext<AbiquoApi> context, final MonitorPoller poller,
+         final EventBus eventBus, final PollingPolicy pollingPolicy) {
       this.context = checkNotNull(context, "context");
-      this.scheduler = checkNotNull(scheduler, "scheduler");
-      this.pollingDelay = checkNotNull(pollingDelay, "pollingDelay");
+      this.poller = checkNotNull(poller, "poller");
       this.eventBus = checkNotNull(eventBus, "eventBus");
+      this.pollingPolicy = checkNotNull(pollingPolicy, "pollingPolicy");
    }
 
    /*************** Generic monitoring methods ***************/
@@ -98,13 +102,7 @@ public class BaseMonitoringService implements MonitoringService {
       checkNotNull(completeCondition, "completeCondition");
 
       if (objects != null && objects.length > 0) {
-         BlockingEventHandler<T> blockingHandler = new BlockingEventHandler<T>(logger, objects);
-         register(blockingHandler);
-
-         monitor(maxWait, timeUnit, completeCondition, objects);
-         blockingHandler.lock();
-
-         unregister(blockingHandler);
+         getUnchecked(awaitCompletionAsync(maxWait, timeUnit, completeCondition, objects));
       }
    }
 
@@ -116,19 +114,46 @@ public class BaseMonitoringService implements MonitoringService {
    @Override
    public <T> void monitor(final Long maxWait, final TimeUnit timeUnit,
          final Function<T, MonitorStatus> completeCondition, final T... objects) {
+      monitorAsync(maxWait, timeUnit, completeCondition, objects);
+   }
+
+   /*************** Non-blocking monitoring methods ***************/
+
+   @Override
+   public <T> List<ListenableFuture<MonitorEvent<T>>> monitorAsync(final Function<T, MonitorStatus> completeCondition,
+         final T... objects) {
+      return monitorAsync(null, null, completeCondition, objects);
+   }
+
+   @Override
+   public <T> List<ListenableFuture<MonitorEvent<T>>> monitorAsync(final Long maxWait, final TimeUnit timeUnit,
+         final Function<T, MonitorStatus> completeCondition, final T... objects) {
       checkNotNull(completeCondition, "completeCondition");
       if (maxWait != null) {
          checkNotNull(timeUnit, "timeUnit");
       }
 
-      if (objects != null && objects.length > 0) {
-         for (T object : objects) {
-            AsyncMonitor<T> monitor = new AsyncMonitor<T>(object, completeCondition);
-            monitor.startMonitoring(maxWait, timeUnit);
-         }
+      if (objects == null || objects.length == 0) {
+         return ImmutableList.of();
       }
+
+      return poller.monitor(maxWait, timeUnit, pollingPolicy, completeCondition, objects);
+   }
+
+   @Override
+   public <T> ListenableFuture<List<MonitorEvent<T>>> awaitCompletionAsync(
+         final Function<T, MonitorStatus> completeCondition, final T... objects) {
+      return awaitCompletionAsync(null, null, completeCondition, objects);
    }
 
+   @Override
+   public <T> ListenableFuture<List<MonitorEvent<T>>> awaitCompletionAsync(final Long maxWait,
+         final TimeUnit timeUnit, final Function<T, MonitorStatus> completeCondition, final T... objects) {
+      return allAsList(monitorAsync(maxWait, timeUnit, completeCondition, objects));
+   }
+
+   /*************** Handler registration methods ***************/
+
    @Override
    public <T extends AbstractEventHandler<?>> void register(final T handler) {
       logger.debug("registering event handler %s", handler);
@@ -163,132 +188,4 @@ public class BaseMonitoringService implements MonitoringService {
    public ConversionMonitor getConversionMonitor() {
       return checkNotNull(context.utils().injector().getInstance(ConversionMonitor.class), "conversionMonitor");
    }
-
-   /**
-    * Performs the periodical monitoring tasks.
-    * 
-    * @param <T>
-    *           The type of the object being monitored.
-    */
-   @VisibleForTesting
-   class AsyncMonitor<T> implements Runnable {
-      /** The object being monitored. */
-      private T monitoredObject;
-
-      /** The function used to monitor the target object. */
-      private Function<T, MonitorStatus> completeCondition;
-
-      /**
-       * The future representing the monitoring job. Needed to be able to cancel
-       * it when monitor finishes.
-       */
-      private Future<?> future;
-
-      /** The timeout for this monitor. */
-      private Long timeout;
-
-      public AsyncMonitor(final T monitoredObject, final Function<T, MonitorStatus> completeCondition) {
-         super();
-         this.monitoredObject = checkNotNull(monitoredObject, "monitoredObject");
-         this.completeCondition = checkNotNull(completeCondition, "completeCondition");
-      }
-
-      /**
-       * Starts the monitoring job with the given timeout.
-       * 
-       * @param maxWait
-       *           The timeout.
-       * @param timeUnit
-       *           The timeunit used in the maxWait parameter.
-       */
-      public void startMonitoring(final Long maxWait, TimeUnit timeUnit) {
-         if (maxWait != null) {
-            checkNotNull(timeUnit, "timeUnit must not be null when using timeouts");
-         }
-         future = scheduler.scheduleWithFixedDelay(this, 0L, pollingDelay, TimeUnit.MILLISECONDS);
-         timeout = maxWait == null ? null : System.currentTimeMillis() + timeUnit.toMillis(maxWait);
-         logger.debug("started monitor job for %s with %s timeout", monitoredObject,
-               timeout == null ? "no" : String.valueOf(timeout));
-      }
-
-      /**
-       * Stops the monitoring job, if running.
-       */
-      public void stopMonitoring() {
-         logger.debug("stopping monitor job for %s", monitoredObject);
-
-         try {
-            if (future != null && !future.isCancelled() && !future.isDone()) {
-               // Do not force future cancel. Let it finish gracefully
-               logger.debug("cancelling future");
-               future.cancel(false);
-            }
-         } catch (Exception ex) {
-            logger.warn(ex, "failed to stop monitor job for %s", monitoredObject);
-         }
-      }
-
-      /**
-       * Checks if the monitor has timed out.
-       */
-      public boolean isTimeout() {
-         return timeout != null && timeout < System.currentTimeMillis();
-      }
-
-      @Override
-      public void run() {
-         // Do not use Thread.interrupted() since it will clear the interrupted
-         // flag
-         // and subsequent calls to it may not return the appropriate value
-         if (Thread.currentThread().isInterrupted()) {
-            // If the thread as already been interrupted, just stop monitoring
-            // the task and
-            // return
-            stopMonitoring();
-            return;
-         }
-
-         MonitorStatus status = completeCondition.apply(monitoredObject);
-         logger.debug("monitored object %s status %s", monitoredObject, status.name());
-
-         switch (status) {
-            case DONE:
-               stopMonitoring();
-               logger.debug("publishing COMPLETED event");
-               eventBus.post(new CompletedEvent<T>(monitoredObject));
-               break;
-            case FAILED:
-               stopMonitoring();
-               logger.debug("publishing FAILED event");
-               eventBus.post(new FailedEvent<T>(monitoredObject));
-               break;
-            case CONTINUE:
-            default:
-               if (isTimeout()) {
-                  logger.warn("monitor for object %s timed out. Shutting down monitor.", monitoredObject);
-                  stopMonitoring();
-                  logger.debug("publishing TIMEOUT event");
-                  eventBus.post(new TimeoutEvent<T>(monitoredObject));
-               }
-               break;
-         }
-      }
-
-      public T getMonitoredObject() {
-         return monitoredObject;
-      }
-
-      public Function<T, MonitorStatus> getCompleteCondition() {
-         return completeCondition;
-      }
-
-      public Future<?> getFuture() {
-         return future;
-      }
-
-      public Long getTimeout() {
-         return timeout;
-      }
-   }
-
 }
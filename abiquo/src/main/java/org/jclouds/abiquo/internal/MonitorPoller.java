@@ -0,0 +1,427 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.abiquo.config.AbiquoProperties.MONITOR_TICK;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.abiquo.domain.cloud.VirtualMachine;
+import org.jclouds.abiquo.domain.task.AsyncTask;
+import org.jclouds.abiquo.monitor.BatchStateLoader;
+import org.jclouds.abiquo.monitor.MonitorStatus;
+import org.jclouds.abiquo.monitor.PollingPolicy;
+import org.jclouds.abiquo.monitor.StateMonitor;
+import org.jclouds.abiquo.monitor.events.CompletedEvent;
+import org.jclouds.abiquo.monitor.events.FailedEvent;
+import org.jclouds.abiquo.monitor.events.MonitorEvent;
+import org.jclouds.abiquo.monitor.events.TimeoutEvent;
+import org.jclouds.abiquo.monitor.functions.AsyncTaskStateLoader;
+import org.jclouds.abiquo.monitor.functions.VirtualMachineStateLoader;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Polling engine shared by all the monitoring services.
+ * <p>
+ * Instead of scheduling a job for each monitored object, all objects are
+ * registered in this poller and evaluated by a single periodic job. Each object
+ * is only polled when the delay given by its {@link PollingPolicy} expires.
+ * The policy is asked once for all the objects registered together, and the
+ * delays are rounded up to whole ticks, so objects that become due around the
+ * same time are polled in the same tick. On each tick, the objects to poll are grouped by type and, if there is a
+ * {@link BatchStateLoader} for that type, the state of the whole group is
+ * loaded with a few bulk API calls before evaluating the complete conditions.
+ * The results are dispatched to the event bus as {@link CompletedEvent},
+ * {@link FailedEvent} or {@link TimeoutEvent} events.
+ */
+@Singleton
+public class MonitorPoller {
+   @Resource
+   private Logger logger = Logger.NULL;
+
+   /** The scheduler used to run the polling job. */
+   private final ScheduledExecutorService scheduler;
+
+   /** The delay between two consecutive ticks. */
+   private final Long tick;
+
+   /** The event bus used to dispatch monitoring events. */
+   private final EventBus eventBus;
+
+   /** The loaders used to refresh the monitored objects, by type. */
+   private final Map<Class<?>, BatchStateLoader<?, ?>> loaders;
+
+   /** The time source used to decide when the objects must be polled. */
+   private final Ticker ticker;
+
+   /** The objects being monitored. */
+   private final Queue<MonitoredObject<?>> monitoredObjects = new ConcurrentLinkedQueue<MonitoredObject<?>>();
+
+   /** The polling job. Guarded by this. */
+   private Future<?> future;
+
+   @Inject
+   public MonitorPoller(@Named(PROPERTY_SCHEDULER_THREADS) final ScheduledExecutorService scheduler,
+         @Named(MONITOR_TICK) final Long tick, final EventBus eventBus,
+         final VirtualMachineStateLoader virtualMachineLoader, final AsyncTaskStateLoader asyncTaskLoader) {
+      this(scheduler, tick, eventBus, ImmutableMap.<Class<?>, BatchStateLoader<?, ?>> of(
+            VirtualMachine.class, virtualMachineLoader, AsyncTask.class, asyncTaskLoader));
+   }
+
+   @VisibleForTesting
+   MonitorPoller(final ScheduledExecutorService scheduler, final Long tick, final EventBus eventBus,
+         final Map<Class<?>, BatchStateLoader<?, ?>> loaders) {
+      this(scheduler, tick, eventBus, loaders, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   MonitorPoller(final ScheduledExecutorService scheduler, final Long tick, final EventBus eventBus,
+         final Map<Class<?>, BatchStateLoader<?, ?>> loaders, final Ticker ticker) {
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      this.tick = checkNotNull(tick, "tick");
+      this.eventBus = checkNotNull(eventBus, "eventBus");
+      this.loaders = ImmutableMap.copyOf(checkNotNull(loaders, "loaders"));
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   /**
+    * Starts monitoring the given objects.
+    * <p>
+    * The returned futures are completed from the polling job with the event
+    * published for each object. Cancelling a future stops monitoring the
+    * corresponding object.
+    * 
+    * @param maxWait
+    *           The maximum time to wait, or <code>null</code> to wait forever.
+    * @param timeUnit
+    *           The time unit for the maxWait parameter.
+    * @param pollingPolicy
+    *           The policy that decides when to poll the objects.
+    * @param completeCondition
+    *           The function used to decide if the objects have finished.
+    * @param objects
+    *           The objects to monitor.
+    * @return A future for each monitored object, in the same order.
+    */
+   public <T> List<ListenableFuture<MonitorEvent<T>>> monitor(final Long maxWait, final TimeUnit timeUnit,
+         final PollingPolicy pollingPolicy, final Function<T, MonitorStatus> completeCondition, final T... objects) {
+      checkNotNull(pollingPolicy, "pollingPolicy");
+      checkNotNull(completeCondition, "completeCondition");
+      if (maxWait != null) {
+         checkNotNull(timeUnit, "timeUnit must not be null when using timeouts");
+      }
+      if (objects == null || objects.length == 0) {
+         return ImmutableList.of();
+      }
+
+      long now = now();
+      Long timeout = maxWait == null ? null : now + timeUnit.toMillis(maxWait);
+      MonitorBatch batch = new MonitorBatch(pollingPolicy);
+      long firstPoll = now + toTicks(batch.delayBefore(0));
+      List<MonitoredObject<?>> added = Lists.newArrayListWithCapacity(objects.length);
+      ImmutableList.Builder<ListenableFuture<MonitorEvent<T>>> futures = ImmutableList.builder();
+      for (T object : objects) {
+         MonitoredObject<T> monitored = new MonitoredObject<T>(object, completeCondition, batch, timeout, firstPoll);
+         added.add(monitored);
+         futures.add(monitored.result);
+      }
+
+      start(added);
+      return futures.build();
+   }
+
+   /**
+    * Returns the number of objects being monitored.
+    */
+   public int size() {
+      return monitoredObjects.size();
+   }
+
+   private synchronized void start(final Collection<MonitoredObject<?>> objects) {
+      monitoredObjects.addAll(objects);
+      logger.debug("monitoring %s objects", objects.size());
+
+      if (future == null) {
+         logger.debug("starting polling job");
+         future = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+               poll();
+            }
+         }, 0L, tick, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   private synchronized void stopIfIdle() {
+      if (monitoredObjects.isEmpty() && future != null) {
+         // Do not force future cancel. Let it finish gracefully
+         logger.debug("there are no objects to monitor. Stopping polling job");
+         future.cancel(false);
+         future = null;
+      }
+   }
+
+   /**
+    * Evaluates the monitored objects that must be polled and publishes the
+    * events for the ones that have finished.
+    */
+   @VisibleForTesting
+   void poll() {
+      // Do not use Thread.interrupted() since it will clear the interrupted
+      // flag and subsequent calls to it may not return the appropriate value
+      if (Thread.currentThread().isInterrupted()) {
+         logger.debug("polling thread has been interrupted. Skipping tick");
+         return;
+      }
+
+      if (monitoredObjects.isEmpty()) {
+         stopIfIdle();
+         return;
+      }
+
+      long now = now();
+      List<MonitoredObject<?>> pending = Lists.newArrayList();
+      for (MonitoredObject<?> monitored : monitoredObjects) {
+         if (monitored.result.isCancelled()) {
+            logger.debug("monitor for object %s has been cancelled", monitored.object);
+            monitoredObjects.remove(monitored);
+            continue;
+         }
+         // Objects that have timed out are polled one last time
+         if (monitored.nextPoll <= now || monitored.isTimeout(now)) {
+            pending.add(monitored);
+         }
+      }
+
+      if (pending.isEmpty()) {
+         stopIfIdle();
+         return;
+      }
+
+      // Group the objects that can be refreshed in batch by their loader
+      ListMultimap<BatchStateLoader<?, ?>, MonitoredObject<?>> batches = ArrayListMultimap.create();
+      for (MonitoredObject<?> monitored : pending) {
+         BatchStateLoader<?, ?> loader = loaderFor(monitored);
+         if (loader != null) {
+            batches.put(loader, monitored);
+         }
+      }
+
+      Map<Object, Object> states = Maps.newIdentityHashMap();
+      for (BatchStateLoader<?, ?> loader : batches.keySet()) {
+         states.putAll(load(loader, batches.get(loader)));
+      }
+
+      for (MonitoredObject<?> monitored : pending) {
+         evaluate(monitored, states.get(monitored.object), now);
+      }
+
+      stopIfIdle();
+   }
+
+   private BatchStateLoader<?, ?> loaderFor(final MonitoredObject<?> monitored) {
+      if (monitored.completeCondition instanceof StateMonitor) {
+         for (Map.Entry<Class<?>, BatchStateLoader<?, ?>> entry : loaders.entrySet()) {
+            if (entry.getKey().isInstance(monitored.object)) {
+               return entry.getValue();
+            }
+         }
+      }
+      return null;
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   private Map<?, ?> load(final BatchStateLoader loader, final List<MonitoredObject<?>> monitored) {
+      List<Object> objects = Lists.newArrayListWithCapacity(monitored.size());
+      for (MonitoredObject<?> object : monitored) {
+         objects.add(object.object);
+      }
+
+      try {
+         Map<?, ?> states = loader.load(objects);
+         logger.debug("loaded the state of %s/%s objects with %s", states.size(), objects.size(), loader);
+         return states;
+      } catch (RuntimeException ex) {
+         logger.warn(ex, "could not load the state of %s objects with %s, falling back to individual polling",
+               objects.size(), loader);
+         return ImmutableMap.of();
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private <T> void evaluate(final MonitoredObject<T> monitored, final Object state, final long tickTime) {
+      int polls = ++monitored.polls;
+      MonitorStatus status;
+      try {
+         status = state != null ? ((StateMonitor<Object>) monitored.completeCondition).forState(state)
+               : monitored.completeCondition.apply(monitored.object);
+      } catch (RuntimeException ex) {
+         logger.warn(ex, "exception thrown while monitoring %s, returning CONTINUE", monitored.object);
+         status = MonitorStatus.CONTINUE;
+      }
+
+      logger.debug("monitored object %s status %s after %s polls", monitored.object, status.name(), polls);
+
+      switch (status) {
+         case DONE:
+            logger.debug("publishing COMPLETED event");
+            complete(monitored, new CompletedEvent<T>(monitored.object, polls));
+            break;
+         case FAILED:
+            logger.debug("publishing FAILED event");
+            complete(monitored, new FailedEvent<T>(monitored.object, polls));
+            break;
+         case CONTINUE:
+         default:
+            if (monitored.isTimeout(now())) {
+               logger.warn("monitor for object %s timed out. Shutting down monitor.", monitored.object);
+               logger.debug("publishing TIMEOUT event");
+               complete(monitored, new TimeoutEvent<T>(monitored.object, polls));
+            } else {
+               // Computed from the time of the tick, so the objects polled in
+               // this tick become due again at the same time
+               monitored.nextPoll = tickTime + toTicks(monitored.batch.delayBefore(polls));
+            }
+            break;
+      }
+   }
+
+   /**
+    * Returns the current time of the ticker, in milliseconds.
+    */
+   private long now() {
+      return TimeUnit.NANOSECONDS.toMillis(ticker.read());
+   }
+
+   /**
+    * Rounds the given delay up to a whole number of ticks.
+    */
+   private long toTicks(final long delay) {
+      return tick <= 0 ? delay : (delay + tick - 1) / tick * tick;
+   }
+
+   private <T> void complete(final MonitoredObject<T> monitored, final MonitorEvent<T> event) {
+      monitoredObjects.remove(monitored);
+      try {
+         eventBus.post(event);
+      } finally {
+         // Always complete the future, even if the event handlers fail
+         monitored.result.set(event);
+      }
+   }
+
+   /**
+    * An object being monitored by the poller.
+    * 
+    * @param <T>
+    *           The type of the object being monitored.
+    */
+   private static class MonitoredObject<T> {
+      /** The object being monitored. */
+      private final T object;
+
+      /** The function used to monitor the target object. */
+      private final Function<T, MonitorStatus> completeCondition;
+
+      /** The objects registered together with this one. */
+      private final MonitorBatch batch;
+
+      /** The timeout for this object. */
+      private final Long timeout;
+
+      /** The number of polls performed on this object. Only used by the poll job. */
+      private int polls;
+
+      /** The time when the object must be polled again. */
+      private volatile long nextPoll;
+
+      /** The future completed with the event published for the object. */
+      private final SettableFuture<MonitorEvent<T>> result = SettableFuture.create();
+
+      public MonitoredObject(final T object, final Function<T, MonitorStatus> completeCondition,
+            final MonitorBatch batch, final Long timeout, final long firstPoll) {
+         this.object = checkNotNull(object, "object");
+         this.completeCondition = checkNotNull(completeCondition, "completeCondition");
+         this.batch = checkNotNull(batch, "batch");
+         this.timeout = timeout;
+         this.nextPoll = firstPoll;
+      }
+
+      /**
+       * Checks if the monitor has timed out.
+       */
+      public boolean isTimeout(final long now) {
+         return timeout != null && timeout < now;
+      }
+   }
+
+   /**
+    * The objects registered in the same call to the poller.
+    * <p>
+    * They share the delays given by the polling policy, so any random jitter
+    * applies to the whole batch and its objects keep being polled together.
+    */
+   private static class MonitorBatch {
+      /** The policy that decides when to poll the objects. */
+      private final PollingPolicy pollingPolicy;
+
+      /** The last poll the delay was computed for. Guarded by this. */
+      private int poll = -1;
+
+      /** The delay before the last poll. Guarded by this. */
+      private long delay;
+
+      public MonitorBatch(final PollingPolicy pollingPolicy) {
+         this.pollingPolicy = checkNotNull(pollingPolicy, "pollingPolicy");
+      }
+
+      public synchronized long delayBefore(final int poll) {
+         if (poll != this.poll) {
+            this.poll = poll;
+            this.delay = pollingPolicy.delayBefore(poll);
+         }
+         return delay;
+      }
+   }
+}
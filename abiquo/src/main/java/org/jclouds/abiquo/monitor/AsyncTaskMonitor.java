@@ -16,12 +16,15 @@
  */
 package org.jclouds.abiquo.monitor;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.jclouds.abiquo.domain.task.AsyncTask;
 import org.jclouds.abiquo.features.services.MonitoringService;
+import org.jclouds.abiquo.monitor.events.MonitorEvent;
 import org.jclouds.abiquo.monitor.internal.BaseAsyncTaskMonitor;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.ImplementedBy;
 
 /**
@@ -70,4 +73,29 @@ public interface AsyncTaskMonitor extends MonitoringService {
     *           The {@link AsyncTask}s to monitor.
     */
    void monitor(final Long maxWait, final TimeUnit timeUnit, final AsyncTask<?, ?>... tasks);
+
+   /**
+    * Monitor the given {@link AsyncTask}s without blocking the calling thread.
+    * 
+    * @param tasks
+    *           The {@link AsyncTask}s to monitor.
+    * @return A future completed with the events published for all the tasks,
+    *         once they finish.
+    */
+   ListenableFuture<List<MonitorEvent<AsyncTask<?, ?>>>> awaitCompletionAsync(final AsyncTask<?, ?>... tasks);
+
+   /**
+    * Monitor the given {@link AsyncTask}s without blocking the calling thread.
+    * 
+    * @param maxWait
+    *           The maximum time to wait.
+    * @param timeUnit
+    *           The time unit for the maxWait parameter.
+    * @param tasks
+    *           The {@link AsyncTask}s to monitor.
+    * @return A future completed with the events published for all the tasks,
+    *         once they finish.
+    */
+   ListenableFuture<List<MonitorEvent<AsyncTask<?, ?>>>> awaitCompletionAsync(final Long maxWait,
+         final TimeUnit timeUnit, final AsyncTask<?, ?>... tasks);
 }
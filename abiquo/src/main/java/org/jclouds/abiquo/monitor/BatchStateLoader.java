@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.monitor;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Loads the current state of a group of monitored objects using as few API
+ * calls as possible.
+ * 
+ * @param <T>
+ *           The type of the monitored objects.
+ * @param <S>
+ *           The type of the state of the monitored objects.
+ * 
+ * @see StateMonitor
+ */
+public interface BatchStateLoader<T, S> {
+   /**
+    * Loads the current state of the given objects.
+    * <p>
+    * Objects whose state cannot be loaded in batch must not be present in the
+    * returned map, and will be evaluated individually.
+    * 
+    * @param objects
+    *           The objects to refresh.
+    * @return The current state of each refreshed object.
+    */
+   Map<T, S> load(Collection<T> objects);
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.monitor;
+
+/**
+ * A monitor function that can evaluate an already known state of the monitored
+ * objects.
+ * <p>
+ * Complete conditions implementing this interface allow the
+ * {@link org.jclouds.abiquo.features.services.MonitoringService} to refresh
+ * the state of many objects with a single API call, and evaluate each one of
+ * them without additional requests.
+ * 
+ * @param <S>
+ *           The type of the state of the monitored objects.
+ * 
+ * @see BatchStateLoader
+ */
+public interface StateMonitor<S> {
+   /**
+    * Evaluates the given state of a monitored object.
+    * 
+    * @param state
+    *           The current state of the monitored object.
+    * @return The status of the monitoring job for the object.
+    */
+   MonitorStatus forState(S state);
+}
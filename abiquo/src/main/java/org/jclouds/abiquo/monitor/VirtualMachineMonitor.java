@@ -16,13 +16,16 @@
  */
 package org.jclouds.abiquo.monitor;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.jclouds.abiquo.domain.cloud.VirtualMachine;
 import org.jclouds.abiquo.features.services.MonitoringService;
+import org.jclouds.abiquo.monitor.events.MonitorEvent;
 import org.jclouds.abiquo.monitor.internal.BaseVirtualMachineMonitor;
 
 import com.abiquo.server.core.cloud.VirtualMachineState;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.ImplementedBy;
 
 /**
@@ -166,4 +169,86 @@ public interface VirtualMachineMonitor extends MonitoringService {
     */
    void monitorState(final Long maxWait, final TimeUnit timeUnit, VirtualMachineState state,
          final VirtualMachine... vms);
+
+   /**
+    * Monitor the given {@link VirtualMachine}s without blocking the calling
+    * thread until all deploys finish.
+    * 
+    * @param vms
+    *           The {@link VirtualMachine}s to monitor.
+    * @return A future completed with the events published for all the
+    *         {@link VirtualMachine}s, once all deploys finish.
+    */
+   ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitCompletionDeployAsync(final VirtualMachine... vms);
+
+   /**
+    * Monitor the given {@link VirtualMachine}s without blocking the calling
+    * thread until all deploys finish.
+    * 
+    * @param maxWait
+    *           The maximum time to wait.
+    * @param timeUnit
+    *           The time unit for the maxWait parameter.
+    * @param vms
+    *           The {@link VirtualMachine}s to monitor.
+    * @return A future completed with the events published for all the
+    *         {@link VirtualMachine}s, once all deploys finish.
+    */
+   ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitCompletionDeployAsync(final Long maxWait,
+         final TimeUnit timeUnit, final VirtualMachine... vms);
+
+   /**
+    * Monitor the given {@link VirtualMachine}s without blocking the calling
+    * thread until all undeploys finish.
+    * 
+    * @param vms
+    *           The {@link VirtualMachine}s to monitor.
+    * @return A future completed with the events published for all the
+    *         {@link VirtualMachine}s, once all undeploys finish.
+    */
+   ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitCompletionUndeployAsync(final VirtualMachine... vms);
+
+   /**
+    * Monitor the given {@link VirtualMachine}s without blocking the calling
+    * thread until all undeploys finish.
+    * 
+    * @param maxWait
+    *           The maximum time to wait.
+    * @param timeUnit
+    *           The time unit for the maxWait parameter.
+    * @param vms
+    *           The {@link VirtualMachine}s to monitor.
+    * @return A future completed with the events published for all the
+    *         {@link VirtualMachine}s, once all undeploys finish.
+    */
+   ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitCompletionUndeployAsync(final Long maxWait,
+         final TimeUnit timeUnit, final VirtualMachine... vms);
+
+   /**
+    * Monitor the given {@link VirtualMachine}s without blocking the calling
+    * thread until they are in the given state.
+    * 
+    * @param vms
+    *           The {@link VirtualMachine}s to monitor.
+    * @return A future completed with the events published for all the
+    *         {@link VirtualMachine}s, once they are in the given state.
+    */
+   ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitStateAsync(VirtualMachineState state,
+         final VirtualMachine... vms);
+
+   /**
+    * Monitor the given {@link VirtualMachine}s without blocking the calling
+    * thread until they are in the given state.
+    * 
+    * @param maxWait
+    *           The maximum time to wait.
+    * @param timeUnit
+    *           The time unit for the maxWait parameter.
+    * @param vms
+    *           The {@link VirtualMachine}s to monitor.
+    * @return A future completed with the events published for all the
+    *         {@link VirtualMachine}s, once they are in the given state.
+    */
+   ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitStateAsync(final Long maxWait, final TimeUnit timeUnit,
+         VirtualMachineState state, final VirtualMachine... vms);
 }
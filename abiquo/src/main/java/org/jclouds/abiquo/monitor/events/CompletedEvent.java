@@ -24,4 +24,8 @@ public class CompletedEvent<T> extends MonitorEvent<T> {
       super(MonitorEvent.Type.COMPLETED, target);
    }
 
+   public CompletedEvent(final T target, final int polls) {
+      super(MonitorEvent.Type.COMPLETED, target, polls);
+   }
+
 }
@@ -24,4 +24,8 @@ public class FailedEvent<T> extends MonitorEvent<T> {
       super(MonitorEvent.Type.FAILED, target);
    }
 
+   public FailedEvent(final T target, final int polls) {
+      super(MonitorEvent.Type.FAILED, target, polls);
+   }
+
 }
@@ -35,10 +35,18 @@ public class MonitorEvent<T> {
    /** The target object being monitored. */
    private T target;
 
+   /** The number of polls performed before dispatching the event. */
+   private int polls;
+
    public MonitorEvent(final Type type, final T target) {
+      this(type, target, 0);
+   }
+
+   public MonitorEvent(final Type type, final T target, final int polls) {
       super();
       this.type = checkNotNull(type, "type");
       this.target = checkNotNull(target, "target");
+      this.polls = polls;
    }
 
    public Type getType() {
@@ -57,9 +65,17 @@ public class MonitorEvent<T> {
       this.target = target;
    }
 
+   /**
+    * Gets the number of times the target object was polled before dispatching
+    * this event.
+    */
+   public int getPolls() {
+      return polls;
+   }
+
    @Override
    public String toString() {
-      return "MonitorEvent [type=" + type + ", target=" + target + "]";
+      return "MonitorEvent [type=" + type + ", target=" + target + ", polls=" + polls + "]";
    }
 
 }
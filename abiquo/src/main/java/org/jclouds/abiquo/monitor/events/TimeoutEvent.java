@@ -24,4 +24,8 @@ public class TimeoutEvent<T> extends MonitorEvent<T> {
       super(MonitorEvent.Type.TIMEOUT, target);
    }
 
+   public TimeoutEvent(final T target, final int polls) {
+      super(MonitorEvent.Type.TIMEOUT, target, polls);
+   }
+
 }
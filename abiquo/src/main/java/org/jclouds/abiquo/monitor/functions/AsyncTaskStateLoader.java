@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.monitor.functions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.abiquo.domain.util.LinkUtils.getCollectionHref;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.domain.task.AsyncTask;
+import org.jclouds.abiquo.monitor.BatchStateLoader;
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.ApiContext;
+
+import com.abiquo.model.rest.RESTLink;
+import com.abiquo.server.core.task.TaskDto;
+import com.abiquo.server.core.task.TasksDto;
+import com.abiquo.server.core.task.enums.TaskState;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+
+/**
+ * Loads the state of a group of {@link AsyncTask}s by listing the tasks of
+ * each owner only once.
+ */
+@Singleton
+public class AsyncTaskStateLoader implements BatchStateLoader<AsyncTask<?, ?>, TaskState> {
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final ApiContext<AbiquoApi> context;
+
+   @Inject
+   public AsyncTaskStateLoader(final ApiContext<AbiquoApi> context) {
+      this.context = checkNotNull(context, "context");
+   }
+
+   @Override
+   public Map<AsyncTask<?, ?>, TaskState> load(final Collection<AsyncTask<?, ?>> tasks) {
+      // Group the tasks by the task collection of their owner
+      ListMultimap<String, AsyncTask<?, ?>> tasksByOwner = ArrayListMultimap.create();
+      for (AsyncTask<?, ?> task : tasks) {
+         RESTLink link = task.unwrap().searchLink("self");
+         if (link != null) {
+            tasksByOwner.put(getCollectionHref(link), task);
+         }
+      }
+
+      Map<AsyncTask<?, ?>, TaskState> states = Maps.newIdentityHashMap();
+      for (String href : tasksByOwner.keySet()) {
+         // Only the "tasks" link is needed to list the tasks of the owner
+         TaskDto owner = new TaskDto();
+         owner.addLink(new RESTLink("tasks", href));
+
+         TasksDto result = context.getApi().getTaskApi().listTasks(owner);
+         Map<String, TaskDto> current = Maps.newHashMap();
+         for (TaskDto dto : result.getCollection()) {
+            current.put(dto.getTaskId(), dto);
+         }
+
+         logger.debug("loaded %s tasks from %s", current.size(), href);
+
+         for (AsyncTask<?, ?> task : tasksByOwner.get(href)) {
+            TaskDto dto = current.get(task.getTaskId());
+            // Keep the current representation if the listed one cannot be
+            // refreshed later
+            if (dto != null && dto.getState() != null && dto.searchLink("self") != null) {
+               task.refresh(dto);
+               states.put(task, dto.getState());
+            }
+         }
+      }
+
+      return states;
+   }
+}
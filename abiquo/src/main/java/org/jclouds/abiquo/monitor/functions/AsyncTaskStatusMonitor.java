@@ -23,15 +23,17 @@ import javax.inject.Singleton;
 
 import org.jclouds.abiquo.domain.task.AsyncTask;
 import org.jclouds.abiquo.monitor.MonitorStatus;
+import org.jclouds.abiquo.monitor.StateMonitor;
 import org.jclouds.logging.Logger;
 
+import com.abiquo.server.core.task.enums.TaskState;
 import com.google.common.base.Function;
 
 /**
  * This class takes care of monitoring {@link AsyncTask} jobs.
  */
 @Singleton
-public class AsyncTaskStatusMonitor implements Function<AsyncTask<?, ?>, MonitorStatus> {
+public class AsyncTaskStatusMonitor implements Function<AsyncTask<?, ?>, MonitorStatus>, StateMonitor<TaskState> {
    @Resource
    protected Logger logger = Logger.NULL;
 
@@ -41,19 +43,7 @@ public class AsyncTaskStatusMonitor implements Function<AsyncTask<?, ?>, Monitor
 
       try {
          asyncTask.refresh();
-
-         switch (asyncTask.getState()) {
-            case ABORTED:
-            case FINISHED_UNSUCCESSFULLY:
-               return MonitorStatus.FAILED;
-            case FINISHED_SUCCESSFULLY:
-               return MonitorStatus.DONE;
-            case STARTED:
-            case PENDING:
-               return MonitorStatus.CONTINUE;
-            default:
-               throw new IllegalStateException("Unsupported task status");
-         }
+         return forState(asyncTask.getState());
       } catch (Exception ex) {
          logger.warn(ex, "exception thrown while monitoring %s on %s, returning CONTINUE", asyncTask, getClass()
                .getName());
@@ -61,4 +51,20 @@ public class AsyncTaskStatusMonitor implements Function<AsyncTask<?, ?>, Monitor
          return MonitorStatus.CONTINUE;
       }
    }
+
+   @Override
+   public MonitorStatus forState(final TaskState state) {
+      switch (state) {
+         case ABORTED:
+         case FINISHED_UNSUCCESSFULLY:
+            return MonitorStatus.FAILED;
+         case FINISHED_SUCCESSFULLY:
+            return MonitorStatus.DONE;
+         case STARTED:
+         case PENDING:
+            return MonitorStatus.CONTINUE;
+         default:
+            throw new IllegalStateException("Unsupported task status");
+      }
+   }
 }
@@ -22,6 +22,7 @@ import javax.annotation.Resource;
 
 import org.jclouds.abiquo.domain.cloud.VirtualMachine;
 import org.jclouds.abiquo.monitor.MonitorStatus;
+import org.jclouds.abiquo.monitor.StateMonitor;
 import org.jclouds.logging.Logger;
 
 import com.abiquo.server.core.cloud.VirtualMachineState;
@@ -34,7 +35,8 @@ import com.google.inject.Singleton;
  * @see MonitoringService
  */
 @Singleton
-public class VirtualMachineDeployMonitor implements Function<VirtualMachine, MonitorStatus> {
+public class VirtualMachineDeployMonitor implements Function<VirtualMachine, MonitorStatus>,
+      StateMonitor<VirtualMachineState> {
    @Resource
    private Logger logger = Logger.NULL;
 
@@ -43,17 +45,7 @@ public class VirtualMachineDeployMonitor implements Function<VirtualMachine, Mon
       checkNotNull(virtualMachine, "virtualMachine");
 
       try {
-         VirtualMachineState state = virtualMachine.getState();
-
-         switch (state) {
-            case NOT_ALLOCATED:
-            case UNKNOWN:
-               return MonitorStatus.FAILED;
-            case ON:
-               return MonitorStatus.DONE;
-            default:
-               return MonitorStatus.CONTINUE;
-         }
+         return forState(virtualMachine.getState());
       } catch (Exception ex) {
          logger.warn(ex, "exception thrown while monitoring %s on %s, returning CONTINUE", virtualMachine, getClass()
                .getName());
@@ -61,4 +53,17 @@ public class VirtualMachineDeployMonitor implements Function<VirtualMachine, Mon
          return MonitorStatus.CONTINUE;
       }
    }
+
+   @Override
+   public MonitorStatus forState(final VirtualMachineState state) {
+      switch (state) {
+         case NOT_ALLOCATED:
+         case UNKNOWN:
+            return MonitorStatus.FAILED;
+         case ON:
+            return MonitorStatus.DONE;
+         default:
+            return MonitorStatus.CONTINUE;
+      }
+   }
 }
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.monitor.functions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.abiquo.domain.util.LinkUtils.getCollectionHref;
+import static org.jclouds.abiquo.domain.util.LinkUtils.getSelfLink;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.domain.cloud.VirtualMachine;
+import org.jclouds.abiquo.monitor.BatchStateLoader;
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.ApiContext;
+
+import com.abiquo.model.rest.RESTLink;
+import com.abiquo.server.core.cloud.VirtualApplianceDto;
+import com.abiquo.server.core.cloud.VirtualMachineState;
+import com.abiquo.server.core.cloud.VirtualMachineWithNodeExtendedDto;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+
+/**
+ * Loads the state of a group of {@link VirtualMachine}s by listing the virtual
+ * machines of each virtual appliance only once.
+ */
+@Singleton
+public class VirtualMachineStateLoader implements BatchStateLoader<VirtualMachine, VirtualMachineState> {
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final ApiContext<AbiquoApi> context;
+
+   @Inject
+   public VirtualMachineStateLoader(final ApiContext<AbiquoApi> context) {
+      this.context = checkNotNull(context, "context");
+   }
+
+   @Override
+   public Map<VirtualMachine, VirtualMachineState> load(final Collection<VirtualMachine> virtualMachines) {
+      // Group the virtual machines by the collection they belong to
+      ListMultimap<String, VirtualMachine> vmsByAppliance = ArrayListMultimap.create();
+      for (VirtualMachine vm : virtualMachines) {
+         RESTLink link = getSelfLink(vm.unwrap());
+         if (link != null) {
+            vmsByAppliance.put(getCollectionHref(link), vm);
+         }
+      }
+
+      Map<VirtualMachine, VirtualMachineState> states = Maps.newIdentityHashMap();
+      for (String href : vmsByAppliance.keySet()) {
+         VirtualApplianceDto vapp = new VirtualApplianceDto();
+         vapp.addLink(new RESTLink("virtualmachines", href));
+
+         Map<String, VirtualMachineWithNodeExtendedDto> current = Maps.newHashMap();
+         for (VirtualMachineWithNodeExtendedDto dto : context.getApi().getCloudApi().listVirtualMachines(vapp)
+               .concat()) {
+            RESTLink link = getSelfLink(dto);
+            if (link != null) {
+               current.put(link.getHref(), dto);
+            }
+         }
+
+         logger.debug("loaded %s virtual machines from %s", current.size(), href);
+
+         for (VirtualMachine vm : vmsByAppliance.get(href)) {
+            VirtualMachineWithNodeExtendedDto dto = current.get(getSelfLink(vm.unwrap()).getHref());
+            if (dto != null && dto.getState() != null) {
+               vm.unwrap().setState(dto.getState());
+               vm.unwrap().setIdState(dto.getState().id());
+               states.put(vm, dto.getState());
+            }
+         }
+      }
+
+      return states;
+   }
+}
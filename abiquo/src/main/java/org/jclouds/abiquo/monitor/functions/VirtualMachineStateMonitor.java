@@ -22,6 +22,7 @@ import javax.annotation.Resource;
 
 import org.jclouds.abiquo.domain.cloud.VirtualMachine;
 import org.jclouds.abiquo.monitor.MonitorStatus;
+import org.jclouds.abiquo.monitor.StateMonitor;
 import org.jclouds.logging.Logger;
 
 import com.abiquo.server.core.cloud.VirtualMachineState;
@@ -32,7 +33,8 @@ import com.google.common.base.Function;
  * 
  * @see MonitoringService
  */
-public class VirtualMachineStateMonitor implements Function<VirtualMachine, MonitorStatus> {
+public class VirtualMachineStateMonitor implements Function<VirtualMachine, MonitorStatus>,
+      StateMonitor<VirtualMachineState> {
    @Resource
    private Logger logger = Logger.NULL;
 
@@ -48,8 +50,7 @@ public class VirtualMachineStateMonitor implements Function<VirtualMachine, Moni
       checkNotNull(virtualMachine, "virtualMachine");
 
       try {
-         VirtualMachineState state = virtualMachine.getState();
-         return state == expectedState ? MonitorStatus.DONE : MonitorStatus.CONTINUE;
+         return forState(virtualMachine.getState());
       } catch (Exception ex) {
          logger.warn(ex, "exception thrown while monitoring %s on %s, returning CONTINUE", virtualMachine, getClass()
                .getName());
@@ -58,4 +59,9 @@ public class VirtualMachineStateMonitor implements Function<VirtualMachine, Moni
 
       }
    }
+
+   @Override
+   public MonitorStatus forState(final VirtualMachineState state) {
+      return state == expectedState ? MonitorStatus.DONE : MonitorStatus.CONTINUE;
+   }
 }
@@ -23,6 +23,7 @@ import javax.inject.Singleton;
 
 import org.jclouds.abiquo.domain.cloud.VirtualMachine;
 import org.jclouds.abiquo.monitor.MonitorStatus;
+import org.jclouds.abiquo.monitor.StateMonitor;
 import org.jclouds.logging.Logger;
 import org.jclouds.rest.ResourceNotFoundException;
 
@@ -34,7 +35,8 @@ import com.google.common.base.Function;
  * {@link VirtualMachine}.
  */
 @Singleton
-public class VirtualMachineUndeployMonitor implements Function<VirtualMachine, MonitorStatus> {
+public class VirtualMachineUndeployMonitor implements Function<VirtualMachine, MonitorStatus>,
+      StateMonitor<VirtualMachineState> {
    @Resource
    protected Logger logger = Logger.NULL;
 
@@ -43,22 +45,7 @@ public class VirtualMachineUndeployMonitor implements Function<VirtualMachine, M
       checkNotNull(virtualMachine, "virtualMachine");
 
       try {
-         VirtualMachineState state = virtualMachine.getState();
-
-         // This state may be reached if the undeploy process fails and a
-         // rollback is done
-         if (state.existsInHypervisor()) {
-            return MonitorStatus.FAILED;
-         }
-
-         switch (state) {
-            case UNKNOWN:
-               return MonitorStatus.FAILED;
-            case NOT_ALLOCATED:
-               return MonitorStatus.DONE;
-            default:
-               return MonitorStatus.CONTINUE;
-         }
+         return forState(virtualMachine.getState());
       } catch (ResourceNotFoundException nfe) {
          logger.warn("virtual machine %s not found, assuming it was undeployed successfully, "
                + "stop monitor with DONE", virtualMachine);
@@ -70,4 +57,22 @@ public class VirtualMachineUndeployMonitor implements Function<VirtualMachine, M
          return MonitorStatus.CONTINUE;
       }
    }
+
+   @Override
+   public MonitorStatus forState(final VirtualMachineState state) {
+      // This state may be reached if the undeploy process fails and a
+      // rollback is done
+      if (state.existsInHypervisor()) {
+         return MonitorStatus.FAILED;
+      }
+
+      switch (state) {
+         case UNKNOWN:
+            return MonitorStatus.FAILED;
+         case NOT_ALLOCATED:
+            return MonitorStatus.DONE;
+         default:
+            return MonitorStatus.CONTINUE;
+      }
+   }
 }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.monitor.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Random;
+
+import org.jclouds.abiquo.monitor.PollingPolicy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Polling policy that probes the monitored objects a few times with short
+ * delays, and then backs off exponentially until a maximum delay is reached.
+ * <p>
+ * A random jitter is applied to the backoff delays, so groups of objects that
+ * started to be monitored at the same time do not keep hitting the API at the
+ * same time. The poller asks for the delay once per group, so the objects of a
+ * group are still polled together.
+ */
+public class BackoffPollingPolicy implements PollingPolicy {
+   /** The delays used for the first polls. */
+   private final List<Long> fastProbes;
+
+   /** The first delay used once the fast probes have been done. */
+   private final long initialDelay;
+
+   /** The multiplier applied to the delay after each poll. */
+   private final double multiplier;
+
+   /** The maximum delay between two polls. */
+   private final long maxDelay;
+
+   /** The random factor applied to the backoff delays. */
+   private final double jitter;
+
+   private final Random random;
+
+   public BackoffPollingPolicy(final List<Long> fastProbes, final long initialDelay, final double multiplier,
+         final long maxDelay, final double jitter) {
+      this(fastProbes, initialDelay, multiplier, maxDelay, jitter, new Random());
+   }
+
+   @VisibleForTesting
+   BackoffPollingPolicy(final List<Long> fastProbes, final long initialDelay, final double multiplier,
+         final long maxDelay, final double jitter, final Random random) {
+      checkArgument(initialDelay >= 0, "initialDelay must be positive");
+      checkArgument(multiplier >= 1, "multiplier must be greater or equal than 1");
+      checkArgument(maxDelay >= initialDelay, "maxDelay must be greater or equal than initialDelay");
+      checkArgument(jitter >= 0 && jitter < 1, "jitter must be between 0 and 1");
+      this.fastProbes = ImmutableList.copyOf(checkNotNull(fastProbes, "fastProbes"));
+      this.initialDelay = initialDelay;
+      this.multiplier = multiplier;
+      this.maxDelay = maxDelay;
+      this.jitter = jitter;
+      this.random = checkNotNull(random, "random");
+   }
+
+   /**
+    * Creates a policy that polls the monitored objects right away and then
+    * always waits the same delay.
+    */
+   public static BackoffPollingPolicy fixedDelay(final long delay) {
+      return new BackoffPollingPolicy(ImmutableList.of(0L), delay, 1, delay, 0);
+   }
+
+   @Override
+   public long delayBefore(final int poll) {
+      if (poll < fastProbes.size()) {
+         return fastProbes.get(poll);
+      }
+
+      double delay = Math.min(initialDelay * Math.pow(multiplier, poll - fastProbes.size()), maxDelay);
+      if (jitter > 0) {
+         delay *= 1 - jitter + 2 * jitter * random.nextDouble();
+      }
+
+      return Math.min(Math.round(delay), maxDelay);
+   }
+
+   @Override
+   public String toString() {
+      return "BackoffPollingPolicy [fastProbes=" + fastProbes + ", initialDelay=" + initialDelay + ", multiplier="
+            + multiplier + ", maxDelay=" + maxDelay + ", jitter=" + jitter + "]";
+   }
+}
@@ -17,25 +17,25 @@
 package org.jclouds.abiquo.monitor.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
-import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_DELAY;
 
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.jclouds.abiquo.AbiquoApi;
 import org.jclouds.abiquo.domain.task.AsyncTask;
 import org.jclouds.abiquo.internal.BaseMonitoringService;
+import org.jclouds.abiquo.internal.MonitorPoller;
 import org.jclouds.abiquo.monitor.AsyncTaskMonitor;
+import org.jclouds.abiquo.monitor.events.MonitorEvent;
 import org.jclouds.abiquo.monitor.functions.AsyncTaskStatusMonitor;
 import org.jclouds.rest.ApiContext;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Default monitor for {@link AsyncTask} objects.
@@ -47,11 +47,9 @@ public class BaseAsyncTaskMonitor extends BaseMonitoringService implements Async
    protected AsyncTaskStatusMonitor taskMonitor;
 
    @Inject
-   public BaseAsyncTaskMonitor(final ApiContext<AbiquoApi> context,
-         @Named(PROPERTY_SCHEDULER_THREADS) final ScheduledExecutorService scheduler,
-         @Named(ASYNC_TASK_MONITOR_DELAY) final Long pollingDelay, final EventBus eventBus,
-         final AsyncTaskStatusMonitor monitor) {
-      super(context, scheduler, pollingDelay, eventBus);
+   public BaseAsyncTaskMonitor(final ApiContext<AbiquoApi> context, final MonitorPoller poller, final EventBus eventBus,
+         final PollingPolicies pollingPolicies, final AsyncTaskStatusMonitor monitor) {
+      super(context, poller, eventBus, pollingPolicies.getAsyncTaskPolicy());
       this.taskMonitor = checkNotNull(monitor, "monitor");
    }
 
@@ -75,4 +73,15 @@ public class BaseAsyncTaskMonitor extends BaseMonitoringService implements Async
       monitor(maxWait, timeUnit, taskMonitor, tasks);
    }
 
+   @Override
+   public ListenableFuture<List<MonitorEvent<AsyncTask<?, ?>>>> awaitCompletionAsync(final AsyncTask<?, ?>... tasks) {
+      return awaitCompletionAsync(taskMonitor, tasks);
+   }
+
+   @Override
+   public ListenableFuture<List<MonitorEvent<AsyncTask<?, ?>>>> awaitCompletionAsync(final Long maxWait,
+         final TimeUnit timeUnit, final AsyncTask<?, ?>... tasks) {
+      return awaitCompletionAsync(maxWait, timeUnit, taskMonitor, tasks);
+   }
+
 }
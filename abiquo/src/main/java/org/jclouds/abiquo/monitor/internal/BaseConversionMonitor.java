@@ -17,19 +17,16 @@
 package org.jclouds.abiquo.monitor.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
-import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_DELAY;
 
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.jclouds.abiquo.AbiquoApi;
 import org.jclouds.abiquo.domain.cloud.Conversion;
 import org.jclouds.abiquo.internal.BaseMonitoringService;
+import org.jclouds.abiquo.internal.MonitorPoller;
 import org.jclouds.abiquo.monitor.ConversionMonitor;
 import org.jclouds.abiquo.monitor.functions.ConversionStatusMonitor;
 import org.jclouds.rest.ApiContext;
@@ -47,11 +44,9 @@ public class BaseConversionMonitor extends BaseMonitoringService implements Conv
    protected ConversionStatusMonitor conversionMonitor;
 
    @Inject
-   public BaseConversionMonitor(final ApiContext<AbiquoApi> context,
-         @Named(PROPERTY_SCHEDULER_THREADS) final ScheduledExecutorService scheduler,
-         @Named(ASYNC_TASK_MONITOR_DELAY) final Long pollingDelay, final EventBus eventBus,
-         final ConversionStatusMonitor monitor) {
-      super(context, scheduler, pollingDelay, eventBus);
+   public BaseConversionMonitor(final ApiContext<AbiquoApi> context, final MonitorPoller poller,
+         final EventBus eventBus, final PollingPolicies pollingPolicies, final ConversionStatusMonitor monitor) {
+      super(context, poller, eventBus, pollingPolicies.getConversionPolicy());
       this.conversionMonitor = checkNotNull(monitor, "monitor");
    }
 
@@ -17,19 +17,16 @@
 package org.jclouds.abiquo.monitor.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
-import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_DELAY;
 
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.jclouds.abiquo.AbiquoApi;
 import org.jclouds.abiquo.domain.cloud.VirtualAppliance;
 import org.jclouds.abiquo.internal.BaseMonitoringService;
+import org.jclouds.abiquo.internal.MonitorPoller;
 import org.jclouds.abiquo.monitor.VirtualApplianceMonitor;
 import org.jclouds.abiquo.monitor.functions.VirtualApplianceDeployMonitor;
 import org.jclouds.abiquo.monitor.functions.VirtualApplianceUndeployMonitor;
@@ -50,11 +47,10 @@ public class BaseVirtualApplianceMonitor extends BaseMonitoringService implement
    protected VirtualApplianceUndeployMonitor undeployMonitor;
 
    @Inject
-   public BaseVirtualApplianceMonitor(final ApiContext<AbiquoApi> context,
-         @Named(PROPERTY_SCHEDULER_THREADS) final ScheduledExecutorService scheduler,
-         @Named(ASYNC_TASK_MONITOR_DELAY) final Long pollingDelay, final EventBus eventBus,
+   public BaseVirtualApplianceMonitor(final ApiContext<AbiquoApi> context, final MonitorPoller poller,
+         final EventBus eventBus, final PollingPolicies pollingPolicies,
          final VirtualApplianceDeployMonitor deployMonitor, final VirtualApplianceUndeployMonitor undeployMonitor) {
-      super(context, scheduler, pollingDelay, eventBus);
+      super(context, poller, eventBus, pollingPolicies.getDefaultPolicy());
       this.deployMonitor = checkNotNull(deployMonitor, "deployMonitor");
       this.undeployMonitor = checkNotNull(undeployMonitor, "undeployMonitor");
    }
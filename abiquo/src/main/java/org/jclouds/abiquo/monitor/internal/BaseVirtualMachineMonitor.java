@@ -17,20 +17,19 @@
 package org.jclouds.abiquo.monitor.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
-import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_DELAY;
 
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.jclouds.abiquo.AbiquoApi;
 import org.jclouds.abiquo.domain.cloud.VirtualMachine;
 import org.jclouds.abiquo.internal.BaseMonitoringService;
+import org.jclouds.abiquo.internal.MonitorPoller;
 import org.jclouds.abiquo.monitor.VirtualMachineMonitor;
+import org.jclouds.abiquo.monitor.events.MonitorEvent;
 import org.jclouds.abiquo.monitor.functions.VirtualMachineDeployMonitor;
 import org.jclouds.abiquo.monitor.functions.VirtualMachineStateMonitor;
 import org.jclouds.abiquo.monitor.functions.VirtualMachineUndeployMonitor;
@@ -39,6 +38,7 @@ import org.jclouds.rest.ApiContext;
 import com.abiquo.server.core.cloud.VirtualMachineState;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Default monitor for {@link VirtualMachine} objects.
@@ -52,11 +52,10 @@ public class BaseVirtualMachineMonitor extends BaseMonitoringService implements
    protected VirtualMachineUndeployMonitor undeployMonitor;
 
    @Inject
-   public BaseVirtualMachineMonitor(final ApiContext<AbiquoApi> context,
-         @Named(PROPERTY_SCHEDULER_THREADS) final ScheduledExecutorService scheduler,
-         @Named(ASYNC_TASK_MONITOR_DELAY) final Long pollingDelay, final EventBus eventBus,
+   public BaseVirtualMachineMonitor(final ApiContext<AbiquoApi> context, final MonitorPoller poller,
+         final EventBus eventBus, final PollingPolicies pollingPolicies,
          final VirtualMachineDeployMonitor deployMonitor, final VirtualMachineUndeployMonitor undeployMonitor) {
-      super(context, scheduler, pollingDelay, eventBus);
+      super(context, poller, eventBus, pollingPolicies.getVirtualMachinePolicy());
       this.deployMonitor = checkNotNull(deployMonitor, "deployMonitor");
       this.undeployMonitor = checkNotNull(undeployMonitor, "undeployMonitor");
    }
@@ -122,4 +121,39 @@ public class BaseVirtualMachineMonitor extends BaseMonitoringService implements
          final VirtualMachine... vms) {
       monitor(maxWait, timeUnit, new VirtualMachineStateMonitor(state), vms);
    }
+
+   @Override
+   public ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitCompletionDeployAsync(final VirtualMachine... vms) {
+      return awaitCompletionAsync(deployMonitor, vms);
+   }
+
+   @Override
+   public ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitCompletionDeployAsync(final Long maxWait,
+         final TimeUnit timeUnit, final VirtualMachine... vms) {
+      return awaitCompletionAsync(maxWait, timeUnit, deployMonitor, vms);
+   }
+
+   @Override
+   public ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitCompletionUndeployAsync(
+         final VirtualMachine... vms) {
+      return awaitCompletionAsync(undeployMonitor, vms);
+   }
+
+   @Override
+   public ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitCompletionUndeployAsync(final Long maxWait,
+         final TimeUnit timeUnit, final VirtualMachine... vms) {
+      return awaitCompletionAsync(maxWait, timeUnit, undeployMonitor, vms);
+   }
+
+   @Override
+   public ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitStateAsync(final VirtualMachineState state,
+         final VirtualMachine... vms) {
+      return awaitCompletionAsync(new VirtualMachineStateMonitor(state), vms);
+   }
+
+   @Override
+   public ListenableFuture<List<MonitorEvent<VirtualMachine>>> awaitStateAsync(final Long maxWait,
+         final TimeUnit timeUnit, final VirtualMachineState state, final VirtualMachine... vms) {
+      return awaitCompletionAsync(maxWait, timeUnit, new VirtualMachineStateMonitor(state), vms);
+   }
 }
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.monitor.internal;
+
+import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_BACKOFF;
+import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_DELAY;
+import static org.jclouds.abiquo.config.AbiquoProperties.ASYNC_TASK_MONITOR_MAX_DELAY;
+import static org.jclouds.abiquo.config.AbiquoProperties.CONVERSION_MONITOR_BACKOFF;
+import static org.jclouds.abiquo.config.AbiquoProperties.CONVERSION_MONITOR_MAX_DELAY;
+import static org.jclouds.abiquo.config.AbiquoProperties.MONITOR_FAST_PROBES;
+import static org.jclouds.abiquo.config.AbiquoProperties.MONITOR_JITTER;
+import static org.jclouds.abiquo.config.AbiquoProperties.VIRTUAL_MACHINE_MONITOR_BACKOFF;
+import static org.jclouds.abiquo.config.AbiquoProperties.VIRTUAL_MACHINE_MONITOR_MAX_DELAY;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.abiquo.monitor.PollingPolicy;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Builds the {@link PollingPolicy} used by each monitor type, as configured in
+ * the {@link org.jclouds.abiquo.config.AbiquoProperties}.
+ */
+@Singleton
+public class PollingPolicies {
+   private final PollingPolicy defaultPolicy;
+
+   private final PollingPolicy virtualMachinePolicy;
+
+   private final PollingPolicy conversionPolicy;
+
+   private final PollingPolicy asyncTaskPolicy;
+
+   @Inject
+   public PollingPolicies(@Named(ASYNC_TASK_MONITOR_DELAY) final Long pollingDelay,
+         @Named(MONITOR_FAST_PROBES) final String fastProbes, @Named(MONITOR_JITTER) final Double jitter,
+         @Named(VIRTUAL_MACHINE_MONITOR_BACKOFF) final Double virtualMachineBackoff,
+         @Named(VIRTUAL_MACHINE_MONITOR_MAX_DELAY) final Long virtualMachineMaxDelay,
+         @Named(CONVERSION_MONITOR_BACKOFF) final Double conversionBackoff,
+         @Named(CONVERSION_MONITOR_MAX_DELAY) final Long conversionMaxDelay,
+         @Named(ASYNC_TASK_MONITOR_BACKOFF) final Double asyncTaskBackoff,
+         @Named(ASYNC_TASK_MONITOR_MAX_DELAY) final Long asyncTaskMaxDelay) {
+      List<Long> probes = parseDelays(fastProbes);
+      this.defaultPolicy = BackoffPollingPolicy.fixedDelay(pollingDelay);
+      this.virtualMachinePolicy = new BackoffPollingPolicy(probes, pollingDelay, virtualMachineBackoff,
+            virtualMachineMaxDelay, jitter);
+      this.conversionPolicy = new BackoffPollingPolicy(probes, pollingDelay, conversionBackoff, conversionMaxDelay,
+            jitter);
+      this.asyncTaskPolicy = new BackoffPollingPolicy(probes, pollingDelay, asyncTaskBackoff, asyncTaskMaxDelay,
+            jitter);
+   }
+
+   /**
+    * The policy used by the generic monitoring methods: a fixed delay between
+    * polls.
+    */
+   public PollingPolicy getDefaultPolicy() {
+      return defaultPolicy;
+   }
+
+   public PollingPolicy getVirtualMachinePolicy() {
+      return virtualMachinePolicy;
+   }
+
+   public PollingPolicy getConversionPolicy() {
+      return conversionPolicy;
+   }
+
+   public PollingPolicy getAsyncTaskPolicy() {
+      return asyncTaskPolicy;
+   }
+
+   private static List<Long> parseDelays(final String delays) {
+      ImmutableList.Builder<Long> parsed = ImmutableList.builder();
+      for (String delay : Splitter.on(',').trimResults().omitEmptyStrings().split(delays)) {
+         parsed.add(Long.valueOf(delay));
+      }
+      return parsed.build();
+   }
+}
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.strategy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.jclouds.abiquo.config.AbiquoProperties.LIST_CONCURRENCY;
+import static org.jclouds.abiquo.config.AbiquoProperties.LIST_TIMEOUT;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+/**
+ * Sends one request per parent resource in the given executor, keeping a
+ * bounded number of requests in flight, and streams the results as soon as
+ * they are available instead of waiting for all the requests to complete.
+ * <p>
+ * The returned iterables are lazy: the requests are sent when they are first
+ * iterated, and the results are kept so iterating them again does not repeat
+ * any request. A request that fails or does not complete in time cancels the
+ * pending ones and the error is propagated to the consumer.
+ */
+@Singleton
+public class ConcurrentListing {
+   private final int maxConcurrency;
+
+   private final long timeoutMillis;
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   @Inject
+   public ConcurrentListing(@Named(LIST_CONCURRENCY) final int maxConcurrency,
+         @Named(LIST_TIMEOUT) final long timeoutMillis) {
+      checkArgument(maxConcurrency > 0, "maxConcurrency must be greater than zero");
+      checkArgument(timeoutMillis >= 0, "timeoutMillis must not be negative");
+      this.maxConcurrency = maxConcurrency;
+      this.timeoutMillis = timeoutMillis;
+   }
+
+   /**
+    * Lists the children of each parent, concatenating the results in the order
+    * the requests complete.
+    */
+   public <F, T> Iterable<T> listAll(final ListeningExecutorService executor, final Iterable<F> parents,
+         final Function<? super F, ? extends Iterable<? extends T>> request) {
+      return new StreamingIterable<F, T>(checkNotNull(executor, "executor"), checkNotNull(parents, "parents"),
+            checkNotNull(request, "request"), false);
+   }
+
+   /**
+    * Gets a single result for each parent, in the same order as the parents.
+    * Requests that return <code>null</code> are skipped.
+    */
+   public <F, T> Iterable<T> getAllInOrder(final ListeningExecutorService executor, final Iterable<F> parents,
+         final Function<? super F, ? extends T> request) {
+      checkNotNull(request, "request");
+      return new StreamingIterable<F, T>(checkNotNull(executor, "executor"), checkNotNull(parents, "parents"),
+            new Function<F, Iterable<T>>() {
+               @Override
+               public Iterable<T> apply(final F input) {
+                  return Optional.<T> fromNullable(request.apply(input)).asSet();
+               }
+            }, true);
+   }
+
+   private final class StreamingIterable<F, T> implements Iterable<T> {
+      private final ListeningExecutorService executor;
+
+      private final Iterable<F> parents;
+
+      private final Function<? super F, ? extends Iterable<? extends T>> request;
+
+      private final boolean ordered;
+
+      private final List<T> results = newArrayList();
+
+      private final Set<Request> inFlight = newLinkedHashSet();
+
+      private final BlockingQueue<Request> completed = new LinkedBlockingQueue<Request>();
+
+      private Iterator<F> pending;
+
+      private RuntimeException failure;
+
+      private StreamingIterable(final ListeningExecutorService executor, final Iterable<F> parents,
+            final Function<? super F, ? extends Iterable<? extends T>> request, final boolean ordered) {
+         this.executor = executor;
+         this.parents = parents;
+         this.request = request;
+         this.ordered = ordered;
+      }
+
+      @Override
+      public Iterator<T> iterator() {
+         return new AbstractIterator<T>() {
+            private int position = 0;
+
+            @Override
+            protected T computeNext() {
+               synchronized (StreamingIterable.this) {
+                  while (position >= results.size()) {
+                     if (!advance()) {
+                        return endOfData();
+                     }
+                  }
+                  return results.get(position++);
+               }
+            }
+         };
+      }
+
+      /**
+       * Waits for the next request to complete and collects its results.
+       * Returns <code>false</code> once all requests have been consumed.
+       */
+      private boolean advance() {
+         if (failure != null) {
+            throw failure;
+         }
+         try {
+            if (pending == null) {
+               pending = parents.iterator();
+            }
+            // Iterating the parents may send requests too (nested listings)
+            while (inFlight.size() < maxConcurrency && pending.hasNext()) {
+               submit(pending.next());
+            }
+         } catch (RuntimeException ex) {
+            throw fail(ex);
+         }
+         if (inFlight.isEmpty()) {
+            return false;
+         }
+
+         Request next = await();
+         inFlight.remove(next);
+         try {
+            results.addAll(getUnchecked(next.future));
+         } catch (RuntimeException ex) {
+            throw fail(ex);
+         }
+         return true;
+      }
+
+      private void submit(final F parent) {
+         final Request call = new Request(parent);
+         call.future = executor.submit(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+               call.startedAt = System.nanoTime();
+               call.running = true;
+               // Consume the response in the executor, so lazy (paged)
+               // results are fetched under the same timeout
+               return Lists.<T> newArrayList(request.apply(parent));
+            }
+         });
+         if (!ordered) {
+            call.future.addListener(new Runnable() {
+               @Override
+               public void run() {
+                  completed.add(call);
+               }
+            }, sameThreadExecutor());
+         }
+         inFlight.add(call);
+      }
+
+      /**
+       * Waits for the next request to complete. When the results are ordered,
+       * this is always the oldest request in flight, otherwise it is the first
+       * one in the completion queue.
+       */
+      private Request await() {
+         Request oldest = inFlight.iterator().next();
+         try {
+            while (true) {
+               if (ordered) {
+                  try {
+                     if (timeoutMillis == 0) {
+                        oldest.future.get();
+                     } else {
+                        oldest.future.get(nextWait(), NANOSECONDS);
+                     }
+                     return oldest;
+                  } catch (TimeoutException ex) {
+                     // Check the deadlines of the running requests again
+                  }
+               } else {
+                  Request done = timeoutMillis == 0 ? completed.take() : completed.poll(nextWait(), NANOSECONDS);
+                  if (done != null) {
+                     return done;
+                  }
+               }
+            }
+         } catch (ExecutionException ex) {
+            // The failure is propagated when collecting the results
+            return oldest;
+         } catch (CancellationException ex) {
+            return oldest;
+         } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw fail(new RuntimeException(ex));
+         }
+      }
+
+      /**
+       * How long to wait for the next request to complete, failing if a
+       * running request has already timed out.
+       */
+      private long nextWait() {
+         // Requests still queued in the executor have not started yet, so
+         // their timeout is not running
+         long timeoutNanos = MILLISECONDS.toNanos(timeoutMillis);
+         long now = System.nanoTime();
+         long wait = timeoutNanos;
+         for (Request call : inFlight) {
+            if (call.running) {
+               long remaining = call.startedAt + timeoutNanos - now;
+               if (remaining <= 0) {
+                  throw fail(new UncheckedTimeoutException("request for " + call.parent + " did not complete in "
+                        + timeoutMillis + " ms"));
+               }
+               wait = Math.min(wait, remaining);
+            }
+         }
+         return wait;
+      }
+
+      private RuntimeException fail(final RuntimeException ex) {
+         logger.debug("cancelling %s pending requests: %s", inFlight.size(), ex.getMessage());
+         for (Request call : inFlight) {
+            call.future.cancel(true);
+         }
+         inFlight.clear();
+         failure = ex;
+         return ex;
+      }
+
+      private final class Request {
+         private final F parent;
+
+         private ListenableFuture<List<T>> future;
+
+         private volatile boolean running;
+
+         private volatile long startedAt;
+
+         private Request(final F parent) {
+            this.parent = parent;
+         }
+      }
+   }
+}
@@ -17,9 +17,11 @@
 package org.jclouds.abiquo.strategy.cloud;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.transform;
 import static org.jclouds.abiquo.domain.DomainWrapper.wrap;
 
+import javax.inject.Named;
+
+import org.jclouds.Constants;
 import org.jclouds.abiquo.AbiquoApi;
 import org.jclouds.abiquo.domain.cloud.VirtualMachine;
 import org.jclouds.abiquo.domain.network.ExternalIp;
@@ -28,6 +30,7 @@ import org.jclouds.abiquo.domain.network.PrivateIp;
 import org.jclouds.abiquo.domain.network.PublicIp;
 import org.jclouds.abiquo.domain.network.UnmanagedIp;
 import org.jclouds.abiquo.domain.util.LinkUtils;
+import org.jclouds.abiquo.strategy.ConcurrentListing;
 import org.jclouds.abiquo.strategy.ListEntities;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.http.functions.ParseXMLWithJAXB;
@@ -39,6 +42,7 @@ import com.abiquo.server.core.infrastructure.network.PrivateIpDto;
 import com.abiquo.server.core.infrastructure.network.PublicIpDto;
 import com.abiquo.server.core.infrastructure.network.UnmanagedIpDto;
 import com.google.common.base.Function;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
@@ -50,9 +54,17 @@ import com.google.inject.TypeLiteral;
 public class ListAttachedNics implements ListEntities<Ip<?, ?>, VirtualMachine> {
    protected final ApiContext<AbiquoApi> context;
 
+   protected final ListeningExecutorService userExecutor;
+
+   protected final ConcurrentListing listing;
+
    @Inject
-   public ListAttachedNics(final ApiContext<AbiquoApi> context) {
+   public ListAttachedNics(final ApiContext<AbiquoApi> context,
+         @Named(Constants.PROPERTY_USER_THREADS) final ListeningExecutorService userExecutor,
+         final ConcurrentListing listing) {
       this.context = checkNotNull(context, "context");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.listing = checkNotNull(listing, "listing");
    }
 
    @Override
@@ -63,7 +75,9 @@ public class ListAttachedNics implements ListEntities<Ip<?, ?>, VirtualMachine>
    }
 
    private Iterable<Ip<?, ?>> listIps(final Iterable<RESTLink> nicLinks) {
-      return transform(nicLinks, new Function<RESTLink, Ip<?, ?>>() {
+      // Each NIC is a different request, so they are fetched concurrently. The
+      // order must be kept, as it is the order of the NICs in the VM
+      return listing.getAllInOrder(userExecutor, nicLinks, new Function<RESTLink, Ip<?, ?>>() {
          @Override
          public Ip<?, ?> apply(final RESTLink input) {
             HttpResponse response = context.getApi().get(input);
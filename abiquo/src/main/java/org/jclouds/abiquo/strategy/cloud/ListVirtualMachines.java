@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.strategy.cloud;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.filter;
+import static org.jclouds.abiquo.domain.DomainWrapper.wrap;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.jclouds.Constants;
+import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.domain.cloud.VirtualAppliance;
+import org.jclouds.abiquo.domain.cloud.VirtualMachine;
+import org.jclouds.abiquo.strategy.ConcurrentListing;
+import org.jclouds.abiquo.strategy.ListRootEntities;
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.ApiContext;
+
+import com.abiquo.server.core.cloud.VirtualMachineWithNodeExtendedDto;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * List virtual machines in each virtual appliance.
+ */
+@Singleton
+public class ListVirtualMachines implements ListRootEntities<VirtualMachine> {
+   protected final ApiContext<AbiquoApi> context;
+
+   protected final ListVirtualAppliances listVirtualAppliances;
+
+   protected final ListeningExecutorService userExecutor;
+
+   protected final ConcurrentListing listing;
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   @Inject
+   ListVirtualMachines(final ApiContext<AbiquoApi> context,
+         @Named(Constants.PROPERTY_USER_THREADS) final ListeningExecutorService userExecutor,
+         final ListVirtualAppliances listVirtualAppliances, final ConcurrentListing listing) {
+      this.context = checkNotNull(context, "context");
+      this.listVirtualAppliances = checkNotNull(listVirtualAppliances, "listVirtualAppliances");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.listing = checkNotNull(listing, "listing");
+   }
+
+   @Override
+   public Iterable<VirtualMachine> execute() {
+      return execute(userExecutor);
+   }
+
+   private Iterable<VirtualMachineWithNodeExtendedDto> listConcurrentVirtualMachines(
+         final ListeningExecutorService executor, final Iterable<VirtualAppliance> vapps) {
+      logger.trace("getting virtual machines");
+      return listing.listAll(executor, vapps,
+            new Function<VirtualAppliance, Iterable<VirtualMachineWithNodeExtendedDto>>() {
+               @Override
+               public Iterable<VirtualMachineWithNodeExtendedDto> apply(final VirtualAppliance input) {
+                  return context.getApi().getCloudApi().listVirtualMachines(input.unwrap()).concat();
+               }
+            });
+   }
+
+   public Iterable<VirtualMachine> execute(ListeningExecutorService executor) {
+      // Find virtual machines in concurrent requests, as each virtual
+      // appliance is returned
+      Iterable<VirtualAppliance> vapps = listVirtualAppliances.execute(executor);
+      Iterable<VirtualMachineWithNodeExtendedDto> vms = listConcurrentVirtualMachines(executor, vapps);
+
+      return wrap(context, VirtualMachine.class, vms);
+   }
+
+   public Iterable<VirtualMachine> execute(ListeningExecutorService executor, Predicate<VirtualMachine> selector) {
+      return filter(execute(executor), selector);
+   }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.compute.strategy;
+
+import static org.jclouds.abiquo.domain.DomainWrapper.wrap;
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.domain.cloud.VirtualDatacenter;
+import org.jclouds.abiquo.domain.cloud.VirtualMachineTemplate;
+import org.jclouds.abiquo.domain.cloud.VirtualMachineTemplateInVirtualDatacenter;
+import org.jclouds.abiquo.features.services.CloudService;
+import org.jclouds.rest.ApiContext;
+import org.testng.annotations.Test;
+
+import com.abiquo.server.core.appslibrary.VirtualMachineTemplateDto;
+import com.abiquo.server.core.cloud.VirtualDatacenterDto;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Unit tests for the {@link CompatibleVirtualDatacentersCache} class.
+ */
+@Test(groups = "unit", testName = "CompatibleVirtualDatacentersCacheTest")
+public class CompatibleVirtualDatacentersCacheTest {
+
+   public void testExpandsEachTemplateWithItsVirtualDatacenters() {
+      CountingFindCompatibleVirtualDatacenters strategy = new CountingFindCompatibleVirtualDatacenters(2);
+      CompatibleVirtualDatacentersCache cache = newCache(strategy, 60000L);
+
+      List<VirtualMachineTemplateInVirtualDatacenter> profiles = cache.execute(templates(1, 2, 3));
+
+      assertEquals(profiles.size(), 6);
+      assertEquals(profiles.get(0).getTemplate().getId().intValue(), 1);
+      assertEquals(profiles.get(5).getTemplate().getId().intValue(), 3);
+      assertEquals(strategy.numCalls.size(), 3);
+   }
+
+   public void testCompatibleVirtualDatacentersAreCached() {
+      CountingFindCompatibleVirtualDatacenters strategy = new CountingFindCompatibleVirtualDatacenters(2);
+      CompatibleVirtualDatacentersCache cache = newCache(strategy, 60000L);
+
+      cache.execute(templates(1, 2));
+      cache.execute(templates(1, 2, 3));
+
+      assertEquals(strategy.numCalls.get(1).intValue(), 1);
+      assertEquals(strategy.numCalls.get(2).intValue(), 1);
+      assertEquals(strategy.numCalls.get(3).intValue(), 1);
+   }
+
+   public void testInvalidateAll() {
+      CountingFindCompatibleVirtualDatacenters strategy = new CountingFindCompatibleVirtualDatacenters(1);
+      CompatibleVirtualDatacentersCache cache = newCache(strategy, 60000L);
+      List<VirtualMachineTemplate> templates = templates(1, 2);
+
+      cache.execute(templates);
+      cache.invalidateAll();
+      cache.execute(templates);
+
+      assertEquals(strategy.numCalls.get(1).intValue(), 2);
+      assertEquals(strategy.numCalls.get(2).intValue(), 2);
+   }
+
+   public void testVirtualDatacentersAreOnlyListedWhenATemplateIsMissing() {
+      CountingFindCompatibleVirtualDatacenters strategy = new CountingFindCompatibleVirtualDatacenters(1);
+      VirtualDatacenterListing listing = new VirtualDatacenterListing(virtualDatacenters(1, 2));
+      CompatibleVirtualDatacentersCache cache = newCache(strategy, listing.cloudService(), 60000L);
+
+      cache.execute(templates(1));
+      cache.execute(templates(1));
+
+      assertEquals(listing.numCalls, 1);
+
+      cache.execute(templates(1, 2));
+
+      assertEquals(listing.numCalls, 2);
+      assertEquals(strategy.numCalls.get(1).intValue(), 1);
+   }
+
+   public void testInvalidateIfVirtualDatacentersChanged() {
+      CountingFindCompatibleVirtualDatacenters strategy = new CountingFindCompatibleVirtualDatacenters(1);
+      VirtualDatacenterListing listing = new VirtualDatacenterListing(virtualDatacenters(1, 2));
+      CompatibleVirtualDatacentersCache cache = newCache(strategy, listing.cloudService(), 60000L);
+
+      cache.execute(templates(1));
+      cache.invalidateIfChanged(virtualDatacenters(2, 1));
+      cache.execute(templates(1));
+
+      assertEquals(strategy.numCalls.get(1).intValue(), 1);
+
+      listing.virtualDatacenters = virtualDatacenters(1, 2, 3);
+      cache.execute(templates(1, 2));
+
+      assertEquals(strategy.numCalls.get(1).intValue(), 2);
+      assertEquals(strategy.numCalls.get(2).intValue(), 1);
+   }
+
+   public void testCacheDisabled() {
+      CountingFindCompatibleVirtualDatacenters strategy = new CountingFindCompatibleVirtualDatacenters(1);
+      CompatibleVirtualDatacentersCache cache = newCache(strategy, 0L);
+
+      cache.execute(templates(1));
+      cache.execute(templates(1));
+
+      assertEquals(strategy.numCalls.get(1).intValue(), 2);
+   }
+
+   private static CompatibleVirtualDatacentersCache newCache(final FindCompatibleVirtualDatacenters strategy,
+         final Long expiration) {
+      return newCache(strategy, new VirtualDatacenterListing(virtualDatacenters(1)).cloudService(), expiration);
+   }
+
+   private static CompatibleVirtualDatacentersCache newCache(final FindCompatibleVirtualDatacenters strategy,
+         final CloudService cloudService, final Long expiration) {
+      return new CompatibleVirtualDatacentersCache(strategy, cloudService, MoreExecutors.sameThreadExecutor(),
+            expiration);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static List<VirtualMachineTemplate> templates(final int... ids) {
+      ApiContext<AbiquoApi> context = EasyMock.createMock(ApiContext.class);
+      ImmutableList.Builder<VirtualMachineTemplate> templates = ImmutableList.builder();
+      for (int id : ids) {
+         VirtualMachineTemplateDto dto = new VirtualMachineTemplateDto();
+         dto.setId(id);
+         templates.add(wrap(context, VirtualMachineTemplate.class, dto));
+      }
+      return templates.build();
+   }
+
+   @SuppressWarnings("unchecked")
+   private static List<VirtualDatacenter> virtualDatacenters(final int... ids) {
+      ApiContext<AbiquoApi> context = EasyMock.createMock(ApiContext.class);
+      ImmutableList.Builder<VirtualDatacenter> vdcs = ImmutableList.builder();
+      for (int id : ids) {
+         VirtualDatacenterDto dto = new VirtualDatacenterDto();
+         dto.setId(id);
+         vdcs.add(wrap(context, VirtualDatacenter.class, dto));
+      }
+      return vdcs.build();
+   }
+
+   private static class CountingFindCompatibleVirtualDatacenters implements FindCompatibleVirtualDatacenters {
+      public Map<Integer, Integer> numCalls = Maps.newHashMap();
+
+      private final int numVirtualDatacenters;
+
+      public CountingFindCompatibleVirtualDatacenters(final int numVirtualDatacenters) {
+         this.numVirtualDatacenters = numVirtualDatacenters;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public Iterable<VirtualDatacenter> execute(final VirtualMachineTemplate template) {
+         Integer calls = numCalls.get(template.getId());
+         numCalls.put(template.getId(), calls == null ? 1 : calls + 1);
+
+         ApiContext<AbiquoApi> context = EasyMock.createMock(ApiContext.class);
+         ImmutableList.Builder<VirtualDatacenter> vdcs = ImmutableList.builder();
+         for (int i = 0; i < numVirtualDatacenters; i++) {
+            VirtualDatacenterDto dto = new VirtualDatacenterDto();
+            dto.setId(i);
+            vdcs.add(wrap(context, VirtualDatacenter.class, dto));
+         }
+         return vdcs.build();
+      }
+   }
+
+   private static class VirtualDatacenterListing implements IAnswer<Iterable<VirtualDatacenter>> {
+      public int numCalls = 0;
+
+      public List<VirtualDatacenter> virtualDatacenters;
+
+      public VirtualDatacenterListing(final List<VirtualDatacenter> virtualDatacenters) {
+         this.virtualDatacenters = virtualDatacenters;
+      }
+
+      @Override
+      public Iterable<VirtualDatacenter> answer() {
+         numCalls++;
+         return virtualDatacenters;
+      }
+
+      public CloudService cloudService() {
+         CloudService cloudService = EasyMock.createMock(CloudService.class);
+         EasyMock.expect(cloudService.listVirtualDatacenters()).andAnswer(this).anyTimes();
+         EasyMock.replay(cloudService);
+         return cloudService;
+      }
+   }
+}
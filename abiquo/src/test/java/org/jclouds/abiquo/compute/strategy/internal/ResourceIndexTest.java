@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.compute.strategy.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Unit tests for the {@link ResourceIndex} class.
+ */
+@Test(groups = "unit", testName = "ResourceIndexTest")
+public class ResourceIndexTest {
+
+   public void testIndexIsLoadedOnFirstLookup() {
+      CountingLoader loader = new CountingLoader(ImmutableMap.of(1, "one", 2, "two"));
+      ResourceIndex<String> index = new ResourceIndex<String>(loader, 1, TimeUnit.MINUTES, new ManualTicker());
+
+      assertEquals(index.get(1), "one");
+      assertEquals(index.get(2), "two");
+      assertEquals(loader.numLoads, 1);
+   }
+
+   public void testMissesDoNotReloadUntilExpired() {
+      CountingLoader loader = new CountingLoader(ImmutableMap.of(1, "one"));
+      ManualTicker ticker = new ManualTicker();
+      ResourceIndex<String> index = new ResourceIndex<String>(loader, 1, TimeUnit.MINUTES, ticker);
+
+      assertNull(index.get(5));
+      assertNull(index.get(5));
+      assertEquals(loader.numLoads, 1);
+
+      ticker.advance(1, TimeUnit.MINUTES);
+      assertNull(index.get(5));
+      assertEquals(loader.numLoads, 2);
+   }
+
+   public void testRegisteredResourcesAreVisibleWithoutReloading() {
+      CountingLoader loader = new CountingLoader(ImmutableMap.of(1, "one"));
+      ResourceIndex<String> index = new ResourceIndex<String>(loader, 1, TimeUnit.MINUTES, new ManualTicker());
+
+      index.get(1);
+      index.put(2, "two");
+
+      assertEquals(index.get(2), "two");
+      assertEquals(loader.numLoads, 1);
+   }
+
+   public void testInvalidatedResourcesAreNotReturned() {
+      CountingLoader loader = new CountingLoader(ImmutableMap.of(1, "one"));
+      ResourceIndex<String> index = new ResourceIndex<String>(loader, 1, TimeUnit.MINUTES, new ManualTicker());
+
+      assertEquals(index.get(1), "one");
+      index.invalidate(1);
+
+      assertNull(index.get(1));
+      assertEquals(loader.numLoads, 1);
+   }
+
+   public void testResourcesRegisteredWhileReloadingAreKept() {
+      final AtomicReference<ResourceIndex<String>> self = new AtomicReference<ResourceIndex<String>>();
+      ResourceIndex<String> index = new ResourceIndex<String>(new Supplier<Map<Integer, String>>() {
+         @Override
+         public Map<Integer, String> get() {
+            // nodes created and destroyed while the inventory is being listed
+            self.get().put(2, "two");
+            self.get().invalidate(1);
+            return ImmutableMap.of(1, "one");
+         }
+      }, 1, TimeUnit.MINUTES, new ManualTicker());
+      self.set(index);
+
+      assertNull(index.get(5));
+      assertEquals(index.get(2), "two");
+      assertNull(index.get(1));
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testNegativeExpiration() {
+      new ResourceIndex<String>(new CountingLoader(ImmutableMap.<Integer, String> of()), -1, TimeUnit.SECONDS);
+   }
+
+   private static class CountingLoader implements Supplier<Map<Integer, String>> {
+      public int numLoads = 0;
+
+      private final Map<Integer, String> resources;
+
+      public CountingLoader(final Map<Integer, String> resources) {
+         this.resources = resources;
+      }
+
+      @Override
+      public Map<Integer, String> get() {
+         numLoads++;
+         return resources;
+      }
+   }
+
+   private static class ManualTicker extends Ticker {
+      private long nanos = 0;
+
+      public void advance(final long time, final TimeUnit timeUnit) {
+         nanos += timeUnit.toNanos(time);
+      }
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+   }
+}
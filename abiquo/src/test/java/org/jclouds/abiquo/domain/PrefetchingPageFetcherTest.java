@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.domain;
+
+import static com.google.common.collect.Iterables.getFirst;
+import static org.jclouds.collect.PagedIterables.advance;
+import static org.jclouds.http.utils.Queries.queryParser;
+import static org.testng.Assert.assertEquals;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.collect.IterableWithMarkers;
+import org.testng.annotations.Test;
+
+import com.abiquo.model.rest.RESTLink;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Unit tests for the {@link PrefetchingPageFetcher} class.
+ */
+@Test(groups = "unit", testName = "PrefetchingPageFetcherTest")
+public class PrefetchingPageFetcherTest {
+   private static final String URL = "http://localhost/api/cloud/virtualmachines";
+
+   public void testAllPagesArePlannedWhenTotalSizeIsKnown() {
+      CountingPageFetcher pages = new CountingPageFetcher(10, 2, true);
+      PrefetchingPageFetcher<Integer> fetcher = new PrefetchingPageFetcher<Integer>(pages.firstPage(), 10, pages,
+            MoreExecutors.sameThreadExecutor(), 2);
+
+      // The first two pages in flight have been requested before consuming
+      // them
+      assertEquals(fetcher.pagesInFlight(), 2);
+      assertEquals(pages.numFetches(), 2);
+
+      List<Integer> all = advance(pages.firstPage(), fetcher).concat().toList();
+
+      assertEquals(all, ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+      assertEquals(pages.numFetches(), 4);
+      assertEquals(pages.maxFetchesPerPage(), 1);
+      assertEquals(fetcher.pagesInFlight(), 0);
+   }
+
+   public void testNextPageIsPrefetchedWhenTotalSizeIsUnknown() {
+      CountingPageFetcher pages = new CountingPageFetcher(10, 2, false);
+      PrefetchingPageFetcher<Integer> fetcher = new PrefetchingPageFetcher<Integer>(pages.firstPage(), null, pages,
+            MoreExecutors.sameThreadExecutor(), 4);
+
+      assertEquals(fetcher.pagesInFlight(), 1);
+
+      List<Integer> all = advance(pages.firstPage(), fetcher).concat().toList();
+
+      assertEquals(all, ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+      assertEquals(pages.numFetches(), 4);
+      assertEquals(pages.maxFetchesPerPage(), 1);
+   }
+
+   public void testPagesAreFetchedOnDemandWhenLinksDoNotMatch() {
+      CountingPageFetcher pages = new CountingPageFetcher(6, 2, true);
+      // The total size does not match the real one, so the last page is not
+      // planned
+      PrefetchingPageFetcher<Integer> fetcher = new PrefetchingPageFetcher<Integer>(pages.firstPage(), 4, pages,
+            MoreExecutors.sameThreadExecutor(), 4);
+
+      List<Integer> all = advance(pages.firstPage(), fetcher).concat().toList();
+
+      assertEquals(all, ImmutableList.of(0, 1, 2, 3, 4, 5));
+      assertEquals(pages.numFetches(), 2);
+   }
+
+   public void testPrefetchedPagesAreDiscardedAfterTheLastPage() {
+      CountingPageFetcher pages = new CountingPageFetcher(10, 2, true);
+      // The total size is bigger than the real one, so pages past the end of
+      // the collection are planned
+      PrefetchingPageFetcher<Integer> fetcher = new PrefetchingPageFetcher<Integer>(pages.firstPage(), 20, pages,
+            MoreExecutors.sameThreadExecutor(), 4);
+
+      List<Integer> all = advance(pages.firstPage(), fetcher).concat().toList();
+
+      assertEquals(all, ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+      assertEquals(fetcher.pagesInFlight(), 0);
+   }
+
+   public void testPrefetchedPagesAreDiscardedWhenLinksDoNotMatch() {
+      final CountingPageFetcher pages = new CountingPageFetcher(10, 2, true);
+      // The second page links to the third one with an additional query
+      // parameter, so it does not match the planned link
+      Function<Object, IterableWithMarker<Integer>> diverging = new Function<Object, IterableWithMarker<Integer>>() {
+         @Override
+         public IterableWithMarker<Integer> apply(final Object input) {
+            IterableWithMarker<Integer> page = pages.apply(input);
+            if (!page.iterator().next().equals(2)) {
+               return page;
+            }
+            RESTLink next = RESTLink.class.cast(page.nextMarker().get());
+            return IterableWithMarkers.from(page, new RESTLink("next", next.getHref() + "&by=id"));
+         }
+      };
+      PrefetchingPageFetcher<Integer> fetcher = new PrefetchingPageFetcher<Integer>(pages.firstPage(), 10,
+            diverging, MoreExecutors.sameThreadExecutor(), 4);
+      assertEquals(fetcher.pagesInFlight(), 4);
+
+      List<Integer> all = advance(pages.firstPage(), fetcher).concat().toList();
+
+      assertEquals(all, ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+      assertEquals(fetcher.pagesInFlight(), 0);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testFetchErrorsArePropagated() {
+      Function<Object, IterableWithMarker<Integer>> failing = new Function<Object, IterableWithMarker<Integer>>() {
+         @Override
+         public IterableWithMarker<Integer> apply(final Object input) {
+            throw new IllegalStateException("Page could not be fetched");
+         }
+      };
+
+      CountingPageFetcher pages = new CountingPageFetcher(4, 2, false);
+      PrefetchingPageFetcher<Integer> fetcher = new PrefetchingPageFetcher<Integer>(pages.firstPage(), null,
+            failing, MoreExecutors.sameThreadExecutor(), 1);
+
+      advance(pages.firstPage(), fetcher).concat().toList();
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testInvalidMaxPagesInFlight() {
+      CountingPageFetcher pages = new CountingPageFetcher(4, 2, false);
+      new PrefetchingPageFetcher<Integer>(pages.firstPage(), null, pages, MoreExecutors.sameThreadExecutor(), 0);
+   }
+
+   /**
+    * Builds the pages of a collection of consecutive integers.
+    */
+   private static class CountingPageFetcher implements Function<Object, IterableWithMarker<Integer>> {
+      private final int totalSize;
+
+      private final int limit;
+
+      private final boolean withLimit;
+
+      private final Map<Integer, Integer> fetches = Maps.newConcurrentMap();
+
+      public CountingPageFetcher(final int totalSize, final int limit, final boolean withLimit) {
+         this.totalSize = totalSize;
+         this.limit = limit;
+         this.withLimit = withLimit;
+      }
+
+      public IterableWithMarker<Integer> firstPage() {
+         return page(0);
+      }
+
+      @Override
+      public IterableWithMarker<Integer> apply(final Object marker) {
+         RESTLink link = RESTLink.class.cast(marker);
+         String startwith = getFirst(queryParser().apply(URI.create(link.getHref()).getRawQuery()).get("startwith"),
+               null);
+         int start = Integer.parseInt(startwith);
+
+         Integer count = fetches.get(start);
+         fetches.put(start, count == null ? 1 : count + 1);
+         return page(start);
+      }
+
+      public int numFetches() {
+         int total = 0;
+         for (Integer count : fetches.values()) {
+            total += count;
+         }
+         return total;
+      }
+
+      public int maxFetchesPerPage() {
+         int max = 0;
+         for (Integer count : fetches.values()) {
+            max = Math.max(max, count);
+         }
+         return max;
+      }
+
+      private IterableWithMarker<Integer> page(final int start) {
+         ImmutableList.Builder<Integer> items = ImmutableList.builder();
+         for (int i = start; i < Math.min(start + limit, totalSize); i++) {
+            items.add(i);
+         }
+
+         int next = start + limit;
+         if (next >= totalSize) {
+            return IterableWithMarkers.from(items.build());
+         }
+
+         String href = URL + "?startwith=" + next;
+         if (withLimit) {
+            // Use a different parameter order in each page, to verify links
+            // are properly matched
+            href = start % (2 * limit) == 0 ? href + "&limit=" + limit : URL + "?limit=" + limit + "&startwith="
+                  + next;
+         }
+         return IterableWithMarkers.from(items.build(), new RESTLink("next", href));
+      }
+   }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.functions.pagination;
+
+import static org.jclouds.abiquo.functions.pagination.StreamingParseXMLWithJAXBTest.response;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.jclouds.http.functions.ParseXMLWithJAXB;
+import org.jclouds.logging.Logger;
+import org.jclouds.logging.jdk.JDKLogger;
+import org.jclouds.xml.internal.JAXBParser;
+import org.testng.annotations.Test;
+
+import com.abiquo.server.core.event.EventDto;
+import com.abiquo.server.core.event.EventsDto;
+import com.google.common.base.Charsets;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Compares the heap retained while parsing large event pages with the default
+ * {@link ParseXMLWithJAXB} parser and with the {@link StreamingParseXMLWithJAXB}
+ * parser, both collecting the page and handing each element to a handler.
+ * <p>
+ * This is not part of the unit test suite. Run it with:
+ * 
+ * <pre>
+ * mvn test -Dtest=StreamingParseXMLWithJAXBBenchmark -Dtestng.groups=performance
+ * </pre>
+ */
+@Test(groups = "performance", singleThreaded = true, testName = "StreamingParseXMLWithJAXBBenchmark")
+public class StreamingParseXMLWithJAXBBenchmark {
+   private final Logger logger = new JDKLogger.JDKLoggerFactory().getLogger(getClass().getName());
+
+   public void compareRetainedMemory() {
+      ParseXMLWithJAXB<EventsDto> jaxb = new ParseXMLWithJAXB<EventsDto>(new JAXBParser("false"),
+            TypeLiteral.get(EventsDto.class));
+      ParseEvents.StreamingParser streaming = new ParseEvents.StreamingParser(new JAXBParser("false"));
+
+      for (int size : new int[] { 1000, 10000 }) {
+         byte[] xml = events(size);
+
+         long baseline = usedHeap();
+         EventsDto page = jaxb.apply(response(xml));
+         long jaxbRetained = usedHeap() - baseline;
+         assertEquals(page.getCollection().size(), size);
+         page = null;
+
+         baseline = usedHeap();
+         page = streaming.apply(response(xml));
+         long streamingRetained = usedHeap() - baseline;
+         assertEquals(page.getCollection().size(), size);
+         page = null;
+
+         // Sample the live heap while the elements are being handed out, as
+         // nothing is retained once the parse is done
+         RetainedHeapSampler sampler = new RetainedHeapSampler(usedHeap(), size / 10);
+         streaming.apply(response(xml), sampler);
+         assertEquals(sampler.handled, size);
+
+         logger.info("%d events (%d bytes): jaxb %d, streaming %d, streaming with handler %d retained bytes", size,
+               xml.length, jaxbRetained, streamingRetained, sampler.peak);
+         assertTrue(sampler.peak < jaxbRetained, String.format(
+               "parsing with a handler retained %d bytes, more than the %d retained by the default parser",
+               sampler.peak, jaxbRetained));
+      }
+   }
+
+   private static class RetainedHeapSampler implements StreamingParseXMLWithJAXB.ElementHandler<EventDto> {
+      private final long baseline;
+      private final int interval;
+      private int handled;
+      private long peak;
+
+      private RetainedHeapSampler(long baseline, int interval) {
+         this.baseline = baseline;
+         this.interval = interval;
+      }
+
+      @Override
+      public void handle(EventDto element) {
+         if (++handled % interval == 0) {
+            peak = Math.max(peak, usedHeap() - baseline);
+         }
+      }
+   }
+
+   private static long usedHeap() {
+      Runtime runtime = Runtime.getRuntime();
+      for (int i = 0; i < 3; i++) {
+         System.gc();
+      }
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   private static byte[] events(final int size) {
+      StringBuilder xml = new StringBuilder();
+      xml.append("<events>");
+      xml.append("<link rel=\"first\" href=\"http://localhost/api/events\"/>");
+      xml.append("<link rel=\"next\" href=\"http://localhost/api/events?startwith=").append(size).append("\"/>");
+      xml.append("<totalSize>").append(size * 2).append("</totalSize>");
+      for (int i = 0; i < size; i++) {
+         xml.append("<event>");
+         xml.append("<actionPerformed>VOLUME_DELETE</actionPerformed>");
+         xml.append("<component>VOLUME</component>");
+         xml.append("<enterprise>Abiquo</enterprise>");
+         xml.append("<id>").append(i).append("</id>");
+         xml.append("<idEnterprise>1</idEnterprise>");
+         xml.append("<idUser>1</idUser>");
+         xml.append("<performedBy>admin</performedBy>");
+         xml.append("<severity>INFO</severity>");
+         xml.append("<stacktrace>Deleting volume &apos;JC-3972c0f8-28b&apos;</stacktrace>");
+         xml.append("<timestamp>2013-01-23T14:07:14Z</timestamp>");
+         xml.append("<user>admin</user>");
+         xml.append("</event>");
+      }
+      xml.append("</events>");
+      return xml.toString().getBytes(Charsets.UTF_8);
+   }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.functions.pagination;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.functions.ParseXMLWithJAXB;
+import org.jclouds.io.Payloads;
+import org.jclouds.xml.internal.JAXBParser;
+import org.testng.annotations.Test;
+
+import com.abiquo.server.core.event.EventDto;
+import com.abiquo.server.core.event.EventsDto;
+import com.abiquo.server.core.infrastructure.network.PublicIpDto;
+import com.abiquo.server.core.infrastructure.network.PublicIpsDto;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import com.google.inject.TypeLiteral;
+
+/**
+ * Unit tests for the {@link StreamingParseXMLWithJAXB} parser.
+ */
+@Test(groups = "unit", testName = "StreamingParseXMLWithJAXBTest")
+public class StreamingParseXMLWithJAXBTest {
+
+   public void testParseEvents() throws IOException {
+      byte[] xml = payload("/payloads/events-page.xml");
+      EventsDto expected = new ParseXMLWithJAXB<EventsDto>(new JAXBParser("false"),
+            TypeLiteral.get(EventsDto.class)).apply(response(xml));
+      EventsDto events = new ParseEvents.StreamingParser(new JAXBParser("false")).apply(response(xml));
+
+      assertEquals(events.getTotalSize(), expected.getTotalSize());
+      assertEquals(events.getLinks().size(), expected.getLinks().size());
+      assertEquals(events.searchLink("next").getHref(), expected.searchLink("next").getHref());
+      assertEquals(events.getCollection().size(), expected.getCollection().size());
+      for (int i = 0; i < events.getCollection().size(); i++) {
+         EventDto event = events.getCollection().get(i);
+         assertEquals(event.getId(), expected.getCollection().get(i).getId());
+         assertEquals(event.getActionPerformed(), expected.getCollection().get(i).getActionPerformed());
+         assertEquals(event.getStacktrace(), expected.getCollection().get(i).getStacktrace());
+      }
+   }
+
+   public void testParsePublicIps() throws IOException {
+      byte[] xml = payload("/payloads/publicips-page.xml");
+      PublicIpsDto expected = new ParseXMLWithJAXB<PublicIpsDto>(new JAXBParser("false"),
+            TypeLiteral.get(PublicIpsDto.class)).apply(response(xml));
+      PublicIpsDto ips = new ParsePublicIps.StreamingParser(new JAXBParser("false")).apply(response(xml));
+
+      assertEquals(ips.getTotalSize(), expected.getTotalSize());
+      assertEquals(ips.searchLink("next").getHref(), expected.searchLink("next").getHref());
+      assertEquals(ips.getCollection().size(), expected.getCollection().size());
+      for (int i = 0; i < ips.getCollection().size(); i++) {
+         PublicIpDto ip = ips.getCollection().get(i);
+         assertEquals(ip.getId(), expected.getCollection().get(i).getId());
+         assertEquals(ip.getIp(), expected.getCollection().get(i).getIp());
+         // Links of the elements must not be mixed with the wrapper links
+         assertNotNull(ip.searchLink("self"));
+         assertEquals(ip.getLinks().size(), expected.getCollection().get(i).getLinks().size());
+      }
+   }
+
+   public void testParseEventsWithHandler() throws IOException {
+      byte[] xml = payload("/payloads/events-page.xml");
+      EventsDto expected = new ParseXMLWithJAXB<EventsDto>(new JAXBParser("false"),
+            TypeLiteral.get(EventsDto.class)).apply(response(xml));
+
+      final List<EventDto> handled = Lists.newArrayList();
+      EventsDto events = new ParseEvents.StreamingParser(new JAXBParser("false")).apply(response(xml),
+            new StreamingParseXMLWithJAXB.ElementHandler<EventDto>() {
+               @Override
+               public void handle(EventDto element) {
+                  handled.add(element);
+               }
+            });
+
+      // The elements are handed to the handler and not kept in the wrapper
+      assertEquals(events.getCollection().size(), 0);
+      assertEquals(events.getTotalSize(), expected.getTotalSize());
+      assertEquals(events.searchLink("next").getHref(), expected.searchLink("next").getHref());
+      assertEquals(handled.size(), expected.getCollection().size());
+      for (int i = 0; i < handled.size(); i++) {
+         assertEquals(handled.get(i).getId(), expected.getCollection().get(i).getId());
+      }
+   }
+
+   public void testParseEmptyCollection() {
+      byte[] xml = "<events><totalSize>0</totalSize></events>".getBytes();
+      EventsDto events = new ParseEvents.StreamingParser(new JAXBParser("false")).apply(response(xml));
+
+      assertEquals(events.getTotalSize().intValue(), 0);
+      assertEquals(events.getCollection().size(), 0);
+      assertEquals(events.getLinks().size(), 0);
+   }
+
+   static byte[] payload(final String resource) throws IOException {
+      return Resources.toByteArray(StreamingParseXMLWithJAXBTest.class.getResource(resource));
+   }
+
+   static HttpResponse response(final byte[] xml) {
+      return HttpResponse.builder().statusCode(200).payload(Payloads.newByteArrayPayload(xml)).build();
+   }
+}
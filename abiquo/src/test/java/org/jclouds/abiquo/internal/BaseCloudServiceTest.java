@@ -33,5 +33,6 @@ public class BaseCloudServiceTest extends BaseInjectionTest {
       assertNotNull(service.context);
       assertNotNull(service.listVirtualDatacenters);
       assertNotNull(service.listVirtualAppliances);
+      assertNotNull(service.listVirtualMachines);
    }
 }
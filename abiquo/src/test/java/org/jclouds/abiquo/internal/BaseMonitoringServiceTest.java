@@ -33,8 +33,7 @@ public class BaseMonitoringServiceTest extends BaseInjectionTest {
       BaseMonitoringService service = (BaseMonitoringService) injector.getInstance(MonitoringService.class);
 
       assertNotNull(service.context);
-      assertNotNull(service.scheduler);
-      assertNotNull(service.pollingDelay);
+      assertNotNull(service.poller);
       assertNotNull(service.eventBus);
    }
 
@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.internal;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.jclouds.abiquo.monitor.BatchStateLoader;
+import org.jclouds.abiquo.monitor.MonitorStatus;
+import org.jclouds.abiquo.monitor.PollingPolicy;
+import org.jclouds.abiquo.monitor.StateMonitor;
+import org.jclouds.abiquo.monitor.events.MonitorEvent;
+import org.jclouds.abiquo.monitor.internal.BackoffPollingPolicy;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Unit tests for the {@link MonitorPoller} class.
+ */
+@Test(groups = "unit", testName = "MonitorPollerTest")
+public class MonitorPollerTest {
+   private static final PollingPolicy POLICY = BackoffPollingPolicy.fixedDelay(100L);
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   public void testMonitorSchedulesASingleJob() {
+      ScheduledFuture mockFuture = EasyMock.createMock(ScheduledFuture.class);
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      expect(
+            schedulerMock.scheduleWithFixedDelay(anyObject(Runnable.class), eq(0L), anyLong(),
+                  anyObject(TimeUnit.class))).andReturn(mockFuture).once();
+
+      replay(mockFuture);
+      replay(schedulerMock);
+
+      MonitorPoller poller = mockPoller(schedulerMock, new EventBus());
+      poller.monitor(null, null, POLICY, mockFunction(MonitorStatus.CONTINUE), objects(50));
+      poller.monitor(100L, TimeUnit.MILLISECONDS, POLICY, mockFunction(MonitorStatus.CONTINUE), objects(50));
+
+      assertEquals(poller.size(), 100);
+
+      verify(mockFuture);
+      verify(schedulerMock);
+   }
+
+   @Test(expectedExceptions = NullPointerException.class, expectedExceptionsMessageRegExp = "timeUnit must not be null when using timeouts")
+   public void testMonitorWithTimeoutAndNullTimeUnit() {
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      MonitorPoller poller = mockPoller(schedulerMock, new EventBus());
+
+      poller.monitor(100L, null, POLICY, mockFunction(MonitorStatus.DONE), new Object());
+   }
+
+   @Test(expectedExceptions = NullPointerException.class)
+   public void testMonitorWithNullFunction() {
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      MonitorPoller poller = mockPoller(schedulerMock, new EventBus());
+
+      poller.monitor(null, null, POLICY, null, new Object());
+   }
+
+   public void testMonitorWithoutObjects() {
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      replay(schedulerMock);
+
+      MonitorPoller poller = mockPoller(schedulerMock, new EventBus());
+      poller.monitor(null, null, POLICY, mockFunction(MonitorStatus.DONE));
+      poller.monitor(null, null, POLICY, mockFunction(MonitorStatus.DONE), (Object[]) null);
+
+      assertEquals(poller.size(), 0);
+      verify(schedulerMock);
+   }
+
+   public void testPollAndDone() {
+      CoutingEventHandler handler = new CoutingEventHandler();
+      MonitorPoller poller = pollObjects(handler, mockFunction(MonitorStatus.DONE), null, 10);
+
+      assertEquals(handler.numCompletes, 10);
+      assertEquals(handler.numFailures, 0);
+      assertEquals(handler.numTimeouts, 0);
+      assertEquals(poller.size(), 0);
+   }
+
+   public void testPollAndFail() {
+      CoutingEventHandler handler = new CoutingEventHandler();
+      MonitorPoller poller = pollObjects(handler, mockFunction(MonitorStatus.FAILED), null, 10);
+
+      assertEquals(handler.numCompletes, 0);
+      assertEquals(handler.numFailures, 10);
+      assertEquals(handler.numTimeouts, 0);
+      assertEquals(poller.size(), 0);
+   }
+
+   public void testPollAndContinueWithoutTimeout() {
+      CoutingEventHandler handler = new CoutingEventHandler();
+      MonitorPoller poller = pollObjects(handler, mockFunction(MonitorStatus.CONTINUE), null, 10);
+
+      assertEquals(handler.numCompletes, 0);
+      assertEquals(handler.numFailures, 0);
+      assertEquals(handler.numTimeouts, 0);
+      assertEquals(poller.size(), 10);
+   }
+
+   public void testPollAndContinueWithTimeout() {
+      CoutingEventHandler handler = new CoutingEventHandler();
+      MonitorPoller poller = pollObjects(handler, mockFunction(MonitorStatus.CONTINUE), -1L, 10);
+
+      assertEquals(handler.numCompletes, 0);
+      assertEquals(handler.numFailures, 0);
+      assertEquals(handler.numTimeouts, 10);
+      assertEquals(poller.size(), 0);
+   }
+
+   public void testPollContinuesWhenConditionFails() {
+      CoutingEventHandler handler = new CoutingEventHandler();
+      MonitorPoller poller = pollObjects(handler, new Function<Object, MonitorStatus>() {
+         @Override
+         public MonitorStatus apply(final Object input) {
+            throw new RuntimeException("This function always fails");
+         }
+      }, null, 10);
+
+      assertEquals(handler.numCompletes, 0);
+      assertEquals(handler.numFailures, 0);
+      assertEquals(handler.numTimeouts, 0);
+      assertEquals(poller.size(), 10);
+   }
+
+   @Test(expectedExceptions = NullPointerException.class)
+   public void testMonitorWithNullPollingPolicy() {
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      MonitorPoller poller = mockPoller(schedulerMock, new EventBus());
+
+      poller.monitor(null, null, null, mockFunction(MonitorStatus.DONE), new Object());
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   public void testObjectsAreOnlyPolledWhenTheirDelayExpires() {
+      ScheduledFuture mockFuture = EasyMock.createNiceMock(ScheduledFuture.class);
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      expect(
+            schedulerMock.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), anyLong(),
+                  anyObject(TimeUnit.class))).andReturn(mockFuture);
+
+      replay(mockFuture);
+      replay(schedulerMock);
+
+      CountingStateMonitor condition = new CountingStateMonitor(MonitorStatus.CONTINUE);
+      MonitorPoller poller = mockPoller(schedulerMock, new EventBus());
+
+      // Poll right away, and then wait one minute
+      poller.monitor(null, null, new BackoffPollingPolicy(ImmutableList.of(0L), 60000L, 1, 60000L, 0), condition,
+            new Object());
+      poller.poll();
+      poller.poll();
+      poller.poll();
+
+      assertEquals(condition.numIndividualCalls, 1);
+      assertEquals(poller.size(), 1);
+      verify(schedulerMock);
+   }
+
+   public void testEventsReportTheNumberOfPolls() {
+      CoutingEventHandler handler = new CoutingEventHandler();
+      pollObjects(handler, mockFunction(MonitorStatus.DONE), null, 1);
+
+      assertEquals(handler.numCompletes, 1);
+      assertEquals(handler.numPolls, 1);
+   }
+
+   public void testApiCallsDoNotGrowWithMonitoredObjects() {
+      for (int numObjects : new int[] { 1, 10, 100, 1000 }) {
+         CountingLoader loader = new CountingLoader();
+         CountingStateMonitor condition = new CountingStateMonitor();
+         CoutingEventHandler handler = new CoutingEventHandler();
+
+         pollObjectsInBatch(handler, condition, loader, numObjects);
+
+         assertEquals(loader.numCalls, 1);
+         assertEquals(condition.numIndividualCalls, 0);
+         assertEquals(handler.numCompletes, numObjects);
+      }
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   public void testObjectsMonitoredTogetherArePolledTogether() {
+      ScheduledFuture mockFuture = EasyMock.createNiceMock(ScheduledFuture.class);
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      expect(
+            schedulerMock.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), anyLong(),
+                  anyObject(TimeUnit.class))).andReturn(mockFuture);
+
+      replay(mockFuture);
+      replay(schedulerMock);
+
+      // A policy whose delays differ on each call, as a jittered one does
+      PollingPolicy jittered = new PollingPolicy() {
+         private int calls = 0;
+
+         @Override
+         public long delayBefore(final int poll) {
+            return poll == 0 ? 0L : calls++ % 2 == 0 ? 100L : 60000L;
+         }
+      };
+      final List<Integer> batchSizes = Lists.newArrayList();
+      CountingLoader loader = new CountingLoader() {
+         @Override
+         public Map<Object, String> load(final Collection<Object> objects) {
+            batchSizes.add(objects.size());
+            Map<Object, String> states = Maps.newIdentityHashMap();
+            for (Object object : objects) {
+               states.put(object, "CONTINUE");
+            }
+            return states;
+         }
+      };
+
+      ManualTicker ticker = new ManualTicker();
+      MonitorPoller poller = new MonitorPoller(schedulerMock, 100L, new EventBus(),
+            ImmutableMap.<Class<?>, BatchStateLoader<?, ?>> of(Object.class, loader), ticker);
+      poller.monitor(null, null, jittered, new CountingStateMonitor(MonitorStatus.CONTINUE), objects(10));
+      poller.poll();
+      ticker.advance(100L, TimeUnit.MILLISECONDS);
+      poller.poll();
+
+      assertEquals(batchSizes, ImmutableList.of(10, 10));
+      verify(schedulerMock);
+   }
+
+   public void testFallbackToIndividualPollingWhenLoaderFails() {
+      CountingLoader loader = new CountingLoader() {
+         @Override
+         public Map<Object, String> load(final Collection<Object> objects) {
+            super.load(objects);
+            throw new RuntimeException("This loader always fails");
+         }
+      };
+      CountingStateMonitor condition = new CountingStateMonitor();
+      CoutingEventHandler handler = new CoutingEventHandler();
+
+      pollObjectsInBatch(handler, condition, loader, 10);
+
+      assertEquals(loader.numCalls, 1);
+      assertEquals(condition.numIndividualCalls, 10);
+      assertEquals(handler.numCompletes, 10);
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   public void testFuturesAreCompletedWithTheEvents() throws Exception {
+      ScheduledFuture mockFuture = EasyMock.createNiceMock(ScheduledFuture.class);
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      expect(
+            schedulerMock.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), anyLong(),
+                  anyObject(TimeUnit.class))).andReturn(mockFuture);
+
+      replay(mockFuture);
+      replay(schedulerMock);
+
+      Object object = new Object();
+      MonitorPoller poller = mockPoller(schedulerMock, new EventBus());
+      List<ListenableFuture<MonitorEvent<Object>>> futures = poller.monitor(null, null, POLICY,
+            mockFunction(MonitorStatus.DONE), object);
+
+      assertEquals(futures.size(), 1);
+      assertFalse(futures.get(0).isDone());
+
+      poller.poll();
+
+      assertTrue(futures.get(0).isDone());
+      MonitorEvent<Object> event = futures.get(0).get();
+      assertEquals(event.getType(), MonitorEvent.Type.COMPLETED);
+      assertEquals(event.getTarget(), object);
+      verify(schedulerMock);
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   public void testCancelledFuturesAreNoLongerMonitored() {
+      ScheduledFuture mockFuture = EasyMock.createNiceMock(ScheduledFuture.class);
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      expect(
+            schedulerMock.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), anyLong(),
+                  anyObject(TimeUnit.class))).andReturn(mockFuture);
+
+      replay(mockFuture);
+      replay(schedulerMock);
+
+      CountingStateMonitor condition = new CountingStateMonitor(MonitorStatus.CONTINUE);
+      CoutingEventHandler handler = new CoutingEventHandler();
+      EventBus eventBus = new EventBus();
+      eventBus.register(handler);
+
+      MonitorPoller poller = mockPoller(schedulerMock, eventBus);
+      List<ListenableFuture<MonitorEvent<Object>>> futures = poller.monitor(null, null, POLICY, condition,
+            new Object(), new Object());
+      futures.get(0).cancel(false);
+      poller.poll();
+
+      assertEquals(poller.size(), 1);
+      assertEquals(condition.numIndividualCalls, 1);
+      assertEquals(handler.numCompletes + handler.numFailures + handler.numTimeouts, 0);
+      verify(schedulerMock);
+   }
+
+   private MonitorPoller pollObjects(final Object handler, final Function<Object, MonitorStatus> function,
+         final Long maxWait, final int numObjects) {
+      return pollObjects(handler, function, maxWait, null, numObjects);
+   }
+
+   private MonitorPoller pollObjectsInBatch(final Object handler, final Function<Object, MonitorStatus> function,
+         final BatchStateLoader<Object, String> loader, final int numObjects) {
+      return pollObjects(handler, function, null, loader, numObjects);
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   private MonitorPoller pollObjects(final Object handler, final Function<Object, MonitorStatus> function,
+         final Long maxWait, final BatchStateLoader<Object, String> loader, final int numObjects) {
+      ScheduledFuture mockFuture = EasyMock.createNiceMock(ScheduledFuture.class);
+      ScheduledExecutorService schedulerMock = EasyMock.createMock(ScheduledExecutorService.class);
+      expect(
+            schedulerMock.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), anyLong(),
+                  anyObject(TimeUnit.class))).andReturn(mockFuture);
+
+      replay(mockFuture);
+      replay(schedulerMock);
+
+      EventBus eventBus = new EventBus();
+      eventBus.register(handler);
+
+      Map<Class<?>, BatchStateLoader<?, ?>> loaders = Maps.newHashMap();
+      if (loader != null) {
+         loaders.put(Object.class, loader);
+      }
+
+      MonitorPoller poller = new MonitorPoller(schedulerMock, 100L, eventBus, loaders);
+      poller.monitor(maxWait, TimeUnit.MILLISECONDS, POLICY, function, objects(numObjects));
+      poller.poll();
+
+      verify(schedulerMock);
+      return poller;
+   }
+
+   private MonitorPoller mockPoller(final ScheduledExecutorService scheduler, final EventBus eventBus) {
+      return new MonitorPoller(scheduler, 100L, eventBus, ImmutableMap.<Class<?>, BatchStateLoader<?, ?>> of());
+   }
+
+   private static Object[] objects(final int numObjects) {
+      Object[] objects = new Object[numObjects];
+      for (int i = 0; i < numObjects; i++) {
+         objects[i] = new Object();
+      }
+      return objects;
+   }
+
+   private Function<Object, MonitorStatus> mockFunction(final MonitorStatus status) {
+      return new Function<Object, MonitorStatus>() {
+         @Override
+         public MonitorStatus apply(final Object input) {
+            return status;
+         }
+      };
+   }
+
+   static class CountingLoader implements BatchStateLoader<Object, String> {
+      public int numCalls = 0;
+
+      @Override
+      public Map<Object, String> load(final Collection<Object> objects) {
+         numCalls++;
+         Map<Object, String> states = Maps.newIdentityHashMap();
+         for (Object object : objects) {
+            states.put(object, "DONE");
+         }
+         return states;
+      }
+   }
+
+   static class CountingStateMonitor implements Function<Object, MonitorStatus>, StateMonitor<String> {
+      public int numIndividualCalls = 0;
+
+      private final MonitorStatus status;
+
+      public CountingStateMonitor() {
+         this(MonitorStatus.DONE);
+      }
+
+      public CountingStateMonitor(final MonitorStatus status) {
+         this.status = status;
+      }
+
+      @Override
+      public MonitorStatus apply(final Object input) {
+         numIndividualCalls++;
+         return status;
+      }
+
+      @Override
+      public MonitorStatus forState(final String state) {
+         return MonitorStatus.valueOf(state);
+      }
+   }
+
+   private static class ManualTicker extends Ticker {
+      private long nanos = 0;
+
+      public void advance(final long time, final TimeUnit timeUnit) {
+         nanos += timeUnit.toNanos(time);
+      }
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+   }
+
+   static class CoutingEventHandler {
+      public int numCompletes = 0;
+
+      public int numFailures = 0;
+
+      public int numTimeouts = 0;
+
+      public int numPolls = 0;
+
+      @Subscribe
+      public void handle(final MonitorEvent<?> event) {
+         numPolls += event.getPolls();
+         switch (event.getType()) {
+            case COMPLETED:
+               numCompletes++;
+               break;
+            case FAILED:
+               numFailures++;
+               break;
+            case TIMEOUT:
+               numTimeouts++;
+               break;
+         }
+      }
+   }
+}
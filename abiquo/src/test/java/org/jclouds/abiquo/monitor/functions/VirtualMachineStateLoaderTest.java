@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.monitor.functions;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.jclouds.abiquo.domain.DomainWrapper.wrap;
+import static org.jclouds.collect.PagedIterables.onlyPage;
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.jclouds.abiquo.AbiquoApi;
+import org.jclouds.abiquo.domain.cloud.VirtualMachine;
+import org.jclouds.abiquo.features.CloudApi;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.rest.ApiContext;
+import org.testng.annotations.Test;
+
+import com.abiquo.model.rest.RESTLink;
+import com.abiquo.server.core.cloud.VirtualApplianceDto;
+import com.abiquo.server.core.cloud.VirtualMachineState;
+import com.abiquo.server.core.cloud.VirtualMachineWithNodeExtendedDto;
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for the {@link VirtualMachineStateLoader} function.
+ */
+@Test(groups = "unit", testName = "VirtualMachineStateLoaderTest")
+public class VirtualMachineStateLoaderTest {
+   private static final String VAPP = "http://localhost/api/cloud/virtualdatacenters/1/virtualappliances/%s";
+
+   public void testOneRequestPerVirtualAppliance() {
+      assertEquals(countRequests(1, 10), 1);
+      assertEquals(countRequests(2, 10), 2);
+      assertEquals(countRequests(10, 10), 10);
+   }
+
+   public void testRequestsGrowSubLinearly() {
+      // Monitoring 100 times more virtual machines in the same appliances
+      // does not require more requests
+      assertEquals(countRequests(1, 10), 1);
+      assertEquals(countRequests(1, 1000), 1);
+      assertEquals(countRequests(5, 10), 5);
+      assertEquals(countRequests(5, 1000), 5);
+   }
+
+   public void testVirtualMachinesNotListedAreNotLoaded() {
+      ApiContext<AbiquoApi> context = mockContext(new AtomicInteger(), 10);
+      VirtualMachine listed = virtualMachine(context, 1, 1);
+      VirtualMachine missing = virtualMachine(context, 1, 11);
+
+      Map<VirtualMachine, VirtualMachineState> states = new VirtualMachineStateLoader(context).load(Lists
+            .newArrayList(listed, missing));
+
+      assertEquals(states.size(), 1);
+      assertEquals(states.get(listed), VirtualMachineState.ON);
+      assertEquals(listed.unwrap().getState(), VirtualMachineState.ON);
+      assertEquals(missing.unwrap().getState(), VirtualMachineState.NOT_ALLOCATED);
+   }
+
+   private static int countRequests(final int numAppliances, final int vmsPerAppliance) {
+      AtomicInteger requests = new AtomicInteger();
+      ApiContext<AbiquoApi> context = mockContext(requests, vmsPerAppliance);
+
+      List<VirtualMachine> vms = Lists.newArrayList();
+      for (int vapp = 1; vapp <= numAppliances; vapp++) {
+         for (int vm = 1; vm <= vmsPerAppliance; vm++) {
+            vms.add(virtualMachine(context, vapp, vm));
+         }
+      }
+
+      Map<VirtualMachine, VirtualMachineState> states = new VirtualMachineStateLoader(context).load(vms);
+
+      assertEquals(states.size(), vms.size());
+      for (VirtualMachine vm : vms) {
+         assertEquals(states.get(vm), VirtualMachineState.ON);
+         assertEquals(vm.unwrap().getState(), VirtualMachineState.ON);
+      }
+
+      return requests.get();
+   }
+
+   @SuppressWarnings("unchecked")
+   private static ApiContext<AbiquoApi> mockContext(final AtomicInteger requests, final int vmsPerAppliance) {
+      ApiContext<AbiquoApi> context = EasyMock.createMock(ApiContext.class);
+      AbiquoApi api = EasyMock.createMock(AbiquoApi.class);
+      CloudApi cloudApi = EasyMock.createMock(CloudApi.class);
+
+      expect(context.getApi()).andReturn(api).anyTimes();
+      expect(api.getCloudApi()).andReturn(cloudApi).anyTimes();
+      expect(cloudApi.listVirtualMachines(anyObject(VirtualApplianceDto.class))).andAnswer(
+            new IAnswer<PagedIterable<VirtualMachineWithNodeExtendedDto>>() {
+               @Override
+               public PagedIterable<VirtualMachineWithNodeExtendedDto> answer() throws Throwable {
+                  requests.incrementAndGet();
+                  VirtualApplianceDto vapp = (VirtualApplianceDto) getCurrentArguments()[0];
+                  String href = vapp.searchLink("virtualmachines").getHref();
+
+                  List<VirtualMachineWithNodeExtendedDto> vms = Lists.newArrayList();
+                  for (int i = 1; i <= vmsPerAppliance; i++) {
+                     vms.add(virtualMachineDto(href + "/" + i, VirtualMachineState.ON));
+                  }
+                  return onlyPage(IterableWithMarkers.from(vms));
+               }
+            }).anyTimes();
+
+      replay(context, api, cloudApi);
+      return context;
+   }
+
+   private static VirtualMachine virtualMachine(final ApiContext<AbiquoApi> context, final int vapp, final int vm) {
+      String href = String.format(VAPP, vapp) + "/virtualmachines/" + vm;
+      return wrap(context, VirtualMachine.class, virtualMachineDto(href, VirtualMachineState.NOT_ALLOCATED));
+   }
+
+   private static VirtualMachineWithNodeExtendedDto virtualMachineDto(final String href,
+         final VirtualMachineState state) {
+      VirtualMachineWithNodeExtendedDto dto = new VirtualMachineWithNodeExtendedDto();
+      dto.addLink(new RESTLink("edit", href));
+      dto.setState(state);
+      return dto;
+   }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.monitor.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Unit tests for the {@link BackoffPollingPolicy} class.
+ */
+@Test(groups = "unit", testName = "BackoffPollingPolicyTest")
+public class BackoffPollingPolicyTest {
+   public void testFastProbesAreUsedFirst() {
+      BackoffPollingPolicy policy = new BackoffPollingPolicy(ImmutableList.of(100L, 200L), 1000L, 2, 10000L, 0);
+
+      assertEquals(policy.delayBefore(0), 100L);
+      assertEquals(policy.delayBefore(1), 200L);
+      assertEquals(policy.delayBefore(2), 1000L);
+   }
+
+   public void testExponentialBackoffIsCapped() {
+      BackoffPollingPolicy policy = new BackoffPollingPolicy(ImmutableList.<Long> of(), 1000L, 2, 5000L, 0);
+
+      assertEquals(policy.delayBefore(0), 1000L);
+      assertEquals(policy.delayBefore(1), 2000L);
+      assertEquals(policy.delayBefore(2), 4000L);
+      assertEquals(policy.delayBefore(3), 5000L);
+      assertEquals(policy.delayBefore(100), 5000L);
+   }
+
+   public void testJitterStaysWithinBounds() {
+      BackoffPollingPolicy policy = new BackoffPollingPolicy(ImmutableList.<Long> of(), 1000L, 1, 5000L, 0.2);
+
+      for (int i = 0; i < 1000; i++) {
+         long delay = policy.delayBefore(i);
+         assertTrue(delay >= 800L && delay <= 1200L, "unexpected delay: " + delay);
+      }
+   }
+
+   public void testJitterDoesNotExceedMaxDelay() {
+      BackoffPollingPolicy policy = new BackoffPollingPolicy(ImmutableList.<Long> of(), 1000L, 2, 5000L, 0.5,
+            new FixedRandom(1.0));
+
+      assertEquals(policy.delayBefore(10), 5000L);
+   }
+
+   public void testJitterIsApplied() {
+      BackoffPollingPolicy policy = new BackoffPollingPolicy(ImmutableList.<Long> of(), 1000L, 1, 5000L, 0.5,
+            new FixedRandom(0.0));
+
+      assertEquals(policy.delayBefore(0), 500L);
+   }
+
+   public void testFixedDelay() {
+      BackoffPollingPolicy policy = BackoffPollingPolicy.fixedDelay(5000L);
+
+      assertEquals(policy.delayBefore(0), 0L);
+      assertEquals(policy.delayBefore(1), 5000L);
+      assertEquals(policy.delayBefore(50), 5000L);
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testInvalidMultiplier() {
+      new BackoffPollingPolicy(ImmutableList.<Long> of(), 1000L, 0.5, 5000L, 0);
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testInvalidJitter() {
+      new BackoffPollingPolicy(ImmutableList.<Long> of(), 1000L, 1, 5000L, 1);
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testMaxDelayLowerThanInitialDelay() {
+      new BackoffPollingPolicy(ImmutableList.<Long> of(), 1000L, 1, 500L, 0);
+   }
+
+   private static class FixedRandom extends Random {
+      private static final long serialVersionUID = 1L;
+
+      private final double value;
+
+      public FixedRandom(final double value) {
+         this.value = value;
+      }
+
+      @Override
+      public double nextDouble() {
+         return value;
+      }
+   }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.abiquo.strategy;
+
+import static com.google.common.collect.Iterables.getFirst;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+/**
+ * Unit tests for the {@link ConcurrentListing} class.
+ */
+@Test(groups = "unit", testName = "ConcurrentListingTest")
+public class ConcurrentListingTest {
+   private ListeningExecutorService executor;
+
+   @BeforeMethod
+   public void setupExecutor() {
+      executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+   }
+
+   @AfterMethod
+   public void shutdownExecutor() {
+      executor.shutdownNow();
+   }
+
+   public void testResultsAreStreamedAsTheyArrive() throws InterruptedException {
+      final CountDownLatch slow = new CountDownLatch(1);
+      ConcurrentListing listing = new ConcurrentListing(4, 0);
+
+      Iterable<String> results = listing.listAll(executor, ImmutableList.of(1, 2),
+            new Function<Integer, Iterable<String>>() {
+               @Override
+               public Iterable<String> apply(final Integer input) {
+                  if (input == 1) {
+                     await(slow);
+                  }
+                  return ImmutableList.of(input + "a", input + "b");
+               }
+            });
+
+      // The first parent is still blocked, but the results of the second one
+      // are already available
+      assertEquals(getFirst(results, null), "2a");
+      slow.countDown();
+      assertEquals(newArrayList(results), ImmutableList.of("2a", "2b", "1a", "1b"));
+   }
+
+   public void testOrderedResultsKeepTheParentOrder() {
+      ConcurrentListing listing = new ConcurrentListing(2, 0);
+
+      Iterable<Integer> results = listing.getAllInOrder(executor, ImmutableList.of(30, 20, 10, 0, 40),
+            new Function<Integer, Integer>() {
+               @Override
+               public Integer apply(final Integer input) {
+                  sleep(input);
+                  return input == 0 ? null : input;
+               }
+            });
+
+      assertEquals(newArrayList(results), ImmutableList.of(30, 20, 10, 40));
+   }
+
+   public void testConcurrencyIsBounded() {
+      final AtomicInteger running = new AtomicInteger();
+      final AtomicInteger maxRunning = new AtomicInteger();
+      ConcurrentListing listing = new ConcurrentListing(3, 0);
+
+      Iterable<Integer> results = listing.getAllInOrder(executor, ImmutableList.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10),
+            new Function<Integer, Integer>() {
+               @Override
+               public Integer apply(final Integer input) {
+                  int current = running.incrementAndGet();
+                  synchronized (maxRunning) {
+                     maxRunning.set(Math.max(maxRunning.get(), current));
+                  }
+                  sleep(20);
+                  running.decrementAndGet();
+                  return input;
+               }
+            });
+
+      assertEquals(newArrayList(results).size(), 10);
+      assertTrue(maxRunning.get() <= 3, "more than 3 concurrent requests: " + maxRunning.get());
+   }
+
+   public void testRequestsAreNotRepeatedWhenIteratingAgain() {
+      final AtomicInteger requests = new AtomicInteger();
+      ConcurrentListing listing = new ConcurrentListing(2, 0);
+
+      Iterable<Integer> results = listing.listAll(executor, ImmutableList.of(1, 2, 3),
+            new Function<Integer, Iterable<Integer>>() {
+               @Override
+               public Iterable<Integer> apply(final Integer input) {
+                  requests.incrementAndGet();
+                  return ImmutableList.of(input);
+               }
+            });
+
+      assertEquals(requests.get(), 0);
+      assertEquals(newArrayList(results).size(), 3);
+      assertEquals(newArrayList(results).size(), 3);
+      assertEquals(requests.get(), 3);
+   }
+
+   @Test(expectedExceptions = UncheckedTimeoutException.class)
+   public void testSlowRequestsTimeOut() {
+      final CountDownLatch never = new CountDownLatch(1);
+      ConcurrentListing listing = new ConcurrentListing(2, 50);
+
+      Iterable<Integer> results = listing.listAll(executor, ImmutableList.of(1, 2),
+            new Function<Integer, Iterable<Integer>>() {
+               @Override
+               public Iterable<Integer> apply(final Integer input) {
+                  if (input == 2) {
+                     await(never);
+                  }
+                  return ImmutableList.of(input);
+               }
+            });
+
+      newArrayList(results);
+   }
+
+   public void testFailuresArePropagated() {
+      ConcurrentListing listing = new ConcurrentListing(2, 0);
+
+      Iterable<Integer> results = listing.listAll(executor, ImmutableList.of(1, 2),
+            new Function<Integer, Iterable<Integer>>() {
+               @Override
+               public Iterable<Integer> apply(final Integer input) {
+                  if (input == 2) {
+                     throw new IllegalStateException("request failed");
+                  }
+                  return ImmutableList.of(input);
+               }
+            });
+
+      for (int i = 0; i < 2; i++) {
+         try {
+            newArrayList(results);
+            fail("the failure should have been propagated");
+         } catch (UncheckedExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+         }
+      }
+   }
+
+   // Requests completing right when the consumer starts waiting must not be
+   // missed, which would block forever without a timeout
+   @Test(timeOut = 30000)
+   public void testOrderedResultsWithoutTimeoutDoNotMissCompletions() {
+      ConcurrentListing listing = new ConcurrentListing(1, 0);
+      List<Integer> parents = newArrayList();
+      for (int i = 0; i < 2000; i++) {
+         parents.add(i);
+      }
+
+      Iterable<Integer> results = listing.getAllInOrder(executor, parents, new Function<Integer, Integer>() {
+         @Override
+         public Integer apply(final Integer input) {
+            return input;
+         }
+      });
+
+      assertEquals(newArrayList(results), parents);
+   }
+
+   public void testFailuresListingTheParentsCancelTheRequestsInFlight() throws InterruptedException {
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch interrupted = new CountDownLatch(1);
+      ConcurrentListing listing = new ConcurrentListing(2, 0);
+      Iterable<Integer> parents = new Iterable<Integer>() {
+         @Override
+         public Iterator<Integer> iterator() {
+            return new AbstractIterator<Integer>() {
+               private boolean first = true;
+
+               @Override
+               protected Integer computeNext() {
+                  if (first) {
+                     first = false;
+                     return 1;
+                  }
+                  await(started);
+                  throw new IllegalStateException("could not list the parents");
+               }
+            };
+         }
+      };
+
+      Iterable<Integer> results = listing.listAll(executor, parents, new Function<Integer, Iterable<Integer>>() {
+         @Override
+         public Iterable<Integer> apply(final Integer input) {
+            started.countDown();
+            try {
+               Thread.sleep(10000);
+            } catch (InterruptedException ex) {
+               interrupted.countDown();
+            }
+            return ImmutableList.of(input);
+         }
+      });
+
+      try {
+         newArrayList(results);
+         fail("the failure should have been propagated");
+      } catch (IllegalStateException ex) {
+         assertEquals(ex.getMessage(), "could not list the parents");
+      }
+      assertTrue(interrupted.await(5, TimeUnit.SECONDS), "the request in flight should have been cancelled");
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testConcurrencyMustBePositive() {
+      new ConcurrentListing(0, 0);
+   }
+
+   private static void await(final CountDownLatch latch) {
+      try {
+         latch.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   private static void sleep(final long millis) {
+      try {
+         Thread.sleep(millis);
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
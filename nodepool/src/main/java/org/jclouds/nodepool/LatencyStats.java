@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool;
+
+import com.google.common.base.Objects;
+
+/**
+ * A snapshot of the latencies of a pool operation. Percentiles are approximations.
+ */
+public class LatencyStats {
+
+   private final long count;
+   private final long totalMillis;
+   private final long maxMillis;
+   private final long p50Millis;
+   private final long p95Millis;
+   private final long p99Millis;
+
+   public LatencyStats(long count, long totalMillis, long maxMillis, long p50Millis, long p95Millis, long p99Millis) {
+      this.count = count;
+      this.totalMillis = totalMillis;
+      this.maxMillis = maxMillis;
+      this.p50Millis = p50Millis;
+      this.p95Millis = p95Millis;
+      this.p99Millis = p99Millis;
+   }
+
+   /**
+    * The number of times the operation was measured.
+    */
+   public long count() {
+      return count;
+   }
+
+   /**
+    * The time spent in all the measured operations.
+    */
+   public long totalMillis() {
+      return totalMillis;
+   }
+
+   /**
+    * The average duration of the operation, or 0 if it has not been measured yet.
+    */
+   public double meanMillis() {
+      return count == 0 ? 0 : (double) totalMillis / count;
+   }
+
+   /**
+    * The longest duration of the operation.
+    */
+   public long maxMillis() {
+      return maxMillis;
+   }
+
+   public long p50Millis() {
+      return p50Millis;
+   }
+
+   public long p95Millis() {
+      return p95Millis;
+   }
+
+   public long p99Millis() {
+      return p99Millis;
+   }
+
+   @Override
+   public String toString() {
+      return Objects.toStringHelper(this).add("count", count).add("mean", meanMillis()).add("max", maxMillis)
+               .add("p50", p50Millis).add("p95", p95Millis).add("p99", p99Millis).toString();
+   }
+}
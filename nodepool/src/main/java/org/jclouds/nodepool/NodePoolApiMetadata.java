@@ -18,10 +18,13 @@ package org.jclouds.nodepool;
 
 import static org.jclouds.nodepool.config.NodePoolProperties.BACKEND_GROUP;
 import static org.jclouds.nodepool.config.NodePoolProperties.BACKEND_MODULES;
+import static org.jclouds.nodepool.config.NodePoolProperties.IDLE_HIGH_WATER;
+import static org.jclouds.nodepool.config.NodePoolProperties.IDLE_LOW_WATER;
 import static org.jclouds.nodepool.config.NodePoolProperties.MAX_SIZE;
 import static org.jclouds.nodepool.config.NodePoolProperties.METADATA_CONTAINER;
 import static org.jclouds.nodepool.config.NodePoolProperties.MIN_SIZE;
 import static org.jclouds.nodepool.config.NodePoolProperties.POOL_ADMIN_ACCESS;
+import static org.jclouds.nodepool.config.NodePoolProperties.RECONCILE_INTERVAL;
 import static org.jclouds.nodepool.config.NodePoolProperties.REMOVE_DESTROYED;
 
 import java.io.File;
@@ -29,6 +32,7 @@ import java.net.URI;
 import java.util.Properties;
 
 import org.jclouds.apis.internal.BaseApiMetadata;
+import org.jclouds.concurrent.config.ScheduledExecutorServiceModule;
 import org.jclouds.nodepool.config.BindBackendComputeService;
 import org.jclouds.nodepool.config.BindInputStreamToFilesystemBlobStore;
 import org.jclouds.nodepool.config.NodePoolComputeServiceContextModule;
@@ -61,6 +65,9 @@ public class NodePoolApiMetadata extends BaseApiMetadata {
       properties.setProperty(MAX_SIZE, 10 + "");
       properties.setProperty(MIN_SIZE, 5 + "");
       properties.setProperty(REMOVE_DESTROYED, "true");
+      properties.setProperty(RECONCILE_INTERVAL, 60 + "");
+      properties.setProperty(IDLE_LOW_WATER, 1 + "");
+      properties.setProperty(IDLE_HIGH_WATER, 2 + "");
       // by default use the current user's user and private key if one exists, if not the properties
       // will need to be set (no default passwords)
       if (new File(System.getProperty("user.home") + "/.ssh/id_rsa").exists()) {
@@ -83,7 +90,8 @@ public class NodePoolApiMetadata extends BaseApiMetadata {
                            ImmutableSet.<Class<? extends Module>> builder()
                                     .add(NodePoolComputeServiceContextModule.class)
                                     .add(BindInputStreamToFilesystemBlobStore.class)
-                                    .add(BindBackendComputeService.class).build())
+                                    .add(BindBackendComputeService.class)
+                                    .add(ScheduledExecutorServiceModule.class).build())
                   .defaultProperties(NodePoolApiMetadata.defaultProperties());
       }
 
@@ -19,6 +19,7 @@ package org.jclouds.nodepool;
 import org.jclouds.compute.ComputeServiceContext;
 import org.jclouds.compute.JCloudsNativeComputeServiceAdapter;
 import org.jclouds.nodepool.internal.EagerNodePoolComputeServiceAdapter;
+import org.jclouds.nodepool.internal.NodePoolMetrics;
 
 import com.google.inject.ImplementedBy;
 
@@ -41,4 +42,6 @@ public interface NodePoolComputeServiceAdapter extends JCloudsNativeComputeServi
 
    String getPoolGroupName();
 
+   NodePoolMetrics getMetrics();
+
 }
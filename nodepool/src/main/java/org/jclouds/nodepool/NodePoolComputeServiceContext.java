@@ -47,7 +47,7 @@ public class NodePoolComputeServiceContext extends ComputeServiceContextImpl {
     */
    public NodePoolStats getPoolStats() {
       return new NodePoolStats(adapter.currentSize(), adapter.idleNodes(), adapter.usedNodes(), adapter.maxNodes(),
-               adapter.minNodes());
+               adapter.minNodes(), adapter.getMetrics());
    }
 
    /**
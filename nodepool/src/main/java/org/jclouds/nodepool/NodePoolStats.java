@@ -16,6 +16,8 @@
  */
 package org.jclouds.nodepool;
 
+import org.jclouds.nodepool.internal.NodePoolMetrics;
+
 /**
  * NodePool statistics and status.
  */
@@ -26,13 +28,25 @@ public class NodePoolStats {
    private final int usedNodes;
    private final int maxNodes;
    private final int minNodes;
+   private final long poolHits;
+   private final long coldProvisions;
+   private final long nodesAdded;
+   private final LatencyStats assignmentLatency;
+   private final LatencyStats addToPoolLatency;
+   private final LatencyStats backendListLatency;
 
-   NodePoolStats(int currentSize, int idleNodes, int usedNodes, int maxNodes, int minNodes) {
+   NodePoolStats(int currentSize, int idleNodes, int usedNodes, int maxNodes, int minNodes, NodePoolMetrics metrics) {
       this.currentSize = currentSize;
       this.idleNodes = idleNodes;
       this.usedNodes = usedNodes;
       this.maxNodes = maxNodes;
       this.minNodes = minNodes;
+      this.poolHits = metrics.poolHits();
+      this.coldProvisions = metrics.coldProvisions();
+      this.nodesAdded = metrics.nodesAdded();
+      this.assignmentLatency = metrics.assignmentLatency();
+      this.addToPoolLatency = metrics.addToPoolLatency();
+      this.backendListLatency = metrics.backendListLatency();
    }
 
    /**
@@ -70,4 +84,54 @@ public class NodePoolStats {
       return minNodes;
    }
 
+   /**
+    * The number of nodes that were assigned straight from the idle nodes in the pool.
+    */
+   public long poolHits() {
+      return poolHits;
+   }
+
+   /**
+    * The number of nodes that had to be created in the backend while the caller was waiting.
+    */
+   public long coldProvisions() {
+      return coldProvisions;
+   }
+
+   /**
+    * The ratio of assignments served from the idle nodes, or 0 if no node has been assigned yet.
+    */
+   public double hitRate() {
+      long assignments = poolHits + coldProvisions;
+      return assignments == 0 ? 0 : (double) poolHits / assignments;
+   }
+
+   /**
+    * The number of nodes created in the backend provider.
+    */
+   public long nodesAdded() {
+      return nodesAdded;
+   }
+
+   /**
+    * The time it took to hand a node to a caller.
+    */
+   public LatencyStats assignmentLatency() {
+      return assignmentLatency;
+   }
+
+   /**
+    * The time spent creating nodes in the backend provider.
+    */
+   public LatencyStats addToPoolLatency() {
+      return addToPoolLatency;
+   }
+
+   /**
+    * The time spent listing the nodes in the backend provider.
+    */
+   public LatencyStats backendListLatency() {
+      return backendListLatency;
+   }
+
 }
@@ -29,7 +29,7 @@ import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.nodepool.NodePoolApiMetadata;
 import org.jclouds.nodepool.NodePoolComputeServiceAdapter;
 import org.jclouds.nodepool.NodePoolComputeServiceContext;
-import org.jclouds.nodepool.internal.JsonNodeMetadataStore;
+import org.jclouds.nodepool.internal.IndexedJsonNodeMetadataStore;
 import org.jclouds.nodepool.internal.NodeMetadataStore;
 
 import com.google.common.base.Function;
@@ -54,7 +54,7 @@ public class NodePoolComputeServiceContextModule extends JCloudsNativeComputeSer
    @Override
    protected void configure() {
       super.configure();
-      bind(NodeMetadataStore.class).to(JsonNodeMetadataStore.class);
+      bind(NodeMetadataStore.class).to(IndexedJsonNodeMetadataStore.class);
       bind(ApiMetadata.class).to(NodePoolApiMetadata.class);
       bind(ComputeServiceContext.class).to(NodePoolComputeServiceContext.class);
       install(new LocationsFromComputeServiceAdapterModule<NodeMetadata, Hardware, Image, Location>() {
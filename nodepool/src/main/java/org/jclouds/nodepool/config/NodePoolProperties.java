@@ -71,4 +71,22 @@ public interface NodePoolProperties {
     */
    public static final String REMOVE_DESTROYED = "jclouds.nodepool.remove-destroyed";
 
+   /**
+    * Property to set the interval, in seconds, at which the pool state is reconciled with the
+    * backend nodes. Set this to {@literal 0} to disable the reconciliation.
+    */
+   public static final String RECONCILE_INTERVAL = "jclouds.nodepool.reconcile-interval";
+
+   /**
+    * Property to set the number of idle nodes below which the pool is replenished in the
+    * background.
+    */
+   public static final String IDLE_LOW_WATER = "jclouds.nodepool.idle-low-water";
+
+   /**
+    * Property to set the number of idle nodes the pool is replenished up to, within the maximum
+    * size of the pool. Must not be lower than the low-water mark.
+    */
+   public static final String IDLE_HIGH_WATER = "jclouds.nodepool.idle-high-water";
+
 }
@@ -54,6 +54,7 @@ public abstract class BaseNodePoolComputeServiceAdapter implements NodePoolCompu
    protected final String poolGroupName;
    protected final NodeMetadataStore metadataStore;
    protected final AdminAccess.Builder initialCredentialsBuilder;
+   protected final NodePoolMetrics metrics = new NodePoolMetrics();
 
    public BaseNodePoolComputeServiceAdapter(@Backend Supplier<ComputeService> backendComputeService,
 
@@ -130,9 +131,14 @@ public abstract class BaseNodePoolComputeServiceAdapter implements NodePoolCompu
    }
 
    protected Set<NodeMetadata> getBackendNodes() {
-      return ImmutableSet.copyOf(Iterables.filter(
-               backendComputeService.get().listNodesDetailsMatching(NodePredicates.all()),
-               NodePredicates.inGroup(poolGroupName)));
+      long start = System.nanoTime();
+      try {
+         return ImmutableSet.copyOf(Iterables.filter(
+                  backendComputeService.get().listNodesDetailsMatching(NodePredicates.all()),
+                  NodePredicates.inGroup(poolGroupName)));
+      } finally {
+         metrics.recordBackendList(System.nanoTime() - start);
+      }
    }
 
    @Override
@@ -147,12 +153,19 @@ public abstract class BaseNodePoolComputeServiceAdapter implements NodePoolCompu
    }
 
    protected Set<? extends NodeMetadata> addToPool(int number) {
+      long start = System.nanoTime();
+      int added = 0;
       try {
          Template template = backendTemplate.get().clone();
          template.getOptions().runScript(initialCredentialsBuilder.build());
-         return backendComputeService.get().createNodesInGroup(poolGroupName, number, template);
+         Set<? extends NodeMetadata> nodes = backendComputeService.get().createNodesInGroup(poolGroupName, number,
+                  template);
+         added = nodes.size();
+         return nodes;
       } catch (RunNodesException e) {
          throw Throwables.propagate(e);
+      } finally {
+         metrics.recordAddToPool(System.nanoTime() - start, added);
       }
    }
 
@@ -161,4 +174,9 @@ public abstract class BaseNodePoolComputeServiceAdapter implements NodePoolCompu
       return this.poolGroupName;
    }
 
+   @Override
+   public NodePoolMetrics getMetrics() {
+      return metrics;
+   }
+
 }
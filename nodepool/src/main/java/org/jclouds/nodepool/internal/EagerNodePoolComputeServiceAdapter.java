@@ -18,15 +18,24 @@ package org.jclouds.nodepool.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
 import static org.jclouds.nodepool.config.NodePoolProperties.BACKEND_GROUP;
+import static org.jclouds.nodepool.config.NodePoolProperties.IDLE_HIGH_WATER;
+import static org.jclouds.nodepool.config.NodePoolProperties.IDLE_LOW_WATER;
 import static org.jclouds.nodepool.config.NodePoolProperties.MAX_SIZE;
 import static org.jclouds.nodepool.config.NodePoolProperties.MIN_SIZE;
 import static org.jclouds.nodepool.config.NodePoolProperties.POOL_ADMIN_ACCESS;
+import static org.jclouds.nodepool.config.NodePoolProperties.RECONCILE_INTERVAL;
 import static org.jclouds.nodepool.config.NodePoolProperties.REMOVE_DESTROYED;
 
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -42,14 +51,23 @@ import org.jclouds.logging.Logger;
 import org.jclouds.nodepool.Backend;
 import org.jclouds.scriptbuilder.statements.login.AdminAccess;
 
+import com.google.common.base.Function;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
-import com.google.common.collect.Sets.SetView;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * An eager {@link NodePoolComputeService}. Eagerly builds and maintains a pool of nodes. It's only
  * "started" after min nodes are allocated and available.
+ * <p>
+ * The state of the pool is kept in a {@link NodePoolIndex}, so assigning a node and reading the
+ * pool counts do not list the backend nodes. The index is periodically reconciled with the
+ * backend to pick up the changes made outside the pool.
+ * <p>
+ * A {@link NodePoolReplenisher} keeps some idle nodes warm in the background, so callers rarely
+ * wait for a node to be created, and destroyed nodes are removed from the backend asynchronously.
+ * Destroying the pool stops both the reconciliation and the replenishment.
  */
 @Singleton
 public class EagerNodePoolComputeServiceAdapter extends BaseNodePoolComputeServiceAdapter {
@@ -61,108 +79,224 @@ public class EagerNodePoolComputeServiceAdapter extends BaseNodePoolComputeServi
    private final int maxSize;
    private final int minSize;
    private final boolean removeDestroyed;
+   private final long reconcileInterval;
+   private final ScheduledExecutorService scheduler;
+   private final int idleLowWater;
+   private final int idleHighWater;
+   private final ListeningExecutorService userExecutor;
+   private final NodePoolIndex index = new NodePoolIndex();
+   private ScheduledFuture<?> reconciler;
+   private volatile NodePoolReplenisher replenisher;
+   private volatile boolean destroyed;
 
    @Inject
    public EagerNodePoolComputeServiceAdapter(@Backend Supplier<ComputeService> backendComputeService,
             @Backend Supplier<Template> backendTemplate, @Named(BACKEND_GROUP) String poolGroupPrefix,
             @Named(MAX_SIZE) int maxSize, @Named(MIN_SIZE) int minSize,
             @Named(REMOVE_DESTROYED) boolean removeDestroyed, NodeMetadataStore storage,
-            @Named(POOL_ADMIN_ACCESS) String poolNodeAdminAccess, AdminAccess.Configuration configuration) {
+            @Named(POOL_ADMIN_ACCESS) String poolNodeAdminAccess, AdminAccess.Configuration configuration,
+            @Named(RECONCILE_INTERVAL) long reconcileInterval,
+            @Named(PROPERTY_SCHEDULER_THREADS) ScheduledExecutorService scheduler,
+            @Named(IDLE_LOW_WATER) int idleLowWater, @Named(IDLE_HIGH_WATER) int idleHighWater,
+            @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
       super(backendComputeService, backendTemplate, poolGroupPrefix, storage, poolNodeAdminAccess, configuration);
       this.maxSize = maxSize;
       this.minSize = minSize;
       this.removeDestroyed = removeDestroyed;
+      this.reconcileInterval = reconcileInterval;
+      this.scheduler = scheduler;
+      this.idleLowWater = idleLowWater;
+      this.idleHighWater = idleHighWater;
+      this.userExecutor = userExecutor;
    }
 
    @PostConstruct
    public void startEagerPool() {
-      Set<? extends NodeMetadata> backendNodes = getBackendNodes();
+      Set<? extends NodeMetadata> backendNodes = reconcile();
       int currentNodes = backendNodes.size();
       int newNodes = backendNodes.size() < minSize ? minSize - backendNodes.size() : 0;
       logger.info(
                ">> initializing nodepool [backend provider: %s]. [existing nodes: %s, min nodes: %s, allocating: %s ]",
                backendComputeService.get().getClass().getSimpleName(), currentNodes, minSize, newNodes);
       if (backendNodes.size() < minSize) {
-         addToPool(minSize - backendNodes.size());
+         index.addIdle(addToPool(minSize - backendNodes.size()));
+      }
+      replenisher = new NodePoolReplenisher(index, new Function<Integer, Set<? extends NodeMetadata>>() {
+         @Override
+         public Set<? extends NodeMetadata> apply(Integer count) {
+            Set<? extends NodeMetadata> nodes = addToPool(count);
+            if (destroyed) {
+               // created after the pool was destroyed, so not removed along with it
+               discard(nodes);
+               return ImmutableSet.of();
+            }
+            return nodes;
+         }
+      }, userExecutor, idleLowWater, idleHighWater, minSize, maxSize, logger);
+      replenish();
+      if (reconcileInterval > 0) {
+         reconciler = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+               if (destroyed) {
+                  return;
+               }
+               try {
+                  reconcile();
+                  replenish();
+               } catch (RuntimeException e) {
+                  logger.warn(e, "could not reconcile the pool with the backend nodes");
+               }
+            }
+         }, reconcileInterval, reconcileInterval, TimeUnit.SECONDS);
       }
       logger.info("<< pool initialized.");
    }
 
+   @PreDestroy
+   public void stopEagerPool() {
+      if (reconciler != null) {
+         reconciler.cancel(false);
+      }
+      if (replenisher != null) {
+         replenisher.stop();
+      }
+   }
+
+   /**
+    * Lists the backend nodes and updates the pool index with them.
+    */
+   protected Set<NodeMetadata> reconcile() {
+      // take the known nodes before listing, so nodes created meanwhile are not removed
+      Set<String> known = index.knownIds();
+      Set<NodeMetadata> backendNodes = getBackendNodes();
+      if (destroyed) {
+         return backendNodes;
+      }
+      index.reconcile(known, backendNodes, metadataStore.loadAll(backendNodes));
+      logger.debug("pool reconciled [current: %s, idle: %s, used: %s]", index.size(), index.idleSize(),
+               index.assignedSize());
+      return backendNodes;
+   }
+
    @Override
    public NodeWithInitialCredentials createNodeWithGroupEncodedIntoName(String group, String name, Template template) {
-      int count = 1;
-      synchronized (this) {
-         TemplateOptions options = template.getOptions().clone();
-
-         // if no user is provided we set the pool's user
-         if (options.getLoginUser() == null) {
-            options.overrideLoginCredentials(LoginCredentials.fromCredentials(checkNotNull(initialCredentialsBuilder
-                     .build().getAdminCredentials())));
-         }
+      TemplateOptions options = template.getOptions().clone();
 
-         logger.info(">> assigning pool node to frontend group %s", group);
-         Set<NodeMetadata> backendNodes = getBackendNodes();
-         checkState(!backendNodes.isEmpty());
-         Set<NodeMetadata> frontendNodes = metadataStore.loadAll(backendNodes);
-         checkState(frontendNodes.size() + count <= maxSize,
-                  "cannot add more nodes to pool [requested: %s, current: %s, max: %s]", count, frontendNodes.size(),
-                  maxSize);
-
-         SetView<NodeMetadata> availableNodes = Sets.difference(backendNodes, frontendNodes);
-
-         if (availableNodes.size() < 1) {
-            if (backendNodes.size() < maxSize && backendNodes.size() + count <= maxSize) {
-               logger.info(
-                        ">> all pool nodes are assigned, requiring additional nodes [requested: %s, current: %s, next: %s, max: %s]",
-                        count, frontendNodes.size(), frontendNodes.size() + 1, maxSize);
-               addToPool(count);
-               // update backend and available sets, no need to update frontend
-               backendNodes = getBackendNodes();
-               availableNodes = Sets.difference(backendNodes, frontendNodes);
-               logger.info("<< additional nodes added to the pool and ready");
-            } else {
-               logger.error("maximum pool size reached (%s)", maxSize);
-               throw new IllegalStateException(String.format("maximum pool size reached (%s)", maxSize));
-            }
-         }
-         NodeMetadata userNode = Iterables.get(availableNodes, 0);
+      // if no user is provided we set the pool's user
+      if (options.getLoginUser() == null) {
+         options.overrideLoginCredentials(LoginCredentials.fromCredentials(checkNotNull(initialCredentialsBuilder
+                  .build().getAdminCredentials())));
+      }
+
+      logger.info(">> assigning pool node to frontend group %s", group);
+      long start = System.nanoTime();
+      NodeMetadata userNode = index.pollIdle();
+      boolean poolHit = userNode != null;
+      replenish();
+      if (!poolHit) {
+         userNode = addReservedNode();
+      }
+      try {
          NodeMetadata node = metadataStore.store(userNode, options, group);
+         index.assign(node);
+         metrics.recordAssignment(System.nanoTime() - start, poolHit);
          logger.info("pool node assigned");
          return new NodeWithInitialCredentials(node);
+      } catch (RuntimeException e) {
+         index.release(userNode.getId());
+         throw e;
+      }
+   }
+
+   /**
+    * Grows the pool with a node that is directly handed to the caller.
+    */
+   private NodeMetadata addReservedNode() {
+      if (!index.tryReserve(maxSize)) {
+         logger.error("maximum pool size reached (%s)", maxSize);
+         throw new IllegalStateException(String.format("maximum pool size reached (%s)", maxSize));
+      }
+      try {
+         logger.info(">> all pool nodes are assigned, requiring additional nodes [requested: %s, current: %s, max: %s]",
+                  1, index.size(), maxSize);
+         NodeMetadata node = Iterables.getOnlyElement(addToPool(1));
+         index.addReserved(node);
+         logger.info("<< additional nodes added to the pool and ready");
+         return node;
+      } finally {
+         index.cancelReservation();
+      }
+   }
+
+   /**
+    * Starts a background replenishment if the pool is running low on idle nodes.
+    */
+   private void replenish() {
+      if (replenisher != null) {
+         replenisher.trigger();
       }
    }
 
    @Override
-   public synchronized void destroyNode(String id) {
+   public void destroyNode(final String id) {
       checkState(getNode(id) != null);
       logger.info(">> destroying node %s", id);
       metadataStore.deleteMapping(id);
       if (removeDestroyed) {
-         backendComputeService.get().destroyNode(id);
-         if (currentSize() < minSize) {
-            logger.info(">> policy is remove destroyed node and pool "
-                     + "would fall below minsize, replacing node with id %s", id);
-            Set<? extends NodeMetadata> replacement = addToPool(1);
-            logger.info("<< node %s replaced with %s", id, Iterables.getOnlyElement(replacement));
-         }
+         // the node counts towards the pool size until it is actually destroyed, and the
+         // replenisher replaces it if needed
+         index.unassign(id);
+         userExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  backendComputeService.get().destroyNode(id);
+                  logger.info("<< node destroyed %s", id);
+               } catch (RuntimeException e) {
+                  // if the node is still there, the next reconciliation returns it to the pool
+                  logger.error(e, "could not destroy node %s", id);
+               } finally {
+                  index.remove(id);
+                  replenish();
+               }
+            }
+         });
       }
       // TODO we should allow the user to hook a way to "clean" the node
       else {
+         index.release(id);
+         logger.info("<< node destroyed %s", id);
+      }
+   }
+
+   @Override
+   public void destroyPool() {
+      // stop first, so the pool is not rebuilt while or after its nodes are destroyed
+      destroyed = true;
+      stopEagerPool();
+      super.destroyPool();
+      index.clear();
+   }
 
+   private void discard(Set<? extends NodeMetadata> nodes) {
+      for (NodeMetadata node : nodes) {
+         try {
+            backendComputeService.get().destroyNode(node.getId());
+         } catch (RuntimeException e) {
+            logger.error(e, "could not destroy node %s", node.getId());
+         }
       }
-      logger.info("<< node destroyed %s", id);
    }
 
    @Override
    public int currentSize() {
-      return getBackendNodes().size();
+      return index.size();
    }
 
    @Override
    public int idleNodes() {
-      Set<NodeMetadata> backendNodes = getBackendNodes();
-      Set<NodeMetadata> frontendNodes = metadataStore.loadAll(backendNodes);
-      return backendNodes.size() - frontendNodes.size();
+      return index.idleSize();
    }
 
    @Override
@@ -177,7 +311,7 @@ public class EagerNodePoolComputeServiceAdapter extends BaseNodePoolComputeServi
 
    @Override
    public int usedNodes() {
-      return metadataStore.loadAll(getBackendNodes()).size();
+      return index.assignedSize();
    }
 
 }
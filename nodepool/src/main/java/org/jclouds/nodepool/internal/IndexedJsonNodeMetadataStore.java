@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.nodepool.internal.JsonNodeMetadataStore.buildFromJsonAndBackendMetadata;
+import static org.jclouds.nodepool.internal.JsonNodeMetadataStore.toJsonMetadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.json.Json;
+import org.jclouds.logging.Logger;
+import org.jclouds.nodepool.internal.JsonNodeMetadataStore.JsonUserNodeMetadata;
+import org.jclouds.util.Strings2;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+
+/**
+ * An implementation of {@link NodeMetadataStore} that keeps all the mappings in a single json
+ * index, instead of one entry per node.
+ * <p>
+ * The index is read once and kept in memory, so loading the mappings of any number of nodes does
+ * not access the storage. Each change rewrites the whole index in a single write, so it is always
+ * compact. Readers never block: writers build a new copy of the index and publish it once it has
+ * been stored.
+ * <p>
+ * Mappings stored by {@link JsonNodeMetadataStore} are imported into the index the first time it
+ * is read.
+ */
+@Singleton
+public class IndexedJsonNodeMetadataStore implements NodeMetadataStore {
+
+   /**
+    * The key of the index in the metadata storage.
+    */
+   public static final String INDEX = "index.json";
+
+   private static final Type INDEX_TYPE = new TypeLiteral<Map<String, JsonUserNodeMetadata>>() {
+   }.getType();
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final Supplier<Map<String, InputStream>> storage;
+   private final Json json;
+   private final Object writeLock = new Object();
+   private volatile SortedMap<String, JsonUserNodeMetadata> index;
+
+   @Inject
+   public IndexedJsonNodeMetadataStore(@Named("METADATA") Supplier<Map<String, InputStream>> storage, Json json) {
+      this.storage = storage;
+      this.json = json;
+   }
+
+   @Override
+   public NodeMetadata store(NodeMetadata backendNodeMetadata, TemplateOptions userOptions, String userGroup) {
+      checkNotNull(backendNodeMetadata);
+      JsonUserNodeMetadata jsonMetadata = toJsonMetadata(userOptions, userGroup);
+      synchronized (writeLock) {
+         SortedMap<String, JsonUserNodeMetadata> updated = Maps.newTreeMap(index());
+         updated.put(backendNodeMetadata.getId(), jsonMetadata);
+         write(updated);
+      }
+      return buildFromJsonAndBackendMetadata(backendNodeMetadata, jsonMetadata);
+   }
+
+   @Override
+   public NodeMetadata load(NodeMetadata backendNodeMetadata) {
+      JsonUserNodeMetadata jsonMetadata = index().get(checkNotNull(backendNodeMetadata).getId());
+      return jsonMetadata == null ? null : buildFromJsonAndBackendMetadata(backendNodeMetadata, jsonMetadata);
+   }
+
+   @Override
+   public Set<NodeMetadata> loadAll(Set<NodeMetadata> backendNodes) {
+      if (backendNodes == null || backendNodes.isEmpty()) {
+         return ImmutableSet.of();
+      }
+      Map<String, JsonUserNodeMetadata> current = index();
+      Set<NodeMetadata> loadedSet = Sets.newLinkedHashSet();
+      for (NodeMetadata input : backendNodes) {
+         JsonUserNodeMetadata jsonMetadata = current.get(input.getId());
+         if (jsonMetadata != null) {
+            loadedSet.add(buildFromJsonAndBackendMetadata(input, jsonMetadata));
+         }
+      }
+      return loadedSet;
+   }
+
+   @Override
+   public void deleteMapping(String backendNodeId) {
+      synchronized (writeLock) {
+         SortedMap<String, JsonUserNodeMetadata> current = index();
+         if (current.containsKey(backendNodeId)) {
+            SortedMap<String, JsonUserNodeMetadata> updated = Maps.newTreeMap(current);
+            updated.remove(backendNodeId);
+            write(updated);
+         }
+      }
+   }
+
+   @Override
+   public void deleteAllMappings() {
+      synchronized (writeLock) {
+         storage.get().clear();
+         index = ImmutableSortedMap.of();
+      }
+   }
+
+   private SortedMap<String, JsonUserNodeMetadata> index() {
+      SortedMap<String, JsonUserNodeMetadata> current = index;
+      if (current == null) {
+         synchronized (writeLock) {
+            if (index == null) {
+               index = read();
+            }
+            current = index;
+         }
+      }
+      return current;
+   }
+
+   /**
+    * Must be called holding the write lock.
+    */
+   private void write(SortedMap<String, JsonUserNodeMetadata> updated) {
+      storage.get().put(INDEX, Strings2.toInputStream(json.toJson(updated, INDEX_TYPE)));
+      index = ImmutableSortedMap.copyOfSorted(updated);
+   }
+
+   /**
+    * Must be called holding the write lock.
+    */
+   private SortedMap<String, JsonUserNodeMetadata> read() {
+      try {
+         InputStream storedIndex = storage.get().get(INDEX);
+         if (storedIndex != null) {
+            Map<String, JsonUserNodeMetadata> stored = json.fromJson(Strings2.toStringAndClose(storedIndex),
+                     INDEX_TYPE);
+            return stored == null ? ImmutableSortedMap.<String, JsonUserNodeMetadata> of() : ImmutableSortedMap
+                     .copyOf(stored);
+         }
+         return importLegacyMappings();
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+   }
+
+   private SortedMap<String, JsonUserNodeMetadata> importLegacyMappings() throws IOException {
+      Set<String> legacyKeys = ImmutableSet.copyOf(storage.get().keySet());
+      if (legacyKeys.isEmpty()) {
+         return ImmutableSortedMap.of();
+      }
+      logger.info(">> importing %s node mappings into the metadata index", legacyKeys.size());
+      SortedMap<String, JsonUserNodeMetadata> imported = Maps.newTreeMap();
+      for (String id : legacyKeys) {
+         InputStream storedMetadata = storage.get().get(id);
+         if (storedMetadata != null) {
+            imported.put(id, json.fromJson(Strings2.toStringAndClose(storedMetadata), JsonUserNodeMetadata.class));
+         }
+      }
+      write(imported);
+      for (String id : legacyKeys) {
+         storage.get().remove(id);
+      }
+      logger.info("<< node mappings imported");
+      return index;
+   }
+
+}
@@ -50,7 +50,7 @@ public class JsonNodeMetadataStore implements NodeMetadataStore {
    private Supplier<Map<String, InputStream>> storage;
    private final Json json;
 
-   private static class JsonUserNodeMetadata {
+   static class JsonUserNodeMetadata {
       private String group;
       private Set<String> tags;
       private Map<String, String> userMetadata;
@@ -69,19 +69,7 @@ public class JsonNodeMetadataStore implements NodeMetadataStore {
    @Override
    public NodeMetadata store(NodeMetadata backendNodeMetadata, TemplateOptions userOptions, String userGroup) {
       checkNotNull(backendNodeMetadata);
-      checkNotNull(userGroup);
-      checkNotNull(userOptions);
-      checkNotNull(userOptions.getLoginUser());
-      checkState(userOptions.getLoginPassword() != null || userOptions.getLoginPrivateKey() != null);
-      JsonUserNodeMetadata jsonMetadata = new JsonUserNodeMetadata();
-      jsonMetadata.user = userOptions.getLoginUser();
-      jsonMetadata.password = userOptions.getLoginPassword();
-      jsonMetadata.privateKey = userOptions.getLoginPrivateKey();
-      jsonMetadata.authenticateSudo = userOptions.shouldAuthenticateSudo() != null ? userOptions
-               .shouldAuthenticateSudo().booleanValue() : false;
-      jsonMetadata.userMetadata = userOptions.getUserMetadata();
-      jsonMetadata.tags = userOptions.getTags();
-      jsonMetadata.group = userGroup;
+      JsonUserNodeMetadata jsonMetadata = toJsonMetadata(userOptions, userGroup);
       storage.get().put(backendNodeMetadata.getId(), Strings2.toInputStream(json.toJson(jsonMetadata)));
       return buildFromJsonAndBackendMetadata(backendNodeMetadata, jsonMetadata);
    }
@@ -117,7 +105,24 @@ public class JsonNodeMetadataStore implements NodeMetadataStore {
       return loadedSet;
    }
 
-   private NodeMetadata buildFromJsonAndBackendMetadata(NodeMetadata backendNodeMetadata,
+   static JsonUserNodeMetadata toJsonMetadata(TemplateOptions userOptions, String userGroup) {
+      checkNotNull(userGroup);
+      checkNotNull(userOptions);
+      checkNotNull(userOptions.getLoginUser());
+      checkState(userOptions.getLoginPassword() != null || userOptions.getLoginPrivateKey() != null);
+      JsonUserNodeMetadata jsonMetadata = new JsonUserNodeMetadata();
+      jsonMetadata.user = userOptions.getLoginUser();
+      jsonMetadata.password = userOptions.getLoginPassword();
+      jsonMetadata.privateKey = userOptions.getLoginPrivateKey();
+      jsonMetadata.authenticateSudo = userOptions.shouldAuthenticateSudo() != null ? userOptions
+               .shouldAuthenticateSudo().booleanValue() : false;
+      jsonMetadata.userMetadata = userOptions.getUserMetadata();
+      jsonMetadata.tags = userOptions.getTags();
+      jsonMetadata.group = userGroup;
+      return jsonMetadata;
+   }
+
+   static NodeMetadata buildFromJsonAndBackendMetadata(NodeMetadata backendNodeMetadata,
             JsonUserNodeMetadata jsonMetadata) {
       return NodeMetadataBuilder
                .fromNodeMetadata(backendNodeMetadata)
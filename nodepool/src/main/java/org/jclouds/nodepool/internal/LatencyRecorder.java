@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jclouds.nodepool.LatencyStats;
+
+/**
+ * A lock-free latency histogram with fixed, roughly exponential buckets. Percentiles are
+ * approximated by the upper bound of the bucket they fall in.
+ */
+public class LatencyRecorder {
+
+   private static final long[] BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000,
+            10000, 20000, 30000, 60000, 120000, 300000, 600000 };
+
+   // the last bucket holds the samples above the highest bound
+   private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+   private final AtomicLong count = new AtomicLong();
+   private final AtomicLong totalNanos = new AtomicLong();
+   private final AtomicLong maxNanos = new AtomicLong();
+
+   public void record(long nanos) {
+      long sample = Math.max(nanos, 0);
+      buckets.incrementAndGet(bucketOf(NANOSECONDS.toMillis(sample)));
+      count.incrementAndGet();
+      totalNanos.addAndGet(sample);
+      long max;
+      while (sample > (max = maxNanos.get())) {
+         if (maxNanos.compareAndSet(max, sample)) {
+            break;
+         }
+      }
+   }
+
+   public LatencyStats snapshot() {
+      long[] counts = new long[buckets.length()];
+      long samples = 0;
+      for (int i = 0; i < counts.length; i++) {
+         counts[i] = buckets.get(i);
+         samples += counts[i];
+      }
+      long max = NANOSECONDS.toMillis(maxNanos.get());
+      return new LatencyStats(samples, NANOSECONDS.toMillis(totalNanos.get()), max, percentile(counts, samples,
+               0.5, max), percentile(counts, samples, 0.95, max), percentile(counts, samples, 0.99, max));
+   }
+
+   private static int bucketOf(long millis) {
+      for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+         if (millis <= BUCKET_BOUNDS_MILLIS[i]) {
+            return i;
+         }
+      }
+      return BUCKET_BOUNDS_MILLIS.length;
+   }
+
+   private static long percentile(long[] counts, long samples, double percentile, long max) {
+      if (samples == 0) {
+         return 0;
+      }
+      long rank = (long) Math.ceil(percentile * samples);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+         seen += counts[i];
+         if (seen >= rank) {
+            // the bucket bound can never be higher than the slowest sample
+            return i < BUCKET_BOUNDS_MILLIS.length ? Math.min(BUCKET_BOUNDS_MILLIS[i], max) : max;
+         }
+      }
+      return max;
+   }
+}
@@ -16,8 +16,8 @@
  */
 package org.jclouds.nodepool.internal;
 
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -25,16 +25,18 @@ import javax.inject.Singleton;
 import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.compute.options.TemplateOptions;
 
-import com.google.common.base.Function;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 
+/**
+ * Caches the frontend {@link NodeMetadata} loaded from another {@link NodeMetadataStore}. Cache
+ * hits never block; changes are written through to the backing store.
+ */
 @Singleton
 public class NodeMetadataStoreCache implements NodeMetadataStore {
 
-   private Map<String, NodeMetadata> frontendMetadataCache = Maps.newHashMap();
-   private NodeMetadataStore backend;
+   private final ConcurrentMap<String, NodeMetadata> frontendMetadataCache = Maps.newConcurrentMap();
+   private final NodeMetadataStore backend;
 
    @Inject
    public NodeMetadataStoreCache(NodeMetadataStore backend) {
@@ -50,19 +52,27 @@ public class NodeMetadataStoreCache implements NodeMetadataStore {
 
    @Override
    public synchronized void deleteMapping(String backendNodeId) {
-      frontendMetadataCache.remove(backendNodeId);
       backend.deleteMapping(backendNodeId);
-
+      frontendMetadataCache.remove(backendNodeId);
    }
 
    @Override
    public synchronized void deleteAllMappings() {
-      frontendMetadataCache.clear();
       backend.deleteAllMappings();
+      frontendMetadataCache.clear();
    }
 
    @Override
-   public synchronized NodeMetadata load(NodeMetadata backendNode) {
+   public NodeMetadata load(NodeMetadata backendNode) {
+      NodeMetadata frontendNode = frontendMetadataCache.get(backendNode.getId());
+      return frontendNode != null ? frontendNode : loadFromBackend(backendNode);
+   }
+
+   /**
+    * Cache misses load under the same lock as the changes, so a mapping deleted while it is being
+    * loaded is not cached again.
+    */
+   private synchronized NodeMetadata loadFromBackend(NodeMetadata backendNode) {
       NodeMetadata frontendNode = frontendMetadataCache.get(backendNode.getId());
       if (frontendNode == null) {
          frontendNode = backend.load(backendNode);
@@ -74,13 +84,15 @@ public class NodeMetadataStoreCache implements NodeMetadataStore {
    }
 
    @Override
-   public synchronized Set<NodeMetadata> loadAll(Set<NodeMetadata> backendNodes) {
-      return ImmutableSet.copyOf(Iterables.transform(backendNodes, new Function<NodeMetadata, NodeMetadata>() {
-         @Override
-         public NodeMetadata apply(NodeMetadata input) {
-            return load(input);
+   public Set<NodeMetadata> loadAll(Set<NodeMetadata> backendNodes) {
+      ImmutableSet.Builder<NodeMetadata> loaded = ImmutableSet.builder();
+      for (NodeMetadata backendNode : backendNodes) {
+         NodeMetadata frontendNode = load(backendNode);
+         if (frontendNode != null) {
+            loaded.add(frontendNode);
          }
-      }));
+      }
+      return loaded.build();
    }
 
 }
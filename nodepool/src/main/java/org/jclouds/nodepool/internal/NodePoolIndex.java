@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.domain.NodeMetadata;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * In-memory state of the pool: the backend nodes that belong to it, a queue of idle nodes and the
+ * nodes assigned to the frontend.
+ * <p>
+ * Assigning a node is a single lock-free dequeue, and all counts are read from memory. The index
+ * is the authority for the nodes it already knows about; {@link #reconcile(Set, Set)} only adds
+ * the nodes that appeared in the backend and removes the ones that disappeared from it.
+ */
+public class NodePoolIndex {
+
+   private final ConcurrentMap<String, NodeMetadata> pool = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, NodeMetadata> assigned = Maps.newConcurrentMap();
+   private final Queue<String> idle = new ConcurrentLinkedQueue<String>();
+   // the ids in the idle queue, so a node is never queued twice
+   private final Set<String> queued = Sets.newSetFromMap(Maps.<String, Boolean> newConcurrentMap());
+   private final AtomicInteger idleCount = new AtomicInteger();
+   private final AtomicInteger reservations = new AtomicInteger();
+
+   /**
+    * Takes an idle node out of the pool, or returns null if there are no idle nodes. The caller
+    * must either {@link #assign(NodeMetadata)} or {@link #release(String)} the returned node.
+    */
+   public NodeMetadata pollIdle() {
+      String id;
+      while ((id = idle.poll()) != null) {
+         queued.remove(id);
+         idleCount.decrementAndGet();
+         NodeMetadata node = pool.get(id);
+         // the node may have been removed from the backend since it was queued
+         if (node != null) {
+            return node;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Marks the given frontend node as assigned.
+    */
+   public void assign(NodeMetadata frontendNode) {
+      assigned.put(frontendNode.getId(), frontendNode);
+   }
+
+   /**
+    * Returns the given node to the idle queue. Releasing a node that is already idle, for instance
+    * when it is destroyed twice concurrently, does not queue it again.
+    */
+   public void release(String id) {
+      assigned.remove(id);
+      if (pool.containsKey(id)) {
+         offerIdle(id);
+      }
+   }
+
+   /**
+    * Marks the given node as no longer assigned, without returning it to the idle queue. The node
+    * still counts towards the pool size until it is {@link #remove(String) removed}.
+    */
+   public void unassign(String id) {
+      assigned.remove(id);
+   }
+
+   /**
+    * Adds newly created backend nodes to the pool as idle nodes.
+    */
+   public void addIdle(Iterable<? extends NodeMetadata> backendNodes) {
+      for (NodeMetadata node : backendNodes) {
+         if (pool.putIfAbsent(node.getId(), node) == null) {
+            offerIdle(node.getId());
+         }
+      }
+   }
+
+   /**
+    * Adds a newly created backend node to the pool without making it available to other callers.
+    */
+   public void addReserved(NodeMetadata backendNode) {
+      pool.put(backendNode.getId(), backendNode);
+   }
+
+   /**
+    * Removes the given node from the pool.
+    */
+   public void remove(String id) {
+      pool.remove(id);
+      assigned.remove(id);
+      if (idle.remove(id)) {
+         queued.remove(id);
+         idleCount.decrementAndGet();
+      }
+   }
+
+   /**
+    * Removes all the nodes from the pool.
+    */
+   public synchronized void clear() {
+      for (String id : knownIds()) {
+         remove(id);
+      }
+   }
+
+   /**
+    * Reserves room for a node that is about to be created, so concurrent callers do not grow the
+    * pool over the given maximum size. A negative maximum size means the pool is unlimited.
+    * 
+    * @return false if the pool (including other reservations) is already full
+    */
+   public boolean tryReserve(int maxSize) {
+      return reserve(1, maxSize) == 1;
+   }
+
+   /**
+    * Reserves room for up to the given number of nodes, without growing the pool over the given
+    * maximum size.
+    * 
+    * @return the number of nodes actually reserved, that must be released with
+    *         {@link #cancelReservations(int)}
+    */
+   public int reserve(int count, int maxSize) {
+      while (true) {
+         int current = reservations.get();
+         int granted = maxSize < 0 ? count : Math.min(count, maxSize - pool.size() - current);
+         if (granted <= 0) {
+            return 0;
+         }
+         if (reservations.compareAndSet(current, current + granted)) {
+            return granted;
+         }
+      }
+   }
+
+   /**
+    * Releases a reservation made with {@link #tryReserve(int)}, once the node has been added to
+    * the pool or its creation failed.
+    */
+   public void cancelReservation() {
+      cancelReservations(1);
+   }
+
+   /**
+    * Releases the reservations made with {@link #reserve(int, int)}.
+    */
+   public void cancelReservations(int count) {
+      reservations.addAndGet(-count);
+   }
+
+   /**
+    * Updates the index with a snapshot of the backend nodes and of their frontend mappings.
+    * 
+    * @param known
+    *           the ids of the nodes in the pool before the backend was listed, so nodes added to
+    *           or removed from the pool while listing are left as they are
+    * @param backendNodes
+    *           all the backend nodes in the pool group
+    * @param frontendNodes
+    *           the frontend mappings of the backend nodes
+    */
+   public synchronized void reconcile(Set<String> known, Set<NodeMetadata> backendNodes,
+            Set<NodeMetadata> frontendNodes) {
+      Map<String, NodeMetadata> backendById = byId(checkNotNull(backendNodes, "backendNodes"));
+      Map<String, NodeMetadata> frontendById = byId(checkNotNull(frontendNodes, "frontendNodes"));
+
+      for (String id : known) {
+         if (!backendById.containsKey(id)) {
+            remove(id);
+         }
+      }
+      // a node being created for a caller may already be listed by the backend, and must not be
+      // made idle. New nodes are picked up on the next reconciliation instead. Known nodes that
+      // are no longer in the pool were removed (destroyed) while listing and are not added again
+      boolean addNewNodes = reservations.get() == 0;
+      for (NodeMetadata node : backendById.values()) {
+         if (pool.containsKey(node.getId())) {
+            // refresh the backend view (status, addresses) of the nodes we already know
+            pool.replace(node.getId(), node);
+         } else if (addNewNodes && !known.contains(node.getId()) && pool.putIfAbsent(node.getId(), node) == null) {
+            NodeMetadata frontendNode = frontendById.get(node.getId());
+            if (frontendNode != null) {
+               assigned.put(node.getId(), frontendNode);
+            } else {
+               offerIdle(node.getId());
+            }
+         }
+      }
+   }
+
+   /**
+    * The ids of the nodes currently in the pool.
+    */
+   public Set<String> knownIds() {
+      return ImmutableSet.copyOf(pool.keySet());
+   }
+
+   public int size() {
+      return pool.size();
+   }
+
+   public int idleSize() {
+      return Math.max(idleCount.get(), 0);
+   }
+
+   public int assignedSize() {
+      return assigned.size();
+   }
+
+   private void offerIdle(String id) {
+      if (queued.add(id)) {
+         idle.offer(id);
+         idleCount.incrementAndGet();
+      }
+   }
+
+   private static Map<String, NodeMetadata> byId(Set<NodeMetadata> nodes) {
+      ImmutableMap.Builder<String, NodeMetadata> builder = ImmutableMap.builder();
+      for (NodeMetadata node : nodes) {
+         builder.put(node.getId(), node);
+      }
+      return builder.build();
+   }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jclouds.nodepool.LatencyStats;
+
+/**
+ * Live instrumentation of a node pool: how long assignments take, how often they are served from
+ * the pool, and how long growing the pool and listing the backend nodes take.
+ */
+public class NodePoolMetrics {
+
+   private final LatencyRecorder assignments = new LatencyRecorder();
+   private final LatencyRecorder additions = new LatencyRecorder();
+   private final LatencyRecorder backendLists = new LatencyRecorder();
+   private final AtomicLong poolHits = new AtomicLong();
+   private final AtomicLong coldProvisions = new AtomicLong();
+   private final AtomicLong nodesAdded = new AtomicLong();
+
+   /**
+    * Records a node assignment.
+    * 
+    * @param poolHit
+    *           true if an idle node was available, false if the caller had to wait for a node to be
+    *           created
+    */
+   public void recordAssignment(long nanos, boolean poolHit) {
+      assignments.record(nanos);
+      (poolHit ? poolHits : coldProvisions).incrementAndGet();
+   }
+
+   /**
+    * Records the creation of nodes in the backend.
+    */
+   public void recordAddToPool(long nanos, int nodes) {
+      additions.record(nanos);
+      nodesAdded.addAndGet(nodes);
+   }
+
+   /**
+    * Records a listing of the backend nodes.
+    */
+   public void recordBackendList(long nanos) {
+      backendLists.record(nanos);
+   }
+
+   public LatencyStats assignmentLatency() {
+      return assignments.snapshot();
+   }
+
+   public LatencyStats addToPoolLatency() {
+      return additions.snapshot();
+   }
+
+   public LatencyStats backendListLatency() {
+      return backendLists.snapshot();
+   }
+
+   public long poolHits() {
+      return poolHits.get();
+   }
+
+   public long coldProvisions() {
+      return coldProvisions.get();
+   }
+
+   public long nodesAdded() {
+      return nodesAdded.get();
+   }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Function;
+
+/**
+ * Keeps a number of idle nodes warm in the pool, provisioning them in batches in the background.
+ * <p>
+ * When the number of idle nodes falls below the low-water mark (or the pool falls below its
+ * minimum size), enough nodes are created to reach the high-water mark, without growing the pool
+ * over its maximum size. Only one replenishment runs at a time.
+ * <p>
+ * Once {@link #stop() stopped}, no replenishment starts and the nodes of a replenishment in
+ * progress are not added to the pool.
+ */
+public class NodePoolReplenisher {
+
+   private final NodePoolIndex index;
+   private final Function<Integer, Set<? extends NodeMetadata>> provisioner;
+   private final Executor executor;
+   private final int lowWater;
+   private final int highWater;
+   private final int minSize;
+   private final int maxSize;
+   private final Logger logger;
+   private final AtomicBoolean running = new AtomicBoolean();
+   private volatile boolean stopped;
+
+   /**
+    * @param provisioner
+    *           creates the given number of backend nodes in the pool group
+    */
+   public NodePoolReplenisher(NodePoolIndex index, Function<Integer, Set<? extends NodeMetadata>> provisioner,
+            Executor executor, int lowWater, int highWater, int minSize, int maxSize, Logger logger) {
+      checkArgument(lowWater >= 0, "the low-water mark must not be negative");
+      checkArgument(highWater >= lowWater, "the high-water mark (%s) must not be lower than the low-water mark (%s)",
+               highWater, lowWater);
+      this.index = checkNotNull(index, "index");
+      this.provisioner = checkNotNull(provisioner, "provisioner");
+      this.executor = checkNotNull(executor, "executor");
+      this.lowWater = lowWater;
+      this.highWater = highWater;
+      this.minSize = minSize;
+      this.maxSize = maxSize;
+      this.logger = checkNotNull(logger, "logger");
+   }
+
+   /**
+    * Starts a replenishment in the background if the pool needs more nodes and none is running.
+    */
+   public void trigger() {
+      if (stopped || !needsNodes() || !running.compareAndSet(false, true)) {
+         return;
+      }
+      try {
+         executor.execute(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  replenish();
+               } finally {
+                  running.set(false);
+               }
+            }
+         });
+      } catch (RejectedExecutionException e) {
+         running.set(false);
+         logger.debug("not replenishing the pool: %s", e.getMessage());
+      }
+   }
+
+   /**
+    * Stops replenishing the pool, for good.
+    */
+   public void stop() {
+      stopped = true;
+   }
+
+   /**
+    * Whether a replenishment is in progress.
+    */
+   public boolean isRunning() {
+      return running.get();
+   }
+
+   private boolean needsNodes() {
+      return index.idleSize() < lowWater || index.size() < minSize;
+   }
+
+   private void replenish() {
+      // nodes may be assigned while a batch is being created, so check again after each batch
+      while (!stopped && needsNodes()) {
+         int wanted = Math.max(highWater - index.idleSize(), minSize - index.size());
+         int count = index.reserve(wanted, maxSize);
+         if (count <= 0) {
+            logger.debug("not replenishing the pool, maximum pool size reached (%s)", maxSize);
+            return;
+         }
+         try {
+            logger.info(">> replenishing the pool [idle: %s, current: %s, allocating: %s]", index.idleSize(),
+                     index.size(), count);
+            Set<? extends NodeMetadata> nodes = provisioner.apply(count);
+            if (stopped) {
+               logger.info("<< pool stopped while replenishing, not adding %s nodes", nodes.size());
+               return;
+            }
+            index.addIdle(nodes);
+            logger.info("<< pool replenished [idle: %s, current: %s]", index.idleSize(), index.size());
+         } catch (RuntimeException e) {
+            // the nodes that were created will be picked up by the next reconciliation
+            logger.error(e, "could not replenish the pool");
+            return;
+         } finally {
+            index.cancelReservations(count);
+         }
+      }
+   }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.management;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.jclouds.management.ViewMBean;
+import org.jclouds.nodepool.NodePoolComputeServiceContext;
+import org.jclouds.nodepool.NodePoolStats;
+
+/**
+ * Exposes the {@link NodePoolStats} of a pool. Every attribute reads a fresh snapshot.
+ */
+public class NodePoolManagement implements NodePoolManagementMBean, ViewMBean<NodePoolComputeServiceContext> {
+
+   private final NodePoolComputeServiceContext context;
+
+   public NodePoolManagement(NodePoolComputeServiceContext context) {
+      this.context = checkNotNull(context, "context");
+   }
+
+   private NodePoolStats stats() {
+      return context.getPoolStats();
+   }
+
+   @Override
+   public int getCurrentSize() {
+      return stats().currentSize();
+   }
+
+   @Override
+   public int getIdleNodes() {
+      return stats().idleNodes();
+   }
+
+   @Override
+   public int getUsedNodes() {
+      return stats().usedNodes();
+   }
+
+   @Override
+   public int getMaxNodes() {
+      return stats().maxNodes();
+   }
+
+   @Override
+   public int getMinNodes() {
+      return stats().minNodes();
+   }
+
+   @Override
+   public long getPoolHits() {
+      return stats().poolHits();
+   }
+
+   @Override
+   public long getColdProvisions() {
+      return stats().coldProvisions();
+   }
+
+   @Override
+   public double getHitRate() {
+      return stats().hitRate();
+   }
+
+   @Override
+   public long getNodesAdded() {
+      return stats().nodesAdded();
+   }
+
+   @Override
+   public long getAssignmentCount() {
+      return stats().assignmentLatency().count();
+   }
+
+   @Override
+   public double getAssignmentMeanMillis() {
+      return stats().assignmentLatency().meanMillis();
+   }
+
+   @Override
+   public long getAssignmentMaxMillis() {
+      return stats().assignmentLatency().maxMillis();
+   }
+
+   @Override
+   public long getAssignmentP50Millis() {
+      return stats().assignmentLatency().p50Millis();
+   }
+
+   @Override
+   public long getAssignmentP95Millis() {
+      return stats().assignmentLatency().p95Millis();
+   }
+
+   @Override
+   public long getAssignmentP99Millis() {
+      return stats().assignmentLatency().p99Millis();
+   }
+
+   @Override
+   public long getAddToPoolCount() {
+      return stats().addToPoolLatency().count();
+   }
+
+   @Override
+   public double getAddToPoolMeanMillis() {
+      return stats().addToPoolLatency().meanMillis();
+   }
+
+   @Override
+   public long getAddToPoolMaxMillis() {
+      return stats().addToPoolLatency().maxMillis();
+   }
+
+   @Override
+   public long getAddToPoolP95Millis() {
+      return stats().addToPoolLatency().p95Millis();
+   }
+
+   @Override
+   public long getBackendListCount() {
+      return stats().backendListLatency().count();
+   }
+
+   @Override
+   public double getBackendListMeanMillis() {
+      return stats().backendListLatency().meanMillis();
+   }
+
+   @Override
+   public long getBackendListMaxMillis() {
+      return stats().backendListLatency().maxMillis();
+   }
+
+   @Override
+   public long getBackendListP95Millis() {
+      return stats().backendListLatency().p95Millis();
+   }
+
+   @Override
+   public String getType() {
+      return "nodepool";
+   }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.management;
+
+/**
+ * The JMX view of a node pool. Latencies are in milliseconds.
+ */
+public interface NodePoolManagementMBean {
+
+   int getCurrentSize();
+
+   int getIdleNodes();
+
+   int getUsedNodes();
+
+   int getMaxNodes();
+
+   int getMinNodes();
+
+   long getPoolHits();
+
+   long getColdProvisions();
+
+   double getHitRate();
+
+   long getNodesAdded();
+
+   long getAssignmentCount();
+
+   double getAssignmentMeanMillis();
+
+   long getAssignmentMaxMillis();
+
+   long getAssignmentP50Millis();
+
+   long getAssignmentP95Millis();
+
+   long getAssignmentP99Millis();
+
+   long getAddToPoolCount();
+
+   double getAddToPoolMeanMillis();
+
+   long getAddToPoolMaxMillis();
+
+   long getAddToPoolP95Millis();
+
+   long getBackendListCount();
+
+   double getBackendListMeanMillis();
+
+   long getBackendListMaxMillis();
+
+   long getBackendListP95Millis();
+
+}
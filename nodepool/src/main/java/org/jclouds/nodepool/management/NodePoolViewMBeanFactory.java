@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.management;
+
+import org.jclouds.management.ViewMBean;
+import org.jclouds.management.ViewMBeanFactory;
+import org.jclouds.nodepool.NodePoolComputeServiceContext;
+
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Registers a {@link NodePoolManagement} bean for each {@link NodePoolComputeServiceContext}.
+ */
+public class NodePoolViewMBeanFactory implements ViewMBeanFactory<NodePoolComputeServiceContext> {
+
+   private static final TypeToken<NodePoolComputeServiceContext> TYPE = TypeToken
+            .of(NodePoolComputeServiceContext.class);
+
+   @Override
+   public ViewMBean<NodePoolComputeServiceContext> create(NodePoolComputeServiceContext context) {
+      return new NodePoolManagement(context);
+   }
+
+   @Override
+   public TypeToken<NodePoolComputeServiceContext> getViewType() {
+      return TYPE;
+   }
+}
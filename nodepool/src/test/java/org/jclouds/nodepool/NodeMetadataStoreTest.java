@@ -38,6 +38,7 @@ import org.jclouds.compute.domain.NodeMetadataBuilder;
 import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
 import org.jclouds.nodepool.config.NodePoolProperties;
+import org.jclouds.nodepool.internal.IndexedJsonNodeMetadataStore;
 import org.jclouds.nodepool.internal.NodeMetadataStore;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -90,10 +91,12 @@ public class NodeMetadataStoreTest {
       store.store(nodeMeta1, templateOptions, "testgroup");
       store.store(nodeMeta2, templateOptions, "testgroup");
       String readJSon = Files.toString(new File(baseDir + File.separator + "nodes"
-               + File.separator + nodeMeta1.getId()), Charsets.UTF_8);
-      assertEquals(readJSon, "{\"group\":\"testgroup\",\"tags\":[\"tag1\",\"tag2\"],"
+               + File.separator + IndexedJsonNodeMetadataStore.INDEX), Charsets.UTF_8);
+      String nodeJson = "{\"group\":\"testgroup\",\"tags\":[\"tag1\",\"tag2\"],"
                + "\"userMetadata\":{\"testmetakey\":\"testmetavalue\",\"testmetakey2\":\"testmetavalue2\"},"
-               + "\"user\":\"testuser\",\"password\":\"testpass\",\"privateKey\":\"pk\",\"authenticateSudo\":true}");
+               + "\"user\":\"testuser\",\"password\":\"testpass\",\"privateKey\":\"pk\",\"authenticateSudo\":true}";
+      // all the mappings are kept in a single index
+      assertEquals(readJSon, "{\"testmeta1\":" + nodeJson + ",\"testmeta2\":" + nodeJson + "}");
    }
 
    @Test(groups = "unit", dependsOnMethods = "testStore")
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.Capture;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "EagerNodePoolComputeServiceAdapterTest")
+public class EagerNodePoolComputeServiceAdapterTest {
+
+   private static final String POOL_GROUP = "pool";
+
+   private static NodeMetadata node(String id) {
+      return new NodeMetadataBuilder().id(id).group(POOL_GROUP).status(Status.RUNNING).build();
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testReconcileAfterDestroyPoolDoesNotRebuildThePool() {
+      Set<NodeMetadata> nodes = ImmutableSet.of(node("a"), node("b"));
+      ComputeService backend = createMock(ComputeService.class);
+      NodeMetadataStore metadataStore = createMock(NodeMetadataStore.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      ScheduledFuture reconciler = createMock(ScheduledFuture.class);
+      Capture<Runnable> tick = new Capture<Runnable>();
+
+      // the pool starts with the existing nodes, and is listed only once
+      expect(backend.listNodesDetailsMatching(anyObject(Predicate.class))).andReturn((Set) nodes);
+      expect(metadataStore.loadAll(nodes)).andReturn(ImmutableSet.<NodeMetadata> of());
+      expect(scheduler.scheduleWithFixedDelay(capture(tick), eq(60l), eq(60l), eq(TimeUnit.SECONDS))).andReturn(
+               reconciler);
+      expect(reconciler.cancel(false)).andReturn(true);
+      metadataStore.deleteAllMappings();
+      expectLastCall();
+      expect(backend.destroyNodesMatching(anyObject(Predicate.class))).andReturn((Set) nodes);
+      replay(backend, metadataStore, scheduler, reconciler);
+
+      EagerNodePoolComputeServiceAdapter adapter = new EagerNodePoolComputeServiceAdapter(
+               Suppliers.ofInstance(backend), Suppliers.<Template> ofInstance(null), POOL_GROUP, 10, 2, true,
+               metadataStore, "adminUsername=pool,adminPassword=pool", null, 60, scheduler, 1, 2,
+               MoreExecutors.sameThreadExecutor());
+      adapter.startEagerPool();
+      assertEquals(adapter.currentSize(), 2);
+
+      adapter.destroyPool();
+      tick.getValue().run();
+
+      assertEquals(adapter.currentSize(), 0);
+      verify(backend, metadataStore, scheduler, reconciler);
+   }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.inject.Guice;
+
+@Test(groups = "unit", testName = "IndexedJsonNodeMetadataStoreTest")
+public class IndexedJsonNodeMetadataStoreTest {
+
+   /**
+    * An in-memory metadata storage that counts the reads.
+    */
+   private static class CountingStorage extends ForwardingMap<String, InputStream> {
+      private final Map<String, InputStream> delegate = Maps.newHashMap();
+      private final AtomicInteger reads = new AtomicInteger();
+
+      @Override
+      protected Map<String, InputStream> delegate() {
+         return delegate;
+      }
+
+      @Override
+      public InputStream get(Object key) {
+         reads.incrementAndGet();
+         return super.get(key);
+      }
+   }
+
+   private final Json json = Guice.createInjector(new GsonModule()).getInstance(Json.class);
+   private final TemplateOptions options = new TemplateOptions().overrideLoginUser("testuser")
+            .overrideLoginPassword("testpass");
+
+   private CountingStorage storage;
+   private Supplier<Map<String, InputStream>> storageSupplier;
+
+   @BeforeMethod
+   public void setUp() {
+      storage = new CountingStorage();
+      storageSupplier = Suppliers.<Map<String, InputStream>> ofInstance(storage);
+   }
+
+   private static NodeMetadata node(String id) {
+      return new NodeMetadataBuilder().id(id).status(Status.RUNNING).build();
+   }
+
+   public void testLoadAllReadsTheIndexOnce() {
+      new IndexedJsonNodeMetadataStore(storageSupplier, json).store(node("a"), options, "group");
+      new IndexedJsonNodeMetadataStore(storageSupplier, json).store(node("b"), options, "group");
+      assertEquals(storage.keySet(), ImmutableSet.of(IndexedJsonNodeMetadataStore.INDEX));
+
+      IndexedJsonNodeMetadataStore store = new IndexedJsonNodeMetadataStore(storageSupplier, json);
+      storage.reads.set(0);
+      assertEquals(store.loadAll(ImmutableSet.of(node("a"), node("b"), node("c"))).size(), 2);
+      assertEquals(store.loadAll(ImmutableSet.of(node("a"), node("b"), node("c"))).size(), 2);
+      assertEquals(store.load(node("a")).getGroup(), "group");
+      assertEquals(storage.reads.get(), 1);
+   }
+
+   public void testDeleteMapping() {
+      IndexedJsonNodeMetadataStore store = new IndexedJsonNodeMetadataStore(storageSupplier, json);
+      store.store(node("a"), options, "group");
+      store.store(node("b"), options, "group");
+      store.deleteMapping("a");
+
+      IndexedJsonNodeMetadataStore reloaded = new IndexedJsonNodeMetadataStore(storageSupplier, json);
+      assertNull(reloaded.load(node("a")));
+      assertEquals(reloaded.load(node("b")).getCredentials().getUser(), "testuser");
+   }
+
+   public void testDeleteAllMappings() {
+      IndexedJsonNodeMetadataStore store = new IndexedJsonNodeMetadataStore(storageSupplier, json);
+      store.store(node("a"), options, "group");
+      store.deleteAllMappings();
+
+      assertTrue(storage.isEmpty());
+      assertNull(store.load(node("a")));
+   }
+
+   public void testImportsLegacyMappings() {
+      new JsonNodeMetadataStore(storageSupplier, json).store(node("a"), options, "legacy");
+
+      IndexedJsonNodeMetadataStore store = new IndexedJsonNodeMetadataStore(storageSupplier, json);
+      assertEquals(store.load(node("a")).getGroup(), "legacy");
+      assertFalse(storage.containsKey("a"));
+      assertTrue(storage.containsKey(IndexedJsonNodeMetadataStore.INDEX));
+   }
+}
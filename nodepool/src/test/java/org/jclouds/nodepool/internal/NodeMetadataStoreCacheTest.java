@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.options.TemplateOptions;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+@Test(groups = "unit", testName = "NodeMetadataStoreCacheTest")
+public class NodeMetadataStoreCacheTest {
+
+   private static final NodeMetadata BACKEND_NODE = new NodeMetadataBuilder().id("backend").status(Status.RUNNING)
+            .build();
+
+   /**
+    * A store whose loads can be held after reading the mapping.
+    */
+   private static class BlockingStore implements NodeMetadataStore {
+      private final Map<String, NodeMetadata> mappings = Maps.newConcurrentMap();
+      private final CountDownLatch loading = new CountDownLatch(1);
+      private final CountDownLatch proceed = new CountDownLatch(1);
+      private volatile boolean block;
+
+      @Override
+      public NodeMetadata store(NodeMetadata backendNode, TemplateOptions userOptions, String userGroup) {
+         NodeMetadata frontendNode = NodeMetadataBuilder.fromNodeMetadata(backendNode).group(userGroup).build();
+         mappings.put(backendNode.getId(), frontendNode);
+         return frontendNode;
+      }
+
+      @Override
+      public void deleteMapping(String backendNodeId) {
+         mappings.remove(backendNodeId);
+      }
+
+      @Override
+      public void deleteAllMappings() {
+         mappings.clear();
+      }
+
+      @Override
+      public NodeMetadata load(NodeMetadata backendNode) {
+         NodeMetadata frontendNode = mappings.get(backendNode.getId());
+         if (block) {
+            loading.countDown();
+            Uninterruptibles.awaitUninterruptibly(proceed);
+         }
+         return frontendNode;
+      }
+
+      @Override
+      public Set<NodeMetadata> loadAll(Set<NodeMetadata> backendNodes) {
+         ImmutableSet.Builder<NodeMetadata> loaded = ImmutableSet.builder();
+         for (NodeMetadata backendNode : backendNodes) {
+            NodeMetadata frontendNode = load(backendNode);
+            if (frontendNode != null) {
+               loaded.add(frontendNode);
+            }
+         }
+         return loaded.build();
+      }
+   }
+
+   public void testLoadsAreCached() {
+      BlockingStore backend = new BlockingStore();
+      backend.store(BACKEND_NODE, null, "group");
+      NodeMetadataStoreCache cache = new NodeMetadataStoreCache(backend);
+
+      NodeMetadata frontendNode = cache.load(BACKEND_NODE);
+      assertEquals(frontendNode.getGroup(), "group");
+
+      backend.deleteMapping(BACKEND_NODE.getId());
+      assertEquals(cache.load(BACKEND_NODE), frontendNode);
+   }
+
+   public void testMappingDeletedWhileLoadingIsNotCached() throws InterruptedException {
+      final BlockingStore backend = new BlockingStore();
+      backend.store(BACKEND_NODE, null, "group");
+      backend.block = true;
+      final NodeMetadataStoreCache cache = new NodeMetadataStoreCache(backend);
+
+      Thread loader = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            cache.load(BACKEND_NODE);
+         }
+      });
+      loader.start();
+      backend.loading.await();
+
+      Thread deleter = new Thread(new Runnable() {
+         @Override
+         public void run() {
+            cache.deleteMapping(BACKEND_NODE.getId());
+         }
+      });
+      deleter.start();
+      // the deletion must wait for the load in progress
+      while (deleter.isAlive() && deleter.getState() != Thread.State.BLOCKED) {
+         Thread.sleep(10);
+      }
+
+      backend.block = false;
+      backend.proceed.countDown();
+      loader.join();
+      deleter.join();
+
+      assertNull(cache.load(BACKEND_NODE));
+   }
+}
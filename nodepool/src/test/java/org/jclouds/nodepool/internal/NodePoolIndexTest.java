@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+@Test(groups = "unit", testName = "NodePoolIndexTest")
+public class NodePoolIndexTest {
+
+   private static NodeMetadata node(String id) {
+      return new NodeMetadataBuilder().id(id).status(Status.RUNNING).build();
+   }
+
+   private static NodeMetadata frontendNode(String id) {
+      return new NodeMetadataBuilder().id(id).group("frontend").status(Status.RUNNING).build();
+   }
+
+   public void testReconcileSplitsIdleAndAssignedNodes() {
+      NodePoolIndex index = new NodePoolIndex();
+      index.reconcile(ImmutableSet.<String> of(), ImmutableSet.of(node("a"), node("b"), node("c")),
+               ImmutableSet.of(frontendNode("b")));
+
+      assertEquals(index.size(), 3);
+      assertEquals(index.idleSize(), 2);
+      assertEquals(index.assignedSize(), 1);
+   }
+
+   public void testPollIdleHandsOutEachNodeOnce() {
+      NodePoolIndex index = new NodePoolIndex();
+      index.addIdle(ImmutableSet.of(node("a"), node("b")));
+
+      Set<String> polled = Sets.newHashSet(index.pollIdle().getId(), index.pollIdle().getId());
+      assertEquals(polled, ImmutableSet.of("a", "b"));
+      assertNull(index.pollIdle());
+      assertEquals(index.idleSize(), 0);
+   }
+
+   public void testReleasedNodesAreIdleAgain() {
+      NodePoolIndex index = new NodePoolIndex();
+      index.addIdle(ImmutableSet.of(node("a")));
+      index.assign(frontendNode(index.pollIdle().getId()));
+      assertEquals(index.assignedSize(), 1);
+
+      index.release("a");
+      assertEquals(index.assignedSize(), 0);
+      assertEquals(index.pollIdle().getId(), "a");
+   }
+
+   public void testConcurrentReleasesQueueTheNodeOnce() throws Exception {
+      final NodePoolIndex index = new NodePoolIndex();
+      index.addIdle(ImmutableSet.of(node("a")));
+      index.assign(frontendNode(index.pollIdle().getId()));
+
+      int releasers = 8;
+      final CountDownLatch start = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(releasers);
+      try {
+         List<Future<?>> releases = Lists.newArrayList();
+         for (int i = 0; i < releasers; i++) {
+            releases.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws InterruptedException {
+                  start.await();
+                  index.release("a");
+                  return null;
+               }
+            }));
+         }
+         start.countDown();
+         for (Future<?> release : releases) {
+            release.get();
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      assertEquals(index.idleSize(), 1);
+      assertEquals(index.pollIdle().getId(), "a");
+      assertNull(index.pollIdle());
+   }
+
+   public void testReconcileRemovesNodesGoneFromTheBackend() {
+      NodePoolIndex index = new NodePoolIndex();
+      index.addIdle(ImmutableSet.of(node("a"), node("b")));
+      index.assign(frontendNode("b"));
+
+      index.reconcile(index.knownIds(), ImmutableSet.<NodeMetadata> of(), ImmutableSet.<NodeMetadata> of());
+
+      assertEquals(index.size(), 0);
+      assertEquals(index.assignedSize(), 0);
+      assertNull(index.pollIdle());
+   }
+
+   public void testReconcileKeepsNodesAddedWhileListing() {
+      NodePoolIndex index = new NodePoolIndex();
+      Set<String> known = index.knownIds();
+      index.addIdle(ImmutableSet.of(node("new")));
+
+      index.reconcile(known, ImmutableSet.<NodeMetadata> of(), ImmutableSet.<NodeMetadata> of());
+
+      assertEquals(index.size(), 1);
+      assertEquals(index.pollIdle().getId(), "new");
+   }
+
+   public void testReconcileDoesNotMakeReservedNodesIdle() {
+      NodePoolIndex index = new NodePoolIndex();
+      assertTrue(index.tryReserve(5));
+
+      // the backend already lists the node being created for a caller
+      index.reconcile(index.knownIds(), ImmutableSet.of(node("reserved")), ImmutableSet.<NodeMetadata> of());
+      assertNull(index.pollIdle());
+
+      index.addReserved(node("reserved"));
+      index.cancelReservation();
+      index.reconcile(index.knownIds(), ImmutableSet.of(node("reserved")), ImmutableSet.<NodeMetadata> of());
+      assertNull(index.pollIdle());
+      assertEquals(index.size(), 1);
+   }
+
+   public void testReservationsHonourMaxSize() {
+      NodePoolIndex index = new NodePoolIndex();
+      index.addIdle(ImmutableSet.of(node("a")));
+
+      assertTrue(index.tryReserve(2));
+      assertFalse(index.tryReserve(2));
+      index.cancelReservation();
+      assertTrue(index.tryReserve(2));
+      assertTrue(index.tryReserve(-1));
+   }
+
+   public void testReconcileDoesNotAddNodesRemovedWhileListing() {
+      NodePoolIndex index = new NodePoolIndex();
+      index.addIdle(ImmutableSet.of(node("a")));
+      Set<String> known = index.knownIds();
+      index.remove("a");
+
+      // the backend was listed before the node was destroyed
+      index.reconcile(known, ImmutableSet.of(node("a")), ImmutableSet.<NodeMetadata> of());
+      assertEquals(index.size(), 0);
+
+      index.reconcile(index.knownIds(), ImmutableSet.of(node("a")), ImmutableSet.<NodeMetadata> of());
+      assertEquals(index.size(), 1);
+   }
+
+   public void testBulkReservationsAreCappedByMaxSize() {
+      NodePoolIndex index = new NodePoolIndex();
+      index.addIdle(ImmutableSet.of(node("a")));
+
+      assertEquals(index.reserve(5, 4), 3);
+      assertEquals(index.reserve(1, 4), 0);
+      index.cancelReservations(3);
+      assertEquals(index.reserve(2, 4), 2);
+      assertEquals(index.reserve(10, -1), 10);
+   }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+
+import org.jclouds.nodepool.LatencyStats;
+import org.testng.annotations.Test;
+
+@Test(groups = "unit", testName = "NodePoolMetricsTest")
+public class NodePoolMetricsTest {
+
+   public void testEmptyRecorder() {
+      LatencyStats stats = new LatencyRecorder().snapshot();
+      assertEquals(stats.count(), 0);
+      assertEquals(stats.meanMillis(), 0.0);
+      assertEquals(stats.maxMillis(), 0);
+      assertEquals(stats.p99Millis(), 0);
+   }
+
+   public void testPercentilesUseBucketBounds() {
+      LatencyRecorder recorder = new LatencyRecorder();
+      for (int i = 0; i < 90; i++) {
+         recorder.record(MILLISECONDS.toNanos(3));
+      }
+      for (int i = 0; i < 9; i++) {
+         recorder.record(MILLISECONDS.toNanos(40));
+      }
+      recorder.record(MILLISECONDS.toNanos(700));
+
+      LatencyStats stats = recorder.snapshot();
+      assertEquals(stats.count(), 100);
+      assertEquals(stats.totalMillis(), 270 + 360 + 700);
+      assertEquals(stats.maxMillis(), 700);
+      assertEquals(stats.p50Millis(), 5);
+      assertEquals(stats.p95Millis(), 50);
+      assertEquals(stats.p99Millis(), 50);
+   }
+
+   public void testPercentilesNeverExceedMax() {
+      LatencyRecorder recorder = new LatencyRecorder();
+      recorder.record(MILLISECONDS.toNanos(3));
+      recorder.record(MILLISECONDS.toNanos(15 * 60 * 1000));
+
+      LatencyStats stats = recorder.snapshot();
+      assertEquals(stats.p50Millis(), 3);
+      assertEquals(stats.p99Millis(), 15 * 60 * 1000);
+   }
+
+   public void testAssignmentsAndAdditions() {
+      NodePoolMetrics metrics = new NodePoolMetrics();
+      metrics.recordAssignment(MILLISECONDS.toNanos(1), true);
+      metrics.recordAssignment(MILLISECONDS.toNanos(1), true);
+      metrics.recordAssignment(MILLISECONDS.toNanos(30000), false);
+      metrics.recordAddToPool(MILLISECONDS.toNanos(30000), 1);
+      metrics.recordAddToPool(MILLISECONDS.toNanos(45000), 3);
+
+      assertEquals(metrics.poolHits(), 2);
+      assertEquals(metrics.coldProvisions(), 1);
+      assertEquals(metrics.nodesAdded(), 4);
+      assertEquals(metrics.assignmentLatency().count(), 3);
+      assertEquals(metrics.assignmentLatency().maxMillis(), 30000);
+      assertEquals(metrics.addToPoolLatency().count(), 2);
+      assertEquals(metrics.backendListLatency().count(), 0);
+   }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.nodepool.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.logging.Logger;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "NodePoolReplenisherTest")
+public class NodePoolReplenisherTest {
+
+   private static class CountingProvisioner implements Function<Integer, Set<? extends NodeMetadata>> {
+      private final AtomicInteger ids = new AtomicInteger();
+      private final List<Integer> batches = Lists.newArrayList();
+
+      @Override
+      public Set<? extends NodeMetadata> apply(Integer count) {
+         batches.add(count);
+         ImmutableSet.Builder<NodeMetadata> nodes = ImmutableSet.builder();
+         for (int i = 0; i < count; i++) {
+            nodes.add(new NodeMetadataBuilder().id("node-" + ids.incrementAndGet()).status(Status.RUNNING).build());
+         }
+         return nodes.build();
+      }
+   }
+
+   private static NodePoolReplenisher replenisher(NodePoolIndex index, CountingProvisioner provisioner, int low,
+            int high, int min, int max) {
+      return new NodePoolReplenisher(index, provisioner, MoreExecutors.sameThreadExecutor(), low, high, min, max,
+               Logger.NULL);
+   }
+
+   public void testReplenishesUpToTheHighWaterMarkInOneBatch() {
+      NodePoolIndex index = new NodePoolIndex();
+      CountingProvisioner provisioner = new CountingProvisioner();
+
+      replenisher(index, provisioner, 2, 5, 0, 10).trigger();
+
+      assertEquals(provisioner.batches, ImmutableList.of(5));
+      assertEquals(index.idleSize(), 5);
+   }
+
+   public void testDoesNothingAboveTheLowWaterMark() {
+      NodePoolIndex index = new NodePoolIndex();
+      CountingProvisioner provisioner = new CountingProvisioner();
+      index.addIdle(provisioner.apply(2));
+      provisioner.batches.clear();
+
+      replenisher(index, provisioner, 2, 5, 0, 10).trigger();
+
+      assertEquals(provisioner.batches.size(), 0);
+      assertEquals(index.idleSize(), 2);
+   }
+
+   public void testDoesNotGrowOverTheMaxSize() {
+      NodePoolIndex index = new NodePoolIndex();
+      CountingProvisioner provisioner = new CountingProvisioner();
+      index.addIdle(provisioner.apply(3));
+      for (int i = 0; i < 3; i++) {
+         index.assign(index.pollIdle());
+      }
+      provisioner.batches.clear();
+
+      replenisher(index, provisioner, 2, 5, 0, 4).trigger();
+
+      assertEquals(provisioner.batches, ImmutableList.of(1));
+      assertEquals(index.size(), 4);
+   }
+
+   public void testKeepsTheMinimumSize() {
+      NodePoolIndex index = new NodePoolIndex();
+      CountingProvisioner provisioner = new CountingProvisioner();
+
+      replenisher(index, provisioner, 0, 0, 3, 10).trigger();
+
+      assertEquals(index.size(), 3);
+   }
+
+   public void testFailuresDoNotLeakReservations() {
+      NodePoolIndex index = new NodePoolIndex();
+      NodePoolReplenisher replenisher = new NodePoolReplenisher(index,
+               new Function<Integer, Set<? extends NodeMetadata>>() {
+                  @Override
+                  public Set<? extends NodeMetadata> apply(Integer count) {
+                     throw new IllegalStateException("backend failure");
+                  }
+               }, MoreExecutors.sameThreadExecutor(), 1, 2, 0, 2, Logger.NULL);
+
+      replenisher.trigger();
+
+      assertFalse(replenisher.isRunning());
+      assertEquals(index.reserve(2, 2), 2);
+   }
+
+   public void testStoppedWhileProvisioningDoesNotAddTheNodes() {
+      NodePoolIndex index = new NodePoolIndex();
+      final CountingProvisioner provisioner = new CountingProvisioner();
+      final AtomicReference<NodePoolReplenisher> replenisher = new AtomicReference<NodePoolReplenisher>();
+      replenisher.set(new NodePoolReplenisher(index, new Function<Integer, Set<? extends NodeMetadata>>() {
+         @Override
+         public Set<? extends NodeMetadata> apply(Integer count) {
+            replenisher.get().stop();
+            return provisioner.apply(count);
+         }
+      }, MoreExecutors.sameThreadExecutor(), 2, 5, 0, 10, Logger.NULL));
+
+      replenisher.get().trigger();
+      assertEquals(index.size(), 0);
+
+      replenisher.get().trigger();
+      assertEquals(provisioner.batches, ImmutableList.of(5));
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testHighWaterMarkMustNotBeLowerThanLowWaterMark() {
+      replenisher(new NodePoolIndex(), new CountingProvisioner(), 3, 2, 0, 10);
+   }
+}
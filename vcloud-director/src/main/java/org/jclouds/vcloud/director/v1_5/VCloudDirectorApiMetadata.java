@@ -18,7 +18,14 @@ package org.jclouds.vcloud.director.v1_5;
 
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
 import static org.jclouds.reflect.Reflection2.typeToken;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_CONCURRENCY;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_QUERY_PAGE_SIZE;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_SESSION_REFRESH_MARGIN;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_TASK_POLL_PERIOD;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_TIMEOUT_TASK_COMPLETED;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_UPLOAD_CHUNK_SIZE;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_UPLOAD_PARALLELISM;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_VERSION_SCHEMA;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_XML_NAMESPACE;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_XML_SCHEMA;
@@ -66,6 +73,13 @@ public class VCloudDirectorApiMetadata extends BaseRestApiMetadata {
       // TODO integrate these with the {@link ComputeTimeouts} instead of having a single timeout for everything.
       properties.setProperty(PROPERTY_SESSION_INTERVAL, Integer.toString(300));
       properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_TIMEOUT_TASK_COMPLETED, Long.toString(1200l * 1000l));
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_TASK_POLL_PERIOD, Long.toString(1000l));
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE, Integer.toString(1000));
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_CONCURRENCY, Integer.toString(8));
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_QUERY_PAGE_SIZE, Integer.toString(128));
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_UPLOAD_CHUNK_SIZE, Long.toString(64l * 1024l * 1024l));
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_UPLOAD_PARALLELISM, Integer.toString(4));
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_SESSION_REFRESH_MARGIN, Integer.toString(60));
 
       return properties;
    }
@@ -35,6 +35,33 @@ public final class VCloudDirectorConstants {
    /** The property used to configure the timeout for task completion. */
    public static final String PROPERTY_VCLOUD_DIRECTOR_TIMEOUT_TASK_COMPLETED = "jclouds.vcloud-director.timeout.task-complete";
 
+   /** The property used to configure how often, in milliseconds, the tracked tasks are refreshed. */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_TASK_POLL_PERIOD = "jclouds.vcloud-director.task.poll-period";
+
+   /** The property used to configure how many resources are kept by the entity cache. */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE = "jclouds.vcloud-director.entity-cache.size";
+
+   /** The property used to configure how many children of a resource are retrieved at the same time. */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_CONCURRENCY =
+         "jclouds.vcloud-director.entity-cache.concurrency";
+
+   /** The property used to configure how many records are retrieved per page when paging through queries. */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_QUERY_PAGE_SIZE = "jclouds.vcloud-director.query.page-size";
+
+   /** The property used to configure the size, in bytes, of the parts a file is uploaded in. */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_UPLOAD_CHUNK_SIZE = "jclouds.vcloud-director.upload.chunk-size";
+
+   /** The property used to configure how many parts of a file are uploaded at the same time. */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_UPLOAD_PARALLELISM =
+         "jclouds.vcloud-director.upload.parallelism";
+
+   /**
+    * The property used to configure how many seconds before the session interval is over the
+    * session is renewed.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_SESSION_REFRESH_MARGIN =
+         "jclouds.vcloud-director.session.refresh-margin";
+
    public static final String PROPERTY_VCLOUD_DIRECTOR_VERSION_SCHEMA = "jclouds.vcloud-director.version.schema";
 
    /** Name of the default org that your vApp will join, if an org isn't explicitly specified. */
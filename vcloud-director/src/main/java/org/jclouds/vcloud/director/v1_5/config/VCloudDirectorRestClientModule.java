@@ -80,7 +80,7 @@ import org.jclouds.vcloud.director.v1_5.features.admin.UserApi;
 import org.jclouds.vcloud.director.v1_5.features.admin.UserAsyncApi;
 import org.jclouds.vcloud.director.v1_5.handlers.InvalidateSessionAndRetryOn401AndLogoutOnClose;
 import org.jclouds.vcloud.director.v1_5.handlers.VCloudDirectorErrorHandler;
-import org.jclouds.vcloud.director.v1_5.loaders.LoginUserInOrgWithPassword;
+import org.jclouds.vcloud.director.v1_5.internal.SessionManager;
 import org.jclouds.vcloud.director.v1_5.loaders.ResolveEntity;
 import org.jclouds.vcloud.director.v1_5.login.SessionApi;
 import org.jclouds.vcloud.director.v1_5.login.SessionAsyncApi;
@@ -142,8 +142,10 @@ public class VCloudDirectorRestClientModule extends RestClientModule<VCloudDirec
       
       // Bind apis that are used directly in Functions, Predicates and other circumstances
       bindSyncToAsyncHttpApi(binder(), OrgApi.class, OrgAsyncApi.class);
+      bindSyncToAsyncHttpApi(binder(), QueryApi.class, QueryAsyncApi.class);
       bindSyncToAsyncHttpApi(binder(), SessionApi.class, SessionAsyncApi.class);
       bindSyncToAsyncHttpApi(binder(), TaskApi.class, TaskAsyncApi.class);
+      bindSyncToAsyncHttpApi(binder(), UploadApi.class, UploadAsyncApi.class);
       bindSyncToAsyncHttpApi(binder(), VAppApi.class, VAppAsyncApi.class);
       bindSyncToAsyncHttpApi(binder(), VmApi.class, VmAsyncApi.class);
       
@@ -211,22 +213,13 @@ public class VCloudDirectorRestClientModule extends RestClientModule<VCloudDirec
 
    @Provides
    @Singleton
-   LoadingCache<Credentials, SessionWithToken> provideSessionWithTokenCache(LoginUserInOrgWithPassword loader,
-         @Named(PROPERTY_SESSION_INTERVAL) int seconds) {
-      return CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS).build(loader);
+   LoadingCache<Credentials, SessionWithToken> provideSessionWithTokenCache(SessionManager sessionManager) {
+      return sessionManager.getSessions();
    }
    
-   // Temporary conversion of a cache to a supplier until there is a single-element cache
-   // http://code.google.com/p/guava-libraries/issues/detail?id=872
    @Provides
    @Singleton
-   protected Supplier<SessionWithToken> provideSessionWithTokenSupplier(
-         final LoadingCache<Credentials, SessionWithToken> cache, @Provider final Supplier<Credentials> creds) {
-      return new Supplier<SessionWithToken>() {
-         @Override
-         public SessionWithToken get() {
-            return cache.getUnchecked(creds.get());
-         }
-      };
+   protected Supplier<SessionWithToken> provideSessionWithTokenSupplier(SessionManager sessionManager) {
+      return sessionManager;
    }
 }
@@ -19,6 +19,7 @@ package org.jclouds.vcloud.director.v1_5.domain;
 import static com.google.common.base.Objects.equal;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.bind.annotation.XmlAttribute;
@@ -44,7 +45,9 @@ import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Objects.ToStringHelper;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
@@ -152,6 +155,8 @@ public abstract class AbstractVAppType extends ResourceEntity {
    private Set<SectionType> sections = Sets.newLinkedHashSet();
    @XmlAttribute
    private Boolean deployed;
+   // the first section assignable to each type, built on first lookup as the sections never change
+   private transient volatile Map<Class<?>, SectionType> sectionIndex;
 
    protected AbstractVAppType() {
       // for JAXB and Builders
@@ -199,6 +204,36 @@ public abstract class AbstractVAppType extends ResourceEntity {
       return sections != null ? ImmutableSet.copyOf(sections) : ImmutableSet.<SectionType>of();
    }
 
+   /**
+    * Gets the first section of the given type, in the order of {@link #getSections()}.
+    *
+    * @return the section, or {@code null} if there is no section of that type
+    */
+   public <S extends SectionType> S getSection(Class<S> sectionType) {
+      Map<Class<?>, SectionType> index = sectionIndex;
+      if (index == null) {
+         index = indexSections();
+         sectionIndex = index;
+      }
+      return sectionType.cast(index.get(sectionType));
+   }
+
+   private Map<Class<?>, SectionType> indexSections() {
+      if (sections == null)
+         return ImmutableMap.of();
+      Map<Class<?>, SectionType> index = Maps.newHashMap();
+      for (SectionType section : sections) {
+         // only subclasses of SectionType are looked up, so the superclasses are all there is to index
+         Class<?> type = section.getClass();
+         while (SectionType.class.isAssignableFrom(type)) {
+            if (!index.containsKey(type))
+               index.put(type, section);
+            type = type.getSuperclass();
+         }
+      }
+      return ImmutableMap.copyOf(index);
+   }
+
    /**
     * Gets the value of the deployed property.
     */
@@ -59,6 +59,9 @@ public interface QueryApi {
    /** @see #queryAll() */
    QueryResultRecords query(String type, String filter);
 
+   /** @see #queryAll() */
+   QueryResultRecords query(Integer page, Integer pageSize, String format, String type);
+
    /** @see #queryAll() */
    QueryResultRecords query(Integer page, Integer pageSize, String format, String type, String filter);
 
@@ -125,6 +128,9 @@ public interface QueryApi {
    /** @see #queryAll() */
    QueryResultRecords vAppsQuery(String filter);
 
+   /** @see #queryAll() */
+   QueryResultRecords vAppsQuery(Integer page, Integer pageSize);
+
    /** @see #queryAll() */
    QueryResultRecords vAppsQuery(Integer page, Integer pageSize, String filter);
 
@@ -160,6 +166,12 @@ public interface QueryApi {
    /** @see #queryAll() */
    QueryResultRecords vmsQuery(String filter);
 
+   /** @see #queryAll() */
+   QueryResultRecords vmsQuery(Integer page, Integer pageSize);
+
+   /** @see #queryAll() */
+   QueryResultRecords vmsQuery(Integer page, Integer pageSize, String filter);
+
    /**
     * Retrieves a list of {@link Media}s by using REST API general QueryHandler.
     *
@@ -173,5 +185,11 @@ public interface QueryApi {
 
    /** @see #queryAll() */
    QueryResultRecords mediaListQuery(String filter);
+
+   /** @see #queryAll() */
+   QueryResultRecords mediaListQuery(Integer page, Integer pageSize);
+
+   /** @see #queryAll() */
+   QueryResultRecords mediaListQuery(Integer page, Integer pageSize, String filter);
    
 }
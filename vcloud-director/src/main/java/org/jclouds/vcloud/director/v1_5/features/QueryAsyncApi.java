@@ -59,6 +59,13 @@ public interface QueryAsyncApi {
    @JAXBResponseParser
    ListenableFuture<QueryResultRecords> query(@QueryParam("type") String type, @QueryParam("filter") String filter);
 
+   @GET
+   @Path("/query")
+   @Consumes
+   @JAXBResponseParser
+   ListenableFuture<QueryResultRecords> query(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize,
+         @QueryParam("format") String format, @QueryParam("type") String type);
+
    @GET
    @Path("/query")
    @Consumes
@@ -137,6 +144,12 @@ public interface QueryAsyncApi {
    @JAXBResponseParser
    ListenableFuture<QueryResultRecords> vAppsQuery(@QueryParam("filter") String filter);
 
+   @GET
+   @Path("/vApps/query")
+   @Consumes
+   @JAXBResponseParser
+   ListenableFuture<QueryResultRecords> vAppsQuery(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize);
+
    @GET
    @Path("/vApps/query")
    @Consumes
@@ -177,6 +190,19 @@ public interface QueryAsyncApi {
    @Consumes
    @JAXBResponseParser
    ListenableFuture<QueryResultRecords> vmsQuery(@QueryParam("filter") String filter);
+
+   @GET
+   @Path("/vms/query")
+   @Consumes
+   @JAXBResponseParser
+   ListenableFuture<QueryResultRecords> vmsQuery(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize);
+
+   @GET
+   @Path("/vms/query")
+   @Consumes
+   @JAXBResponseParser
+   ListenableFuture<QueryResultRecords> vmsQuery(@QueryParam("page") Integer page, @QueryParam("pageSize") Integer pageSize,
+         @QueryParam("filter") String filter);
    
    @GET
    @Path("/mediaList/query")
@@ -189,4 +215,18 @@ public interface QueryAsyncApi {
    @Consumes
    @JAXBResponseParser
    ListenableFuture<QueryResultRecords> mediaListQuery(@QueryParam("filter") String filter);
+
+   @GET
+   @Path("/mediaList/query")
+   @Consumes
+   @JAXBResponseParser
+   ListenableFuture<QueryResultRecords> mediaListQuery(@QueryParam("page") Integer page,
+         @QueryParam("pageSize") Integer pageSize);
+
+   @GET
+   @Path("/mediaList/query")
+   @Consumes
+   @JAXBResponseParser
+   ListenableFuture<QueryResultRecords> mediaListQuery(@QueryParam("page") Integer page,
+         @QueryParam("pageSize") Integer pageSize, @QueryParam("filter") String filter);
 }
@@ -30,5 +30,13 @@ public interface UploadApi {
     * @return eTag
     */
    void upload(URI location, Payload payload);
+
+   /**
+    * Uploads a part of a file.
+    * 
+    * @param contentRange
+    *           the bytes of the file in the payload, as {@code bytes first-last/size}
+    */
+   void uploadRange(URI location, String contentRange, Payload payload);
    
 }
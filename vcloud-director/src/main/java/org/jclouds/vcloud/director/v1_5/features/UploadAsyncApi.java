@@ -18,6 +18,7 @@ package org.jclouds.vcloud.director.v1_5.features;
 
 import java.net.URI;
 
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PUT;
 
 import org.jclouds.io.Payload;
@@ -25,6 +26,7 @@ import org.jclouds.rest.annotations.EndpointParam;
 import org.jclouds.rest.annotations.RequestFilters;
 import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
 
+import com.google.common.net.HttpHeaders;
 import com.google.common.util.concurrent.ListenableFuture;
 
 /**
@@ -38,4 +40,11 @@ public interface UploadAsyncApi {
     */
    @PUT
    ListenableFuture<Void> upload(@EndpointParam URI location, Payload payload);
+
+   /**
+    * @see UploadApi#uploadRange
+    */
+   @PUT
+   ListenableFuture<Void> uploadRange(@EndpointParam URI location,
+         @HeaderParam(HttpHeaders.CONTENT_RANGE) String contentRange, Payload payload);
 }
@@ -23,20 +23,14 @@ import com.google.common.base.Function;
 
 public class SectionForVApp<S extends SectionType> implements Function<AbstractVAppType, S> {
    
-   private final Class<? extends SectionType> sectionType;
+   private final Class<S> sectionType;
 
    public SectionForVApp(Class<S> sectionType) {
       this.sectionType = sectionType;
    }
 
-   @SuppressWarnings("unchecked")
    @Override
    public S apply(AbstractVAppType from) {
-      for (SectionType section : from.getSections()) {
-         if (sectionType.isAssignableFrom(section.getClass())) {
-            return (S)section;
-         }
-      }
-      return null;
+      return from.getSection(sectionType);
    }
 }
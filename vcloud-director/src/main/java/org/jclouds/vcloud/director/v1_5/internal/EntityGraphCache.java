@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_CONCURRENCY;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.HttpClient;
+import org.jclouds.rest.ResourceNotFoundException;
+import org.jclouds.util.Strings2;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.vcloud.director.v1_5.domain.Reference;
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.domain.Vdc;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.vcloud.director.v1_5.predicates.ReferencePredicates;
+import org.jclouds.xml.XMLParser;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Resolves vCloud Director resources by href, keeping the last representation of each of them.
+ * <p/>
+ * Cached resources are revalidated with their {@code ETag}, so a resource that didn't change costs
+ * a {@code 304 Not Modified} instead of being transferred and parsed again. The children of a
+ * {@link Vdc} or a {@link VApp} are resolved concurrently, with a bounded number of requests in
+ * flight. The least recently used resources are evicted once the configured size is reached.
+ */
+@Singleton
+public class EntityGraphCache {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final HttpClient http;
+   private final XMLParser xmlParser;
+   private final AddVCloudAuthorizationAndCookieToRequest authentication;
+   private final ListeningExecutorService userExecutor;
+   private final int concurrency;
+   private final Cache<URI, CachedResource> resources;
+
+   @Inject
+   public EntityGraphCache(HttpClient http, XMLParser xmlParser,
+         AddVCloudAuthorizationAndCookieToRequest authentication,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_CONCURRENCY) int concurrency,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE) long size) {
+      this.http = checkNotNull(http, "http");
+      this.xmlParser = checkNotNull(xmlParser, "xmlParser");
+      this.authentication = checkNotNull(authentication, "authentication");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.concurrency = concurrency;
+      this.resources = CacheBuilder.newBuilder().maximumSize(size).build();
+   }
+
+   /**
+    * Retrieves a resource, revalidating the cached representation if there is one.
+    * 
+    * @return the resource, or null if it doesn't exist
+    */
+   public <T extends org.jclouds.vcloud.director.v1_5.domain.Resource> T get(URI href, String mediaType,
+         Class<T> type) {
+      checkNotNull(href, "href");
+      CachedResource cached = resources.getIfPresent(href);
+      HttpRequest.Builder<?> request = HttpRequest.builder().method("GET").endpoint(href)
+            .addHeader(HttpHeaders.ACCEPT, checkNotNull(mediaType, "mediaType"));
+      if (cached != null && cached.etag != null) {
+         request.addHeader(HttpHeaders.IF_NONE_MATCH, cached.etag);
+      }
+
+      HttpResponse response;
+      try {
+         response = http.invoke(authentication.filter(request.build()));
+      } catch (RuntimeException e) {
+         HttpResponseException failure = getFirstThrowableOfType(e, HttpResponseException.class);
+         if (cached != null && failure != null && failure.getResponse() != null
+               && failure.getResponse().getStatusCode() == 304) {
+            return type.cast(cached.resource);
+         }
+         if (getFirstThrowableOfType(e, ResourceNotFoundException.class) != null) {
+            resources.invalidate(href);
+            return null;
+         }
+         throw e;
+      }
+
+      if (cached != null && response.getStatusCode() == 304) {
+         logger.trace("<< %s not modified", href);
+         return type.cast(cached.resource);
+      }
+      try {
+         T resource = xmlParser.fromXML(Strings2.toStringAndClose(response.getPayload().openStream()), type);
+         resources.put(href, new CachedResource(response.getFirstHeaderOrNull(HttpHeaders.ETAG), resource));
+         return resource;
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      }
+   }
+
+   /**
+    * Retrieves the vApps of a vDC.
+    */
+   public List<VApp> getVApps(Vdc vdc) {
+      List<URI> vApps = FluentIterable.from(checkNotNull(vdc, "vdc").getResourceEntities())
+            .filter(ReferencePredicates.<Reference> typeEquals(VCloudDirectorMediaType.VAPP))
+            .transform(new Function<Reference, URI>() {
+               @Override
+               public URI apply(Reference input) {
+                  return input.getHref();
+               }
+            }).toList();
+      return getAll(vApps, VCloudDirectorMediaType.VAPP, VApp.class);
+   }
+
+   /**
+    * Retrieves the vms of all the vApps of a vDC.
+    */
+   public List<Vm> getVms(Vdc vdc) {
+      ImmutableList.Builder<Vm> vms = ImmutableList.builder();
+      for (VApp vApp : getVApps(vdc)) {
+         if (vApp.getChildren() != null) {
+            vms.addAll(vApp.getChildren().getVms());
+         }
+      }
+      return vms.build();
+   }
+
+   /**
+    * Retrieves the current state of the vms of a vApp.
+    */
+   public List<Vm> getVms(VApp vApp) {
+      if (checkNotNull(vApp, "vApp").getChildren() == null) {
+         return ImmutableList.of();
+      }
+      List<URI> vms = Lists.transform(vApp.getChildren().getVms(), new Function<Vm, URI>() {
+         @Override
+         public URI apply(Vm input) {
+            return input.getHref();
+         }
+      });
+      return getAll(vms, VCloudDirectorMediaType.VM, Vm.class);
+   }
+
+   /**
+    * Forgets a resource, e.g. after it was deleted.
+    */
+   public void invalidate(URI href) {
+      resources.invalidate(href);
+   }
+
+   private <T extends org.jclouds.vcloud.director.v1_5.domain.Resource> List<T> getAll(final List<URI> hrefs,
+         final String mediaType, final Class<T> type) {
+      final Object[] resolved = new Object[hrefs.size()];
+      final AtomicInteger next = new AtomicInteger();
+      List<ListenableFuture<?>> workers = Lists.newArrayList();
+      for (int i = 0; i < Math.min(concurrency, hrefs.size()); i++) {
+         workers.add(userExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+               for (int index = next.getAndIncrement(); index < hrefs.size(); index = next.getAndIncrement()) {
+                  resolved[index] = get(hrefs.get(index), mediaType, type);
+               }
+            }
+         }));
+      }
+      getUnchecked(allAsList(workers));
+      return FluentIterable.from(Arrays.asList(resolved)).filter(Predicates.notNull()).filter(type).toList();
+   }
+
+   private static class CachedResource {
+      private final String etag;
+      private final Object resource;
+
+      private CachedResource(String etag, Object resource) {
+         this.etag = etag;
+         this.resource = resource;
+      }
+   }
+}
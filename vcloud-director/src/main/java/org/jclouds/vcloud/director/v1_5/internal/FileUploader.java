@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.find;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_UPLOAD_CHUNK_SIZE;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_UPLOAD_PARALLELISM;
+import static org.jclouds.vcloud.director.v1_5.predicates.LinkPredicates.relEquals;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+import org.jclouds.vcloud.director.v1_5.domain.File;
+import org.jclouds.vcloud.director.v1_5.domain.Link;
+import org.jclouds.vcloud.director.v1_5.features.UploadApi;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Uploads the contents of the {@link File}s of a vApp template or a media, in parts.
+ * <p/>
+ * The file is split into ranges that are uploaded concurrently, each with its own
+ * {@code Content-Range} and streamed from disk, and a failed part is retried on its own. When a
+ * part fails for good, the other parts are cancelled. An upload starts after the bytes that are
+ * known to be on the server already, so an interrupted upload is resumed by uploading the file
+ * again.
+ * <p/>
+ * The {@link File#getBytesTransferred() bytes transferred} reported by vCloud Director count all
+ * the bytes received, in any order. A part is never started more than {@code parallelism} parts
+ * after the first missing one, so all but the last {@code parallelism} parts counted are known to
+ * form a contiguous prefix of the file, and the upload resumes after them. The parts this uploader
+ * has confirmed itself are used instead when it knows about the upload.
+ */
+@Singleton
+public class FileUploader {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   static final int MAX_ATTEMPTS = 3;
+
+   private final UploadApi uploadApi;
+   private final ListeningExecutorService userExecutor;
+   private final long chunkSize;
+   private final int parallelism;
+   // the contiguous bytes confirmed by the server, from the start of the file, by upload location
+   private final ConcurrentMap<URI, Long> confirmed = Maps.newConcurrentMap();
+
+   @Inject
+   public FileUploader(UploadApi uploadApi,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_UPLOAD_CHUNK_SIZE) long chunkSize,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_UPLOAD_PARALLELISM) int parallelism) {
+      this.uploadApi = checkNotNull(uploadApi, "uploadApi");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      checkArgument(chunkSize > 0, "chunkSize must be positive");
+      this.chunkSize = chunkSize;
+      this.parallelism = parallelism;
+   }
+
+   /**
+    * Uploads the contents of a file, from where the server stands.
+    * 
+    * @param file
+    *           the file as last retrieved from vCloud Director, with its upload link
+    * @param source
+    *           the local contents of the file
+    */
+   public void upload(File file, java.io.File source) throws IOException {
+      final URI location = find(checkNotNull(file, "file").getLinks(), relEquals(Link.Rel.UPLOAD_DEFAULT)).getHref();
+      final java.io.File contents = checkNotNull(source, "source");
+      final long size = contents.length();
+      final long offset = resumeOffset(location, file, size);
+      if (offset >= size) {
+         logger.debug("<< %s already uploaded", file.getName());
+         return;
+      }
+
+      final int parts = (int) ((size - offset + chunkSize - 1) / chunkSize);
+      final int window = Math.max(parallelism, 1);
+      final BitSet done = new BitSet(parts);
+      final AtomicInteger next = new AtomicInteger();
+      final AtomicBoolean failed = new AtomicBoolean();
+      final AtomicLong uploaded = new AtomicLong(offset);
+      logger.debug(">> uploading %s from byte %d of %d in %d parts", file.getName(), offset, size, parts);
+
+      List<ListenableFuture<Void>> workers = Lists.newArrayList();
+      for (int i = 0; i < Math.min(parallelism, parts); i++) {
+         workers.add(userExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException, InterruptedException {
+               try {
+                  while (true) {
+                     int part;
+                     synchronized (done) {
+                        part = next.getAndIncrement();
+                        // never more than window parts after the first missing one, see resumeOffset
+                        while (part < parts && !failed.get() && part >= done.nextClearBit(0) + window) {
+                           done.wait();
+                        }
+                     }
+                     if (part >= parts || failed.get()) {
+                        return null;
+                     }
+                     long first = offset + part * chunkSize;
+                     long last = Math.min(first + chunkSize, size) - 1;
+                     uploadPart(location, contents, first, last, size);
+                     synchronized (done) {
+                        done.set(part);
+                        confirmed.put(location, Math.min(offset + done.nextClearBit(0) * chunkSize, size));
+                        done.notifyAll();
+                     }
+                     logger.trace("<< uploaded %d of %d bytes to %s", uploaded.addAndGet(last - first + 1), size,
+                           location);
+                  }
+               } catch (RuntimeException e) {
+                  stop();
+                  throw e;
+               } catch (IOException e) {
+                  stop();
+                  throw e;
+               }
+            }
+
+            private void stop() {
+               synchronized (done) {
+                  failed.set(true);
+                  done.notifyAll();
+               }
+            }
+         }));
+      }
+      try {
+         allAsList(workers).get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (ExecutionException e) {
+         Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+         throw Throwables.propagate(e.getCause());
+      } finally {
+         // stops the other parts when one of them failed
+         for (ListenableFuture<Void> worker : workers) {
+            worker.cancel(true);
+         }
+      }
+      confirmed.remove(location);
+      logger.debug("<< uploaded %s", file.getName());
+   }
+
+   private long resumeOffset(URI location, File file, long size) {
+      Long known = confirmed.get(location);
+      if (known != null) {
+         return known;
+      }
+      Long transferred = file.getBytesTransferred();
+      if (transferred == null || transferred <= 0 || transferred > size) {
+         return 0;
+      }
+      // only whole parts are trusted, since a part may have been cut short, and the count may
+      // include up to parallelism - 1 parts after a missing one
+      long parts = transferred / chunkSize - (Math.max(parallelism, 1) - 1);
+      return Math.max(parts, 0) * chunkSize;
+   }
+
+   private void uploadPart(URI location, java.io.File contents, long first, long last, long size)
+         throws IOException {
+      String contentRange = String.format("bytes %d-%d/%d", first, last, size);
+      for (int attempt = 1;; attempt++) {
+         FileInputStream in = new FileInputStream(contents);
+         try {
+            in.getChannel().position(first);
+            InputStream part = ByteStreams.limit(in, last - first + 1);
+            Payload payload = Payloads.newInputStreamPayload(part);
+            payload.getContentMetadata().setContentLength(last - first + 1);
+            payload.getContentMetadata().setContentType("application/octet-stream");
+            uploadApi.uploadRange(location, contentRange, payload);
+            return;
+         } catch (RuntimeException e) {
+            if (attempt >= MAX_ATTEMPTS) {
+               throw e;
+            }
+            logger.warn(e, "<< could not upload %s to %s, retrying", contentRange, location);
+         } finally {
+            Closeables2.closeQuietly(in);
+         }
+      }
+   }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_QUERY_PAGE_SIZE;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultMediaRecord;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecordType;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecords;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVAppRecord;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVMRecord;
+import org.jclouds.vcloud.director.v1_5.features.QueryApi;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.FluentIterable;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Iterates over all the records of a query, one page at a time.
+ * <p/>
+ * Only the current page is kept in memory, while the next one is retrieved in the background, so
+ * scanning a large inventory runs with constant memory and doesn't wait for every page. Use
+ * {@link PagedIterable#concat()} to iterate over the records themselves. Without a filter, the
+ * query is sent without the {@code filter} parameter.
+ */
+@Singleton
+public class QueryPages {
+
+   private final QueryApi queryApi;
+   private final ListeningExecutorService userExecutor;
+   private final int pageSize;
+
+   @Inject
+   public QueryPages(QueryApi queryApi, @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_QUERY_PAGE_SIZE) int pageSize) {
+      this.queryApi = checkNotNull(queryApi, "queryApi");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.pageSize = pageSize;
+   }
+
+   /**
+    * Pages through {@code GET /vms/query}.
+    */
+   public PagedIterable<QueryResultVMRecord> vms(@Nullable final String filter) {
+      return pages(new PageLoader() {
+         @Override
+         public QueryResultRecords load(int page) {
+            return filter == null ? queryApi.vmsQuery(page, pageSize) : queryApi.vmsQuery(page, pageSize, filter);
+         }
+      }, QueryResultVMRecord.class);
+   }
+
+   /**
+    * Pages through {@code GET /vApps/query}.
+    */
+   public PagedIterable<QueryResultVAppRecord> vApps(@Nullable final String filter) {
+      return pages(new PageLoader() {
+         @Override
+         public QueryResultRecords load(int page) {
+            return filter == null ? queryApi.vAppsQuery(page, pageSize) : queryApi.vAppsQuery(page, pageSize, filter);
+         }
+      }, QueryResultVAppRecord.class);
+   }
+
+   /**
+    * Pages through {@code GET /mediaList/query}.
+    */
+   public PagedIterable<QueryResultMediaRecord> media(@Nullable final String filter) {
+      return pages(new PageLoader() {
+         @Override
+         public QueryResultRecords load(int page) {
+            return filter == null ? queryApi.mediaListQuery(page, pageSize)
+                  : queryApi.mediaListQuery(page, pageSize, filter);
+         }
+      }, QueryResultMediaRecord.class);
+   }
+
+   /**
+    * Pages through {@code GET /query} for any type of record, including the admin ones, e.g.
+    * {@code adminVdc} with {@link org.jclouds.vcloud.director.v1_5.domain.query.QueryResultAdminVdcRecord}.
+    */
+   public <T extends QueryResultRecordType> PagedIterable<T> records(final String type, @Nullable final String filter,
+         Class<T> recordType) {
+      checkNotNull(type, "type");
+      return pages(new PageLoader() {
+         @Override
+         public QueryResultRecords load(int page) {
+            return filter == null ? queryApi.query(page, pageSize, "records", type)
+                  : queryApi.query(page, pageSize, "records", type, filter);
+         }
+      }, recordType);
+   }
+
+   private <T extends QueryResultRecordType> PagedIterable<T> pages(final PageLoader loader,
+         final Class<T> recordType) {
+      return new PagedIterable<T>() {
+         @Override
+         public Iterator<IterableWithMarker<T>> iterator() {
+            return new PrefetchingPages<T>(loader, recordType);
+         }
+      };
+   }
+
+   private interface PageLoader {
+      QueryResultRecords load(int page);
+   }
+
+   private class PrefetchingPages<T extends QueryResultRecordType> extends AbstractIterator<IterableWithMarker<T>> {
+      private final PageLoader loader;
+      private final Class<T> recordType;
+      // pages are numbered from 1
+      private int page = 1;
+      private ListenableFuture<QueryResultRecords> next;
+      private boolean started;
+
+      private PrefetchingPages(PageLoader loader, Class<T> recordType) {
+         this.loader = loader;
+         this.recordType = recordType;
+      }
+
+      @Override
+      protected IterableWithMarker<T> computeNext() {
+         if (!started) {
+            started = true;
+            next = fetch(page);
+         }
+         if (next == null) {
+            return endOfData();
+         }
+         QueryResultRecords current = getUnchecked(next);
+         int records = current.getRecords().size();
+         Long total = current.getTotal();
+         // the server caps the page size, so a page may hold fewer records than requested
+         int served = current.getPageSize() != null ? current.getPageSize() : pageSize;
+         boolean more = records > 0 && (total != null ? (long) page * served < total : records >= served);
+         page++;
+         next = more ? fetch(page) : null;
+         return IterableWithMarkers.from(FluentIterable.from(current.getRecords()).filter(recordType).toList(),
+               more ? Integer.toString(page) : null);
+      }
+
+      private ListenableFuture<QueryResultRecords> fetch(final int pageNumber) {
+         return userExecutor.submit(new Callable<QueryResultRecords>() {
+            @Override
+            public QueryResultRecords call() {
+               return loader.load(pageNumber);
+            }
+         });
+      }
+   }
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_SESSION_REFRESH_MARGIN;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.domain.Credentials;
+import org.jclouds.location.Provider;
+import org.jclouds.logging.Logger;
+import org.jclouds.vcloud.director.v1_5.domain.SessionWithToken;
+import org.jclouds.vcloud.director.v1_5.loaders.LoginUserInOrgWithPassword;
+import org.jclouds.vcloud.director.v1_5.login.SessionApi;
+
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Keeps the vCloud Director session alive, renewing its token in the background before it expires.
+ * <p/>
+ * Sessions are held in a cache that logs in once for all the concurrent callers that find it
+ * empty. While there is a session, a periodic job logs in again {@code refreshMargin} seconds
+ * before the session interval is over, and callers keep getting the current token until the new
+ * one is in, so a rollover doesn't hold or fail any request. A replaced session is logged out on
+ * the following refresh, once the requests that were sent with its token are long done.
+ */
+@Singleton
+public class SessionManager implements Supplier<SessionWithToken> {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final SessionApi sessionApi;
+   private final Supplier<Credentials> creds;
+   private final ScheduledExecutorService scheduler;
+   private final long refreshDelay;
+   private final LoadingCache<Credentials, SessionWithToken> sessions;
+
+   private final AtomicLong logins = new AtomicLong();
+   private final AtomicLong refreshes = new AtomicLong();
+   private final AtomicLong lastLogin = new AtomicLong();
+   // the session replaced by the last refresh, logged out by the next one
+   private final AtomicReference<SessionWithToken> retired = new AtomicReference<SessionWithToken>();
+
+   private final Object jobLock = new Object();
+   private volatile ScheduledFuture<?> job;
+
+   @Inject
+   public SessionManager(final LoginUserInOrgWithPassword login, SessionApi sessionApi,
+         @Provider Supplier<Credentials> creds, @Named(PROPERTY_SCHEDULER_THREADS) ScheduledExecutorService scheduler,
+         @Named(PROPERTY_SESSION_INTERVAL) int sessionInterval,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_SESSION_REFRESH_MARGIN) int refreshMargin) {
+      checkNotNull(login, "login");
+      this.sessionApi = checkNotNull(sessionApi, "sessionApi");
+      this.creds = checkNotNull(creds, "creds");
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      // never refresh sooner than halfway through the session
+      this.refreshDelay = Math.max(sessionInterval - refreshMargin, Math.max(sessionInterval / 2, 1));
+      this.sessions = CacheBuilder.newBuilder().expireAfterWrite(sessionInterval, TimeUnit.SECONDS)
+            .build(new CacheLoader<Credentials, SessionWithToken>() {
+               @Override
+               public SessionWithToken load(Credentials key) {
+                  SessionWithToken session = login.load(key);
+                  logins.incrementAndGet();
+                  lastLogin.set(System.nanoTime());
+                  return session;
+               }
+
+               @Override
+               public ListenableFuture<SessionWithToken> reload(Credentials key, SessionWithToken oldValue) {
+                  SessionWithToken session = load(key);
+                  refreshes.incrementAndGet();
+                  logout(retired.getAndSet(oldValue));
+                  return Futures.immediateFuture(session);
+               }
+            });
+   }
+
+   /**
+    * Gets the current session, logging in if there is none.
+    */
+   @Override
+   public SessionWithToken get() {
+      SessionWithToken session = sessions.getUnchecked(creds.get());
+      startIfNeeded();
+      return session;
+   }
+
+   /**
+    * The sessions by the credentials they were opened with. Invalidating them forces the next
+    * caller to log in again.
+    */
+   public LoadingCache<Credentials, SessionWithToken> getSessions() {
+      return sessions;
+   }
+
+   /**
+    * How many times this manager has logged in, including the refreshes.
+    */
+   public long getLoginCount() {
+      return logins.get();
+   }
+
+   /**
+    * How many times a session was replaced before it expired.
+    */
+   public long getRefreshCount() {
+      return refreshes.get();
+   }
+
+   /**
+    * How long ago the last login happened, or {@code -1} if there was none yet.
+    */
+   public long getSessionAge(TimeUnit unit) {
+      long last = lastLogin.get();
+      return logins.get() == 0 ? -1 : unit.convert(System.nanoTime() - last, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Renews all the open sessions once.
+    */
+   void refresh() {
+      if (sessions.asMap().isEmpty()) {
+         stopIfIdle();
+         return;
+      }
+      for (Credentials key : sessions.asMap().keySet()) {
+         logger.debug(">> refreshing session of %s", key.identity);
+         // failures are logged by the cache, which keeps the current session meanwhile
+         sessions.refresh(key);
+      }
+   }
+
+   /**
+    * Stops refreshing and logs out the session replaced last, the current ones being logged out
+    * with the rest client.
+    */
+   @PreDestroy
+   public void close() {
+      synchronized (jobLock) {
+         if (job != null) {
+            job.cancel(false);
+            job = null;
+         }
+      }
+      logout(retired.getAndSet(null));
+   }
+
+   private void logout(SessionWithToken session) {
+      if (session == null)
+         return;
+      try {
+         sessionApi.logoutSessionWithToken(session.getSession().getHref(), session.getToken());
+      } catch (RuntimeException e) {
+         logger.warn(e, "error logging out session %s", session.getSession());
+      }
+   }
+
+   private void startIfNeeded() {
+      if (job != null)
+         return;
+      synchronized (jobLock) {
+         if (job == null) {
+            job = scheduler.scheduleWithFixedDelay(new Runnable() {
+               @Override
+               public void run() {
+                  refresh();
+               }
+            }, refreshDelay, refreshDelay, TimeUnit.SECONDS);
+         }
+      }
+   }
+
+   private void stopIfIdle() {
+      synchronized (jobLock) {
+         if (job != null && sessions.asMap().isEmpty()) {
+            job.cancel(false);
+            job = null;
+         }
+      }
+   }
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterables.tryFind;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_TASK_POLL_PERIOD;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_TIMEOUT_TASK_COMPLETED;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.logging.Logger;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.vcloud.director.v1_5.domain.Link;
+import org.jclouds.vcloud.director.v1_5.domain.Reference;
+import org.jclouds.vcloud.director.v1_5.domain.Task;
+import org.jclouds.vcloud.director.v1_5.domain.TasksList;
+import org.jclouds.vcloud.director.v1_5.domain.org.Org;
+import org.jclouds.vcloud.director.v1_5.features.OrgApi;
+import org.jclouds.vcloud.director.v1_5.features.TaskApi;
+import org.jclouds.vcloud.director.v1_5.predicates.LinkPredicates;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Tracks running {@link Task}s until they finish, refreshing all of them in a single periodic job.
+ * <p/>
+ * On every tick the tracked tasks are grouped by the organization that started them, and each
+ * group is refreshed with one request to the {@link TasksList} of the organization. Only the tasks
+ * that can't be found that way are retrieved one by one. The job only runs while there are tasks
+ * being tracked.
+ * <p/>
+ * Tasks that haven't finished within the task completion timeout stop being tracked, as do tasks
+ * whose future has been cancelled.
+ */
+@Singleton
+public class TaskTracker {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private static final Set<Task.Status> DONE = Sets.immutableEnumSet(Task.Status.SUCCESS, Task.Status.ERROR,
+         Task.Status.CANCELED, Task.Status.ABORTED);
+
+   /** How long finished tasks are remembered, so late callers don't retrieve them again. */
+   private static final long COMPLETED_EXPIRATION_MINUTES = 5;
+
+   private final TaskApi taskApi;
+   private final OrgApi orgApi;
+   private final ScheduledExecutorService scheduler;
+   private final long period;
+   private final long timeout;
+   private final Ticker ticker;
+
+   private final ConcurrentMap<URI, TrackedTask> tracked = Maps.newConcurrentMap();
+   private final Cache<URI, Task> completed = CacheBuilder.newBuilder()
+         .expireAfterWrite(COMPLETED_EXPIRATION_MINUTES, TimeUnit.MINUTES).build();
+   // the tasks list of each organization, absent if it has none
+   private final ConcurrentMap<URI, Optional<URI>> tasksLists = Maps.newConcurrentMap();
+
+   private final Object jobLock = new Object();
+   private ScheduledFuture<?> job;
+
+   @Inject
+   public TaskTracker(TaskApi taskApi, OrgApi orgApi,
+         @Named(PROPERTY_SCHEDULER_THREADS) ScheduledExecutorService scheduler,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_TASK_POLL_PERIOD) long period,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_TIMEOUT_TASK_COMPLETED) long timeout) {
+      this(taskApi, orgApi, scheduler, period, timeout, Ticker.systemTicker());
+   }
+
+   TaskTracker(TaskApi taskApi, OrgApi orgApi, ScheduledExecutorService scheduler, long period, long timeout,
+         Ticker ticker) {
+      this.taskApi = checkNotNull(taskApi, "taskApi");
+      this.orgApi = checkNotNull(orgApi, "orgApi");
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      this.period = period;
+      this.timeout = timeout;
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   /**
+    * Starts tracking a task.
+    * 
+    * @return a future completed with the task once it has finished, whatever its final status is.
+    *         Tasks that have already finished complete right away, and tracking a task that is
+    *         already tracked returns the same future. If the task doesn't finish within the task
+    *         completion timeout the future fails with a {@link TimeoutException}. Cancelling the
+    *         future stops tracking the task.
+    */
+   public ListenableFuture<Task> track(Task task) {
+      URI href = checkNotNull(checkNotNull(task, "task").getHref(), "task href");
+      if (isDone(task)) {
+         return Futures.immediateFuture(task);
+      }
+      Task finished = completed.getIfPresent(href);
+      if (finished != null) {
+         return Futures.immediateFuture(finished);
+      }
+      TrackedTask trackedTask = new TrackedTask(task, ticker.read() + TimeUnit.MILLISECONDS.toNanos(timeout));
+      TrackedTask existing = tracked.putIfAbsent(href, trackedTask);
+      if (existing != null) {
+         return existing.future;
+      }
+      logger.trace(">> tracking task %s", href);
+      startIfNeeded();
+      return trackedTask.future;
+   }
+
+   /**
+    * Refreshes all the tracked tasks once.
+    */
+   void refresh() {
+      try {
+         Multimap<URI, TrackedTask> byTasksList = ArrayListMultimap.create();
+         List<TrackedTask> oneByOne = Lists.newArrayList();
+         long now = ticker.read();
+         for (TrackedTask trackedTask : tracked.values()) {
+            if (expireOrCancel(trackedTask, now)) {
+               continue;
+            }
+            URI tasksList = trackedTask.listed ? tasksListOf(trackedTask.task) : null;
+            if (tasksList != null) {
+               byTasksList.put(tasksList, trackedTask);
+            } else {
+               oneByOne.add(trackedTask);
+            }
+         }
+
+         for (Map.Entry<URI, Collection<TrackedTask>> group : byTasksList.asMap().entrySet()) {
+            Map<URI, Task> listed = listTasks(group.getKey());
+            if (listed == null) {
+               // the tasks list couldn't be retrieved, so try again on the next tick
+               continue;
+            }
+            for (TrackedTask trackedTask : group.getValue()) {
+               Task task = listed.get(trackedTask.task.getHref());
+               if (task != null) {
+                  completeIfDone(trackedTask, task);
+               } else {
+                  // not listed by its organization, so don't look for it there again
+                  trackedTask.listed = false;
+                  oneByOne.add(trackedTask);
+               }
+            }
+         }
+
+         for (TrackedTask trackedTask : oneByOne) {
+            try {
+               Task task = taskApi.get(trackedTask.task.getHref());
+               // perhaps task isn't available, yet
+               if (task != null) {
+                  completeIfDone(trackedTask, task);
+               }
+            } catch (RuntimeException e) {
+               logger.warn(e, "<< could not retrieve task %s", trackedTask.task.getHref());
+            }
+         }
+      } finally {
+         stopIfIdle();
+      }
+   }
+
+   /**
+    * Returns the tasks in the given tasks list by href, or null if the list can't be retrieved.
+    */
+   private Map<URI, Task> listTasks(URI tasksListHref) {
+      Map<URI, Task> tasks = Maps.newHashMap();
+      try {
+         TasksList tasksList = taskApi.getTasksList(tasksListHref);
+         if (tasksList != null) {
+            for (Task task : tasksList) {
+               tasks.put(task.getHref(), task);
+            }
+         }
+      } catch (RuntimeException e) {
+         logger.warn(e, "<< could not list tasks at %s", tasksListHref);
+         return null;
+      }
+      return tasks;
+   }
+
+   private URI tasksListOf(Task task) {
+      Reference org = task.get();
+      if (org == null || org.getHref() == null) {
+         return null;
+      }
+      Optional<URI> tasksList = tasksLists.get(org.getHref());
+      if (tasksList == null) {
+         try {
+            Org found = orgApi.get(org.getHref());
+            Optional<Link> link = found == null ? Optional.<Link> absent() : tryFind(found.getLinks(),
+                  LinkPredicates.typeEquals(VCloudDirectorMediaType.TASKS_LIST));
+            tasksList = link.isPresent() ? Optional.of(link.get().getHref()) : Optional.<URI> absent();
+            tasksLists.putIfAbsent(org.getHref(), tasksList);
+         } catch (RuntimeException e) {
+            logger.warn(e, "<< could not find the tasks list of org %s", org.getHref());
+            return null;
+         }
+      }
+      return tasksList.orNull();
+   }
+
+   private boolean expireOrCancel(TrackedTask trackedTask, long now) {
+      URI href = trackedTask.task.getHref();
+      if (trackedTask.future.isCancelled()) {
+         logger.trace("<< stopped tracking cancelled task %s", href);
+      } else if (now - trackedTask.deadline >= 0) {
+         logger.warn("<< task %s did not finish within %dms", href, timeout);
+         trackedTask.future.setException(new TimeoutException(String.format("task %s did not finish within %dms",
+               href, timeout)));
+      } else {
+         return false;
+      }
+      tracked.remove(href, trackedTask);
+      return true;
+   }
+
+   private void completeIfDone(TrackedTask trackedTask, Task task) {
+      if (isDone(task)) {
+         URI href = trackedTask.task.getHref();
+         logger.trace("<< task %s finished with status %s", href, task.getStatus());
+         completed.put(href, task);
+         tracked.remove(href, trackedTask);
+         trackedTask.future.set(task);
+      }
+   }
+
+   private void startIfNeeded() {
+      synchronized (jobLock) {
+         if (job == null) {
+            job = scheduler.scheduleWithFixedDelay(new Runnable() {
+               @Override
+               public void run() {
+                  refresh();
+               }
+            }, period, period, TimeUnit.MILLISECONDS);
+         }
+      }
+   }
+
+   private void stopIfIdle() {
+      synchronized (jobLock) {
+         if (job != null && tracked.isEmpty()) {
+            job.cancel(false);
+            job = null;
+         }
+      }
+   }
+
+   private static boolean isDone(Task task) {
+      return DONE.contains(task.getStatus());
+   }
+
+   private static class TrackedTask {
+      private final Task task;
+      private final SettableFuture<Task> future = SettableFuture.create();
+      // when to stop tracking the task, as read from the ticker
+      private final long deadline;
+      // whether the task can be found in the tasks list of its organization
+      private volatile boolean listed = true;
+
+      private TrackedTask(Task task, long deadline) {
+         this.task = task;
+         this.deadline = deadline;
+      }
+   }
+}
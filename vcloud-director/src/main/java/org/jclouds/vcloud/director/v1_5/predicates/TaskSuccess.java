@@ -17,8 +17,10 @@
 package org.jclouds.vcloud.director.v1_5.predicates;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
 
 import java.util.EnumSet;
+import java.util.concurrent.Future;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -27,24 +29,27 @@ import javax.inject.Singleton;
 import org.jclouds.logging.Logger;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorException;
 import org.jclouds.vcloud.director.v1_5.domain.Task;
-import org.jclouds.vcloud.director.v1_5.features.TaskApi;
+import org.jclouds.vcloud.director.v1_5.internal.TaskTracker;
 
 import com.google.common.base.Predicate;
 
 /**
  * Test a {@link Task} to see if it has {@link Task.Status#SUCCESS succeeded}.
+ * <p/>
+ * The task is refreshed by the {@link TaskTracker}, together with all the other running tasks, so
+ * testing it doesn't call the API server.
  */
 @Singleton
 public class TaskSuccess implements Predicate<Task> {
 
-   private final TaskApi taskApi;
+   private final TaskTracker taskTracker;
 
    @Resource
    protected Logger logger = Logger.NULL;
 
    @Inject
-   public TaskSuccess(TaskApi taskApi) {
-      this.taskApi = taskApi;
+   public TaskSuccess(TaskTracker taskTracker) {
+      this.taskTracker = taskTracker;
    }
 
    /** @see Predicate#apply(Object) */
@@ -53,11 +58,9 @@ public class TaskSuccess implements Predicate<Task> {
       checkNotNull(task, "task");
       logger.trace("looking for status on task %s", task.getOperationName());
 
-      // TODO shouldn't we see if it's already done before getting it from API server?
-      task = taskApi.get(task.getHref());
-      
-      // perhaps task isn't available, yet
-      if (task == null) return false;
+      Future<Task> tracked = taskTracker.track(task);
+      if (!tracked.isDone()) return false;
+      task = getUnchecked(tracked);
 
       logger.trace("%s: looking for status %s: currently: %s", task.getOperationName(), Task.Status.SUCCESS, task.getStatus());
       if (EnumSet.of(Task.Status.ERROR, Task.Status.CANCELED, Task.Status.ABORTED).contains(task.getStatus())) {
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.functions;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.dmtf.ovf.SectionType;
+import org.jclouds.domain.Credentials;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Strings2;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.vcloud.director.v1_5.domain.Link;
+import org.jclouds.vcloud.director.v1_5.domain.ResourceEntity.Status;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.section.GuestCustomizationSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.NetworkConnectionSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.OperatingSystemSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
+import org.jclouds.vcloud.director.v1_5.functions.SectionForVApp;
+import org.jclouds.xml.internal.JAXBParser;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * Times {@link VmToNodeMetadata} over a large listNodes result, and checks that the section lookups
+ * it does for every vm are faster with the section index than scanning the sections, once the index
+ * is built.
+ */
+@Test(groups = "performance", singleThreaded = true, testName = "VmToNodeMetadataBenchmark")
+public class VmToNodeMetadataBenchmark {
+   // vms in the listing, and how many times it is converted; the fastest round is reported
+   private static final int LISTING_SIZE = 5000;
+   private static final int ROUNDS = 10;
+
+   private static final URI VDC = URI.create(
+         "https://vcloudbeta.bluelock.com/api/vdc/e9cd3387-ac57-4d27-a481-9bee75e0690f");
+
+   // the sections VmToNodeMetadata looks up for every vm
+   private static final List<Class<? extends SectionType>> SECTION_TYPES = ImmutableList.of(
+         OperatingSystemSection.class, VirtualHardwareSection.class, GuestCustomizationSection.class,
+         NetworkConnectionSection.class, VirtualHardwareSection.class);
+
+   private static final Function<Vm, Integer> SCAN = new Function<Vm, Integer>() {
+      @Override
+      public Integer apply(Vm vm) {
+         int found = 0;
+         for (Class<? extends SectionType> sectionType : SECTION_TYPES) {
+            for (SectionType section : vm.getSections()) {
+               if (sectionType.isAssignableFrom(section.getClass())) {
+                  found++;
+                  break;
+               }
+            }
+         }
+         return found;
+      }
+   };
+
+   private static final Function<Vm, Integer> INDEX = new Function<Vm, Integer>() {
+      @Override
+      public Integer apply(Vm vm) {
+         int found = 0;
+         for (Class<? extends SectionType> sectionType : SECTION_TYPES) {
+            if (vm.getSection(sectionType) != null)
+               found++;
+         }
+         return found;
+      }
+   };
+
+   public void testSectionIndexSpeedsUpListings() throws IOException {
+      Vm vm = vmInVdc();
+      assertEquals(INDEX.apply(vm), SCAN.apply(vm));
+
+      long nodes = fastestRound(vmToNodeMetadata(), vm, false);
+      long scan = fastestRound(SCAN, vm, true);
+      long index = fastestRound(INDEX, vm, true);
+
+      Logger.CONSOLE.info("listing %d vms: VmToNodeMetadata %dms, section lookups %dms scanning, %dms indexed",
+            LISTING_SIZE, nodes / 1000000, scan / 1000000, index / 1000000);
+      assertTrue(index < scan, String.format("indexed lookups took %dns, scanning took %dns", index, scan));
+   }
+
+   /**
+    * Applies the function to fresh copies of the vm, as if they had just been listed.
+    * 
+    * @param warmUp
+    *           whether the function is applied once to every copy before timing it, so the section
+    *           index of each copy is built outside of the timed section
+    */
+   private static long fastestRound(Function<Vm, ?> function, Vm vm, boolean warmUp) {
+      long fastest = Long.MAX_VALUE;
+      for (int round = 0; round < ROUNDS; round++) {
+         List<Vm> listing = copies(vm, LISTING_SIZE);
+         if (warmUp) {
+            for (Vm listed : listing) {
+               function.apply(listed);
+            }
+         }
+         long start = System.nanoTime();
+         for (Vm listed : listing) {
+            assertTrue(function.apply(listed) != null);
+         }
+         fastest = Math.min(fastest, System.nanoTime() - start);
+      }
+      return fastest;
+   }
+
+   private static List<Vm> copies(Vm vm, int size) {
+      ImmutableList.Builder<Vm> copies = ImmutableList.builder();
+      for (int i = 0; i < size; i++) {
+         copies.add(vm.toBuilder().build());
+      }
+      return copies.build();
+   }
+
+   private static Vm vmInVdc() throws IOException {
+      Vm vm = new JAXBParser("false").fromXML(
+            Strings2.toStringAndClose(VmToNodeMetadataBenchmark.class.getResourceAsStream("/vm/vm.xml")), Vm.class);
+      return vm.toBuilder()
+            .link(Link.builder().rel(Link.Rel.UP).type(VCloudDirectorMediaType.VDC).href(VDC).build())
+            .build();
+   }
+
+   private static VmToNodeMetadata vmToNodeMetadata() {
+      Location vdc = new LocationBuilder().scope(LocationScope.ZONE).id(VDC.toASCIIString()).description("vdc")
+            .build();
+      FindLocationForResource findLocation = new FindLocationForResource(
+            Suppliers.<Set<? extends Location>> ofInstance(ImmutableSet.of(vdc)));
+      Function<Vm, Hardware> hardwareForVm = new HardwareForVm(findLocation,
+            new VCloudHardwareBuilderFromResourceAllocations(),
+            new SectionForVApp<VirtualHardwareSection>(VirtualHardwareSection.class));
+
+      GroupNamingConvention naming = createNiceMock(GroupNamingConvention.class);
+      GroupNamingConvention.Factory namingConvention = createMock(GroupNamingConvention.Factory.class);
+      expect(namingConvention.createWithoutPrefix()).andReturn(naming);
+      replay(naming, namingConvention);
+
+      Map<Status, NodeMetadata.Status> statuses = Maps.newEnumMap(Status.class);
+      for (Status status : Status.values()) {
+         statuses.put(status, NodeMetadata.Status.RUNNING);
+      }
+      return new VmToNodeMetadata(statuses, Maps.<String, Credentials> newConcurrentMap(), findLocation,
+            hardwareForVm, namingConvention);
+   }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.jclouds.dmtf.ovf.DiskSection;
+import org.jclouds.dmtf.ovf.SectionType;
+import org.jclouds.util.Strings2;
+import org.jclouds.vcloud.director.v1_5.domain.section.GuestCustomizationSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.LeaseSettingsSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.NetworkConnectionSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.OperatingSystemSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.RuntimeInfoSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
+import org.jclouds.xml.internal.JAXBParser;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests behavior of {@code AbstractVAppType}
+ */
+@Test(groups = "unit", testName = "AbstractVAppTypeTest")
+public class AbstractVAppTypeTest {
+
+   private static final Iterable<Class<? extends SectionType>> SECTION_TYPES = ImmutableList.of(
+         VirtualHardwareSection.class, OperatingSystemSection.class,
+         org.jclouds.dmtf.ovf.OperatingSystemSection.class, NetworkConnectionSection.class,
+         GuestCustomizationSection.class, RuntimeInfoSection.class, SectionType.class, DiskSection.class,
+         LeaseSettingsSection.class);
+
+   private Vm vm;
+
+   @BeforeClass
+   public void parseVm() throws IOException {
+      vm = new JAXBParser("false").fromXML(Strings2.toStringAndClose(getClass().getResourceAsStream("/vm/vm.xml")),
+            Vm.class);
+   }
+
+   public void testGetSectionFindsTheFirstSectionOfEachType() {
+      for (Class<? extends SectionType> sectionType : SECTION_TYPES) {
+         assertSame(vm.getSection(sectionType), scan(vm, sectionType), sectionType.getName());
+      }
+   }
+
+   public void testGetSectionFindsSubclassesOfTheType() {
+      assertNotNull(vm.getSection(org.jclouds.dmtf.ovf.OperatingSystemSection.class));
+      assertSame(vm.getSection(org.jclouds.dmtf.ovf.OperatingSystemSection.class),
+            vm.getSection(OperatingSystemSection.class));
+   }
+
+   public void testGetSectionReturnsNullWithoutSections() {
+      Vm withoutSections = vm.toBuilder().sections(ImmutableSet.<SectionType> of()).build();
+      for (Class<? extends SectionType> sectionType : SECTION_TYPES) {
+         assertNull(withoutSections.getSection(sectionType), sectionType.getName());
+      }
+   }
+
+   private static SectionType scan(AbstractVAppType vApp, Class<? extends SectionType> sectionType) {
+      for (SectionType section : vApp.getSections()) {
+         if (sectionType.isAssignableFrom(section.getClass()))
+            return section;
+      }
+      return null;
+   }
+}
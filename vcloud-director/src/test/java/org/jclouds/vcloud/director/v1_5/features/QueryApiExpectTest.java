@@ -28,11 +28,13 @@ import org.jclouds.vcloud.director.v1_5.domain.Link;
 import org.jclouds.vcloud.director.v1_5.domain.query.CatalogReferences;
 import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultCatalogRecord;
 import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecords;
+import org.jclouds.vcloud.director.v1_5.internal.QueryPages;
 import org.jclouds.vcloud.director.v1_5.internal.VCloudDirectorAdminApiExpectTest;
 import org.jclouds.vcloud.director.v1_5.user.VCloudDirectorApi;
 import org.testng.annotations.Test;
 
 import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * Test the {@link QueryApi} by observing its side effects.
@@ -173,5 +175,52 @@ public class QueryApiExpectTest extends VCloudDirectorAdminApiExpectTest {
       
       assertEquals(api.getQueryApi().catalogReferencesQueryAll(), expected);
    }
+
+   @Test
+   public void testPagedVmsQueryWithoutFilter() {
+      VCloudDirectorApi api = requestsSendResponses(loginRequest, sessionResponse,
+            pagedQueryRequest("/vms/query?page=1&pageSize=25"), pagedQueryResponse());
+
+      QueryPages pages = new QueryPages(api.getQueryApi(), MoreExecutors.sameThreadExecutor(), 25);
+
+      assertEquals(pages.vms(null).size(), 1);
+   }
+
+   @Test
+   public void testPagedMediaQueryWithoutFilter() {
+      VCloudDirectorApi api = requestsSendResponses(loginRequest, sessionResponse,
+            pagedQueryRequest("/mediaList/query?page=1&pageSize=25"), pagedQueryResponse());
+
+      QueryPages pages = new QueryPages(api.getQueryApi(), MoreExecutors.sameThreadExecutor(), 25);
+
+      assertEquals(pages.media(null).size(), 1);
+   }
+
+   @Test
+   public void testPagedRecordsQueryWithoutFilter() {
+      VCloudDirectorApi api = requestsSendResponses(loginRequest, sessionResponse,
+            pagedQueryRequest("/query?page=1&pageSize=25&format=records&type=catalog"), pagedQueryResponse());
+
+      QueryPages pages = new QueryPages(api.getQueryApi(), MoreExecutors.sameThreadExecutor(), 25);
+
+      assertEquals(pages.records("catalog", null, QueryResultCatalogRecord.class).concat().size(), 3);
+   }
+
+   private HttpRequest pagedQueryRequest(String path) {
+      return HttpRequest.builder()
+              .method("GET")
+              .endpoint(endpoint + path)
+              .addHeader("Accept", "*/*")
+              .addHeader("x-vcloud-authorization", token)
+              .addHeader(HttpHeaders.COOKIE, "vcloud-token=" + token)
+              .build();
+   }
+
+   private HttpResponse pagedQueryResponse() {
+      return HttpResponse.builder()
+              .statusCode(200)
+              .payload(payloadFromResourceWithContentType("/query/allCatalogs.xml", VCloudDirectorMediaType.QUERY_RESULT_RECORDS + ";version=1.5"))
+              .build();
+   }
 }
 		
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.easymock.IAnswer;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.rest.HttpClient;
+import org.jclouds.rest.ResourceNotFoundException;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.vcloud.director.v1_5.domain.Reference;
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.domain.Vdc;
+import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.xml.XMLParser;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Tests behavior of {@code EntityGraphCache}
+ */
+@Test(groups = "unit", testName = "EntityGraphCacheTest")
+public class EntityGraphCacheTest {
+
+   private static final URI FIRST = URI.create("https://vcloud.example.com/api/vApp/vapp-1");
+   private static final URI SECOND = URI.create("https://vcloud.example.com/api/vApp/vapp-2");
+   private static final URI NETWORK = URI.create("https://vcloud.example.com/api/network/1");
+
+   public void testUnmodifiedResourceIsRevalidatedWithItsETag() throws IOException {
+      HttpClient http = createMock(HttpClient.class);
+      XMLParser xmlParser = createMock(XMLParser.class);
+      VApp vApp = vApp(FIRST);
+      expect(http.invoke(anyObject(HttpRequest.class))).andAnswer(respond(null, 200, "\"1\"")).once();
+      expect(xmlParser.fromXML("<VApp/>", VApp.class)).andReturn(vApp).once();
+      expect(http.invoke(anyObject(HttpRequest.class))).andAnswer(respond("\"1\"", 304, "\"1\"")).once();
+      replay(http, xmlParser);
+
+      EntityGraphCache cache = cache(http, xmlParser);
+
+      assertSame(cache.get(FIRST, VCloudDirectorMediaType.VAPP, VApp.class), vApp);
+      assertSame(cache.get(FIRST, VCloudDirectorMediaType.VAPP, VApp.class), vApp);
+      verify(http, xmlParser);
+   }
+
+   public void testMissingResourceIsNull() {
+      HttpClient http = createMock(HttpClient.class);
+      XMLParser xmlParser = createMock(XMLParser.class);
+      expect(http.invoke(anyObject(HttpRequest.class))).andThrow(new ResourceNotFoundException("gone")).once();
+      replay(http, xmlParser);
+
+      assertNull(cache(http, xmlParser).get(FIRST, VCloudDirectorMediaType.VAPP, VApp.class));
+      verify(http, xmlParser);
+   }
+
+   public void testGetVAppsOnlyRetrievesTheVAppsOfTheVdc() throws IOException {
+      HttpClient http = createMock(HttpClient.class);
+      XMLParser xmlParser = createMock(XMLParser.class);
+      VApp first = vApp(FIRST);
+      VApp second = vApp(SECOND);
+      expect(http.invoke(anyObject(HttpRequest.class))).andAnswer(respond(null, 200, null)).times(2);
+      expect(xmlParser.fromXML(eq("<VApp/>"), eq(VApp.class))).andReturn(first).andReturn(second);
+      replay(http, xmlParser);
+
+      Vdc vdc = Vdc.builder().name("vdc").href(URI.create("https://vcloud.example.com/api/vdc/1"))
+            .resourceEntity(reference(FIRST, VCloudDirectorMediaType.VAPP))
+            .resourceEntity(reference(NETWORK, VCloudDirectorMediaType.ORG_NETWORK))
+            .resourceEntity(reference(SECOND, VCloudDirectorMediaType.VAPP)).build();
+
+      assertEquals(cache(http, xmlParser).getVApps(vdc), ImmutableList.of(first, second));
+      verify(http, xmlParser);
+   }
+
+   private static EntityGraphCache cache(HttpClient http, XMLParser xmlParser) {
+      return new EntityGraphCache(http, xmlParser, new AddVCloudAuthorizationAndCookieToRequest(
+            Suppliers.ofInstance("token")), MoreExecutors.sameThreadExecutor(), 1, 10);
+   }
+
+   private static IAnswer<HttpResponse> respond(final String expectedETag, final int statusCode, final String eTag) {
+      return new IAnswer<HttpResponse>() {
+         @Override
+         public HttpResponse answer() {
+            HttpRequest request = (HttpRequest) getCurrentArguments()[0];
+            assertEquals(request.getFirstHeaderOrNull(HttpHeaders.IF_NONE_MATCH), expectedETag);
+            assertEquals(request.getFirstHeaderOrNull("x-vcloud-authorization"), "token");
+            HttpResponse.Builder<?> response = HttpResponse.builder().statusCode(statusCode);
+            if (eTag != null)
+               response.addHeader(HttpHeaders.ETAG, eTag);
+            if (statusCode == 200)
+               response.payload("<VApp/>");
+            return response.build();
+         }
+      };
+   }
+
+   private static VApp vApp(URI href) {
+      return VApp.builder().name(href.getPath()).href(href).build();
+   }
+
+   private static Reference reference(URI href, String type) {
+      return Reference.builder().href(href).type(type).build();
+   }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.IAnswer;
+import org.jclouds.io.Payload;
+import org.jclouds.vcloud.director.v1_5.domain.File;
+import org.jclouds.vcloud.director.v1_5.domain.Link;
+import org.jclouds.vcloud.director.v1_5.features.UploadApi;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Tests behavior of {@code FileUploader}
+ */
+@Test(groups = "unit", testName = "FileUploaderTest", singleThreaded = true)
+public class FileUploaderTest {
+
+   private static final URI LOCATION = URI.create("https://vcloud.example.com/transfer/1/disk.vmdk");
+
+   private java.io.File source;
+
+   @BeforeMethod
+   public void createSource() throws IOException {
+      source = java.io.File.createTempFile("FileUploaderTest", ".vmdk");
+      Files.write("0123456789", source, Charsets.US_ASCII);
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void deleteSource() {
+      source.delete();
+   }
+
+   public void testUploadsTheFileInParts() throws IOException {
+      UploadApi uploadApi = createMock(UploadApi.class);
+      expectPart(uploadApi, "bytes 0-3/10", "0123");
+      expectPart(uploadApi, "bytes 4-7/10", "4567");
+      expectPart(uploadApi, "bytes 8-9/10", "89");
+      replay(uploadApi);
+
+      uploader(uploadApi).upload(file(0L), source);
+
+      verify(uploadApi);
+   }
+
+   public void testResumesAfterTheWholePartsTransferred() throws IOException {
+      UploadApi uploadApi = createMock(UploadApi.class);
+      expectPart(uploadApi, "bytes 4-7/10", "4567");
+      expectPart(uploadApi, "bytes 8-9/10", "89");
+      replay(uploadApi);
+
+      uploader(uploadApi, 1).upload(file(6L), source);
+
+      verify(uploadApi);
+   }
+
+   public void testRetriesAFailedPart() throws IOException {
+      UploadApi uploadApi = createMock(UploadApi.class);
+      expectPart(uploadApi, "bytes 0-3/10", "0123");
+      uploadApi.uploadRange(eq(LOCATION), eq("bytes 4-7/10"), anyObject(Payload.class));
+      expectLastCall().andThrow(new RuntimeException("connection reset"));
+      expectPart(uploadApi, "bytes 4-7/10", "4567");
+      expectPart(uploadApi, "bytes 8-9/10", "89");
+      replay(uploadApi);
+
+      uploader(uploadApi).upload(file(0L), source);
+
+      verify(uploadApi);
+   }
+
+   public void testResumesBehindTheBytesTransferredOfConcurrentParts() throws IOException {
+      UploadApi uploadApi = createMock(UploadApi.class);
+      // with two parts at a time, the second part counted may follow a missing one
+      expectPart(uploadApi, "bytes 4-7/10", "4567");
+      expectPart(uploadApi, "bytes 8-9/10", "89");
+      replay(uploadApi);
+
+      uploader(uploadApi, 2).upload(file(8L), source);
+
+      verify(uploadApi);
+   }
+
+   public void testNoOtherPartIsUploadedAfterAFailedPart() throws IOException {
+      UploadApi uploadApi = createMock(UploadApi.class);
+      uploadApi.uploadRange(eq(LOCATION), eq("bytes 0-3/10"), anyObject(Payload.class));
+      expectLastCall().andThrow(new RuntimeException("connection reset")).times(FileUploader.MAX_ATTEMPTS);
+      replay(uploadApi);
+
+      try {
+         uploader(uploadApi).upload(file(0L), source);
+         fail("the first part should have failed");
+      } catch (RuntimeException expected) {
+      }
+
+      verify(uploadApi);
+   }
+
+   public void testCancelsThePartsInFlightAfterAFailedPart() throws Exception {
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch interrupted = new CountDownLatch(1);
+      UploadApi uploadApi = createMock(UploadApi.class);
+      uploadApi.uploadRange(eq(LOCATION), eq("bytes 0-3/10"), anyObject(Payload.class));
+      expectLastCall().andAnswer(new IAnswer<Void>() {
+         @Override
+         public Void answer() throws InterruptedException {
+            started.await();
+            throw new RuntimeException("connection reset");
+         }
+      }).times(FileUploader.MAX_ATTEMPTS);
+      uploadApi.uploadRange(eq(LOCATION), eq("bytes 4-7/10"), anyObject(Payload.class));
+      expectLastCall().andAnswer(new IAnswer<Void>() {
+         @Override
+         public Void answer() {
+            started.countDown();
+            try {
+               Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+               interrupted.countDown();
+            }
+            return null;
+         }
+      });
+      replay(uploadApi);
+
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(2));
+      try {
+         new FileUploader(uploadApi, executor, 4, 2).upload(file(0L), source);
+         fail("the first part should have failed");
+      } catch (RuntimeException expected) {
+      } finally {
+         executor.shutdown();
+      }
+
+      assertTrue(interrupted.await(10, TimeUnit.SECONDS), "the second part was not cancelled");
+   }
+
+   private static void expectPart(UploadApi uploadApi, String contentRange, final String contents) {
+      uploadApi.uploadRange(eq(LOCATION), eq(contentRange), anyObject(Payload.class));
+      expectLastCall().andAnswer(new IAnswer<Void>() {
+         @Override
+         public Void answer() throws IOException {
+            Payload payload = (Payload) getCurrentArguments()[2];
+            assertEquals(payload.getContentMetadata().getContentLength(), Long.valueOf(contents.length()));
+            assertEquals(new String(ByteStreams.toByteArray(payload.openStream()), Charsets.US_ASCII), contents);
+            return null;
+         }
+      });
+   }
+
+   private static FileUploader uploader(UploadApi uploadApi) {
+      return uploader(uploadApi, 2);
+   }
+
+   private static FileUploader uploader(UploadApi uploadApi, int parallelism) {
+      return new FileUploader(uploadApi, MoreExecutors.sameThreadExecutor(), 4, parallelism);
+   }
+
+   private static File file(Long bytesTransferred) {
+      return File.builder().name("disk.vmdk").size(10L).bytesTransferred(bytesTransferred)
+            .link(Link.builder().rel(Link.Rel.UPLOAD_DEFAULT).href(LOCATION).build()).build();
+   }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecords;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVMRecord;
+import org.jclouds.vcloud.director.v1_5.features.QueryApi;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Tests behavior of {@code QueryPages}
+ */
+@Test(groups = "unit", testName = "QueryPagesTest")
+public class QueryPagesTest {
+
+   private static final Function<QueryResultVMRecord, String> NAME = new Function<QueryResultVMRecord, String>() {
+      @Override
+      public String apply(QueryResultVMRecord input) {
+         return input.getName();
+      }
+   };
+
+   public void testPagesUntilTheTotalIsReached() {
+      QueryApi queryApi = createMock(QueryApi.class);
+      expect(queryApi.vmsQuery(1, 2, "status==POWERED_ON")).andReturn(page(1, 5L, "vm-1", "vm-2")).once();
+      expect(queryApi.vmsQuery(2, 2, "status==POWERED_ON")).andReturn(page(2, 5L, "vm-3", "vm-4")).once();
+      expect(queryApi.vmsQuery(3, 2, "status==POWERED_ON")).andReturn(page(3, 5L, "vm-5")).once();
+      replay(queryApi);
+
+      QueryPages pages = new QueryPages(queryApi, MoreExecutors.sameThreadExecutor(), 2);
+
+      assertEquals(pages.vms("status==POWERED_ON").concat().transform(NAME).toList(),
+            ImmutableList.of("vm-1", "vm-2", "vm-3", "vm-4", "vm-5"));
+      verify(queryApi);
+   }
+
+   public void testStopsAtAShortPageWithoutTotal() {
+      QueryApi queryApi = createMock(QueryApi.class);
+      expect(queryApi.vmsQuery(1, 2)).andReturn(page(1, null, "vm-1", "vm-2")).once();
+      expect(queryApi.vmsQuery(2, 2)).andReturn(page(2, null, "vm-3")).once();
+      replay(queryApi);
+
+      QueryPages pages = new QueryPages(queryApi, MoreExecutors.sameThreadExecutor(), 2);
+
+      assertEquals(pages.vms(null).concat().transform(NAME).toList(), ImmutableList.of("vm-1", "vm-2", "vm-3"));
+      verify(queryApi);
+   }
+
+   public void testPagesWithThePageSizeOfTheServer() {
+      QueryApi queryApi = createMock(QueryApi.class);
+      expect(queryApi.vmsQuery(1, 1000)).andReturn(page(1, 5L, "vm-1", "vm-2")).once();
+      expect(queryApi.vmsQuery(2, 1000)).andReturn(page(2, 5L, "vm-3", "vm-4")).once();
+      expect(queryApi.vmsQuery(3, 1000)).andReturn(page(3, 5L, "vm-5")).once();
+      replay(queryApi);
+
+      QueryPages pages = new QueryPages(queryApi, MoreExecutors.sameThreadExecutor(), 1000);
+
+      assertEquals(pages.vms(null).concat().transform(NAME).toList(),
+            ImmutableList.of("vm-1", "vm-2", "vm-3", "vm-4", "vm-5"));
+      verify(queryApi);
+   }
+
+   public void testPagesWithThePageSizeOfTheServerWithoutTotal() {
+      QueryApi queryApi = createMock(QueryApi.class);
+      expect(queryApi.vmsQuery(1, 1000)).andReturn(page(1, null, "vm-1", "vm-2")).once();
+      expect(queryApi.vmsQuery(2, 1000)).andReturn(page(2, null, "vm-3")).once();
+      replay(queryApi);
+
+      QueryPages pages = new QueryPages(queryApi, MoreExecutors.sameThreadExecutor(), 1000);
+
+      assertEquals(pages.vms(null).concat().transform(NAME).toList(), ImmutableList.of("vm-1", "vm-2", "vm-3"));
+      verify(queryApi);
+   }
+
+   public void testNothingIsRetrievedUntilIterating() {
+      QueryApi queryApi = createMock(QueryApi.class);
+      replay(queryApi);
+
+      new QueryPages(queryApi, MoreExecutors.sameThreadExecutor(), 2).vms(null);
+
+      verify(queryApi);
+   }
+
+   // pages of the server, which holds at most two records per page
+   private static QueryResultRecords page(int page, Long total, String... names) {
+      QueryResultRecords.Builder<?> records = QueryResultRecords.builder().page(page).pageSize(2).total(total);
+      for (String name : names) {
+         records.record(QueryResultVMRecord.builder().name(name).build());
+      }
+      return records.build();
+   }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.domain.Credentials;
+import org.jclouds.vcloud.director.v1_5.domain.Session;
+import org.jclouds.vcloud.director.v1_5.domain.SessionWithToken;
+import org.jclouds.vcloud.director.v1_5.loaders.LoginUserInOrgWithPassword;
+import org.jclouds.vcloud.director.v1_5.login.SessionApi;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Suppliers;
+
+/**
+ * Tests behavior of {@code SessionManager}
+ */
+@Test(groups = "unit", testName = "SessionManagerTest")
+public class SessionManagerTest {
+
+   private static final URI LOGIN = URI.create("https://vcloudbeta.bluelock.com/api/sessions");
+   private static final URI SESSION = URI.create("https://vcloudbeta.bluelock.com/api/session/");
+
+   private static final SessionWithToken FIRST = session("first");
+   private static final SessionWithToken SECOND = session("second");
+   private static final SessionWithToken THIRD = session("third");
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testLogsInOnceAndSchedulesTheRefreshBeforeTheSessionExpires() {
+      SessionApi sessionApi = createMock(SessionApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      expect(sessionApi.loginUserInOrgWithPassword(LOGIN, "user", "org", "password")).andReturn(FIRST);
+      expect(scheduler.scheduleWithFixedDelay(anyObject(Runnable.class), eq(240l), eq(240l), eq(TimeUnit.SECONDS)))
+            .andReturn((ScheduledFuture) createMock(ScheduledFuture.class));
+      replay(sessionApi, scheduler);
+
+      SessionManager sessionManager = sessionManager(sessionApi, scheduler);
+      assertEquals(sessionManager.getSessionAge(TimeUnit.SECONDS), -1);
+
+      assertSame(sessionManager.get(), FIRST);
+      assertSame(sessionManager.get(), FIRST);
+      assertEquals(sessionManager.getLoginCount(), 1);
+      assertEquals(sessionManager.getRefreshCount(), 0);
+      assertTrue(sessionManager.getSessionAge(TimeUnit.SECONDS) >= 0);
+
+      verify(sessionApi, scheduler);
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testRefreshReplacesTheSessionAndLogsOutTheOneReplacedBefore() {
+      SessionApi sessionApi = createMock(SessionApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      ScheduledFuture job = createMock(ScheduledFuture.class);
+      expect(sessionApi.loginUserInOrgWithPassword(LOGIN, "user", "org", "password")).andReturn(FIRST);
+      expect(sessionApi.loginUserInOrgWithPassword(LOGIN, "user", "org", "password")).andReturn(SECOND);
+      expect(sessionApi.loginUserInOrgWithPassword(LOGIN, "user", "org", "password")).andReturn(THIRD);
+      sessionApi.logoutSessionWithToken(FIRST.getSession().getHref(), "first");
+      expectLastCall();
+      sessionApi.logoutSessionWithToken(SECOND.getSession().getHref(), "second");
+      expectLastCall();
+      expect(scheduler.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), anyLong(), eq(TimeUnit.SECONDS)))
+            .andReturn(job);
+      expect(job.cancel(false)).andReturn(true);
+      replay(sessionApi, scheduler, job);
+
+      SessionManager sessionManager = sessionManager(sessionApi, scheduler);
+      assertSame(sessionManager.get(), FIRST);
+
+      // the first session stays open for the requests that were sent with it
+      sessionManager.refresh();
+      assertSame(sessionManager.get(), SECOND);
+
+      sessionManager.refresh();
+      assertSame(sessionManager.get(), THIRD);
+      assertEquals(sessionManager.getLoginCount(), 3);
+      assertEquals(sessionManager.getRefreshCount(), 2);
+
+      // closing logs out the second session, the third one being logged out with the rest client
+      sessionManager.close();
+
+      verify(sessionApi, scheduler, job);
+   }
+
+   public void testRefreshWithoutSessionsDoesNotLogIn() {
+      SessionApi sessionApi = createMock(SessionApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      replay(sessionApi, scheduler);
+
+      SessionManager sessionManager = sessionManager(sessionApi, scheduler);
+      sessionManager.refresh();
+      assertEquals(sessionManager.getLoginCount(), 0);
+
+      verify(sessionApi, scheduler);
+   }
+
+   private static SessionManager sessionManager(SessionApi sessionApi, ScheduledExecutorService scheduler) {
+      LoginUserInOrgWithPassword login = new LoginUserInOrgWithPassword(sessionApi, Suppliers.ofInstance(LOGIN));
+      return new SessionManager(login, sessionApi, Suppliers.ofInstance(new Credentials("user@org", "password")),
+            scheduler, 300, 60);
+   }
+
+   private static SessionWithToken session(String token) {
+      return SessionWithToken.builder()
+            .session(Session.builder().user("user").org("org").href(URI.create(SESSION + token)).build())
+            .token(token).build();
+   }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.internal;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.vcloud.director.v1_5.domain.Link;
+import org.jclouds.vcloud.director.v1_5.domain.Reference;
+import org.jclouds.vcloud.director.v1_5.domain.Task;
+import org.jclouds.vcloud.director.v1_5.domain.TasksList;
+import org.jclouds.vcloud.director.v1_5.domain.org.Org;
+import org.jclouds.vcloud.director.v1_5.features.OrgApi;
+import org.jclouds.vcloud.director.v1_5.features.TaskApi;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Tests behavior of {@code TaskTracker}
+ */
+@Test(groups = "unit", testName = "TaskTrackerTest")
+public class TaskTrackerTest {
+
+   private static final URI ORG = URI.create("https://vcloud.example.com/api/org/1");
+   private static final URI TASKS_LIST = URI.create("https://vcloud.example.com/api/tasksList/1");
+
+   public void testFinishedTaskCompletesWithoutCallingTheApi() {
+      TaskApi taskApi = createMock(TaskApi.class);
+      OrgApi orgApi = createMock(OrgApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      replay(taskApi, orgApi, scheduler);
+
+      Task task = task("done", Task.Status.SUCCESS);
+      ListenableFuture<Task> future = new TaskTracker(taskApi, orgApi, scheduler, 1000, 60000).track(task);
+
+      assertTrue(future.isDone());
+      assertSame(Futures.getUnchecked(future), task);
+      verify(taskApi, orgApi, scheduler);
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testTasksOfAnOrgAreRefreshedWithOneRequest() {
+      TaskApi taskApi = createMock(TaskApi.class);
+      OrgApi orgApi = createMock(OrgApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      ScheduledFuture<Object> job = createMock(ScheduledFuture.class);
+      expect(scheduler.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), eq(1000L),
+            eq(TimeUnit.MILLISECONDS))).andReturn((ScheduledFuture) job).once();
+      expect(orgApi.get(ORG)).andReturn(org()).once();
+      expect(taskApi.getTasksList(TASKS_LIST)).andReturn(
+            TasksList.builder().name("tasks").href(TASKS_LIST).task(task("first", Task.Status.SUCCESS))
+                  .task(task("second", Task.Status.RUNNING)).build()).once();
+      expect(taskApi.getTasksList(TASKS_LIST)).andReturn(
+            TasksList.builder().name("tasks").href(TASKS_LIST).task(task("second", Task.Status.ERROR)).build())
+            .once();
+      expect(job.cancel(false)).andReturn(true).once();
+      replay(taskApi, orgApi, scheduler, job);
+
+      TaskTracker tracker = new TaskTracker(taskApi, orgApi, scheduler, 1000, 60000);
+      ListenableFuture<Task> first = tracker.track(task("first", Task.Status.RUNNING));
+      ListenableFuture<Task> second = tracker.track(task("second", Task.Status.QUEUED));
+      assertSame(tracker.track(task("second", Task.Status.QUEUED)), second);
+
+      tracker.refresh();
+      assertEquals(Futures.getUnchecked(first).getStatus(), Task.Status.SUCCESS);
+      assertFalse(second.isDone());
+
+      tracker.refresh();
+      assertEquals(Futures.getUnchecked(second).getStatus(), Task.Status.ERROR);
+      verify(taskApi, orgApi, scheduler, job);
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testTaskNotInTheTasksListIsRetrievedOnItsOwn() {
+      TaskApi taskApi = createMock(TaskApi.class);
+      OrgApi orgApi = createMock(OrgApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      ScheduledFuture<Object> job = createMock(ScheduledFuture.class);
+      expect(scheduler.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), eq(1000L),
+            eq(TimeUnit.MILLISECONDS))).andReturn((ScheduledFuture) job).once();
+      expect(orgApi.get(ORG)).andReturn(org()).once();
+      expect(taskApi.getTasksList(TASKS_LIST)).andReturn(TasksList.builder().name("tasks").href(TASKS_LIST).build())
+            .once();
+      Task task = task("hidden", Task.Status.RUNNING);
+      expect(taskApi.get(task.getHref())).andReturn(task).once();
+      expect(taskApi.get(task.getHref())).andReturn(task("hidden", Task.Status.SUCCESS)).once();
+      expect(job.cancel(false)).andReturn(true).once();
+      replay(taskApi, orgApi, scheduler, job);
+
+      TaskTracker tracker = new TaskTracker(taskApi, orgApi, scheduler, 1000, 60000);
+      ListenableFuture<Task> future = tracker.track(task);
+
+      tracker.refresh();
+      assertFalse(future.isDone());
+
+      tracker.refresh();
+      assertEquals(Futures.getUnchecked(future).getStatus(), Task.Status.SUCCESS);
+      verify(taskApi, orgApi, scheduler, job);
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testTasksAreNotRetrievedOnTheirOwnWhenTheTasksListFails() {
+      TaskApi taskApi = createMock(TaskApi.class);
+      OrgApi orgApi = createMock(OrgApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      ScheduledFuture<Object> job = createMock(ScheduledFuture.class);
+      expect(scheduler.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), eq(1000L),
+            eq(TimeUnit.MILLISECONDS))).andReturn((ScheduledFuture) job).once();
+      expect(orgApi.get(ORG)).andReturn(org()).once();
+      expect(taskApi.getTasksList(TASKS_LIST)).andThrow(new RuntimeException("temporarily unavailable")).once();
+      expect(taskApi.getTasksList(TASKS_LIST)).andReturn(
+            TasksList.builder().name("tasks").href(TASKS_LIST).task(task("listed", Task.Status.SUCCESS)).build())
+            .once();
+      expect(job.cancel(false)).andReturn(true).once();
+      replay(taskApi, orgApi, scheduler, job);
+
+      TaskTracker tracker = new TaskTracker(taskApi, orgApi, scheduler, 1000, 60000);
+      ListenableFuture<Task> future = tracker.track(task("listed", Task.Status.RUNNING));
+
+      tracker.refresh();
+      assertFalse(future.isDone());
+
+      tracker.refresh();
+      assertEquals(Futures.getUnchecked(future).getStatus(), Task.Status.SUCCESS);
+      verify(taskApi, orgApi, scheduler, job);
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testTaskStopsBeingTrackedAfterTheTimeout() throws InterruptedException {
+      TaskApi taskApi = createMock(TaskApi.class);
+      OrgApi orgApi = createMock(OrgApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      ScheduledFuture<Object> job = createMock(ScheduledFuture.class);
+      expect(scheduler.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), eq(1000L),
+            eq(TimeUnit.MILLISECONDS))).andReturn((ScheduledFuture) job).once();
+      expect(orgApi.get(ORG)).andReturn(org()).once();
+      expect(taskApi.getTasksList(TASKS_LIST)).andReturn(
+            TasksList.builder().name("tasks").href(TASKS_LIST).task(task("stuck", Task.Status.RUNNING)).build())
+            .once();
+      expect(job.cancel(false)).andReturn(true).once();
+      replay(taskApi, orgApi, scheduler, job);
+
+      ManualTicker ticker = new ManualTicker();
+      TaskTracker tracker = new TaskTracker(taskApi, orgApi, scheduler, 1000, 60000, ticker);
+      ListenableFuture<Task> future = tracker.track(task("stuck", Task.Status.RUNNING));
+
+      tracker.refresh();
+      assertFalse(future.isDone());
+
+      ticker.advance(60, TimeUnit.SECONDS);
+      tracker.refresh();
+      try {
+         future.get();
+         fail("the task should have timed out");
+      } catch (ExecutionException e) {
+         assertTrue(e.getCause() instanceof TimeoutException);
+      }
+      verify(taskApi, orgApi, scheduler, job);
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testCancelledTaskStopsBeingTracked() {
+      TaskApi taskApi = createMock(TaskApi.class);
+      OrgApi orgApi = createMock(OrgApi.class);
+      ScheduledExecutorService scheduler = createMock(ScheduledExecutorService.class);
+      ScheduledFuture<Object> job = createMock(ScheduledFuture.class);
+      expect(scheduler.scheduleWithFixedDelay(anyObject(Runnable.class), anyLong(), eq(1000L),
+            eq(TimeUnit.MILLISECONDS))).andReturn((ScheduledFuture) job).once();
+      expect(job.cancel(false)).andReturn(true).once();
+      replay(taskApi, orgApi, scheduler, job);
+
+      TaskTracker tracker = new TaskTracker(taskApi, orgApi, scheduler, 1000, 60000);
+      tracker.track(task("cancelled", Task.Status.RUNNING)).cancel(false);
+
+      tracker.refresh();
+      verify(taskApi, orgApi, scheduler, job);
+   }
+
+   private static class ManualTicker extends Ticker {
+      private long nanos = 0;
+
+      public void advance(final long time, final TimeUnit timeUnit) {
+         nanos += timeUnit.toNanos(time);
+      }
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+   }
+
+   private static Org org() {
+      return Org.builder().name("org").href(ORG).link(Link.builder().rel(Link.Rel.DOWN).href(TASKS_LIST)
+            .type(VCloudDirectorMediaType.TASKS_LIST).build()).build();
+   }
+
+   private static Task task(String id, Task.Status status) {
+      return Task.builder().id(id).name(id).href(URI.create("https://vcloud.example.com/api/task/" + id))
+            .status(status).operationName("deploy").org(Reference.builder().href(ORG).name("org").build()).build();
+   }
+}
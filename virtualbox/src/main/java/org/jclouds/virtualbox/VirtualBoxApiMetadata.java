@@ -20,6 +20,10 @@ import static org.jclouds.compute.config.ComputeServiceProperties.TEMPLATE;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_DEFAULT_DIR;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_GUEST_MEMORY;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_IMAGES_DESCRIPTOR;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_ISO_CACHE;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_ISO_DOWNLOAD_SEGMENTS;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_LIST_NODES_CONCURRENCY;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_MASTER_SNAPSHOT_REUSE;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_PRECONFIGURATION_URL;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_WORKINGDIR;
 
@@ -62,11 +66,15 @@ public class VirtualBoxApiMetadata extends BaseApiMetadata {
 
       String ram = System.getProperty(VIRTUALBOX_GUEST_MEMORY, "512");
       properties.put(VIRTUALBOX_GUEST_MEMORY, ram);
+      properties.put(VIRTUALBOX_MASTER_SNAPSHOT_REUSE, "true");
+      properties.put(VIRTUALBOX_LIST_NODES_CONCURRENCY, "8");
       
       String yamlDescriptor = System.getProperty("test.virtualbox.image.descriptor.yaml", VIRTUALBOX_WORKINGDIR
                + File.separator + "images.yaml");
 
       properties.put(VIRTUALBOX_IMAGES_DESCRIPTOR, yamlDescriptor);
+      properties.put(VIRTUALBOX_ISO_CACHE, VIRTUALBOX_DEFAULT_DIR + File.separator + "iso-cache");
+      properties.put(VIRTUALBOX_ISO_DOWNLOAD_SEGMENTS, "4");
       properties.put(VIRTUALBOX_PRECONFIGURATION_URL, "http://10.0.2.2:23232");
       properties.setProperty(TEMPLATE, "osFamily=UBUNTU,osVersionMatches=12.04.1,os64Bit=true,osArchMatches=amd64");
       return properties;
@@ -18,7 +18,6 @@ package org.jclouds.virtualbox.compute;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Iterables.contains;
 import static com.google.common.collect.Iterables.filter;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_IMAGE_PREFIX;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_NODE_NAME_SEPARATOR;
@@ -43,6 +42,7 @@ import org.jclouds.logging.Logger;
 import org.jclouds.virtualbox.domain.Master;
 import org.jclouds.virtualbox.domain.NodeSpec;
 import org.jclouds.virtualbox.domain.YamlImage;
+import org.jclouds.virtualbox.functions.NodeMetadataSnapshots;
 import org.jclouds.virtualbox.functions.admin.UnregisterMachineIfExistsAndForceDeleteItsMedia;
 import org.jclouds.virtualbox.util.MachineController;
 import org.virtualbox_4_2.IMachine;
@@ -79,19 +79,21 @@ public class VirtualBoxComputeServiceAdapter implements ComputeServiceAdapter<IM
    private final Function<NodeSpec, NodeAndInitialCredentials<IMachine>> cloneCreator;
    private final Function<IMachine, Image> imachineToImage;
    private final MachineController machineController;
+   private final NodeMetadataSnapshots nodeMetadataSnapshots;
 
    @Inject
    public VirtualBoxComputeServiceAdapter(Supplier<VirtualBoxManager> manager,
             Supplier<Map<Image, YamlImage>> imagesMapper, LoadingCache<Image, Master> mastersLoader,
             Function<NodeSpec, NodeAndInitialCredentials<IMachine>> cloneCreator,
             Function<IMachine, Image> imachineToImage,
-            MachineController machineController) {
+            MachineController machineController, NodeMetadataSnapshots nodeMetadataSnapshots) {
       this.manager = checkNotNull(manager, "virtualbox manager can't be null");
       this.imagesToYamlImages = imagesMapper.get();
       this.mastersLoader = mastersLoader;
       this.cloneCreator = cloneCreator;
       this.imachineToImage = imachineToImage;
       this.machineController = machineController;
+      this.nodeMetadataSnapshots = nodeMetadataSnapshots;
    }
 
    @Override
@@ -113,21 +115,35 @@ public class VirtualBoxComputeServiceAdapter implements ComputeServiceAdapter<IM
 
    @Override
    public Iterable<IMachine> listNodes() {
-      return Iterables.filter(manager.get().getVBox().getMachines(), new Predicate<IMachine>() {
+      return nodeMetadataSnapshots.loadMatching(manager.get().getVBox().getMachines(), new Predicate<String>() {
          @Override
-         public boolean apply(IMachine arg0) {
-            return arg0.getName().startsWith(VIRTUALBOX_NODE_PREFIX);
+         public boolean apply(String vmName) {
+            return vmName.startsWith(VIRTUALBOX_NODE_PREFIX);
          }
       });
    }
 
    @Override
-   public Iterable<IMachine> listNodesByIds(final Iterable<String> ids) {
-      return filter(listNodes(), new Predicate<IMachine>() {
-
+   public Iterable<IMachine> listNodesByIds(Iterable<String> ids) {
+      // node ids are vm names, but machine uuids are accepted as well
+      final Set<String> vmNames = Sets.newHashSet();
+      for (String id : ids) {
+         if (id.startsWith(VIRTUALBOX_NODE_PREFIX)) {
+            vmNames.add(id);
+         } else {
+            try {
+               vmNames.add(manager.get().getVBox().findMachine(id).getName());
+            } catch (VBoxException e) {
+               logger.debug("<< no vm with id(%s)", id);
+            }
+         }
+      }
+      if (vmNames.isEmpty())
+         return ImmutableSet.of();
+      return nodeMetadataSnapshots.loadMatching(manager.get().getVBox().getMachines(), new Predicate<String>() {
          @Override
-         public boolean apply(IMachine machine) {
-            return contains(ids, machine.getId());
+         public boolean apply(String vmName) {
+            return vmNames.contains(vmName) && vmName.startsWith(VIRTUALBOX_NODE_PREFIX);
          }
       });
    }
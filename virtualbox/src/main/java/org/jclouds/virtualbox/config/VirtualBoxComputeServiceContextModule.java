@@ -49,10 +49,10 @@ import org.jclouds.virtualbox.functions.CloneAndRegisterMachineFromIMachineIfNot
 import org.jclouds.virtualbox.functions.CreateAndInstallVm;
 import org.jclouds.virtualbox.functions.IMachineToHardware;
 import org.jclouds.virtualbox.functions.IMachineToImage;
-import org.jclouds.virtualbox.functions.IMachineToNodeMetadata;
 import org.jclouds.virtualbox.functions.IMachineToSshClient;
 import org.jclouds.virtualbox.functions.MastersLoadingCache;
 import org.jclouds.virtualbox.functions.NodeCreator;
+import org.jclouds.virtualbox.functions.NodeMetadataSnapshots;
 import org.jclouds.virtualbox.functions.YamlImagesFromFileConfig;
 import org.jclouds.virtualbox.functions.admin.FileDownloadFromURI;
 import org.jclouds.virtualbox.functions.admin.ImagesToYamlImagesFromYamlDescriptor;
@@ -86,7 +86,7 @@ public class VirtualBoxComputeServiceContextModule extends
       bind(new TypeLiteral<ComputeServiceAdapter<IMachine, Hardware, Image, Location>>() {
       }).to(VirtualBoxComputeServiceAdapter.class);
       bind(new TypeLiteral<Function<IMachine, NodeMetadata>>() {
-      }).to(IMachineToNodeMetadata.class);
+      }).to(NodeMetadataSnapshots.class);
       bind(new TypeLiteral<Function<Location, Location>>() {
       }).to(Class.class.cast(IdentityFunction.class));
       bind(new TypeLiteral<Function<Hardware, Hardware>>() {
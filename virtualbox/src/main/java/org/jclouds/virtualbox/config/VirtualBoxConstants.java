@@ -29,12 +29,28 @@ public final class VirtualBoxConstants {
 
    public static final String VIRTUALBOX_NODE_PREFIX = "jclouds-node" + VIRTUALBOX_NODE_NAME_SEPARATOR;
 
+   /**
+    * The name of the snapshot of a master the nodes are linked-cloned from.
+    */
+   public static final String VIRTUALBOX_MASTER_SNAPSHOT = "jclouds-master-snapshot";
+
    public static final String VIRTUALBOX_PRECONFIGURATION_URL = "jclouds.virtualbox.preconfigurationurl";
 
    public static final String VIRTUALBOX_WORKINGDIR = "jclouds.virtualbox.workingdir";
 
    public static final String VIRTUALBOX_IMAGES_DESCRIPTOR = "jclouds.virtualbox.image.descriptor.yaml";
 
+   /**
+    * The directory where the downloaded isos are kept by md5, shared by all the working
+    * directories.
+    */
+   public static final String VIRTUALBOX_ISO_CACHE = "jclouds.virtualbox.iso.cache";
+
+   /**
+    * How many ranges of an iso are downloaded in parallel, when the server supports range requests.
+    */
+   public static final String VIRTUALBOX_ISO_DOWNLOAD_SEGMENTS = "jclouds.virtualbox.iso.download.segments";
+
    public static final String VIRTUALBOX_MACHINE_GROUP = "jclouds.virtualbox.machinegroup";
 
    public static final String VIRTUALBOX_MACHINE_USERNAME = "jclouds.virtualbox.username";
@@ -45,6 +61,17 @@ public final class VirtualBoxConstants {
    
    public static final String VIRTUALBOX_GUEST_MEMORY = "jclouds.virtualbox.guest.memory";
 
+   /**
+    * Whether the snapshot of a master is kept and shared by all its clones, and only taken again
+    * when the master changes. If false, the snapshot is deleted and taken again for every node.
+    */
+   public static final String VIRTUALBOX_MASTER_SNAPSHOT_REUSE = "jclouds.virtualbox.master.snapshot.reuse";
+
+   /**
+    * The maximum number of machines read at the same time when listing the nodes.
+    */
+   public static final String VIRTUALBOX_LIST_NODES_CONCURRENCY = "jclouds.virtualbox.list.nodes.concurrency";
+
    public static final String VIRTUALBOX_HOST_ID = "jclouds.virtualbox.hostid";
 
    public static final String VIRTUALBOX_WEBSERVER_IDENTITY = "jclouds.virtualbox.webserver.identity";
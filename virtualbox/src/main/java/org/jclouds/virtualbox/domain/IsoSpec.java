@@ -27,10 +27,16 @@ public class IsoSpec {
 
    private final String installationKeySequence;
    private final String sourcePath;
+   private final KeystrokePacing keystrokePacing;
 
    public IsoSpec(String sourcePath, String installationKeySequence) {
+      this(sourcePath, installationKeySequence, KeystrokePacing.FIXED);
+   }
+
+   public IsoSpec(String sourcePath, String installationKeySequence, KeystrokePacing keystrokePacing) {
       this.sourcePath = checkNotNull(sourcePath, "sourcePath can't be null");
       this.installationKeySequence = checkNotNull(installationKeySequence, "installationKeySequence can't be null");
+      this.keystrokePacing = checkNotNull(keystrokePacing, "keystrokePacing can't be null");
    }
 
    public static Builder builder() {
@@ -41,6 +47,7 @@ public class IsoSpec {
 
       private String installationSequence;
       private String sourcePath;
+      private KeystrokePacing keystrokePacing = KeystrokePacing.FIXED;
 
       public Builder installationScript(String installationSequence) {
          this.installationSequence = installationSequence;
@@ -52,9 +59,13 @@ public class IsoSpec {
          return this;
       }
 
+      public Builder keystrokePacing(KeystrokePacing keystrokePacing) {
+         this.keystrokePacing = keystrokePacing;
+         return this;
+      }
 
       public IsoSpec build() {
-         return new IsoSpec(sourcePath, installationSequence);
+         return new IsoSpec(sourcePath, installationSequence, keystrokePacing);
       }
    }
 
@@ -66,20 +77,25 @@ public class IsoSpec {
       return sourcePath;
    }
 
+   public KeystrokePacing getKeystrokePacing() {
+      return keystrokePacing;
+   }
+
    @Override
    public boolean equals(Object o) {
       if (this == o) return true;
       if (o instanceof IsoSpec) {
          IsoSpec other = (IsoSpec) o;
          return Objects.equal(sourcePath, other.sourcePath) &&
-                 Objects.equal(installationKeySequence, other.installationKeySequence);
+                 Objects.equal(installationKeySequence, other.installationKeySequence) &&
+                 Objects.equal(keystrokePacing, other.keystrokePacing);
       }
       return false;
    }
 
    @Override
    public int hashCode() {
-      return Objects.hashCode(sourcePath, installationKeySequence);
+      return Objects.hashCode(sourcePath, installationKeySequence, keystrokePacing);
    }
 
    @Override
@@ -87,6 +103,7 @@ public class IsoSpec {
       return "IsoSpec{" +
               "sourcePath='" + sourcePath + '\'' +
               "installationKeySequence='" + installationKeySequence + '\'' +
+              "keystrokePacing=" + keystrokePacing +
               '}';
    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.domain;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Objects;
+
+/**
+ * How the keystrokes that start an os installation are typed into a machine.
+ * <p/>
+ * In fixed mode every key of the sequence is sent on its own, in chunks of {@code burstSize}
+ * scancodes, waiting {@code pauseMillis} after each chunk, or {@code specialKeyPauseMillis} after
+ * a chunk with special keys. In adaptive mode the keys are sent in large bursts, retrying when the
+ * keyboard queue of the guest is full, and the machine is only given time after the special keys
+ * ({@code <Enter>}, {@code <Esc>}, ...) that may change the screen.
+ */
+public class KeystrokePacing {
+
+   public static final KeystrokePacing FIXED = builder().burstSize(30).pauseMillis(250).specialKeyPauseMillis(500)
+            .build();
+
+   public static final KeystrokePacing ADAPTIVE = builder().adaptive(true).burstSize(256).pauseMillis(0)
+            .specialKeyPauseMillis(500).build();
+
+   private final boolean adaptive;
+   private final int burstSize;
+   private final long pauseMillis;
+   private final long specialKeyPauseMillis;
+
+   public static Builder builder() {
+      return new Builder();
+   }
+
+   public static class Builder {
+
+      private boolean adaptive;
+      private int burstSize;
+      private long pauseMillis;
+      private long specialKeyPauseMillis;
+
+      public Builder adaptive(boolean adaptive) {
+         this.adaptive = adaptive;
+         return this;
+      }
+
+      public Builder burstSize(int burstSize) {
+         this.burstSize = burstSize;
+         return this;
+      }
+
+      public Builder pauseMillis(long pauseMillis) {
+         this.pauseMillis = pauseMillis;
+         return this;
+      }
+
+      public Builder specialKeyPauseMillis(long specialKeyPauseMillis) {
+         this.specialKeyPauseMillis = specialKeyPauseMillis;
+         return this;
+      }
+
+      public Builder fromKeystrokePacing(KeystrokePacing in) {
+         return adaptive(in.isAdaptive()).burstSize(in.getBurstSize()).pauseMillis(in.getPauseMillis())
+                  .specialKeyPauseMillis(in.getSpecialKeyPauseMillis());
+      }
+
+      public KeystrokePacing build() {
+         return new KeystrokePacing(adaptive, burstSize, pauseMillis, specialKeyPauseMillis);
+      }
+   }
+
+   public KeystrokePacing(boolean adaptive, int burstSize, long pauseMillis, long specialKeyPauseMillis) {
+      checkArgument(burstSize > 0, "burstSize must be positive");
+      checkArgument(pauseMillis >= 0 && specialKeyPauseMillis >= 0, "pauses can't be negative");
+      this.adaptive = adaptive;
+      this.burstSize = burstSize;
+      this.pauseMillis = pauseMillis;
+      this.specialKeyPauseMillis = specialKeyPauseMillis;
+   }
+
+   public boolean isAdaptive() {
+      return adaptive;
+   }
+
+   public int getBurstSize() {
+      return burstSize;
+   }
+
+   public long getPauseMillis() {
+      return pauseMillis;
+   }
+
+   public long getSpecialKeyPauseMillis() {
+      return specialKeyPauseMillis;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o instanceof KeystrokePacing) {
+         KeystrokePacing other = (KeystrokePacing) o;
+         return adaptive == other.adaptive && burstSize == other.burstSize && pauseMillis == other.pauseMillis
+                  && specialKeyPauseMillis == other.specialKeyPauseMillis;
+      }
+      return false;
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hashCode(adaptive, burstSize, pauseMillis, specialKeyPauseMillis);
+   }
+
+   @Override
+   public String toString() {
+      return "KeystrokePacing{" +
+              "adaptive=" + adaptive +
+              ", burstSize=" + burstSize +
+              ", pauseMillis=" + pauseMillis +
+              ", specialKeyPauseMillis=" + specialKeyPauseMillis +
+              '}';
+   }
+}
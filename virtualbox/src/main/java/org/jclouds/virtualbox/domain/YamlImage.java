@@ -51,6 +51,7 @@ import com.google.common.collect.Maps;
  *                 fb=false debconf/frontend=noninteractive 
  *                 keyboard-configuration/layout=USA keyboard-configuration/variant=USA console-setup/ask_detect=false 
  *                 initrd=/install/initrd.gz -- <Enter>
+ *       keystroke_pacing: adaptive
  *       preseed_cfg: |                
  *                       ## Options to set on the command line
  *                       d-i debian-installer/locale string en_US.utf8
@@ -117,6 +118,11 @@ public class YamlImage {
    public String iso_md5;
    public String iso;
    public String keystroke_sequence;
+   // "fixed" (the default) or "adaptive", see KeystrokePacing; the other keystroke_ values override the mode's own
+   public String keystroke_pacing;
+   public Integer keystroke_burst;
+   public Integer keystroke_pause_ms;
+   public Integer keystroke_special_key_pause_ms;
    public String preseed_cfg;
    public int login_port = 22;
    public boolean os_64bit;
@@ -153,12 +159,26 @@ public class YamlImage {
       return toImage.apply(this);
    }
 
+   public KeystrokePacing toKeystrokePacing() {
+      KeystrokePacing mode = "adaptive".equalsIgnoreCase(keystroke_pacing) ? KeystrokePacing.ADAPTIVE
+               : KeystrokePacing.FIXED;
+      KeystrokePacing.Builder builder = KeystrokePacing.builder().fromKeystrokePacing(mode);
+      if (keystroke_burst != null)
+         builder.burstSize(keystroke_burst);
+      if (keystroke_pause_ms != null)
+         builder.pauseMillis(keystroke_pause_ms);
+      if (keystroke_special_key_pause_ms != null)
+         builder.specialKeyPauseMillis(keystroke_special_key_pause_ms);
+      return builder.build();
+   }
+
    @Override
    public String toString() {
       return "YamlImage [id=" + id + ", name=" + name + ", description=" + description + ", hostname=" + hostname
                + ", location_id=" + location_id + ", os_arch=" + os_arch + ", os_family=" + os_family
                + ", os_description=" + os_description + ", os_version=" + os_version + ", iso=" + iso 
-               + ", keystroke_sequence=" + keystroke_sequence + ", preseed_cfg=" + preseed_cfg + ", login_port="
+               + ", keystroke_sequence=" + keystroke_sequence + ", keystroke_pacing=" + keystroke_pacing
+               + ", preseed_cfg=" + preseed_cfg + ", login_port="
                + login_port + ", os_64bit=" + os_64bit + ", group=" + group + ", tags=" + tags + ", metadata="
                + metadata + ", username=" + username + ", credential=" + credential + ", credential_url="
                + credential_url + ", sudo_password=" + sudo_password + "]";
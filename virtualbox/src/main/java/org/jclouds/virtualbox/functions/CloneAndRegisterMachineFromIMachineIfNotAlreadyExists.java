@@ -18,6 +18,7 @@ package org.jclouds.virtualbox.functions;
 
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.GUEST_OS_PASSWORD;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.GUEST_OS_USER;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_MASTER_SNAPSHOT;
 
 import java.util.List;
 
@@ -104,8 +105,9 @@ public class CloneAndRegisterMachineFromIMachineIfNotAlreadyExists implements Fu
       if (isLinkedClone)
          options.add(CloneOptions.Link);
 
-      ISnapshot currentSnapshot = new TakeSnapshotIfNotAlreadyAttached(manager,
-            "snapshotName", "snapshotDesc", logger).apply(master);
+      // linked clones share the current snapshot of the master as long as the master is unchanged
+      ISnapshot currentSnapshot = new TakeSnapshotIfNotAlreadyAttached(manager, VIRTUALBOX_MASTER_SNAPSHOT,
+            "base snapshot of the clones of " + master.getName(), logger, true).apply(master);
       IProgress progress = currentSnapshot.getMachine().cloneTo(clonedMachine,
             CloneMode.MachineState, options);
       progress.waitForCompletion(-1);
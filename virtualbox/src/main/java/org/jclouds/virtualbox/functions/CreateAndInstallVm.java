@@ -21,6 +21,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
@@ -32,6 +33,7 @@ import org.jclouds.logging.Logger;
 import org.jclouds.rest.annotations.BuildVersion;
 import org.jclouds.ssh.SshClient;
 import org.jclouds.virtualbox.domain.IsoSpec;
+import org.jclouds.virtualbox.domain.KeystrokePacing;
 import org.jclouds.virtualbox.domain.MasterSpec;
 import org.jclouds.virtualbox.domain.VmSpec;
 import org.jclouds.virtualbox.statements.InstallGuestAdditions;
@@ -99,7 +101,10 @@ public class CreateAndInstallVm implements Function<MasterSpec, IMachine> {
       machineController.ensureMachineIsLaunched(masterName);
       String installationKeySequence = isoSpec.getInstallationKeySequence().replace("PRECONFIGURATION_URL",
                preconfigurationUrl);
-      configureOsInstallationWithKeyboardSequence(masterName, installationKeySequence);
+      Stopwatch typing = Stopwatch.createStarted();
+      configureOsInstallationWithKeyboardSequence(masterName, installationKeySequence, isoSpec.getKeystrokePacing());
+      logger.debug("<< typed the installation key sequence on vm(%s) in %d ms", masterName,
+               typing.elapsed(TimeUnit.MILLISECONDS));
 
       masterMachine.setExtraData(GUEST_OS_USER, masterSpec.getLoginCredentials().getUser());
       masterMachine.setExtraData(GUEST_OS_PASSWORD, masterSpec.getLoginCredentials().getPassword());
@@ -154,11 +159,27 @@ public class CreateAndInstallVm implements Function<MasterSpec, IMachine> {
       return masterMachine;
    }
 
-   private void configureOsInstallationWithKeyboardSequence(String vmName, String installationKeySequence) {
-      Iterable<List<Integer>> scancodelist = transform(Splitter.on(" ").split(installationKeySequence),
-               new StringToKeyCode());
-      for (List<Integer> scancodes : scancodelist) {
-         machineUtils.sharedLockMachineAndApplyToSession(vmName, new SendScancodes(scancodes));
+   private void configureOsInstallationWithKeyboardSequence(String vmName, String installationKeySequence,
+            KeystrokePacing pacing) {
+      Iterable<String> keys = Splitter.on(" ").split(installationKeySequence);
+      if (!pacing.isAdaptive()) {
+         for (List<Integer> scancodes : transform(keys, new StringToKeyCode())) {
+            machineUtils.sharedLockMachineAndApplyToSession(vmName, new SendScancodes(scancodes, pacing));
+         }
+         return;
+      }
+      // plain text can't change the screen, so it is sent along with the next special key
+      StringToKeyCode toKeyCode = new StringToKeyCode();
+      List<Integer> scancodes = Lists.newArrayList();
+      for (String key : keys) {
+         scancodes.addAll(toKeyCode.apply(key));
+         if (key.startsWith("<")) {
+            machineUtils.sharedLockMachineAndApplyToSession(vmName, new SendScancodes(scancodes, pacing));
+            scancodes = Lists.newArrayList();
+         }
+      }
+      if (!scancodes.isEmpty()) {
+         machineUtils.sharedLockMachineAndApplyToSession(vmName, new SendScancodes(scancodes, pacing));
       }
    }
 
@@ -81,10 +81,11 @@ public class IMachineToNodeMetadata implements Function<IMachine, NodeMetadata>
    @Override
    public NodeMetadata apply(@Nullable IMachine vm) {
 
+      String vmName = vm.getName();
       String group = "";
       String name = "";
-      String[] encodedInVmName = vm.getName().split(VIRTUALBOX_NODE_NAME_SEPARATOR);
-      if (vm.getName().startsWith(VIRTUALBOX_NODE_PREFIX)){
+      String[] encodedInVmName = vmName.split(VIRTUALBOX_NODE_NAME_SEPARATOR);
+      if (vmName.startsWith(VIRTUALBOX_NODE_PREFIX)){
          group = encodedInVmName[2];
          name = encodedInVmName[3];
       } else {
@@ -92,21 +93,21 @@ public class IMachineToNodeMetadata implements Function<IMachine, NodeMetadata>
       }
       
       NodeMetadataBuilder nodeMetadataBuilder = new NodeMetadataBuilder();
-      nodeMetadataBuilder.name(name).ids(vm.getName()).group(group);
+      nodeMetadataBuilder.name(name).ids(vmName).group(group);
       // TODO Set up location properly
       LocationBuilder locationBuilder = new LocationBuilder();
       locationBuilder.description("");
       locationBuilder.id("");
       locationBuilder.scope(LocationScope.HOST);
       nodeMetadataBuilder.location(locationBuilder.build());
-      nodeMetadataBuilder.hostname(vm.getName());
+      nodeMetadataBuilder.hostname(vmName);
 
       MachineState vmState = vm.getState();
       NodeMetadata.Status nodeState = toPortableNodeStatus.get(vmState);
       if (nodeState == null)
          nodeState = Status.UNRECOGNIZED;
       nodeMetadataBuilder.status(nodeState);
-      nodeMetadataBuilder = getIpAddresses(vm, nodeMetadataBuilder);
+      nodeMetadataBuilder = getIpAddresses(vm, vmName, nodeMetadataBuilder);
       
       IGuestOSType guestOSType = virtualboxManager.get().getVBox().getGuestOSType(vm.getOSTypeId());
       OsFamily family = parseOsFamilyOrUnrecognized(guestOSType.getDescription());
@@ -124,13 +125,14 @@ public class IMachineToNodeMetadata implements Function<IMachine, NodeMetadata>
       return nodeMetadataBuilder.build();
    }
    
-   private NodeMetadataBuilder getIpAddresses(IMachine vm, NodeMetadataBuilder nodeMetadataBuilder) {
+   private NodeMetadataBuilder getIpAddresses(IMachine vm, String vmName, NodeMetadataBuilder nodeMetadataBuilder) {
       List<String> publicIpAddresses = Lists.newArrayList();
       List<String> privateIpAddresses = Lists.newArrayList();
       for (long slot = 0; slot < 4; slot ++) {
          INetworkAdapter adapter = vm.getNetworkAdapter(slot);
          if (adapter != null) {
-            if (adapter.getAttachmentType() == NetworkAttachmentType.NAT) {
+            NetworkAttachmentType attachmentType = adapter.getAttachmentType();
+            if (attachmentType == NetworkAttachmentType.NAT) {
                String hostIP = adapter.getNATEngine().getHostIP();
                if (!hostIP.isEmpty())
                   publicIpAddresses.add(hostIP);
@@ -146,12 +148,12 @@ public class IMachineToNodeMetadata implements Function<IMachine, NodeMetadata>
                      nodeMetadataBuilder.loginPort(inPort);
                   }
                }
-            } else if (adapter.getAttachmentType() == NetworkAttachmentType.Bridged) {
-               String clientIpAddress = networkUtils.getIpAddressFromNicSlot(vm.getName(), adapter.getSlot());
+            } else if (attachmentType == NetworkAttachmentType.Bridged) {
+               String clientIpAddress = networkUtils.getIpAddressFromNicSlot(vmName, adapter.getSlot());
                privateIpAddresses.add(clientIpAddress);
 
-            } else if (adapter.getAttachmentType() == NetworkAttachmentType.HostOnly) {
-               String clientIpAddress = networkUtils.getValidHostOnlyIpFromVm(vm.getName());             
+            } else if (attachmentType == NetworkAttachmentType.HostOnly) {
+               String clientIpAddress = networkUtils.getValidHostOnlyIpFromVm(vmName);             
                publicIpAddresses.add(clientIpAddress);
             }
          }
@@ -18,8 +18,8 @@ package org.jclouds.virtualbox.functions;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -34,11 +34,13 @@ import org.virtualbox_4_2.VirtualBoxManager;
 import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
 import com.google.common.cache.AbstractLoadingCache;
-import com.google.common.collect.Maps;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
  * A {@link LoadingCache} for ip addresses. If the requested ip address has been
- * previously extracted this returns it, if not it calls vbox api.
+ * previously extracted this returns it, if not it calls vbox api. Only found addresses are
+ * cached, and they expire so a guest that gets a new lease is eventually seen.
  */
 @Singleton
 public class IpAddressesLoadingCache extends
@@ -48,7 +50,10 @@ public class IpAddressesLoadingCache extends
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
 
-   private final Map<MachineNameOrIdAndNicSlot, String> masters = Maps.newHashMap();
+   private static final long EXPIRATION_MINUTES = 5;
+
+   private final Cache<MachineNameOrIdAndNicSlot, String> masters = CacheBuilder.newBuilder()
+         .expireAfterWrite(EXPIRATION_MINUTES, TimeUnit.MINUTES).build();
    private final Supplier<VirtualBoxManager> manager;
 
    @Inject
@@ -57,9 +62,10 @@ public class IpAddressesLoadingCache extends
    }
 
    @Override
-   public synchronized String get(MachineNameOrIdAndNicSlot machineNameOrIdAndNicPort) throws ExecutionException {
-      if (masters.containsKey(machineNameOrIdAndNicPort)) {
-         return masters.get(machineNameOrIdAndNicPort);
+   public String get(MachineNameOrIdAndNicSlot machineNameOrIdAndNicPort) throws ExecutionException {
+      String cached = masters.getIfPresent(machineNameOrIdAndNicPort);
+      if (cached != null) {
+         return cached;
       }
       String query = String.format("/VirtualBox/GuestInfo/Net/%s/V4/IP", machineNameOrIdAndNicPort.getSlotText());
       String ipAddress = Strings.nullToEmpty(manager.get().getVBox()
@@ -67,19 +73,19 @@ public class IpAddressesLoadingCache extends
       if (!ipAddress.isEmpty()) {
          logger.debug("<< vm(%s) has IP address(%s) at slot(%s)", machineNameOrIdAndNicPort.getMachineNameOrId(),
             ipAddress, machineNameOrIdAndNicPort.getSlotText());
+         masters.put(machineNameOrIdAndNicPort, ipAddress);
       }
-      masters.put(machineNameOrIdAndNicPort, ipAddress);
       return ipAddress;
    }
 
    @Override
    public String getIfPresent(Object key) {
-      return masters.get((MachineNameOrIdAndNicSlot) key);
+      return masters.getIfPresent(key);
    }
 
    @Override
    public void invalidate(Object key) {
-      masters.remove(key);
+      masters.invalidate(key);
    }
 
 }
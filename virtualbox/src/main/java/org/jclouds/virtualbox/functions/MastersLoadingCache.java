@@ -19,7 +19,6 @@ package org.jclouds.virtualbox.functions;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static org.jclouds.compute.options.RunScriptOptions.Builder.runAsRoot;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_DEFAULT_DIR;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_IMAGE_PREFIX;
 import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_NODE_NAME_SEPARATOR;
@@ -28,11 +27,13 @@ import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_WORKI
 import static org.jclouds.virtualbox.util.MachineUtils.machineNotFoundException;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
 import javax.annotation.PostConstruct;
@@ -41,18 +42,12 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
-import org.jclouds.compute.callables.RunScriptOnNode.Factory;
-import org.jclouds.compute.domain.ExecResponse;
 import org.jclouds.compute.domain.Image;
-import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.domain.LoginCredentials;
 import org.jclouds.location.Provider;
 import org.jclouds.logging.Logger;
 import org.jclouds.rest.annotations.BuildVersion;
-import org.jclouds.scriptbuilder.domain.Statement;
-import org.jclouds.scriptbuilder.domain.StatementList;
-import org.jclouds.scriptbuilder.domain.Statements;
 import org.jclouds.virtualbox.domain.HardDisk;
 import org.jclouds.virtualbox.domain.IsoSpec;
 import org.jclouds.virtualbox.domain.Master;
@@ -63,9 +58,9 @@ import org.jclouds.virtualbox.domain.NetworkSpec;
 import org.jclouds.virtualbox.domain.StorageController;
 import org.jclouds.virtualbox.domain.VmSpec;
 import org.jclouds.virtualbox.domain.YamlImage;
+import org.jclouds.virtualbox.functions.admin.IsoFetcher;
 import org.jclouds.virtualbox.functions.admin.PreseedCfgServer;
 import org.jclouds.virtualbox.predicates.RetryIfSocketNotYetOpen;
-import org.jclouds.virtualbox.statements.Md5;
 import org.jclouds.virtualbox.util.NetworkUtils;
 import org.virtualbox_4_2.CleanupMode;
 import org.virtualbox_4_2.IMachine;
@@ -79,19 +74,19 @@ import com.google.common.base.Function;
 import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
 import com.google.common.cache.AbstractLoadingCache;
-import com.google.common.collect.ImmutableList;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.net.HostAndPort;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * A {@link LoadingCache} for masters. If the requested master has been
  * previously created this returns it, if not it coordinates its creation
- * including downloading isos and creating cache/config directories. This also
- * implements {@link Supplier} in order to provide jetty with the current image
- * (only one master can be created at a time).
+ * including downloading isos and creating cache/config directories. Different
+ * masters are built in parallel, each one with its own preseed server, and
+ * concurrent requests for the same image wait for the same build.
  */
 @Singleton
 public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
@@ -100,7 +95,12 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
 
-   private final Map<String, Master> masters = Maps.newHashMap();
+   // how many preseed servers can run at the same time, on consecutive ports
+   private static final int MAX_PRESEED_SERVERS = 16;
+
+   private final Cache<String, Master> masters = CacheBuilder.newBuilder().build();
+   private final Object preseedLock = new Object();
+   private final Set<Integer> preseedPorts = Sets.newHashSet();
    private final Function<MasterSpec, IMachine> masterCreatorAndInstaller;
    private final Map<String, YamlImage> imageMapping;
    private final String workingDir;
@@ -109,19 +109,16 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
    private final String version;
    private final String preconfigurationUrl;
 
-   private final Factory runScriptOnNodeFactory;
    private final RetryIfSocketNotYetOpen socketTester;
-   private final Supplier<NodeMetadata> host;
    private final Supplier<URI> providerSupplier;
-   private final HardcodedHostToHostNodeMetadata hardcodedHostToHostNodeMetadata;
+   private final IsoFetcher isoFetcher;
 
    @Inject
    public MastersLoadingCache(@BuildVersion String version,
          @Named(VIRTUALBOX_PRECONFIGURATION_URL) String preconfigurationUrl,
          @Named(VIRTUALBOX_WORKINGDIR) String workingDir, Function<MasterSpec, IMachine> masterLoader,
          Supplier<Map<Image, YamlImage>> yamlMapper, Supplier<VirtualBoxManager> manager,
-         Factory runScriptOnNodeFactory, RetryIfSocketNotYetOpen socketTester, Supplier<NodeMetadata> host,
-         @Provider Supplier<URI> providerSupplier, HardcodedHostToHostNodeMetadata hardcodedHostToHostNodeMetadata) {
+         RetryIfSocketNotYetOpen socketTester, @Provider Supplier<URI> providerSupplier, IsoFetcher isoFetcher) {
       this.manager = checkNotNull(manager, "vboxmanager can't be null");
       this.masterCreatorAndInstaller = masterLoader;
       this.workingDir = workingDir == null ? VIRTUALBOX_DEFAULT_DIR : workingDir;
@@ -133,12 +130,10 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
       this.version = Iterables.get(Splitter.on('r').split(checkNotNull(version, "version")), 0);
       this.preconfigurationUrl = preconfigurationUrl;
 
-      this.runScriptOnNodeFactory = checkNotNull(runScriptOnNodeFactory, "runScriptOnNodeFactory");
       this.socketTester = checkNotNull(socketTester, "socketTester");
       this.socketTester.seconds(3L);
-      this.host = checkNotNull(host, "host");
       this.providerSupplier = checkNotNull(providerSupplier, "endpoint to virtualbox websrvd is needed");
-      this.hardcodedHostToHostNodeMetadata = hardcodedHostToHostNodeMetadata;
+      this.isoFetcher = checkNotNull(isoFetcher, "isoFetcher");
    }
 
    @PostConstruct
@@ -149,11 +144,18 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
    }
 
    @Override
-   public synchronized Master get(Image key) throws ExecutionException {
-      // check if we have loaded this machine before
-      if (masters.containsKey(key.getId())) {
-         return masters.get(key.getId());
-      }
+   public Master get(final Image key) throws ExecutionException {
+      // only the first request for an image builds it, the others wait for its result; a failed
+      // download is the cause of the ExecutionException, and other failures are unchecked
+      return masters.get(key.getId(), new Callable<Master>() {
+         @Override
+         public Master call() throws Exception {
+            return loadMaster(key);
+         }
+      });
+   }
+
+   private Master loadMaster(Image key) throws IOException {
       checkState(!key.getId().contains(VIRTUALBOX_NODE_NAME_SEPARATOR), "master image names cannot contain \""
             + VIRTUALBOX_NODE_NAME_SEPARATOR + "\"");
       String vmName = VIRTUALBOX_IMAGE_PREFIX + key.getId();
@@ -161,6 +163,7 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
       Master master;
       // ready the preseed file server
       PreseedCfgServer server = new PreseedCfgServer();
+      URI preseedServer = null;
       try {
          // try and find a master machine in vbox
          masterMachine = manager.get().getVBox().findMachine(vmName);
@@ -169,18 +172,16 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
          if (machineNotFoundException(e)) {
             // machine was not found try to build one from a yaml file
             YamlImage currentImage = checkNotNull(imageMapping.get(key.getId()), "currentImage");
-            URI preseedServer;
+            String preseedUrl;
             try {
-               preseedServer = new URI(preconfigurationUrl);
-               if (!socketTester.apply(HostAndPort.fromParts(preseedServer.getHost(), preseedServer.getPort()))) {
-                  server.start(preconfigurationUrl, currentImage.preseed_cfg);
-               }
+               preseedServer = startPreseedServer(server, currentImage.preseed_cfg);
+               preseedUrl = preseedServer != null ? preseedServer.toString() : preconfigurationUrl;
             } catch (URISyntaxException e1) {
                logger.error("Cannot start the preseed server", e);
                throw e;
             }
 
-            MasterSpec masterSpec = buildMasterSpecFromYaml(currentImage, vmName);
+            MasterSpec masterSpec = buildMasterSpecFromYaml(currentImage, vmName, preseedUrl);
             masterMachine = masterCreatorAndInstaller.apply(masterSpec);
             master = Master.builder().machine(masterMachine).spec(masterSpec).build();
          } else {
@@ -189,19 +190,55 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
          }
       } finally {
          server.stop();
+         if (preseedServer != null) {
+            synchronized (preseedLock) {
+               preseedPorts.remove(preseedServer.getPort());
+            }
+         }
       }
-
-      masters.put(key.getId(), master);
       return master;
    }
 
-   private MasterSpec buildMasterSpecFromYaml(YamlImage currentImage, String vmName) throws ExecutionException {
+   /**
+    * Starts a preseed server for one master build, on the first free port from the configured
+    * one.
+    * 
+    * @return the url of the started server, or null if a server not started by this cache already
+    *         answers at the configured url
+    */
+   private URI startPreseedServer(PreseedCfgServer server, String preseedCfg) throws URISyntaxException {
+      URI configured = new URI(preconfigurationUrl);
+      synchronized (preseedLock) {
+         if (preseedPorts.isEmpty()
+                  && socketTester.apply(HostAndPort.fromParts(configured.getHost(), configured.getPort()))) {
+            return null;
+         }
+         for (int port = configured.getPort(); port < configured.getPort() + MAX_PRESEED_SERVERS; port++) {
+            if (preseedPorts.contains(port)) {
+               continue;
+            }
+            URI preseedServer = new URI(configured.getScheme(), configured.getUserInfo(), configured.getHost(), port,
+                     configured.getPath(), configured.getQuery(), configured.getFragment());
+            try {
+               server.start(preseedServer.toString(), preseedCfg);
+            } catch (RuntimeException e) {
+               logger.debug("<< port %s is not available for the preseed server: %s", port, e.getMessage());
+               server.stop();
+               continue;
+            }
+            preseedPorts.add(port);
+            return preseedServer;
+         }
+      }
+      throw new IllegalStateException(String.format("no free port for the preseed server in %s-%s", configured
+               .getPort(), configured.getPort() + MAX_PRESEED_SERVERS - 1));
+   }
+
+   private MasterSpec buildMasterSpecFromYaml(YamlImage currentImage, String vmName, String preseedUrl)
+            throws IOException {
       String guestAdditionsFileName = String.format("VBoxGuestAdditions_%s.iso", version);
-      String guestAdditionsIso = String.format("%s/%s", isosDir, guestAdditionsFileName);
       String guestAdditionsUri = "http://download.virtualbox.org/virtualbox/" + version + "/" + guestAdditionsFileName;
-      if (!new File(guestAdditionsIso).exists()) {
-         getFilePathOrDownload(guestAdditionsUri, null);
-      }
+      getFilePathOrDownload(guestAdditionsUri, null);
       // check if the iso is here, download if not
       String localIsoUrl = checkNotNull(getFilePathOrDownload(currentImage.iso, currentImage.iso_md5), "distro iso");
       String adminDisk = workingDir + File.separator + vmName + ".vdi";
@@ -224,12 +261,14 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
 
       NetworkSpec networkSpec = NetworkSpec.builder().addNIC(networkInterfaceCard).build();
 
-      String installationSequence = currentImage.keystroke_sequence.replace("HOSTNAME", vmSpecification.getVmName());
+      String installationSequence = currentImage.keystroke_sequence.replace("HOSTNAME", vmSpecification.getVmName())
+            .replace("PRECONFIGURATION_URL", preseedUrl);
       return MasterSpec.builder()
                        .vm(vmSpecification)
                        .iso(IsoSpec.builder()
                                    .sourcePath(localIsoUrl)
                                    .installationScript(installationSequence)
+                                   .keystrokePacing(currentImage.toKeystrokePacing())
                                    .build())
                        .network(networkSpec)
                        .credentials(LoginCredentials.builder()
@@ -241,42 +280,14 @@ public class MastersLoadingCache extends AbstractLoadingCache<Image, Master> {
    }
 
    @Override
-   public synchronized Master getIfPresent(Object key) {
+   public Master getIfPresent(Object key) {
       checkArgument(key instanceof Image, "this cache is for entries who's keys are Images");
       Image image = Image.class.cast(key);
-      if (masters.containsKey(image.getId())) {
-         return masters.get(image.getId());
-      }
-      return null;
+      return masters.getIfPresent(image.getId());
    }
 
-   private String getFilePathOrDownload(String httpUrl, String expectedMd5) throws ExecutionException {
-      String fileName = httpUrl.substring(httpUrl.lastIndexOf('/') + 1, httpUrl.length());
-      URI provider = providerSupplier.get();
-      if (!socketTester.apply(HostAndPort.fromParts(provider.getHost(), provider.getPort()))) {
-         throw new RuntimeException("could not connect to virtualbox");
-      }
-      File file = new File(isosDir, fileName);
-      List<Statement> statements = new ImmutableList.Builder<Statement>().add(
-            Statements.saveHttpResponseTo(URI.create(httpUrl), isosDir, fileName)).build();
-      StatementList statementList = new StatementList(statements);
-      NodeMetadata hostNode = checkNotNull(hardcodedHostToHostNodeMetadata.apply(host.get()), "hostNode");
-      ListenableFuture<ExecResponse> future = runScriptOnNodeFactory.submit(hostNode, statementList,
-            runAsRoot(false));
-      Futures.getUnchecked(future);
-
-      if (expectedMd5 != null) {
-         String filePath = isosDir + File.separator + fileName;
-         ListenableFuture<ExecResponse> md5future = runScriptOnNodeFactory.submit(hostNode, new Md5(filePath),
-               runAsRoot(false));
-
-         ExecResponse responseMd5 = Futures.getUnchecked(md5future);
-         assert responseMd5.getExitStatus() == 0 : hostNode.getId() + ": " + responseMd5;
-         checkNotNull(responseMd5.getOutput(), "iso_md5 missing");
-         String actualMd5 = responseMd5.getOutput().trim();
-         checkState(actualMd5.equals(expectedMd5), "md5 of %s is %s but expected %s", filePath, actualMd5, expectedMd5);
-      }
-      return file.getAbsolutePath();
+   private String getFilePathOrDownload(String httpUrl, String expectedMd5) throws IOException {
+      return isoFetcher.fetch(URI.create(httpUrl), new File(isosDir), expectedMd5).getAbsolutePath();
    }
 
    private String getOsTypeId(String os_family, boolean os_64bit) {
@@ -24,6 +24,7 @@ package org.jclouds.virtualbox.functions;
  import com.google.common.collect.ImmutableSet;
  import com.google.common.collect.Iterables;
  import com.google.common.io.Files;
+ import com.google.common.util.concurrent.Striped;
  import org.jclouds.compute.ComputeServiceAdapter.NodeAndInitialCredentials;
  import org.jclouds.compute.domain.NodeMetadata;
  import org.jclouds.compute.domain.NodeMetadataBuilder;
@@ -60,6 +61,7 @@ package org.jclouds.virtualbox.functions;
 
  import java.io.File;
  import java.io.IOException;
+ import java.util.concurrent.locks.Lock;
 
  import static com.google.common.base.Preconditions.checkNotNull;
  import static com.google.common.base.Preconditions.checkState;
@@ -67,13 +69,15 @@ package org.jclouds.virtualbox.functions;
  import static org.jclouds.virtualbox.config.VirtualBoxConstants.GUEST_OS_USER;
  import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_GUEST_MEMORY;
  import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_IMAGE_PREFIX;
+ import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_MASTER_SNAPSHOT_REUSE;
  import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_NODE_NAME_SEPARATOR;
  import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_NODE_PREFIX;
  import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_WORKINGDIR;
 
 /**
- * Creates nodes, by cloning a master vm and based on the provided {@link NodeSpec}. Must be
- * synchronized mainly because of snapshot creation (must be synchronized on a per-master-basis).
+ * Creates nodes, by cloning a master vm and based on the provided {@link NodeSpec}. Cloning is
+ * serialized on a per-master basis, so clones of different masters run concurrently. Every other
+ * step drives the single vbox session of the web service, and runs one node at a time.
  */
 @Singleton
 public class NodeCreator implements Function<NodeSpec, NodeAndInitialCredentials<IMachine>> {
@@ -89,13 +93,17 @@ public class NodeCreator implements Function<NodeSpec, NodeAndInitialCredentials
    private final NetworkUtils networkUtils;
    private final int ram;
    private final String workingDir;
+   private final Striped<Lock> masterLocks = Striped.lazyWeakLock(16);
+   private final Object sessionLock = new Object();
+   private final boolean reuseMasterSnapshot;
    
    @Inject
    public NodeCreator(Supplier<VirtualBoxManager> manager, Function<CloneSpec, IMachine> cloner,
             MachineUtils machineUtils, MachineController machineController,
             NetworkUtils networkUtils,
             @Named(VIRTUALBOX_GUEST_MEMORY) String ram,
-            @Named(VIRTUALBOX_WORKINGDIR) String workingDir) {
+            @Named(VIRTUALBOX_WORKINGDIR) String workingDir,
+            @Named(VIRTUALBOX_MASTER_SNAPSHOT_REUSE) String reuseMasterSnapshot) {
       this.manager = checkNotNull(manager, "manager");
       this.cloner = checkNotNull(cloner, "cloner");
       this.networkUtils = checkNotNull(networkUtils, "networkUtils");
@@ -103,27 +111,43 @@ public class NodeCreator implements Function<NodeSpec, NodeAndInitialCredentials
       this.machineController = checkNotNull(machineController, "machineController");
       this.ram = checkNotNull(Integer.valueOf(ram), "ram");
       this.workingDir = checkNotNull(workingDir, "workingDir");
+      this.reuseMasterSnapshot = Boolean.parseBoolean(reuseMasterSnapshot);
    }
 
    @Override
-   public synchronized NodeAndInitialCredentials<IMachine> apply(NodeSpec nodeSpec) {
+   public NodeAndInitialCredentials<IMachine> apply(NodeSpec nodeSpec) {
       checkNotNull(nodeSpec, "NodeSpec");
       Master master = checkNotNull(nodeSpec.getMaster(), "Master");
       IMachine masterMachine = master.getMachine();
       String guestOsUser = masterMachine.getExtraData(GUEST_OS_USER);
       String guestOsPassword = masterMachine.getExtraData(GUEST_OS_PASSWORD);
 
-      cleanUpMaster(master);
       CloneSpec cloneSpec = configureCloneSpec(nodeSpec, guestOsUser, guestOsPassword);
-      IMachine clone = cloner.apply(cloneSpec);
+      IMachine clone;
+      // the snapshot of a master can only be touched by one clone at a time
+      Lock masterLock = masterLocks.get(masterMachine.getName());
+      masterLock.lock();
+      try {
+         synchronized (sessionLock) {
+            cleanUpMaster(master);
+         }
+         clone = cloner.apply(cloneSpec);
+      } finally {
+         masterLock.unlock();
+      }
       String cloneName =  cloneSpec.getVmSpec().getVmName();
-      logger.debug("<< cloned a vm(%s) from master(%s)", cloneName, nodeSpec.getMaster().getMachine().getName());
-      machineController.ensureMachineIsLaunched(cloneName);
-      logger.debug("<< cloned vm(%s) is up and running", cloneName);
+      logger.debug("<< cloned a vm(%s) from master(%s)", cloneName, masterMachine.getName());
 
-      reconfigureNetworkInterfaces(masterMachine, guestOsUser, guestOsPassword, cloneSpec.getNetworkSpec(), clone);
+      // the vbox session is shared, so launching and configuring the clones can't overlap
+      synchronized (sessionLock) {
+         machineController.ensureMachineIsLaunched(cloneName);
+         logger.debug("<< cloned vm(%s) is up and running", cloneName);
 
-      postConfigurations(clone, guestOsUser, guestOsPassword);
+         reconfigureNetworkInterfaces(masterMachine, guestOsUser, guestOsPassword, cloneSpec.getNetworkSpec(),
+                  clone);
+
+         postConfigurations(clone, guestOsUser, guestOsPassword);
+      }
 
       LoginCredentials credentials = LoginCredentials.builder()
                                                      .user(guestOsUser)
@@ -180,7 +204,10 @@ public class NodeCreator implements Function<NodeSpec, NodeAndInitialCredentials
    }
 
    private void cleanUpMaster(Master master) {
-      deleteExistingSnapshot(master);
+      // a reusable snapshot is validated, and refreshed if needed, by the cloner
+      if (!reuseMasterSnapshot) {
+         deleteExistingSnapshot(master);
+      }
    }
 
    private void reconfigureHostOnlyInterfaceIfNeeded(final String username, final String password,
@@ -241,15 +268,15 @@ public class NodeCreator implements Function<NodeSpec, NodeAndInitialCredentials
          public Void apply(ISession session) {
             String scriptName = scriptFile.getName();
 
-            manager.get().getSessionObject().getConsole().getGuest()
+            session.getConsole().getGuest()
                     .createSession(username, password, null, null)
                     .copyTo(scriptFile.getAbsolutePath(), "/tmp/" + scriptName, null);
 
-            manager.get().getSessionObject().getConsole().getGuest()
+            session.getConsole().getGuest()
                     .createSession(username, password, null, null)
                     .processCreate("/bin/chmod", ImmutableList.of("777", "/tmp/" + scriptName), null, null, 5 * 1000l);
 
-            manager.get().getSessionObject().getConsole().getGuest()
+            session.getConsole().getGuest()
                     .createSession(username, password, null, null)
                     .processCreate("/bin/sh", ImmutableList.of("/tmp/" + scriptName), null, null, 5 * 1000l);
             return null;
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.functions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_LIST_NODES_CONCURRENCY;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+import org.virtualbox_4_2.IMachine;
+import org.virtualbox_4_2.VBoxException;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Converts machines to {@link NodeMetadata}, reusing the snapshots taken by
+ * {@link #loadMatching(List, Predicate)} for the very machine instances it returned. Every
+ * attribute of an {@link IMachine} is a call to the web service, so listing the nodes reads the
+ * machines concurrently in one pass instead of one after the other while the list is transformed.
+ * <p/>
+ * Snapshots only live for a few seconds, and machines looked up again (e.g. to poll the status of
+ * a node) are always read afresh.
+ */
+@Singleton
+public class NodeMetadataSnapshots implements Function<IMachine, NodeMetadata> {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private static final long EXPIRATION_SECONDS = 5;
+
+   // weak keys are compared by identity, so only the instances returned by a listing hit
+   private final Cache<IMachine, NodeMetadata> snapshots = CacheBuilder.newBuilder().weakKeys()
+            .expireAfterWrite(EXPIRATION_SECONDS, TimeUnit.SECONDS).build();
+   private final IMachineToNodeMetadata imachineToNodeMetadata;
+   private final ListeningExecutorService userExecutor;
+   private final int concurrency;
+
+   @Inject
+   public NodeMetadataSnapshots(IMachineToNodeMetadata imachineToNodeMetadata,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+            @Named(VIRTUALBOX_LIST_NODES_CONCURRENCY) String concurrency) {
+      this.imachineToNodeMetadata = checkNotNull(imachineToNodeMetadata, "imachineToNodeMetadata");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.concurrency = Integer.parseInt(checkNotNull(concurrency, "concurrency"));
+   }
+
+   /**
+    * Reads the machines whose name matches, with at most the configured number of machines being
+    * read at the same time.
+    * 
+    * @return the matching machines, in the given order, whose snapshot is ready for
+    *         {@link #apply(IMachine)}
+    */
+   public List<IMachine> loadMatching(final List<IMachine> machines, final Predicate<String> vmName) {
+      final IMachine[] loaded = new IMachine[machines.size()];
+      final AtomicInteger next = new AtomicInteger();
+      List<ListenableFuture<?>> workers = Lists.newArrayList();
+      for (int i = 0; i < Math.min(concurrency, machines.size()); i++) {
+         workers.add(userExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+               for (int index = next.getAndIncrement(); index < machines.size(); index = next.getAndIncrement()) {
+                  IMachine machine = machines.get(index);
+                  try {
+                     if (vmName.apply(machine.getName())) {
+                        snapshots.put(machine, imachineToNodeMetadata.apply(machine));
+                        loaded[index] = machine;
+                     }
+                  } catch (VBoxException e) {
+                     // the machine was unregistered while it was being read
+                     logger.debug("<< could not read vm: %s", e.getMessage());
+                  }
+               }
+            }
+         }));
+      }
+      getUnchecked(allAsList(workers));
+      return ImmutableList.copyOf(Iterables.filter(Arrays.asList(loaded), Predicates.notNull()));
+   }
+
+   @Override
+   public NodeMetadata apply(IMachine machine) {
+      NodeMetadata snapshot = snapshots.getIfPresent(machine);
+      return snapshot != null ? snapshot : imachineToNodeMetadata.apply(machine);
+   }
+}
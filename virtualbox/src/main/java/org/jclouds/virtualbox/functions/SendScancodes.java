@@ -16,6 +16,8 @@
  */
 package org.jclouds.virtualbox.functions;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Predicates.in;
 import static com.google.common.collect.Iterables.any;
 import static com.google.common.collect.Lists.partition;
@@ -29,43 +31,85 @@ import javax.annotation.Resource;
 import javax.inject.Named;
 
 import org.jclouds.logging.Logger;
+import org.jclouds.virtualbox.domain.KeystrokePacing;
+import org.virtualbox_4_2.IKeyboard;
 import org.virtualbox_4_2.ISession;
 
 import com.google.common.base.Function;
 import com.google.common.util.concurrent.Uninterruptibles;
 
+/**
+ * Types scancodes into a machine, paced as described by a {@link KeystrokePacing}. In adaptive
+ * mode the whole list is sent in bursts and the machine is only given time at the end, so callers
+ * should end the list on a key that may change the screen.
+ */
 class SendScancodes implements Function<ISession, Void> {
 
    @Resource
    @Named(COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
 
-   private static final int MAX_SIZE = 30;
+   // how long to wait for the guest to drain its keyboard queue when it is full
+   private static final long QUEUE_FULL_PAUSE_MILLIS = 10;
+   private static final int QUEUE_FULL_MAX_RETRIES = 500;
 
    private final List<Integer> scancodes;
+   private final KeystrokePacing pacing;
 
    public SendScancodes(List<Integer> scancodes) {
+      this(scancodes, KeystrokePacing.FIXED);
+   }
+
+   public SendScancodes(List<Integer> scancodes, KeystrokePacing pacing) {
       this.scancodes = scancodes;
+      this.pacing = checkNotNull(pacing, "pacing");
    }
 
    @Override
    public Void apply(ISession iSession) {
-      for (List<Integer> maxOrLess : partition(scancodes, MAX_SIZE)) {
+      if (pacing.isAdaptive()) {
+         sendInBursts(iSession.getConsole().getKeyboard());
+         return null;
+      }
+      for (List<Integer> maxOrLess : partition(scancodes, pacing.getBurstSize())) {
          long codesSent = iSession.getConsole().getKeyboard().putScancodes(maxOrLess);
          logger.debug("List of scancodes sent: ", maxOrLess);
          assert codesSent == maxOrLess.size();
          if (any(maxOrLess, in(SPECIAL_KEYBOARD_BUTTON_MAP_LIST.values()))) {
             // in case of special keystroke we assume more time needed than normal (page refresh)
-            Uninterruptibles.sleepUninterruptibly(500, TimeUnit.MILLISECONDS);
+            Uninterruptibles.sleepUninterruptibly(pacing.getSpecialKeyPauseMillis(), TimeUnit.MILLISECONDS);
          } else {
-            Uninterruptibles.sleepUninterruptibly(250, TimeUnit.MILLISECONDS);
+            Uninterruptibles.sleepUninterruptibly(pacing.getPauseMillis(), TimeUnit.MILLISECONDS);
          }
       }
       return null;
    }
 
+   private void sendInBursts(IKeyboard keyboard) {
+      for (List<Integer> burst : partition(scancodes, pacing.getBurstSize())) {
+         List<Integer> pending = burst;
+         int retries = 0;
+         while (!pending.isEmpty()) {
+            long accepted = keyboard.putScancodes(pending);
+            int codesSent = (int) accepted;
+            if (codesSent < pending.size()) {
+               // the keyboard queue of the guest is full, give it time to process what it got
+               checkState(retries++ < QUEUE_FULL_MAX_RETRIES, "the guest keyboard does not accept scancodes");
+               Uninterruptibles.sleepUninterruptibly(QUEUE_FULL_PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            pending = pending.subList(codesSent, pending.size());
+         }
+         logger.debug("List of scancodes sent: %s", burst);
+         if (pacing.getPauseMillis() > 0) {
+            Uninterruptibles.sleepUninterruptibly(pacing.getPauseMillis(), TimeUnit.MILLISECONDS);
+         }
+      }
+      // the last key may have changed the screen
+      Uninterruptibles.sleepUninterruptibly(pacing.getSpecialKeyPauseMillis(), TimeUnit.MILLISECONDS);
+   }
+
    @Override
    public String toString() {
-      return "sendScancodes(" + scancodes + ")";
+      return "sendScancodes(" + scancodes + ", " + pacing + ")";
    }
 }
@@ -37,13 +37,25 @@ public class TakeSnapshotIfNotAlreadyAttached implements Function<IMachine, ISna
    private String snapshotName;
    private String snapshotDesc;
    private Logger logger;
+   private boolean refreshStale;
 
    public TakeSnapshotIfNotAlreadyAttached(Supplier<VirtualBoxManager> manager, String snapshotName,
             String snapshotDesc, Logger logger) {
+      this(manager, snapshotName, snapshotDesc, logger, false);
+   }
+
+   /**
+    * @param refreshStale
+    *           if true, a new snapshot is also taken when the current one has another name or the
+    *           machine has changed since it was taken, so the current snapshot can be safely reused
+    */
+   public TakeSnapshotIfNotAlreadyAttached(Supplier<VirtualBoxManager> manager, String snapshotName,
+            String snapshotDesc, Logger logger, boolean refreshStale) {
       this.manager = manager;
       this.snapshotName = snapshotName;
       this.snapshotDesc = snapshotDesc;
       this.logger = logger;
+      this.refreshStale = refreshStale;
    }
 
    @Override
@@ -52,7 +64,7 @@ public class TakeSnapshotIfNotAlreadyAttached implements Function<IMachine, ISna
       ISession session = null;
       ISnapshot snap = machine.getCurrentSnapshot();
 
-      if (snap == null) {
+      if (snap == null || (refreshStale && isStale(machine, snap))) {
          try {
             session = manager.get().openMachineSession(machine);
             int retries = 10;
@@ -107,4 +119,17 @@ public class TakeSnapshotIfNotAlreadyAttached implements Function<IMachine, ISna
       }
       return snap;
    }
+
+   private boolean isStale(IMachine machine, ISnapshot snap) {
+      if (!snapshotName.equals(snap.getName())) {
+         logger.debug(">> current snapshot(%s) of machine(%s) is not a %s snapshot", snap.getName(),
+                  machine.getName(), snapshotName);
+         return true;
+      }
+      if (Boolean.TRUE.equals(machine.getCurrentStateModified())) {
+         logger.debug(">> machine(%s) has changed since snapshot(%s) was taken", machine.getName(), snapshotName);
+         return true;
+      }
+      return false;
+   }
 }
@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.functions.admin;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.jclouds.util.Closeables2.closeQuietly;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_ISO_CACHE;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_ISO_DOWNLOAD_SEGMENTS;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Downloads isos to the local disk. Interrupted downloads are resumed with http range requests,
+ * big files are fetched in parallel ranges when the server supports them, and the md5 is computed
+ * while the bytes are written. Files with a known md5 are kept in a cache keyed by checksum, so
+ * they are downloaded only once for all the working directories.
+ * <p>
+ * Redirects are followed, also across protocols, up to {@link #MAX_REDIRECTS} hops. The ranges run
+ * on threads owned by the download, so a download started from the user executor never waits on
+ * tasks queued behind it.
+ */
+@Singleton
+public class IsoFetcher {
+
+   static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+   static final int MAX_REDIRECTS = 5;
+   private static final int CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(30);
+   private static final int READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(60);
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final File cacheDir;
+   private final int segments;
+   private final Striped<Lock> targetLocks = Striped.lazyWeakLock(16);
+
+   @Inject
+   public IsoFetcher(@Named(VIRTUALBOX_ISO_CACHE) String cacheDir,
+            @Named(VIRTUALBOX_ISO_DOWNLOAD_SEGMENTS) String segments) {
+      this.cacheDir = new File(checkNotNull(cacheDir, "cacheDir"));
+      this.segments = Integer.parseInt(checkNotNull(segments, "segments"));
+      checkArgument(this.segments > 0, "segments must be positive");
+   }
+
+   /**
+    * Returns the local copy of the given file, downloading it if needed.
+    * 
+    * @param targetDir
+    *           where the file is stored when its md5 is not known
+    * @param expectedMd5
+    *           if present, the file is verified against it and stored in the iso cache
+    */
+   public File fetch(URI source, File targetDir, @Nullable String expectedMd5) throws IOException {
+      String fileName = new File(source.getPath()).getName();
+      File target = expectedMd5 == null ? new File(targetDir, fileName) : new File(new File(cacheDir,
+               expectedMd5.toLowerCase()), fileName);
+      // masters built in parallel can need the same file
+      Lock lock = targetLocks.get(target.getAbsolutePath());
+      lock.lock();
+      try {
+         if (target.exists()) {
+            logger.debug("<< %s already downloaded to %s", source, target);
+            return target;
+         }
+         target.getParentFile().mkdirs();
+         logger.debug(">> downloading %s to %s", source, target);
+         File part = new File(target.getPath() + ".part");
+         String actualMd5 = download(source, part);
+         if (expectedMd5 != null && !actualMd5.equalsIgnoreCase(expectedMd5)) {
+            part.delete();
+            throw new IllegalStateException(String.format("md5 of %s is %s but expected %s", source, actualMd5,
+                     expectedMd5));
+         }
+         checkState(part.renameTo(target), "could not move %s to %s", part, target);
+         logger.debug("<< downloaded %s to %s", source, target);
+         return target;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   private String download(URI source, File part) throws IOException {
+      long length = -1;
+      boolean ranges = false;
+      if (segments > 1) {
+         HttpURLConnection head = open(source, "HEAD", null);
+         try {
+            if (head.getResponseCode() == HttpURLConnection.HTTP_OK) {
+               String contentLength = head.getHeaderField("Content-Length");
+               length = contentLength == null ? -1 : Long.parseLong(contentLength);
+               ranges = "bytes".equalsIgnoreCase(head.getHeaderField("Accept-Ranges"));
+            }
+         } finally {
+            head.disconnect();
+         }
+      }
+      if (ranges && length >= segments * MIN_SEGMENT_SIZE) {
+         return downloadSegments(source, part, length);
+      }
+      return downloadSingle(source, part);
+   }
+
+   /**
+    * Downloads the whole file in a single request, resuming from what a previous attempt left in
+    * the part file.
+    */
+   private String downloadSingle(URI source, File part) throws IOException {
+      Hasher hasher = Hashing.md5().newHasher();
+      long offset = part.exists() ? part.length() : 0;
+      if (offset > 0) {
+         // the digest also covers the bytes downloaded before
+         InputStream existing = new FileInputStream(part);
+         try {
+            copy(existing, null, hasher);
+         } finally {
+            closeQuietly(existing);
+         }
+      }
+      HttpURLConnection connection = open(source, "GET", offset > 0 ? "bytes=" + offset + "-" : null);
+      try {
+         int code = connection.getResponseCode();
+         if (offset > 0 && code == 416) {
+            // nothing left to download
+            return hasher.hash().toString();
+         }
+         boolean resumed = offset > 0 && code == HttpURLConnection.HTTP_PARTIAL;
+         if (!resumed) {
+            if (code != HttpURLConnection.HTTP_OK) {
+               throw new IOException(String.format("could not download %s: %s %s", source, code,
+                        connection.getResponseMessage()));
+            }
+            hasher = Hashing.md5().newHasher();
+         } else {
+            logger.debug(">> resuming download of %s at byte %s", source, offset);
+         }
+         transfer(connection, part, resumed, hasher);
+         return hasher.hash().toString();
+      } finally {
+         connection.disconnect();
+      }
+   }
+
+   /**
+    * Downloads the file in parallel ranges, each one in its own resumable part file, and joins
+    * them computing the digest.
+    */
+   private String downloadSegments(final URI source, File part, long length) throws IOException {
+      long segmentSize = (length + segments - 1) / segments;
+      List<File> segmentFiles = Lists.newArrayList();
+      List<ListenableFuture<Void>> downloads = Lists.newArrayList();
+      ListeningExecutorService rangeExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
+               segments, new ThreadFactoryBuilder().setNameFormat("iso-fetcher-%d").setDaemon(true).build()));
+      for (int i = 0; i < segments; i++) {
+         final long start = i * segmentSize;
+         final long end = Math.min(length, start + segmentSize) - 1;
+         final File segment = new File(part.getPath() + i);
+         segmentFiles.add(segment);
+         downloads.add(rangeExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+               downloadRange(source, segment, start, end);
+               return null;
+            }
+         }));
+      }
+      try {
+         Futures.allAsList(downloads).get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      } catch (ExecutionException e) {
+         Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+         throw Throwables.propagate(e.getCause());
+      } finally {
+         for (ListenableFuture<Void> download : downloads) {
+            download.cancel(true);
+         }
+         rangeExecutor.shutdownNow();
+      }
+
+      Hasher hasher = Hashing.md5().newHasher();
+      OutputStream out = new FileOutputStream(part);
+      try {
+         for (File segment : segmentFiles) {
+            InputStream in = new FileInputStream(segment);
+            try {
+               copy(in, out, hasher);
+            } finally {
+               closeQuietly(in);
+            }
+         }
+      } finally {
+         closeQuietly(out);
+      }
+      for (File segment : segmentFiles) {
+         segment.delete();
+      }
+      return hasher.hash().toString();
+   }
+
+   private void downloadRange(URI source, File segment, long start, long end) throws IOException {
+      long offset = segment.exists() ? segment.length() : 0;
+      long expected = end - start + 1;
+      if (offset == expected) {
+         return;
+      }
+      if (offset > expected) {
+         segment.delete();
+         offset = 0;
+      }
+      HttpURLConnection connection = open(source, "GET", "bytes=" + (start + offset) + "-" + end);
+      try {
+         int code = connection.getResponseCode();
+         if (code != HttpURLConnection.HTTP_PARTIAL) {
+            throw new IOException(String.format("could not download bytes %s-%s of %s: %s %s", start + offset, end,
+                     source, code, connection.getResponseMessage()));
+         }
+         transfer(connection, segment, offset > 0, null);
+      } finally {
+         connection.disconnect();
+      }
+      checkState(segment.length() == expected, "incomplete download of bytes %s-%s of %s", start, end, source);
+   }
+
+   /**
+    * Sends the request and follows the redirects, which {@link HttpURLConnection} does not do when
+    * the protocol changes, as in http to https.
+    * 
+    * @return the connection to the final location, with the response code already read
+    */
+   private HttpURLConnection open(URI source, String method, @Nullable String range) throws IOException {
+      URI location = source;
+      for (int hops = 0;; hops++) {
+         HttpURLConnection connection = (HttpURLConnection) location.toURL().openConnection();
+         connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+         connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+         connection.setInstanceFollowRedirects(false);
+         connection.setRequestMethod(method);
+         if (range != null) {
+            connection.setRequestProperty("Range", range);
+         }
+         int code = connection.getResponseCode();
+         if (code < 300 || code > 399 || code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return connection;
+         }
+         String next = connection.getHeaderField("Location");
+         connection.disconnect();
+         if (next == null) {
+            throw new IOException(String.format("redirect %s from %s without a location", code, location));
+         }
+         if (hops == MAX_REDIRECTS) {
+            throw new IOException(String.format("too many redirects downloading %s", source));
+         }
+         location = location.resolve(next);
+         logger.debug(">> following redirect of %s to %s", source, location);
+      }
+   }
+
+   private static void transfer(HttpURLConnection connection, File file, boolean append, @Nullable Hasher hasher)
+            throws IOException {
+      InputStream in = connection.getInputStream();
+      try {
+         OutputStream out = new FileOutputStream(file, append);
+         try {
+            copy(in, out, hasher);
+         } finally {
+            closeQuietly(out);
+         }
+      } finally {
+         closeQuietly(in);
+      }
+   }
+
+   private static void copy(InputStream in, @Nullable OutputStream out, @Nullable Hasher hasher) throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+         if (out != null) {
+            out.write(buffer, 0, read);
+         }
+         if (hasher != null) {
+            hasher.putBytes(buffer, 0, read);
+         }
+      }
+   }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+import org.virtualbox_4_2.IEvent;
+import org.virtualbox_4_2.IEventListener;
+import org.virtualbox_4_2.IEventSource;
+import org.virtualbox_4_2.IGuestPropertyChangedEvent;
+import org.virtualbox_4_2.VBoxEventType;
+import org.virtualbox_4_2.VirtualBoxManager;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Watches the guest properties the VirtualBox guest additions publish under
+ * {@code /VirtualBox/GuestInfo/Net/*}, so callers can wait for a machine to get an IP address
+ * instead of polling for it. The watcher only listens to the VirtualBox event source while
+ * someone is waiting.
+ */
+@Singleton
+public class GuestPropertyWatcher {
+
+   private static final Pattern IP_PROPERTY = Pattern.compile("/VirtualBox/GuestInfo/Net/\\d+/V4/IP");
+   private static final int EVENT_TIMEOUT_MILLIS = 1000;
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final Supplier<VirtualBoxManager> manager;
+   private final ListeningExecutorService userExecutor;
+   private final SetMultimap<String, SettableFuture<String>> waiters = Multimaps
+            .synchronizedSetMultimap(HashMultimap.<String, SettableFuture<String>> create());
+   private final AtomicBoolean watching = new AtomicBoolean();
+
+   @Inject
+   public GuestPropertyWatcher(Supplier<VirtualBoxManager> manager,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      this.manager = checkNotNull(manager, "manager");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+   }
+
+   /**
+    * Returns a future that completes with the new value the next time the guest of the given
+    * machine publishes an IPv4 address on any of its NICs. Each call gets its own future, so
+    * callers that stop waiting should cancel it, without affecting other callers waiting for the
+    * same machine.
+    * <p>
+    * The listener is registered with VirtualBox asynchronously, so a change published right after
+    * the first call may be missed.
+    * 
+    * @param machineId
+    *           the uuid of the machine, as reported by the VirtualBox events
+    */
+   public ListenableFuture<String> nextIpAddressChange(final String machineId) {
+      checkNotNull(machineId, "machineId");
+      final SettableFuture<String> waiter = SettableFuture.create();
+      waiters.put(machineId, waiter);
+      waiter.addListener(new Runnable() {
+         @Override
+         public void run() {
+            waiters.remove(machineId, waiter);
+         }
+      }, MoreExecutors.sameThreadExecutor());
+      startWatching();
+      return waiter;
+   }
+
+   private void startWatching() {
+      if (!watching.compareAndSet(false, true)) {
+         return;
+      }
+      try {
+         userExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+               boolean failed = true;
+               try {
+                  watch();
+                  failed = false;
+               } catch (RuntimeException e) {
+                  // waiters fall back to polling until the next one restarts the watcher
+                  logger.warn(e, "error watching the guest properties of the virtualbox machines");
+               } finally {
+                  watching.set(false);
+               }
+               if (!failed && !waiters.isEmpty()) {
+                  startWatching();
+               }
+            }
+         });
+      } catch (RejectedExecutionException e) {
+         watching.set(false);
+         logger.warn(e, "could not start watching the guest properties of the virtualbox machines");
+      }
+   }
+
+   private void watch() {
+      IEventSource source = manager.get().getVBox().getEventSource();
+      IEventListener listener = source.createListener();
+      source.registerListener(listener, ImmutableList.of(VBoxEventType.OnGuestPropertyChanged), false);
+      logger.debug(">> watching guest properties");
+      try {
+         while (!waiters.isEmpty()) {
+            IEvent event = source.getEvent(listener, EVENT_TIMEOUT_MILLIS);
+            if (event == null) {
+               continue;
+            }
+            try {
+               onEvent(IGuestPropertyChangedEvent.queryInterface(event));
+            } finally {
+               source.eventProcessed(listener, event);
+            }
+         }
+      } finally {
+         source.unregisterListener(listener);
+         logger.debug("<< stopped watching guest properties");
+      }
+   }
+
+   private void onEvent(IGuestPropertyChangedEvent change) {
+      if (change != null) {
+         onGuestPropertyChanged(change.getMachineId(), change.getName(), change.getValue());
+      }
+   }
+
+   @VisibleForTesting
+   void onGuestPropertyChanged(String machineId, String name, String value) {
+      if (!IP_PROPERTY.matcher(Strings.nullToEmpty(name)).matches() || Strings.isNullOrEmpty(value)) {
+         return;
+      }
+      Set<SettableFuture<String>> machineWaiters = waiters.removeAll(machineId);
+      if (!machineWaiters.isEmpty()) {
+         logger.debug("<< vm(%s) published %s=%s", machineId, name, value);
+      }
+      for (SettableFuture<String> waiter : machineWaiters) {
+         waiter.set(value);
+      }
+   }
+}
@@ -96,7 +96,7 @@ public class MachineController {
             new Function<ISession, String>() {
                @Override
                public String apply(ISession session) {
-                  retry(new FacilitiesPredicate(session), 15, 3, SECONDS).apply(4);
+                  retry(new FacilitiesPredicate(session), SECONDS.toMillis(15), 250, SECONDS.toMillis(3)).apply(4);
                   String guestAdditionsInstalled = session.getConsole().getGuest().getAdditionsVersion();
                   return guestAdditionsInstalled;
                }
@@ -198,7 +198,8 @@ public class MachineController {
             checkState(
                   retry(new AdditionsStatusPredicate(session), 10, 2, SECONDS).apply(AdditionsRunLevelType.Userland),
                   "timed out waiting for additionsRunLevelType to be %s", AdditionsRunLevelType.Userland);
-            checkState(retry(new FacilitiesPredicate(session), 15, 3, SECONDS).apply(4),
+            checkState(
+                  retry(new FacilitiesPredicate(session), SECONDS.toMillis(15), 250, SECONDS.toMillis(3)).apply(4),
                   "timed out waiting for 4 running facilities");
             Optional<IAdditionsFacility> vboxServiceFacility = Optional.absent();
             while (!vboxServiceFacility.isPresent()) {
@@ -24,6 +24,7 @@ import java.net.URI;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -77,6 +78,9 @@ public class NetworkUtils {
    // TODO parameterize
    public static final int MASTER_PORT = 2222;
    private static final String VIRTUALBOX_HOST_GATEWAY = "10.0.2.15";
+   private static final long HOST_ONLY_IP_TIMEOUT_SECONDS = 30;
+   // how often the guest properties are read again if no change event arrives
+   private static final long HOST_ONLY_IP_POLL_SECONDS = 3;
 
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
@@ -89,11 +93,13 @@ public class NetworkUtils {
    private final IpAddressesLoadingCache ipAddressesLoadingCache;
    private final RunScriptOnNode.Factory scriptRunnerFactory;
    private final Supplier<NodeMetadata> hostSupplier;
+   private final GuestPropertyWatcher guestPropertyWatcher;
 
    @Inject
    public NetworkUtils(Supplier<VirtualBoxManager> manager, MachineUtils machineUtils, Supplier<NodeMetadata> host,
                        @Provider Supplier<URI> providerSupplier, IpAddressesLoadingCache ipAddressesLoadingCache,
-                       Supplier<NodeMetadata> hostSupplier, RunScriptOnNode.Factory scriptRunnerFactory) {
+                       Supplier<NodeMetadata> hostSupplier, RunScriptOnNode.Factory scriptRunnerFactory,
+                       GuestPropertyWatcher guestPropertyWatcher) {
       this.manager = manager;
       this.machineUtils = machineUtils;
       this.host = checkNotNull(host, "host can't be null");
@@ -101,6 +107,7 @@ public class NetworkUtils {
       this.ipAddressesLoadingCache = ipAddressesLoadingCache;
       this.scriptRunnerFactory = scriptRunnerFactory;
       this.hostSupplier = hostSupplier;
+      this.guestPropertyWatcher = guestPropertyWatcher;
    }
 
    public NetworkSpec createNetworkSpecWhenVboxIsLocalhost() {
@@ -139,7 +146,11 @@ public class NetworkUtils {
       return NetworkSpec.builder().addNIC(hostOnlyIfaceCard).addNIC(natIfaceCard).build();
    }
 
-   public String getHostOnlyIfOrCreate() {
+   /**
+    * Returns the host-only interface with DHCP enabled, creating it if there is none. Nodes are
+    * created concurrently, so this is serialized to create a single interface and DHCP server.
+    */
+   public synchronized String getHostOnlyIfOrCreate() {
       IHostNetworkInterface availableHostInterfaceIf = returnExistingHostNetworkInterfaceWithDHCPenabledOrNull(manager
             .get().getVBox().getHost().getNetworkInterfaces());
       if (availableHostInterfaceIf == null) {
@@ -226,27 +237,46 @@ public class NetworkUtils {
    }
 
    public String getValidHostOnlyIpFromVm(String machineNameOrId) {
-      long nicSlot = 0;
-      int count = 0;
+      String machineId = manager.get().getVBox().findMachine(machineNameOrId).getId();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(HOST_ONLY_IP_TIMEOUT_SECONDS);
       String ipAddress = "";
-      while (nicSlot < 4 && ipAddress.isEmpty()) {
-         MachineNameOrIdAndNicSlot machineNameOrIdAndNicSlot =
-                 MachineNameOrIdAndNicSlot.fromParts(machineNameOrId, nicSlot);
-         while (count < 10 && ipAddress.isEmpty()) {
-            Uninterruptibles.sleepUninterruptibly(3, TimeUnit.SECONDS);
-            ipAddress = getIpAddressFromNicSlot(machineNameOrIdAndNicSlot);
-            if (!isValidIpForHostOnly(ipAddress)) {
-               ipAddressesLoadingCache.invalidate(machineNameOrIdAndNicSlot);
-               ipAddress = "";
+      while (true) {
+         // subscribe before reading, so an address published after the read wakes us up; the
+         // watcher may still be registering its listener, which the periodic re-read covers
+         ListenableFuture<String> ipAddressChange = guestPropertyWatcher.nextIpAddressChange(machineId);
+         try {
+            ipAddress = findValidHostOnlyIp(machineNameOrId);
+            long remaining = deadline - System.nanoTime();
+            if (!ipAddress.isEmpty() || remaining <= 0) {
+               break;
             }
-            count++;
+            Uninterruptibles.getUninterruptibly(ipAddressChange,
+                     Math.min(remaining, TimeUnit.SECONDS.toNanos(HOST_ONLY_IP_POLL_SECONDS)), TimeUnit.NANOSECONDS);
+         } catch (TimeoutException e) {
+            // no event, read the guest properties again
+         } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+         } finally {
+            ipAddressChange.cancel(false);
          }
-         nicSlot++;
       }
       return checkNotNull(Strings.emptyToNull(ipAddress),
               String.format("Cannot find a valid IP address for the %s's HostOnly NIC", machineNameOrId));
    }
 
+   private String findValidHostOnlyIp(String machineNameOrId) {
+      for (long nicSlot = 0; nicSlot < 4; nicSlot++) {
+         MachineNameOrIdAndNicSlot machineNameOrIdAndNicSlot =
+                 MachineNameOrIdAndNicSlot.fromParts(machineNameOrId, nicSlot);
+         String ipAddress = getIpAddressFromNicSlot(machineNameOrIdAndNicSlot);
+         if (isValidIpForHostOnly(ipAddress)) {
+            return ipAddress;
+         }
+         ipAddressesLoadingCache.invalidate(machineNameOrIdAndNicSlot);
+      }
+      return "";
+   }
+
    public String getIpAddressFromNicSlot(String machineNameOrId, long nicSlot) {
       MachineNameOrIdAndNicSlot machineNameOrIdAndNicSlot = MachineNameOrIdAndNicSlot.fromParts(machineNameOrId,
             nicSlot);
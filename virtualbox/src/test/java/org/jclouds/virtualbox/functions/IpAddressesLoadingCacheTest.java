@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.functions;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import org.jclouds.virtualbox.util.MachineNameOrIdAndNicSlot;
+import org.testng.annotations.Test;
+import org.virtualbox_4_2.IMachine;
+import org.virtualbox_4_2.IVirtualBox;
+import org.virtualbox_4_2.VirtualBoxManager;
+
+import com.google.common.base.Suppliers;
+
+@Test(groups = "unit", testName = "IpAddressesLoadingCacheTest")
+public class IpAddressesLoadingCacheTest {
+
+   private static final String IP_PROPERTY = "/VirtualBox/GuestInfo/Net/0/V4/IP";
+
+   public void testMissesAreNotCached() throws Exception {
+      VirtualBoxManager manager = createMock(VirtualBoxManager.class);
+      IVirtualBox vBox = createMock(IVirtualBox.class);
+      IMachine machine = createMock(IMachine.class);
+
+      expect(manager.getVBox()).andReturn(vBox).times(3);
+      expect(vBox.findMachine("vm")).andReturn(machine).times(3);
+      expect(machine.getGuestPropertyValue(IP_PROPERTY)).andReturn(null);
+      expect(machine.getGuestPropertyValue(IP_PROPERTY)).andReturn("");
+      expect(machine.getGuestPropertyValue(IP_PROPERTY)).andReturn("192.168.56.101");
+      replay(manager, vBox, machine);
+
+      IpAddressesLoadingCache cache = new IpAddressesLoadingCache(Suppliers.ofInstance(manager));
+      MachineNameOrIdAndNicSlot key = MachineNameOrIdAndNicSlot.fromParts("vm", 0L);
+
+      assertEquals(cache.get(key), "");
+      assertNull(cache.getIfPresent(key));
+      assertEquals(cache.get(key), "");
+      assertEquals(cache.get(key), "192.168.56.101");
+      // served from the cache
+      assertEquals(cache.get(key), "192.168.56.101");
+
+      verify(manager, vBox, machine);
+   }
+
+   public void testInvalidate() throws Exception {
+      VirtualBoxManager manager = createMock(VirtualBoxManager.class);
+      IVirtualBox vBox = createMock(IVirtualBox.class);
+      IMachine machine = createMock(IMachine.class);
+
+      expect(manager.getVBox()).andReturn(vBox).times(2);
+      expect(vBox.findMachine("vm")).andReturn(machine).times(2);
+      expect(machine.getGuestPropertyValue(IP_PROPERTY)).andReturn("192.168.56.101");
+      expect(machine.getGuestPropertyValue(IP_PROPERTY)).andReturn("192.168.56.102");
+      replay(manager, vBox, machine);
+
+      IpAddressesLoadingCache cache = new IpAddressesLoadingCache(Suppliers.ofInstance(manager));
+      MachineNameOrIdAndNicSlot key = MachineNameOrIdAndNicSlot.fromParts("vm", 0L);
+
+      assertEquals(cache.get(key), "192.168.56.101");
+      cache.invalidate(key);
+      assertEquals(cache.get(key), "192.168.56.102");
+
+      verify(manager, vBox, machine);
+   }
+}
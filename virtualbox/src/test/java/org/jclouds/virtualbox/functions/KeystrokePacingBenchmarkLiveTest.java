@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.functions;
+
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_IMAGE_PREFIX;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.logging.Logger;
+import org.jclouds.logging.jdk.JDKLogger;
+import org.jclouds.virtualbox.BaseVirtualBoxClientLiveTest;
+import org.jclouds.virtualbox.domain.HardDisk;
+import org.jclouds.virtualbox.domain.IsoSpec;
+import org.jclouds.virtualbox.domain.KeystrokePacing;
+import org.jclouds.virtualbox.domain.MasterSpec;
+import org.jclouds.virtualbox.domain.NetworkAdapter;
+import org.jclouds.virtualbox.domain.NetworkInterfaceCard;
+import org.jclouds.virtualbox.domain.NetworkSpec;
+import org.jclouds.virtualbox.domain.StorageController;
+import org.jclouds.virtualbox.domain.VmSpec;
+import org.testng.annotations.Test;
+import org.virtualbox_4_2.CleanupMode;
+import org.virtualbox_4_2.NetworkAttachmentType;
+import org.virtualbox_4_2.StorageBus;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Installs a master with each keystroke pacing and reports how long the whole installation took.
+ * Run it on its own, as it builds two masters from scratch.
+ */
+@Test(groups = "live", singleThreaded = true, testName = "KeystrokePacingBenchmarkLiveTest")
+public class KeystrokePacingBenchmarkLiveTest extends BaseVirtualBoxClientLiveTest {
+
+   private static final Map<String, KeystrokePacing> PACINGS = ImmutableMap.of("fixed", KeystrokePacing.FIXED,
+            "adaptive", KeystrokePacing.ADAPTIVE);
+
+   private final Logger logger = new JDKLogger.JDKLoggerFactory().getLogger(getClass().getName());
+
+   public void testMasterInstallTime() {
+      CreateAndInstallVm createAndInstallVm = view.utils().injector().getInstance(CreateAndInstallVm.class);
+      for (Map.Entry<String, KeystrokePacing> pacing : PACINGS.entrySet()) {
+         MasterSpec masterSpec = masterSpec(VIRTUALBOX_IMAGE_PREFIX + "pacing-benchmark-" + pacing.getKey(),
+                  pacing.getValue());
+         String vmName = masterSpec.getVmSpec().getVmName();
+         undoVm(vmName);
+         try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            createAndInstallVm.apply(masterSpec);
+            logger.info("master install time with %s keystroke pacing: %d s", pacing.getKey(),
+                     stopwatch.elapsed(TimeUnit.SECONDS));
+         } finally {
+            undoVm(vmName);
+         }
+      }
+   }
+
+   private MasterSpec masterSpec(String vmName, KeystrokePacing pacing) {
+      StorageController ideController = StorageController
+               .builder()
+               .name("IDE Controller")
+               .bus(StorageBus.IDE)
+               .attachISO(0, 0, operatingSystemIso)
+               .attachHardDisk(
+                        HardDisk.builder().diskpath(adminDisk(vmName)).controllerPort(0).deviceSlot(1)
+                                 .autoDelete(true).build()).attachISO(1, 0, guestAdditionsIso).build();
+
+      VmSpec vmSpec = VmSpec.builder().id(vmName).name(vmName).osTypeId("").memoryMB(512)
+               .cleanUpMode(CleanupMode.Full).controller(ideController).forceOverwrite(true).build();
+
+      IsoSpec isoSpec = IsoSpec.builder().sourcePath(operatingSystemIso).installationScript(keystrokeSequence)
+               .keystrokePacing(pacing).build();
+
+      NetworkAdapter networkAdapter = NetworkAdapter.builder().networkAttachmentType(NetworkAttachmentType.NAT)
+               .tcpRedirectRule("127.0.0.1", 2222, "", 22).build();
+      NetworkInterfaceCard networkInterfaceCard = NetworkInterfaceCard.builder().addNetworkAdapter(networkAdapter)
+               .build();
+      NetworkSpec networkSpec = NetworkSpec.builder().addNIC(networkInterfaceCard).build();
+
+      LoginCredentials credentials = LoginCredentials.builder().user("toor").password("password")
+               .authenticateSudo(true).build();
+      return MasterSpec.builder().iso(isoSpec).vm(vmSpec).network(networkSpec).credentials(credentials).build();
+   }
+}
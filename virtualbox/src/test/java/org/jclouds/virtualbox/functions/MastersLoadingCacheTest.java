@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.functions;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isNull;
+import static org.easymock.EasyMock.replay;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_IMAGE_PREFIX;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.IAnswer;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.virtualbox.domain.Master;
+import org.jclouds.virtualbox.domain.MasterSpec;
+import org.jclouds.virtualbox.domain.YamlImage;
+import org.jclouds.virtualbox.functions.admin.IsoFetcher;
+import org.jclouds.virtualbox.predicates.RetryIfSocketNotYetOpen;
+import org.testng.annotations.Test;
+import org.virtualbox_4_2.IMachine;
+import org.virtualbox_4_2.IVirtualBox;
+import org.virtualbox_4_2.VBoxException;
+import org.virtualbox_4_2.VirtualBoxManager;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Tests the concurrent builds of the {@link MastersLoadingCache}.
+ */
+@Test(groups = "unit", testName = "MastersLoadingCacheTest")
+public class MastersLoadingCacheTest {
+
+   private static final String NOT_FOUND = "VirtualBox error: Could not find a registered machine named ";
+
+   public void testConcurrentRequestsForTheSameMasterBuildItOnce() throws Exception {
+      final IMachine machine = createNiceMock(IMachine.class);
+      final AtomicInteger lookups = new AtomicInteger();
+      final CountDownLatch building = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      IVirtualBox vbox = createMock(IVirtualBox.class);
+      expect(vbox.findMachine(VIRTUALBOX_IMAGE_PREFIX + "ubuntu")).andAnswer(new IAnswer<IMachine>() {
+         @Override
+         public IMachine answer() {
+            lookups.incrementAndGet();
+            building.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            return machine;
+         }
+      }).anyTimes();
+      replay(vbox);
+
+      final Image image = image("ubuntu");
+      final MastersLoadingCache cache = cache(vbox, ImmutableMap.<Image, YamlImage> of(),
+               Functions.forMap(ImmutableMap.<MasterSpec, IMachine> of()), createMock(IsoFetcher.class));
+      final Master[] masters = new Master[2];
+      Thread first = new Thread(request(cache, image, masters, 0));
+      Thread second = new Thread(request(cache, image, masters, 1));
+
+      first.start();
+      building.await();
+      second.start();
+      // the second request waits for the build of the first one
+      while (second.isAlive() && second.getState() != Thread.State.WAITING) {
+         Thread.yield();
+      }
+      release.countDown();
+      first.join();
+      second.join();
+
+      assertEquals(lookups.get(), 1);
+      assertSame(masters[0].getMachine(), machine);
+      assertSame(masters[1], masters[0]);
+   }
+
+   public void testConcurrentBuildsUseDistinctPreseedPorts() throws Exception {
+      IVirtualBox vbox = withoutMachines();
+
+      final IMachine machine = createNiceMock(IMachine.class);
+      final Map<String, String> preseedUrls = Maps.newConcurrentMap();
+      final CyclicBarrier bothBuilding = new CyclicBarrier(2);
+      Function<MasterSpec, IMachine> installer = new Function<MasterSpec, IMachine>() {
+         @Override
+         public IMachine apply(MasterSpec spec) {
+            // the installation sequence is the url of the preseed server
+            preseedUrls.put(spec.getVmSpec().getVmName(), spec.getIsoSpec().getInstallationKeySequence());
+            // both preseed servers are running at this point
+            try {
+               bothBuilding.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+               throw new RuntimeException(e);
+            }
+            return machine;
+         }
+      };
+      Image ubuntu = image("ubuntu");
+      Image debian = image("debian");
+      final MastersLoadingCache cache = cache(vbox, ImmutableMap.of(ubuntu, yaml("ubuntu"), debian, yaml("debian")),
+               installer, isoFetcher());
+      Master[] masters = new Master[2];
+      Thread first = new Thread(request(cache, ubuntu, masters, 0));
+      Thread second = new Thread(request(cache, debian, masters, 1));
+
+      first.start();
+      second.start();
+      first.join();
+      second.join();
+
+      assertEquals(preseedUrls.size(), 2);
+      assertTrue(URI.create(preseedUrls.get(VIRTUALBOX_IMAGE_PREFIX + "ubuntu")).getPort() != URI.create(
+               preseedUrls.get(VIRTUALBOX_IMAGE_PREFIX + "debian")).getPort(), preseedUrls.toString());
+      assertSame(masters[0].getMachine(), machine);
+      assertSame(masters[1].getMachine(), machine);
+   }
+
+   public void testFailedDownloadIsTheCause() throws Exception {
+      IVirtualBox vbox = withoutMachines();
+      IOException failure = new IOException("connection refused");
+      IsoFetcher isoFetcher = createMock(IsoFetcher.class);
+      expect(isoFetcher.fetch(anyObject(URI.class), anyObject(File.class), (String) isNull())).andThrow(failure);
+      replay(isoFetcher);
+
+      Image ubuntu = image("ubuntu");
+      MastersLoadingCache cache = cache(vbox, ImmutableMap.of(ubuntu, yaml("ubuntu")),
+               Functions.forMap(ImmutableMap.<MasterSpec, IMachine> of()), isoFetcher);
+
+      try {
+         cache.get(ubuntu);
+         fail("the download should have failed");
+      } catch (ExecutionException e) {
+         assertSame(e.getCause(), failure);
+      }
+   }
+
+   private static IVirtualBox withoutMachines() {
+      IVirtualBox vbox = createMock(IVirtualBox.class);
+      expect(vbox.findMachine(anyObject(String.class))).andThrow(
+               new VBoxException(createNiceMock(Throwable.class), NOT_FOUND + "master")).anyTimes();
+      replay(vbox);
+      return vbox;
+   }
+
+   private static Runnable request(final MastersLoadingCache cache, final Image image, final Master[] masters,
+            final int index) {
+      return new Runnable() {
+         @Override
+         public void run() {
+            masters[index] = cache.getUnchecked(image);
+         }
+      };
+   }
+
+   private static MastersLoadingCache cache(IVirtualBox vbox, Map<Image, YamlImage> images,
+            Function<MasterSpec, IMachine> installer, IsoFetcher isoFetcher) {
+      VirtualBoxManager manager = createNiceMock(VirtualBoxManager.class);
+      expect(manager.getVBox()).andReturn(vbox).anyTimes();
+      replay(manager);
+      RetryIfSocketNotYetOpen socketTester = createNiceMock(RetryIfSocketNotYetOpen.class);
+      // no preseed server is running at the configured url
+      expect(socketTester.apply(anyObject(HostAndPort.class))).andReturn(false).anyTimes();
+      replay(socketTester);
+      Supplier<Map<Image, YamlImage>> yamlMapper = Suppliers.ofInstance(images);
+      return new MastersLoadingCache("4.2.8r83876", "http://127.0.0.1:23232", Files.createTempDir()
+               .getAbsolutePath(), installer, yamlMapper, Suppliers.ofInstance(manager), socketTester,
+               Suppliers.ofInstance(URI.create("http://localhost:18083/")), isoFetcher);
+   }
+
+   private static IsoFetcher isoFetcher() throws IOException {
+      IsoFetcher isoFetcher = createNiceMock(IsoFetcher.class);
+      expect(isoFetcher.fetch(anyObject(URI.class), anyObject(File.class), (String) anyObject())).andReturn(
+               new File("/tmp/test.iso")).anyTimes();
+      replay(isoFetcher);
+      return isoFetcher;
+   }
+
+   private static Image image(String id) {
+      Image image = createNiceMock(Image.class);
+      expect(image.getId()).andReturn(id).anyTimes();
+      replay(image);
+      return image;
+   }
+
+   private static YamlImage yaml(String id) {
+      YamlImage yaml = new YamlImage();
+      yaml.id = id;
+      yaml.os_family = "ubuntu";
+      yaml.os_64bit = true;
+      yaml.iso = "http://localhost/" + id + ".iso";
+      yaml.keystroke_sequence = "PRECONFIGURATION_URL";
+      yaml.preseed_cfg = "d-i debian-installer/locale string en_US";
+      yaml.username = "toor";
+      yaml.credential = "password";
+      return yaml;
+   }
+}
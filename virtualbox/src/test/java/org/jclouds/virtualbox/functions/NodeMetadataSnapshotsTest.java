@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.functions;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_IMAGE_PREFIX;
+import static org.jclouds.virtualbox.config.VirtualBoxConstants.VIRTUALBOX_NODE_PREFIX;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.List;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.testng.annotations.Test;
+import org.virtualbox_4_2.IMachine;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "NodeMetadataSnapshotsTest")
+public class NodeMetadataSnapshotsTest {
+
+   private static final Predicate<String> NODES = new Predicate<String>() {
+      @Override
+      public boolean apply(String vmName) {
+         return vmName.startsWith(VIRTUALBOX_NODE_PREFIX);
+      }
+   };
+
+   public void testLoadMatchingConvertsEachNodeOnce() {
+      IMachine first = machine(VIRTUALBOX_NODE_PREFIX + "group-0x0-first");
+      IMachine master = machine(VIRTUALBOX_IMAGE_PREFIX + "master");
+      IMachine second = machine(VIRTUALBOX_NODE_PREFIX + "group-0x0-second");
+      NodeMetadata firstNode = node("first");
+      NodeMetadata secondNode = node("second");
+      IMachineToNodeMetadata imachineToNodeMetadata = createMock(IMachineToNodeMetadata.class);
+      expect(imachineToNodeMetadata.apply(first)).andReturn(firstNode).once();
+      expect(imachineToNodeMetadata.apply(second)).andReturn(secondNode).once();
+      replay(first, master, second, imachineToNodeMetadata);
+
+      NodeMetadataSnapshots snapshots = new NodeMetadataSnapshots(imachineToNodeMetadata,
+               MoreExecutors.sameThreadExecutor(), "2");
+      List<IMachine> nodes = snapshots.loadMatching(ImmutableList.of(first, master, second), NODES);
+
+      assertEquals(nodes, ImmutableList.of(first, second));
+      assertSame(snapshots.apply(first), firstNode);
+      assertSame(snapshots.apply(second), secondNode);
+      verify(imachineToNodeMetadata);
+   }
+
+   public void testOtherMachineInstancesAreReadAfresh() {
+      IMachine listed = machine(VIRTUALBOX_NODE_PREFIX + "group-0x0-node");
+      IMachine lookedUp = machine(VIRTUALBOX_NODE_PREFIX + "group-0x0-node");
+      NodeMetadata listedNode = node("node");
+      NodeMetadata lookedUpNode = NodeMetadataBuilder.fromNodeMetadata(listedNode).status(Status.SUSPENDED).build();
+      IMachineToNodeMetadata imachineToNodeMetadata = createMock(IMachineToNodeMetadata.class);
+      expect(imachineToNodeMetadata.apply(listed)).andReturn(listedNode).once();
+      expect(imachineToNodeMetadata.apply(lookedUp)).andReturn(lookedUpNode).once();
+      replay(listed, lookedUp, imachineToNodeMetadata);
+
+      NodeMetadataSnapshots snapshots = new NodeMetadataSnapshots(imachineToNodeMetadata,
+               MoreExecutors.sameThreadExecutor(), "2");
+      snapshots.loadMatching(ImmutableList.of(listed), NODES);
+
+      assertSame(snapshots.apply(lookedUp), lookedUpNode);
+      verify(imachineToNodeMetadata);
+   }
+
+   private static IMachine machine(String vmName) {
+      IMachine machine = createMock(IMachine.class);
+      expect(machine.getName()).andReturn(vmName).anyTimes();
+      return machine;
+   }
+
+   private static NodeMetadata node(String name) {
+      return new NodeMetadataBuilder().ids(VIRTUALBOX_NODE_PREFIX + "group-0x0-" + name).name(name).group("group")
+               .status(Status.RUNNING).build();
+   }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.functions;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.util.List;
+
+import org.jclouds.virtualbox.domain.KeystrokePacing;
+import org.testng.annotations.Test;
+import org.virtualbox_4_2.IConsole;
+import org.virtualbox_4_2.IKeyboard;
+import org.virtualbox_4_2.ISession;
+
+import com.google.common.collect.ImmutableList;
+
+@Test(groups = "unit", testName = "SendScancodesTest")
+public class SendScancodesTest {
+
+   private static final KeystrokePacing BURSTS_OF_FOUR = KeystrokePacing.builder()
+            .fromKeystrokePacing(KeystrokePacing.ADAPTIVE).burstSize(4).specialKeyPauseMillis(0).build();
+
+   public void testAdaptivePacingSendsBursts() {
+      List<Integer> scancodes = ImmutableList.of(0x1e, 0x9e, 0x30, 0x9e, 0x39, 0xb9);
+      IKeyboard keyboard = createMock(IKeyboard.class);
+      expect(keyboard.putScancodes(scancodes.subList(0, 4))).andReturn(4L);
+      expect(keyboard.putScancodes(scancodes.subList(4, 6))).andReturn(2L);
+      ISession session = sessionWith(keyboard);
+
+      new SendScancodes(scancodes, BURSTS_OF_FOUR).apply(session);
+
+      verify(keyboard);
+   }
+
+   public void testAdaptivePacingResendsWhatTheFullQueueRejected() {
+      List<Integer> scancodes = ImmutableList.of(0x1e, 0x9e, 0x30, 0x9e);
+      IKeyboard keyboard = createMock(IKeyboard.class);
+      expect(keyboard.putScancodes(scancodes)).andReturn(1L);
+      expect(keyboard.putScancodes(scancodes.subList(1, 4))).andReturn(0L);
+      expect(keyboard.putScancodes(scancodes.subList(1, 4))).andReturn(3L);
+      ISession session = sessionWith(keyboard);
+
+      new SendScancodes(scancodes, BURSTS_OF_FOUR).apply(session);
+
+      verify(keyboard);
+   }
+
+   public void testFixedPacingSendsChunks() {
+      KeystrokePacing fixed = KeystrokePacing.builder().fromKeystrokePacing(KeystrokePacing.FIXED).burstSize(2)
+               .pauseMillis(0).specialKeyPauseMillis(0).build();
+      List<Integer> scancodes = ImmutableList.of(0x1e, 0x9e, 0x30);
+      IKeyboard keyboard = createMock(IKeyboard.class);
+      expect(keyboard.putScancodes(scancodes.subList(0, 2))).andReturn(2L);
+      expect(keyboard.putScancodes(scancodes.subList(2, 3))).andReturn(1L);
+      ISession session = sessionWith(keyboard);
+
+      new SendScancodes(scancodes, fixed).apply(session);
+
+      verify(keyboard);
+   }
+
+   private static ISession sessionWith(IKeyboard keyboard) {
+      ISession session = createMock(ISession.class);
+      IConsole console = createMock(IConsole.class);
+      expect(session.getConsole()).andReturn(console).anyTimes();
+      expect(console.getKeyboard()).andReturn(keyboard).anyTimes();
+      replay(session, console, keyboard);
+      return session;
+   }
+}
@@ -21,6 +21,7 @@ import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertSame;
 
 import org.jclouds.logging.Logger;
 import org.testng.annotations.Test;
@@ -102,4 +103,52 @@ public class TakeSnapshotIfNotAlreadyAttachedTest {
 
    }
 
+   @Test
+   public void testReuseUnchangedSnapshot() throws Exception {
+      VirtualBoxManager manager = createMock(VirtualBoxManager.class);
+      IMachine machine = createMock(IMachine.class);
+      ISnapshot snapshot = createMock(ISnapshot.class);
+
+      expect(machine.getCurrentSnapshot()).andReturn(snapshot);
+      expect(snapshot.getName()).andReturn("golden");
+      expect(machine.getCurrentStateModified()).andReturn(false);
+
+      replay(manager, machine, snapshot);
+
+      ISnapshot result = new TakeSnapshotIfNotAlreadyAttached(Suppliers.ofInstance(manager), "golden", "golden desc",
+            Logger.CONSOLE, true).apply(machine);
+
+      assertSame(result, snapshot);
+      verify(manager, machine, snapshot);
+   }
+
+   @Test
+   public void testRefreshSnapshotOfChangedMachine() throws Exception {
+      VirtualBoxManager manager = createNiceMock(VirtualBoxManager.class);
+      IMachine machine = createMock(IMachine.class);
+      ISession session = createMock(ISession.class);
+      IConsole console = createNiceMock(IConsole.class);
+      IProgress progress = createNiceMock(IProgress.class);
+      ISnapshot stale = createNiceMock(ISnapshot.class);
+      ISnapshot fresh = createNiceMock(ISnapshot.class);
+
+      expect(machine.getCurrentSnapshot()).andReturn(stale);
+      expect(stale.getName()).andReturn("golden");
+      expect(machine.getCurrentStateModified()).andReturn(true);
+      expect(machine.getName()).andReturn("machine").anyTimes();
+      expect(machine.getState()).andReturn(MachineState.PoweredOff).anyTimes();
+      expect(manager.openMachineSession(machine)).andReturn(session);
+      expect(session.getConsole()).andReturn(console);
+      expect(console.takeSnapshot("golden", "golden desc")).andReturn(progress);
+      expect(machine.getCurrentSnapshot()).andReturn(fresh);
+
+      replay(manager, machine, session, console, progress, stale, fresh);
+
+      ISnapshot result = new TakeSnapshotIfNotAlreadyAttached(Suppliers.ofInstance(manager), "golden", "golden desc",
+            Logger.CONSOLE, true).apply(machine);
+
+      assertSame(result, fresh);
+      verify(machine, console);
+   }
+
 }
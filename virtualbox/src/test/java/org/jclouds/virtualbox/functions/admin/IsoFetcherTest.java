@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.functions.admin;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Tests the {@link IsoFetcher} against a local http server that supports range requests, and
+ * redirects the requests under {@code /redirect} to the iso.
+ */
+@Test(groups = "unit", singleThreaded = true, testName = "IsoFetcherTest")
+public class IsoFetcherTest {
+
+   private final byte[] iso = new byte[(int) (4 * IsoFetcher.MIN_SEGMENT_SIZE + 12345)];
+   private final List<String> requests = Lists.newCopyOnWriteArrayList();
+   private String md5;
+   private Server server;
+   private URI isoUri;
+   private URI redirectUri;
+   private File workDir;
+
+   @BeforeClass
+   public void startServer() throws Exception {
+      new Random(42).nextBytes(iso);
+      md5 = Hashing.md5().hashBytes(iso).toString();
+      server = new Server(0);
+      server.setHandler(new AbstractHandler() {
+         @Override
+         public void handle(String target, Request baseRequest, HttpServletRequest request,
+                  HttpServletResponse response) throws IOException, ServletException {
+            String range = request.getHeader("Range");
+            baseRequest.setHandled(true);
+            if (target.startsWith("/redirect")) {
+               requests.add("REDIRECT " + request.getMethod());
+               response.setStatus(HttpServletResponse.SC_MOVED_TEMPORARILY);
+               response.setHeader("Location", isoUri.toString());
+               return;
+            }
+            requests.add(request.getMethod() + " " + range);
+            response.setHeader("Accept-Ranges", "bytes");
+            int start = 0;
+            int end = iso.length - 1;
+            if (range != null) {
+               String[] bounds = range.substring("bytes=".length()).split("-", -1);
+               start = Integer.parseInt(bounds[0]);
+               if (!bounds[1].isEmpty()) {
+                  end = Integer.parseInt(bounds[1]);
+               }
+               if (start >= iso.length) {
+                  response.setStatus(416);
+                  return;
+               }
+               response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+               response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + iso.length);
+            } else {
+               response.setStatus(HttpServletResponse.SC_OK);
+            }
+            response.setContentLength(end - start + 1);
+            if (!"HEAD".equals(request.getMethod())) {
+               response.getOutputStream().write(iso, start, end - start + 1);
+            }
+         }
+      });
+      server.start();
+      isoUri = URI.create("http://localhost:" + server.getConnectors()[0].getLocalPort() + "/isos/test.iso");
+      redirectUri = isoUri.resolve("/redirect/test.iso");
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void stopServer() throws Exception {
+      server.stop();
+   }
+
+   @BeforeMethod
+   public void createWorkDir() {
+      requests.clear();
+      workDir = Files.createTempDir();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void deleteWorkDir() throws IOException {
+      delete(workDir);
+   }
+
+   public void testSingleDownloadIsStoredByChecksum() throws Exception {
+      File iso = fetcher(1).fetch(isoUri, new File(workDir, "isos"), md5.toUpperCase());
+
+      assertEquals(iso, new File(new File(new File(workDir, "cache"), md5), "test.iso"));
+      assertContent(iso);
+      assertEquals(requests, Arrays.asList("GET null"));
+   }
+
+   public void testCachedIsoIsNotDownloadedAgain() throws Exception {
+      fetcher(1).fetch(isoUri, new File(workDir, "isos"), md5);
+      requests.clear();
+
+      File iso = fetcher(1).fetch(isoUri, new File(workDir, "other-isos"), md5);
+
+      assertContent(iso);
+      assertTrue(requests.isEmpty());
+   }
+
+   public void testDownloadWithoutChecksumGoesToTargetDir() throws Exception {
+      File iso = fetcher(1).fetch(isoUri, new File(workDir, "isos"), null);
+
+      assertEquals(iso, new File(new File(workDir, "isos"), "test.iso"));
+      assertContent(iso);
+   }
+
+   public void testResumesPartialDownload() throws Exception {
+      File target = new File(new File(new File(workDir, "cache"), md5), "test.iso");
+      target.getParentFile().mkdirs();
+      Files.write(Arrays.copyOf(iso, 1000), new File(target.getPath() + ".part"));
+
+      File iso = fetcher(1).fetch(isoUri, new File(workDir, "isos"), md5);
+
+      assertContent(iso);
+      assertEquals(requests, Arrays.asList("GET bytes=1000-"));
+      assertFalse(new File(target.getPath() + ".part").exists());
+   }
+
+   public void testParallelRangesAreJoined() throws Exception {
+      File iso = fetcher(4).fetch(isoUri, new File(workDir, "isos"), md5);
+
+      assertContent(iso);
+      assertEquals(requests.size(), 5);
+      assertEquals(requests.get(0), "HEAD null");
+      for (String request : requests.subList(1, requests.size())) {
+         assertTrue(request.startsWith("GET bytes="), request);
+      }
+      assertEquals(iso.getParentFile().list(), new String[] { "test.iso" });
+   }
+
+   public void testRedirectsAreFollowed() throws Exception {
+      File iso = fetcher(1).fetch(redirectUri, new File(workDir, "isos"), md5);
+
+      assertContent(iso);
+      assertEquals(requests, Arrays.asList("REDIRECT GET", "GET null"));
+   }
+
+   public void testRedirectsAreFollowedByEachRange() throws Exception {
+      File iso = fetcher(4).fetch(redirectUri, new File(workDir, "isos"), md5);
+
+      assertContent(iso);
+      assertEquals(requests.size(), 10);
+      assertEquals(requests.subList(0, 2), Arrays.asList("REDIRECT HEAD", "HEAD null"));
+      assertEquals(Collections.frequency(requests, "REDIRECT GET"), 4);
+   }
+
+   public void testChecksumMismatchFails() throws Exception {
+      String wrongMd5 = Hashing.md5().hashBytes(new byte[] { 1 }).toString();
+      try {
+         fetcher(1).fetch(isoUri, new File(workDir, "isos"), wrongMd5);
+         fail("expected a checksum failure");
+      } catch (IllegalStateException e) {
+         assertTrue(e.getMessage().contains(md5), e.getMessage());
+      }
+      assertEquals(new File(new File(workDir, "cache"), wrongMd5).list(), new String[0]);
+   }
+
+   private IsoFetcher fetcher(int segments) {
+      return new IsoFetcher(new File(workDir, "cache").getPath(), String.valueOf(segments));
+   }
+
+   private void assertContent(File file) throws IOException {
+      assertTrue(Arrays.equals(Files.toByteArray(file), iso), "unexpected content in " + file);
+   }
+
+   private static void delete(File file) {
+      File[] children = file.listFiles();
+      if (children != null) {
+         for (File child : children) {
+            delete(child);
+         }
+      }
+      file.delete();
+   }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.util;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+import org.virtualbox_4_2.VirtualBoxManager;
+
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+@Test(groups = "unit", testName = "GuestPropertyWatcherTest")
+public class GuestPropertyWatcherTest {
+
+   private static final String MACHINE_ID = "7b2c4a3e-5b1a-4a8e-9a52-8d1c6e0f3a21";
+   private static final String IP_PROPERTY = "/VirtualBox/GuestInfo/Net/0/V4/IP";
+
+   public void testEveryWaiterGetsTheAddress() {
+      GuestPropertyWatcher watcher = watcher();
+      ListenableFuture<String> first = watcher.nextIpAddressChange(MACHINE_ID);
+      ListenableFuture<String> second = watcher.nextIpAddressChange(MACHINE_ID);
+
+      watcher.onGuestPropertyChanged(MACHINE_ID, IP_PROPERTY, "192.168.56.101");
+
+      assertEquals(Futures.getUnchecked(first), "192.168.56.101");
+      assertEquals(Futures.getUnchecked(second), "192.168.56.101");
+   }
+
+   public void testCancellingAWaiterDoesNotAffectTheOthers() {
+      GuestPropertyWatcher watcher = watcher();
+      ListenableFuture<String> gaveUp = watcher.nextIpAddressChange(MACHINE_ID);
+      ListenableFuture<String> waiting = watcher.nextIpAddressChange(MACHINE_ID);
+
+      gaveUp.cancel(false);
+      assertFalse(waiting.isDone());
+
+      watcher.onGuestPropertyChanged(MACHINE_ID, IP_PROPERTY, "192.168.56.101");
+      assertTrue(gaveUp.isCancelled());
+      assertEquals(Futures.getUnchecked(waiting), "192.168.56.101");
+   }
+
+   public void testOtherPropertiesAndMachinesAreIgnored() {
+      GuestPropertyWatcher watcher = watcher();
+      ListenableFuture<String> waiting = watcher.nextIpAddressChange(MACHINE_ID);
+
+      watcher.onGuestPropertyChanged(MACHINE_ID, "/VirtualBox/GuestInfo/Net/0/MAC", "0800271A2B3C");
+      watcher.onGuestPropertyChanged(MACHINE_ID, IP_PROPERTY, "");
+      watcher.onGuestPropertyChanged("another-machine", IP_PROPERTY, "192.168.56.102");
+      assertFalse(waiting.isDone());
+
+      watcher.onGuestPropertyChanged(MACHINE_ID, "/VirtualBox/GuestInfo/Net/1/V4/IP", "10.0.2.15");
+      assertEquals(Futures.getUnchecked(waiting), "10.0.2.15");
+   }
+
+   /**
+    * A watcher whose event loop is never started, so events are delivered by the test.
+    */
+   private static GuestPropertyWatcher watcher() {
+      ListeningExecutorService userExecutor = createMock(ListeningExecutorService.class);
+      userExecutor.execute(anyObject(Runnable.class));
+      expectLastCall().anyTimes();
+      VirtualBoxManager manager = createMock(VirtualBoxManager.class);
+      replay(userExecutor, manager);
+      return new GuestPropertyWatcher(Suppliers.ofInstance(manager), userExecutor);
+   }
+}
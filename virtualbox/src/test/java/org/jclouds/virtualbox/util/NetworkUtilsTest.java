@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.virtualbox.util;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.easymock.IAnswer;
+import org.jclouds.compute.callables.RunScriptOnNode;
+import org.jclouds.compute.domain.ExecResponse;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.options.RunScriptOptions;
+import org.jclouds.scriptbuilder.domain.OsFamily;
+import org.jclouds.scriptbuilder.domain.Statement;
+import org.testng.annotations.Test;
+import org.virtualbox_4_2.HostNetworkInterfaceType;
+import org.virtualbox_4_2.IDHCPServer;
+import org.virtualbox_4_2.IHost;
+import org.virtualbox_4_2.IHostNetworkInterface;
+import org.virtualbox_4_2.IVirtualBox;
+import org.virtualbox_4_2.VirtualBoxManager;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "NetworkUtilsTest")
+public class NetworkUtilsTest {
+
+   private static final String NETWORK_NAME = "HostInterfaceNetworking-vboxnet0";
+
+   public void testConcurrentCallersCreateASingleHostOnlyInterface() throws Exception {
+      final AtomicInteger interfacesCreated = new AtomicInteger();
+      final AtomicInteger dhcpServersAdded = new AtomicInteger();
+
+      IHostNetworkInterface hostOnlyIf = createMock(IHostNetworkInterface.class);
+      expect(hostOnlyIf.getName()).andStubReturn("vboxnet0");
+      expect(hostOnlyIf.getNetworkName()).andStubReturn(NETWORK_NAME);
+      expect(hostOnlyIf.getIPAddress()).andStubReturn("192.168.56.1");
+      expect(hostOnlyIf.getInterfaceType()).andStubReturn(HostNetworkInterfaceType.HostOnly);
+      IDHCPServer dhcpServer = createMock(IDHCPServer.class);
+      expect(dhcpServer.getEnabled()).andStubReturn(true);
+      expect(dhcpServer.getNetworkName()).andStubReturn(NETWORK_NAME);
+
+      final List<IHostNetworkInterface> interfaces = Lists.newCopyOnWriteArrayList();
+      final List<IDHCPServer> dhcpServers = Lists.newCopyOnWriteArrayList();
+      VirtualBoxManager manager = createMock(VirtualBoxManager.class);
+      IVirtualBox vBox = createMock(IVirtualBox.class);
+      IHost host = createMock(IHost.class);
+      expect(manager.getVBox()).andStubReturn(vBox);
+      expect(vBox.getHost()).andStubReturn(host);
+      expect(host.getNetworkInterfaces()).andStubAnswer(new IAnswer<List<IHostNetworkInterface>>() {
+         @Override
+         public List<IHostNetworkInterface> answer() {
+            return ImmutableList.copyOf(interfaces);
+         }
+      });
+      expect(vBox.getDHCPServers()).andStubAnswer(new IAnswer<List<IDHCPServer>>() {
+         @Override
+         public List<IDHCPServer> answer() {
+            return ImmutableList.copyOf(dhcpServers);
+         }
+      });
+
+      RunScriptOnNode createHostOnlyIf = runner(new ExecResponse("Interface 'vboxnet0' was successfully created",
+               "", 0), interfacesCreated, interfaces, hostOnlyIf);
+      RunScriptOnNode addDhcpServer = runner(new ExecResponse("", "", 0), dhcpServersAdded, dhcpServers, dhcpServer);
+      RunScriptOnNode.Factory scriptRunnerFactory = createMock(RunScriptOnNode.Factory.class);
+      expect(scriptRunnerFactory.create(anyObject(NodeMetadata.class), anyObject(Statement.class),
+               anyObject(RunScriptOptions.class))).andStubAnswer(new ScriptAnswer(createHostOnlyIf, addDhcpServer));
+      replay(hostOnlyIf, dhcpServer, manager, vBox, host, scriptRunnerFactory);
+
+      NodeMetadata hostNode = new NodeMetadataBuilder().id("host").status(NodeMetadata.Status.RUNNING).build();
+      final NetworkUtils networkUtils = new NetworkUtils(Suppliers.ofInstance(manager), null,
+               Suppliers.ofInstance(hostNode), Suppliers.ofInstance(URI.create("http://localhost:18083/")), null,
+               Suppliers.ofInstance(hostNode), scriptRunnerFactory, null);
+
+      int callers = 8;
+      final CountDownLatch start = new CountDownLatch(1);
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(callers));
+      try {
+         List<ListenableFuture<String>> names = Lists.newArrayList();
+         for (int i = 0; i < callers; i++) {
+            names.add(executor.submit(new Callable<String>() {
+               @Override
+               public String call() throws InterruptedException {
+                  start.await();
+                  return networkUtils.getHostOnlyIfOrCreate();
+               }
+            }));
+         }
+         start.countDown();
+
+         for (String name : Futures.allAsList(names).get()) {
+            assertEquals(name, "vboxnet0");
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+      assertEquals(interfacesCreated.get(), 1);
+      assertEquals(dhcpServersAdded.get(), 1);
+   }
+
+   /**
+    * A script run that takes some time and then makes the given VirtualBox object appear.
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> RunScriptOnNode runner(final ExecResponse response, final AtomicInteger runs,
+            final List<T> objects, final T created) {
+      RunScriptOnNode runner = createMock(RunScriptOnNode.class);
+      expect(runner.init()).andStubReturn(runner);
+      expect(runner.call()).andStubAnswer(new IAnswer<ExecResponse>() {
+         @Override
+         public ExecResponse answer() throws InterruptedException {
+            runs.incrementAndGet();
+            Thread.sleep(50);
+            if (!objects.contains(created)) {
+               objects.add(created);
+            }
+            return response;
+         }
+      });
+      replay(runner);
+      return runner;
+   }
+
+   private static class ScriptAnswer implements IAnswer<RunScriptOnNode> {
+      private final RunScriptOnNode createHostOnlyIf;
+      private final RunScriptOnNode addDhcpServer;
+
+      private ScriptAnswer(RunScriptOnNode createHostOnlyIf, RunScriptOnNode addDhcpServer) {
+         this.createHostOnlyIf = createHostOnlyIf;
+         this.addDhcpServer = addDhcpServer;
+      }
+
+      @Override
+      public RunScriptOnNode answer() {
+         String script = ((Statement) getCurrentArguments()[1]).render(OsFamily.UNIX);
+         return script.contains("hostonlyif create") ? createHostOnlyIf : addDhcpServer;
+      }
+   }
+}